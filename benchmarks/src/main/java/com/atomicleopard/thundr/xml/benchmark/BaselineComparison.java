@@ -0,0 +1,153 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH CSV result files (as written by {@link BenchmarkRunner}) and prints a markdown report suitable for pasting
+ * into a review. A benchmark has regressed when its score is worse than the baseline by more than the threshold percentage.
+ * 
+ * Throughput scores are better when higher, time and normalised allocation (<code>gc.alloc.rate.norm</code>) scores are better
+ * when lower. Other secondary (profiler) results are not compared.
+ * 
+ * <pre>
+ * <code>
+ * java -cp target/benchmarks.jar com.atomicleopard.thundr.xml.benchmark.BaselineComparison baseline.csv jmh-result.csv [thresholdPercent]
+ * </code>
+ * </pre>
+ */
+public class BaselineComparison {
+	private static final String AllocationNorm = "gc.alloc.rate.norm";
+
+	private double thresholdPercent;
+
+	public BaselineComparison(double thresholdPercent) {
+		this.thresholdPercent = thresholdPercent;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BaselineComparison <baseline.csv> <current.csv> [thresholdPercent]");
+			System.exit(2);
+		}
+		double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+		boolean regressed = new BaselineComparison(threshold).compare(new File(args[0]), new File(args[1]), System.out);
+		System.exit(regressed ? 1 : 0);
+	}
+
+	/**
+	 * Prints a comparison of the current results against the baseline.
+	 * 
+	 * @return true if any benchmark regressed by more than the threshold
+	 */
+	public boolean compare(File baseline, File current, PrintStream out) throws IOException {
+		Map<String, Score> baselineScores = read(baseline);
+		Map<String, Score> currentScores = read(current);
+
+		boolean regressed = false;
+		out.println("| Benchmark | Unit | Baseline | Current | Change | |");
+		out.println("|---|---|---:|---:|---:|---|");
+		for (Map.Entry<String, Score> entry : currentScores.entrySet()) {
+			Score now = entry.getValue();
+			Score before = baselineScores.get(entry.getKey());
+			if (before == null) {
+				out.println(String.format("| %s | %s | - | %.3f | new | |", entry.getKey(), now.unit, now.score));
+				continue;
+			}
+			double change = before.score == 0 ? 0 : (now.score - before.score) * 100 / before.score;
+			double worsening = now.higherIsBetter() ? -change : change;
+			boolean regression = worsening > thresholdPercent;
+			regressed |= regression;
+			out.println(String.format("| %s | %s | %.3f | %.3f | %+.1f%% | %s |", entry.getKey(), now.unit, before.score, now.score, change, regression ? "REGRESSION" : ""));
+		}
+		return regressed;
+	}
+
+	protected Map<String, Score> read(File file) throws IOException {
+		Map<String, Score> scores = new LinkedHashMap<String, Score>();
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			List<String> header = columns(reader.readLine());
+			int benchmark = header.indexOf("Benchmark");
+			int mode = header.indexOf("Mode");
+			int score = header.indexOf("Score");
+			int unit = header.indexOf("Unit");
+			String line;
+			while ((line = reader.readLine()) != null) {
+				List<String> columns = columns(line);
+				String name = columns.get(benchmark);
+				boolean secondary = name.contains(":");
+				if (secondary && !name.endsWith(AllocationNorm)) {
+					continue;
+				}
+				StringBuilder key = new StringBuilder(name).append(" ").append(columns.get(mode));
+				for (int i = unit + 1; i < columns.size(); i++) {
+					key.append(" ").append(header.get(i).replace("Param: ", "")).append("=").append(columns.get(i));
+				}
+				scores.put(key.toString(), new Score(columns.get(mode), secondary, Double.parseDouble(columns.get(score)), columns.get(unit)));
+			}
+		}
+		return scores;
+	}
+
+	private List<String> columns(String line) {
+		List<String> columns = new ArrayList<String>();
+		StringBuilder column = new StringBuilder();
+		boolean quoted = false;
+		for (char c : line.toCharArray()) {
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (c == ',' && !quoted) {
+				columns.add(column.toString());
+				column.setLength(0);
+			} else {
+				column.append(c);
+			}
+		}
+		columns.add(column.toString());
+		return columns;
+	}
+
+	protected static class Score {
+		private String mode;
+		private boolean allocation;
+		private double score;
+		private String unit;
+
+		public Score(String mode, boolean allocation, double score, String unit) {
+			this.mode = mode;
+			this.allocation = allocation;
+			this.score = score;
+			this.unit = unit;
+		}
+
+		public boolean higherIsBetter() {
+			return !allocation && "thrpt".equals(mode);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the thundr-contrib-xml benchmarks with the GC profiler enabled, so that allocation rates are reported alongside
+ * throughput and latency, and writes the results as CSV.
+ * 
+ * <pre>
+ * <code>
+ * mvn package
+ * java -jar target/benchmarks.jar                                  # everything, results in jmh-result.csv
+ * java -jar target/benchmarks.jar JaxbRead -p payloadBytes=1024    # any standard JMH options can be supplied
+ * java -Dbaseline=baseline.csv -jar target/benchmarks.jar          # compare the results against a previous run
+ * </code>
+ * </pre>
+ * 
+ * When a baseline is supplied, a comparison report is printed after the run (see {@link BaselineComparison}) and the process
+ * exits with a non-zero status if any benchmark regressed.
+ */
+public class BenchmarkRunner {
+	public static final String DefaultResult = "jmh-result.csv";
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class);
+		if (!commandLine.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.CSV);
+		}
+		String result = commandLine.getResult().hasValue() ? commandLine.getResult().get() : DefaultResult;
+		options.result(result);
+
+		new Runner(options.build()).run();
+
+		String baseline = System.getProperty("baseline");
+		if (baseline != null) {
+			BaselineComparison comparison = new BaselineComparison(Double.parseDouble(System.getProperty("threshold", "10")));
+			boolean regressed = comparison.compare(new File(baseline), new File(result), System.out);
+			System.exit(regressed ? 1 : 0);
+		}
+	}
+}
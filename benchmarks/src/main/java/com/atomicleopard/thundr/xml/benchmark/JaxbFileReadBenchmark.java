@@ -0,0 +1,112 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.atomicleopard.thundr.xml.jaxb.Batch;
+import com.atomicleopard.thundr.xml.jaxb.Combiner;
+import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+
+/**
+ * Compares reading a large file sequentially through {@link com.atomicleopard.thundr.xml.jaxb.JaxbReader#from(Path)} with parsing
+ * its segments in parallel using {@link com.atomicleopard.thundr.xml.jaxb.JaxbReader#parseIn(java.util.concurrent.Executor, int)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 4)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class JaxbFileReadBenchmark {
+	@Param({ "10485760", "104857600" })
+	public int payloadBytes;
+
+	@Param({ "2", "4", "8" })
+	public int segments;
+
+	private Jaxb jaxb;
+	private Path file;
+	private ExecutorService executor;
+
+	@Setup
+	public void setup() throws IOException {
+		jaxb = new Jaxb();
+		file = Files.createTempFile("jaxb-benchmark", ".xml");
+		jaxb.write(Payloads.many(payloadBytes)).rootElement(Payloads.RootElement).to(file);
+		executor = Executors.newFixedThreadPool(segments);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		executor.shutdownNow();
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public Integer sequential() {
+		return jaxb.read(BenchmarkPojo.class).from(file).stream(new CountingBatch());
+	}
+
+	@Benchmark
+	public Integer parallel() {
+		return jaxb.read(BenchmarkPojo.class).from(file).parseIn(executor, segments).stream(new CountingBatch(), new CountingBatch());
+	}
+
+	@Benchmark
+	public Integer parallelUnordered() {
+		return jaxb.read(BenchmarkPojo.class).from(file).parseIn(executor, segments).ordered(false).stream(new CountingBatch());
+	}
+
+	@Benchmark
+	public List<BenchmarkPojo> parallelList() {
+		return jaxb.read(BenchmarkPojo.class).from(file).parseIn(executor, segments).list();
+	}
+
+	private static class CountingBatch implements Batch<BenchmarkPojo, Integer>, Combiner<Integer> {
+		@Override
+		public Integer process(Integer result, List<BenchmarkPojo> batch) {
+			return batch.size() + (result == null ? 0 : result);
+		}
+
+		@Override
+		public Integer combine(Integer left, Integer right) {
+			return left + right;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+
+/**
+ * Compares writing large batches to a file through {@link com.atomicleopard.thundr.xml.jaxb.JaxbBatchWriter#to(Path)} and
+ * {@link com.atomicleopard.thundr.xml.jaxb.JaxbBatchWriter#to(java.nio.channels.WritableByteChannel)} with the existing
+ * {@link com.atomicleopard.thundr.xml.jaxb.JaxbBatchWriter#to(OutputStream)} over a (buffered) {@link FileOutputStream}.
+ * Unlike {@link JaxbWriteBenchmark}, these include file I/O, so results depend on the filesystem of the temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 4)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class JaxbFileWriteBenchmark {
+	@Param({ "10485760", "104857600" })
+	public int payloadBytes;
+
+	@Param({ "65536", "1048576" })
+	public int bufferSize;
+
+	private Jaxb jaxb;
+	private List<BenchmarkPojo> many;
+	private Path file;
+
+	@Setup
+	public void setup() throws IOException {
+		jaxb = new Jaxb();
+		many = Payloads.many(payloadBytes);
+		file = Files.createTempFile("jaxb-benchmark", ".xml");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public Path fileOutputStream() throws IOException {
+		try (OutputStream os = new FileOutputStream(file.toFile())) {
+			jaxb.write(many).rootElement(Payloads.RootElement).to(os);
+		}
+		return file;
+	}
+
+	@Benchmark
+	public Path bufferedFileOutputStream() throws IOException {
+		try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file.toFile()), bufferSize)) {
+			jaxb.write(many).rootElement(Payloads.RootElement).to(os);
+		}
+		return file;
+	}
+
+	@Benchmark
+	public Path fileChannel() throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			jaxb.write(many).rootElement(Payloads.RootElement).bufferSize(bufferSize).to(channel);
+		}
+		return file;
+	}
+
+	@Benchmark
+	public Path path() {
+		return jaxb.write(many).rootElement(Payloads.RootElement).bufferSize(bufferSize).to(file);
+	}
+}
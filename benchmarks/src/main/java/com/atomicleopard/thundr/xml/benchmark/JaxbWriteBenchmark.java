@@ -0,0 +1,85 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.benchmark;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.atomicleopard.thundr.xml.benchmark.Payloads.DiscardingOutputStream;
+import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+
+/**
+ * Benchmarks {@link com.atomicleopard.thundr.xml.jaxb.JaxbWriter} and {@link com.atomicleopard.thundr.xml.jaxb.JaxbBatchWriter}
+ * across payload sizes. Stream output is discarded so that the benchmarks measure marshalling rather than I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class JaxbWriteBenchmark {
+	@Param({ "1024", "102400", "10485760", "104857600" })
+	public int payloadBytes;
+
+	private Jaxb jaxb;
+	private BenchmarkPojo one;
+	private List<BenchmarkPojo> many;
+	private OutputStream discard = new DiscardingOutputStream();
+
+	@Setup
+	public void setup() {
+		jaxb = new Jaxb();
+		one = Payloads.one(payloadBytes);
+		many = Payloads.many(payloadBytes);
+	}
+
+	@Benchmark
+	public OutputStream writerToOutputStream() {
+		return jaxb.write(one).to(discard);
+	}
+
+	@Benchmark
+	public String writerToString() {
+		return jaxb.write(one).string();
+	}
+
+	@Benchmark
+	public OutputStream batchWriterToOutputStream() {
+		return jaxb.write(many).rootElement(Payloads.RootElement).to(discard);
+	}
+
+	@Benchmark
+	public String batchWriterToString() {
+		return jaxb.write(many).rootElement(Payloads.RootElement).string();
+	}
+}
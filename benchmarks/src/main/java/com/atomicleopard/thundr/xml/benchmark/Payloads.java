@@ -0,0 +1,85 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.benchmark;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+
+/**
+ * Generates benchmark payloads of (approximately) a given size in bytes.
+ */
+public class Payloads {
+	public static final String RootElement = "Root";
+
+	/**
+	 * @return a single javabean whose xml representation is approximately the given size
+	 */
+	public static BenchmarkPojo one(int payloadBytes) {
+		int overhead = xml(new Jaxb(), pojo(0, "")).length;
+		char[] name = new char[Math.max(payloadBytes - overhead, 0)];
+		Arrays.fill(name, 'n');
+		return pojo(0, new String(name));
+	}
+
+	/**
+	 * @return a list of javabeans whose xml representation, when written as a batch, is approximately the given size
+	 */
+	public static List<BenchmarkPojo> many(int payloadBytes) {
+		Jaxb jaxb = new Jaxb();
+		int overhead = xml(jaxb, Arrays.<BenchmarkPojo> asList()).length;
+		int pojoBytes = xml(jaxb, Arrays.asList(pojo(0, "name"))).length - overhead;
+		int count = Math.max((payloadBytes - overhead) / pojoBytes, 1);
+		List<BenchmarkPojo> pojos = new ArrayList<BenchmarkPojo>(count);
+		for (int i = 0; i < count; i++) {
+			pojos.add(pojo(i, "name"));
+		}
+		return pojos;
+	}
+
+	public static byte[] xml(Jaxb jaxb, BenchmarkPojo pojo) {
+		return jaxb.write(pojo).string().getBytes(StandardCharsets.UTF_8);
+	}
+
+	public static byte[] xml(Jaxb jaxb, List<BenchmarkPojo> pojos) {
+		return jaxb.write(pojos).rootElement(RootElement).string().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static BenchmarkPojo pojo(int i, String name) {
+		return new BenchmarkPojo("id" + i, name, new BigDecimal(i).movePointLeft(2));
+	}
+
+	/**
+	 * An {@link OutputStream} which discards everything written to it, so that benchmarks measure marshalling rather than I/O
+	 */
+	public static class DiscardingOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
@@ -18,9 +18,21 @@
  */
 package com.atomicleopard.thundr.xml;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.atomicleopard.thundr.xml.bind.JaxbBinder;
+import com.atomicleopard.thundr.xml.http.Compression;
+import com.atomicleopard.thundr.xml.jaxb.CachedStaxFactoryProvider;
 import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+import com.atomicleopard.thundr.xml.jaxb.JaxbContextRegistry;
+import com.atomicleopard.thundr.xml.jaxb.JaxbPool;
+import com.atomicleopard.thundr.xml.jaxb.StaxFactoryProvider;
+import com.atomicleopard.thundr.xml.metrics.HistogramJaxbMetrics;
+import com.atomicleopard.thundr.xml.metrics.JaxbMetrics;
 import com.atomicleopard.thundr.xml.view.JaxbViewResolver;
+import com.atomicleopard.thundr.xml.view.ResponseBuffers;
+import com.atomicleopard.thundr.xml.view.XmlCache;
 import com.atomicleopard.thundr.xml.view.XmlNegotiator;
 import com.atomicleopard.thundr.xml.view.XmlView;
 import com.threewks.thundr.bind.BinderModule;
@@ -53,8 +65,56 @@ import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistry;
  * <li>Awesome feature 2</li>
  * </ul>
  * 
+ * JAXBContexts can be created at startup rather than on first use by supplying the following (comma separated) properties
+ * in your application properties:
+ * <ul>
+ * <li>{@value #PreloadClassesProperty} - fully qualified class names</li>
+ * <li>{@value #PreloadPackagesProperty} - package names, each containing a <code>jaxb.index</code> file</li>
+ * </ul>
+ * 
+ * Pooling of marshallers and unmarshallers can be tuned using the following properties:
+ * <ul>
+ * <li>{@value #PoolMaxIdleProperty} - the number of idle instances retained per type and property set</li>
+ * <li>{@value #PoolIdleTimeoutProperty} - the time in milliseconds after which idle instances are evicted</li>
+ * </ul>
+ * 
+ * Setting the property {@value #DetectStaxProperty} to true will use the fastest StAX implementation available on the classpath
+ * rather than the platform default, see {@link CachedStaxFactoryProvider#detect()}.
+ * 
+ * Setting the property {@value #CompressionProperty} to true will compress xml responses for clients which accept gzip or deflate.
+ * This can be tuned using the following properties:
+ * <ul>
+ * <li>{@value #CompressionThresholdProperty} - the size in bytes a response must exceed to be compressed</li>
+ * <li>{@value #CompressionLevelProperty} - the compression level, from 1 (fastest) to 9 (smallest)</li>
+ * </ul>
+ * 
+ * Compressed request bodies are limited to {@value JaxbBinder#DefaultMaxDecodedBytes} bytes once decoded, which can be changed using
+ * the property {@value #BindMaxDecodedBytesProperty}. 0 disables the limit.
+ * 
+ * Setting the property {@value #CacheMaxBytesProperty} to a number of bytes caches the content of views which have a cache key,
+ * see {@link XmlCache}. The cache is available from the injection context.
+ * 
+ * Setting the property {@value #BufferMaxBytesProperty} to a number of bytes sends responses up to that size with a
+ * <code>Content-Length</code> in a single write, see {@link ResponseBuffers}.
+ * 
+ * Reads and writes are reported to the {@link JaxbMetrics} in the injection context, if one has been injected before this module is
+ * configured. Otherwise setting the property {@value #MetricsProperty} to true records them in a {@link HistogramJaxbMetrics}, or to the
+ * fully qualified name of a {@link JaxbMetrics} implementation with a default constructor uses that. The metrics in use are available
+ * from the injection context.
  */
 public class XmlContribModule extends BaseModule {
+	public static final String PreloadClassesProperty = "xmlPreloadClasses";
+	public static final String PreloadPackagesProperty = "xmlPreloadPackages";
+	public static final String PoolMaxIdleProperty = "xmlPoolMaxIdle";
+	public static final String PoolIdleTimeoutProperty = "xmlPoolIdleTimeout";
+	public static final String DetectStaxProperty = "xmlDetectStax";
+	public static final String CompressionProperty = "xmlCompression";
+	public static final String CompressionThresholdProperty = "xmlCompressionThreshold";
+	public static final String CompressionLevelProperty = "xmlCompressionLevel";
+	public static final String CacheMaxBytesProperty = "xmlCacheMaxBytes";
+	public static final String BufferMaxBytesProperty = "xmlBufferMaxBytes";
+	public static final String MetricsProperty = "xmlMetrics";
+	public static final String BindMaxDecodedBytesProperty = "xmlBindMaxDecodedBytes";
 
 	@Override
 	public void requires(DependencyRegistry dependencyRegistry) {
@@ -65,9 +125,20 @@ public class XmlContribModule extends BaseModule {
 
 	@Override
 	public void configure(UpdatableInjectionContext injectionContext) {
-		Jaxb jaxb = new Jaxb();
-		JaxbBinder jaxbBinder = new JaxbBinder(jaxb);
-		JaxbViewResolver viewResolver = new JaxbViewResolver(jaxb);
+		JaxbMetrics metrics = metrics(injectionContext);
+		JaxbContextRegistry contexts = new JaxbContextRegistry(metrics);
+		preload(injectionContext, contexts);
+
+		int maxIdle = (int) numericProperty(injectionContext, PoolMaxIdleProperty, JaxbPool.DefaultMaxIdle);
+		long idleTimeout = numericProperty(injectionContext, PoolIdleTimeoutProperty, JaxbPool.DefaultIdleTimeout);
+		boolean detectStax = booleanProperty(injectionContext, DetectStaxProperty);
+		StaxFactoryProvider staxFactories = detectStax ? CachedStaxFactoryProvider.detect() : new CachedStaxFactoryProvider();
+		Jaxb jaxb = new Jaxb(contexts, new JaxbPool(maxIdle, idleTimeout), staxFactories, metrics);
+		injectionContext.inject(jaxb).as(Jaxb.class);
+
+		JaxbBinder jaxbBinder = new JaxbBinder(jaxb, numericProperty(injectionContext, BindMaxDecodedBytesProperty, JaxbBinder.DefaultMaxDecodedBytes));
+		XmlCache cache = cache(injectionContext);
+		JaxbViewResolver viewResolver = new JaxbViewResolver(jaxb, compression(injectionContext), cache, buffers(injectionContext));
 		XmlNegotiator negotiator = new XmlNegotiator();
 
 		BinderRegistry binderRegistry = injectionContext.get(BinderRegistry.class);
@@ -80,4 +151,89 @@ public class XmlContribModule extends BaseModule {
 		viewNegotiatorRegistry.addNegotiator(ContentType.ApplicationXml.value(), negotiator);
 	}
 
+	protected JaxbMetrics metrics(UpdatableInjectionContext injectionContext) {
+		if (injectionContext.contains(JaxbMetrics.class)) {
+			return injectionContext.get(JaxbMetrics.class);
+		}
+		String value = injectionContext.contains(String.class, MetricsProperty) ? injectionContext.get(String.class, MetricsProperty).trim() : "";
+		JaxbMetrics metrics = JaxbMetrics.None;
+		if (Boolean.parseBoolean(value)) {
+			metrics = new HistogramJaxbMetrics();
+		} else if (!value.isEmpty() && !"false".equalsIgnoreCase(value)) {
+			try {
+				metrics = Class.forName(value).asSubclass(JaxbMetrics.class).newInstance();
+			} catch (ClassNotFoundException | ClassCastException | InstantiationException | IllegalAccessException e) {
+				throw new XmlException(e, "Failed to create the JaxbMetrics %s: %s", value, e.getMessage());
+			}
+		}
+		injectionContext.inject(metrics).as(JaxbMetrics.class);
+		return metrics;
+	}
+
+	protected void preload(UpdatableInjectionContext injectionContext, JaxbContextRegistry contexts) {
+		for (String className : property(injectionContext, PreloadClassesProperty)) {
+			try {
+				contexts.preload(Class.forName(className));
+			} catch (ClassNotFoundException e) {
+				throw new XmlException(e, "Failed to preload a JAXBContext for %s: class not found", className);
+			}
+		}
+		for (String packageName : property(injectionContext, PreloadPackagesProperty)) {
+			contexts.preload(packageName);
+		}
+	}
+
+	protected Compression compression(UpdatableInjectionContext injectionContext) {
+		if (!booleanProperty(injectionContext, CompressionProperty)) {
+			return Compression.None;
+		}
+		int threshold = (int) numericProperty(injectionContext, CompressionThresholdProperty, Compression.DefaultThreshold);
+		int level = (int) numericProperty(injectionContext, CompressionLevelProperty, Compression.DefaultLevel);
+		return new Compression().threshold(threshold).level(level);
+	}
+
+	protected XmlCache cache(UpdatableInjectionContext injectionContext) {
+		long maxBytes = numericProperty(injectionContext, CacheMaxBytesProperty, 0);
+		if (maxBytes <= 0) {
+			return null;
+		}
+		XmlCache cache = new XmlCache(maxBytes);
+		injectionContext.inject(cache).as(XmlCache.class);
+		return cache;
+	}
+
+	protected ResponseBuffers buffers(UpdatableInjectionContext injectionContext) {
+		int maxSize = (int) numericProperty(injectionContext, BufferMaxBytesProperty, 0);
+		return maxSize <= 0 ? null : new ResponseBuffers(maxSize, ResponseBuffers.DefaultMaxIdle);
+	}
+
+	private boolean booleanProperty(UpdatableInjectionContext injectionContext, String name) {
+		return injectionContext.contains(String.class, name) && Boolean.parseBoolean(injectionContext.get(String.class, name).trim());
+	}
+
+	private long numericProperty(UpdatableInjectionContext injectionContext, String name, long defaultValue) {
+		if (!injectionContext.contains(String.class, name)) {
+			return defaultValue;
+		}
+		String value = injectionContext.get(String.class, name).trim();
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new XmlException(e, "The property %s must be a number, but was '%s'", name, value);
+		}
+	}
+
+	private List<String> property(UpdatableInjectionContext injectionContext, String name) {
+		List<String> values = new ArrayList<>();
+		if (injectionContext.contains(String.class, name)) {
+			for (String value : injectionContext.get(String.class, name).split(",")) {
+				value = value.trim();
+				if (!value.isEmpty()) {
+					values.add(value);
+				}
+			}
+		}
+		return values;
+	}
+
 }
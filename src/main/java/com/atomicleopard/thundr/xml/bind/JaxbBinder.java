@@ -18,12 +18,20 @@
  */
 package com.atomicleopard.thundr.xml.bind;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.atomicleopard.thundr.xml.http.ContentEncoding;
 import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+import com.atomicleopard.thundr.xml.metrics.JaxbEvent;
+import com.atomicleopard.thundr.xml.metrics.JaxbEvents;
 import com.threewks.thundr.bind.BindException;
 import com.threewks.thundr.bind.Binder;
 import com.threewks.thundr.http.ContentType;
@@ -31,16 +39,35 @@ import com.threewks.thundr.introspection.ParameterDescription;
 import com.threewks.thundr.introspection.TypeIntrospector;
 
 public class JaxbBinder implements Binder {
+	public static final String ContentEncodingHeader = "Content-Encoding";
+	public static final long DefaultMaxDecodedBytes = 16 * 1024 * 1024;
+	private static final String Identity = "identity";
+
 	private Jaxb jaxb;
+	private long maxDecodedBytes;
 
 	public JaxbBinder(Jaxb jaxb) {
+		this(jaxb, DefaultMaxDecodedBytes);
+	}
+
+	/**
+	 * @param jaxb
+	 * @param maxDecodedBytes the size in bytes a request body with a <code>Content-Encoding</code> may decode to before binding fails,
+	 *            protecting against small compressed bodies which inflate to exhaust memory. 0 or less disables the limit.
+	 */
+	public JaxbBinder(Jaxb jaxb, long maxDecodedBytes) {
 		this.jaxb = jaxb;
+		this.maxDecodedBytes = maxDecodedBytes;
 	}
 
 	public Jaxb getJaxb() {
 		return jaxb;
 	}
 
+	public long getMaxDecodedBytes() {
+		return maxDecodedBytes;
+	}
+
 	public boolean canBind(String contentType) {
 		return ContentType.ApplicationXml.matches(contentType);
 	}
@@ -61,10 +88,71 @@ public class JaxbBinder implements Binder {
 
 	Object bindToParameter(HttpServletRequest req, ParameterDescription xmlParameterDescription) {
 		Class<?> type = xmlParameterDescription.classType();
+		JaxbEvent event = JaxbEvents.begin(JaxbEvents.Kind.Bind);
+		InputStream body = null;
+		InputStream decoded = null;
 		try {
-			return jaxb.read(type).validate(false).from(req.getInputStream()).one();
+			body = req.getInputStream();
+			decoded = decode(req, body);
+			Object bound = jaxb.read(type).validate(false).from(decoded).one();
+			// the bytes as sent, before any content encoding is decoded
+			event.type(type).elements(1).bytes(req.getContentLength()).commit();
+			return bound;
 		} catch (Exception e) {
 			throw new BindException(e, "Failed to bind parameter '%s' as %s using JAXB: %s", xmlParameterDescription.name(), type.getSimpleName(), e.getMessage());
+		} finally {
+			// decoding streams hold native memory until closed, closing them also closes the request body they wrap
+			if (decoded != null && decoded != body) {
+				close(decoded);
+			}
+		}
+	}
+
+	/**
+	 * Wraps the request body so that any <code>Content-Encoding</code> applied by the client is decoded as the body is read.
+	 * Where multiple codings are listed they are decoded in reverse order of application. Decoded bodies are limited to the
+	 * configured maximum size, reading beyond it throws a {@link BindException}.
+	 * 
+	 * The returned stream must be closed once read when it is not the given body, so that decoders can release their resources.
+	 * Closing it also closes the body.
+	 * 
+	 * @throws BindException if the body uses a coding which is not supported
+	 */
+	protected InputStream decode(HttpServletRequest req, InputStream body) throws IOException {
+		@SuppressWarnings("unchecked")
+		Enumeration<String> headers = req.getHeaders(ContentEncodingHeader);
+		List<String> codings = new ArrayList<>();
+		while (headers != null && headers.hasMoreElements()) {
+			for (String coding : headers.nextElement().split(",")) {
+				coding = coding.trim();
+				if (!coding.isEmpty() && !Identity.equalsIgnoreCase(coding)) {
+					codings.add(coding);
+				}
+			}
+		}
+		InputStream decoded = body;
+		try {
+			for (int i = codings.size() - 1; i >= 0; i--) {
+				ContentEncoding encoding = ContentEncoding.from(codings.get(i));
+				if (encoding == null) {
+					throw new BindException("Unsupported %s '%s'", ContentEncodingHeader, codings.get(i));
+				}
+				decoded = encoding.decompress(decoded);
+			}
+		} catch (IOException | RuntimeException e) {
+			if (decoded != body) {
+				close(decoded);
+			}
+			throw e;
+		}
+		return decoded == body || maxDecodedBytes <= 0 ? decoded : new LimitedInputStream(decoded, maxDecodedBytes);
+	}
+
+	private void close(InputStream stream) {
+		try {
+			stream.close();
+		} catch (IOException e) {
+			// the body has already been read or failed, there is nothing more to do with it
 		}
 	}
 
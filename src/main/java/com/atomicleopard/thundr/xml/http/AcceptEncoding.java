@@ -0,0 +1,106 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Chooses the {@link ContentEncoding} to use for a response from the <code>Accept-Encoding</code> headers of a request.
+ * 
+ * The supported coding with the highest quality value is chosen, preferring gzip over deflate when they are equal.
+ * Codings given a quality of 0 are never chosen, and codings which are not listed are only acceptable through a <code>*</code>.
+ */
+public class AcceptEncoding {
+	public static final String Header = "Accept-Encoding";
+
+	private AcceptEncoding() {
+	}
+
+	/**
+	 * @param req
+	 * @return the {@link ContentEncoding} to use, or null if the response should not be compressed
+	 */
+	public static ContentEncoding negotiate(HttpServletRequest req) {
+		@SuppressWarnings("unchecked")
+		Enumeration<String> headers = req.getHeaders(Header);
+		return headers == null ? null : negotiate(Collections.list(headers));
+	}
+
+	/**
+	 * @param headers the values of each <code>Accept-Encoding</code> header
+	 * @return the {@link ContentEncoding} to use, or null if the response should not be compressed
+	 */
+	public static ContentEncoding negotiate(List<String> headers) {
+		Map<ContentEncoding, Double> qualities = new EnumMap<>(ContentEncoding.class);
+		Double wildcard = null;
+		for (String header : headers) {
+			for (String coding : header.split(",")) {
+				String[] parts = coding.split(";");
+				String name = parts[0].trim();
+				Double quality = quality(parts);
+				if (quality == null) {
+					continue;
+				}
+				if ("*".equals(name)) {
+					wildcard = quality;
+				} else {
+					ContentEncoding encoding = ContentEncoding.from(name);
+					if (encoding != null) {
+						qualities.put(encoding, quality);
+					}
+				}
+			}
+		}
+
+		ContentEncoding chosen = null;
+		double best = 0;
+		for (ContentEncoding encoding : ContentEncoding.values()) {
+			Double quality = qualities.containsKey(encoding) ? qualities.get(encoding) : wildcard;
+			if (quality != null && quality > best) {
+				chosen = encoding;
+				best = quality;
+			}
+		}
+		return chosen;
+	}
+
+	/**
+	 * @return the quality value of a coding, or null if it is invalid and should be ignored
+	 */
+	private static Double quality(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String parameter = parts[i].trim();
+			if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+				try {
+					double quality = Double.parseDouble(parameter.substring(2).trim());
+					return quality < 0 || quality > 1 ? null : quality;
+				} catch (NumberFormatException e) {
+					return null;
+				}
+			}
+		}
+		return 1.0;
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * An {@link OutputStream} which holds the body of a response in memory so that it can be sent with a
+ * <code>Content-Length</code> in a single write. If the body grows beyond the maximum size, everything written so far is
+ * sent and the rest of the body is streamed straight to the target.
+ * 
+ * Flushing has no effect until the body has outgrown the buffer. Closing the stream sends the buffered body but does not close
+ * the target.
+ */
+public class BufferingOutputStream extends OutputStream {
+	private HttpServletResponse resp;
+	private OutputStream target;
+	private int maxSize;
+	private byte[] buffer;
+	private int count = 0;
+	private long size = 0;
+	private boolean streaming = false;
+	private boolean closed = false;
+
+	/**
+	 * @param resp the response to set the content length on
+	 * @param target the stream the body is written to, usually the response output stream
+	 * @param buffer the initial buffer, which is grown as required up to the maximum size
+	 * @param maxSize the largest body which is buffered
+	 */
+	public BufferingOutputStream(HttpServletResponse resp, OutputStream target, byte[] buffer, int maxSize) {
+		this.resp = resp;
+		this.target = target;
+		this.buffer = buffer;
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		size += len;
+		if (!streaming && count + len > maxSize) {
+			streaming = true;
+			target.write(buffer, 0, count);
+		}
+		if (streaming) {
+			target.write(b, off, len);
+		} else {
+			if (count + len > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.min(maxSize, Math.max(count + len, buffer.length * 2)));
+			}
+			System.arraycopy(b, off, buffer, count, len);
+			count += len;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (streaming) {
+			target.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			if (!streaming) {
+				if (!resp.isCommitted()) {
+					resp.setContentLength(count);
+				}
+				target.write(buffer, 0, count);
+			}
+		}
+	}
+
+	/**
+	 * @return true if the body outgrew the buffer and was streamed
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * @return the total number of bytes written
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the buffer, which may have been replaced by a larger one as the body was written
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+}
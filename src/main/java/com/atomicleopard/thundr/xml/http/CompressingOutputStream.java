@@ -0,0 +1,118 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * An {@link OutputStream} which compresses a response body as it is written, once it exceeds a threshold.
+ * 
+ * Until the threshold is exceeded the body is held in memory, and flushes are deferred because it is not yet known whether the
+ * body will be compressed. If the stream is closed first, the body is written uncompressed with a <code>Content-Length</code>.
+ * Otherwise the <code>Content-Encoding</code> header is set and the body is compressed as it is written from then on, so large
+ * bodies are never held in memory. Once compressing, flushes send everything written so far to the client.
+ * 
+ * Closing this stream completes the response body, but does not close the underlying response stream.
+ */
+public class CompressingOutputStream extends OutputStream {
+	public static final String ContentEncodingHeader = "Content-Encoding";
+
+	private HttpServletResponse resp;
+	private OutputStream target;
+	private ContentEncoding encoding;
+	private Compression compression;
+	private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	private DeflaterOutputStream compressed = null;
+	private boolean closed = false;
+
+	/**
+	 * @param resp the response to set headers on
+	 * @param target the stream the body is written to, usually the response output stream
+	 * @param encoding
+	 * @param compression
+	 */
+	public CompressingOutputStream(HttpServletResponse resp, OutputStream target, ContentEncoding encoding, Compression compression) {
+		this.resp = resp;
+		this.target = target;
+		this.encoding = encoding;
+		this.compression = compression;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (compressed == null && compression.exceedsThreshold(buffer.size() + len)) {
+			startCompressing();
+		}
+		if (compressed == null) {
+			buffer.write(b, off, len);
+		} else {
+			compressed.write(b, off, len);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (compressed != null) {
+			compressed.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			if (compressed == null) {
+				if (!resp.isCommitted()) {
+					resp.setContentLength(buffer.size());
+				}
+				buffer.writeTo(target);
+				buffer = null;
+			} else {
+				compressed.finish();
+			}
+		}
+	}
+
+	/**
+	 * @return true if the body is being compressed
+	 */
+	public boolean isCompressed() {
+		return compressed != null;
+	}
+
+	private void startCompressing() throws IOException {
+		resp.setHeader(ContentEncodingHeader, encoding.value());
+		compressed = encoding.compress(target, compression.getLevel());
+		buffer.writeTo(compressed);
+		buffer = null;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import java.util.zip.Deflater;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * Controls whether and how responses are compressed. {@link Compression} instances are immutable.
+ * 
+ * Responses are only compressed when the client accepts a supported {@link ContentEncoding} and the body exceeds the threshold,
+ * because compressing small bodies costs more than the bytes it saves.
+ * 
+ * @see AcceptEncoding
+ * @see CompressingOutputStream
+ */
+public class Compression {
+	public static final int DefaultThreshold = 1024;
+	public static final int DefaultLevel = Deflater.DEFAULT_COMPRESSION;
+
+	/**
+	 * Never compresses responses
+	 */
+	public static final Compression None = new Compression(false, DefaultThreshold, DefaultLevel);
+
+	private boolean enabled;
+	private int threshold;
+	private int level;
+
+	/**
+	 * Compresses responses larger than {@value #DefaultThreshold} bytes at the default compression level
+	 */
+	public Compression() {
+		this(true, DefaultThreshold, DefaultLevel);
+	}
+
+	protected Compression(boolean enabled, int threshold, int level) {
+		this.enabled = enabled;
+		this.threshold = threshold;
+		this.level = level;
+	}
+
+	/**
+	 * @param threshold the size in bytes a response must exceed before it is compressed
+	 * @return a {@link Compression} with the given threshold
+	 */
+	public Compression threshold(int threshold) {
+		return new Compression(enabled, Math.max(threshold, 0), level);
+	}
+
+	/**
+	 * @param level the compression level, from {@link Deflater#BEST_SPEED} (1) to {@link Deflater#BEST_COMPRESSION} (9), or {@link Deflater#DEFAULT_COMPRESSION} (-1)
+	 * @return a {@link Compression} with the given level
+	 */
+	public Compression level(int level) {
+		if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)) {
+			throw new XmlException("Compression level must be between %d and %d, or %d for the default, but was %d", Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION,
+					Deflater.DEFAULT_COMPRESSION, level);
+		}
+		return new Compression(enabled, threshold, level);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * @param size the size of a body in bytes
+	 * @return true if a body of the given size exceeds the threshold, and so is compressed when the client accepts it
+	 */
+	public boolean exceedsThreshold(long size) {
+		return size > threshold;
+	}
+
+	@Override
+	public String toString() {
+		return enabled ? String.format("%s[threshold=%d, level=%d]", getClass().getSimpleName(), threshold, level) : getClass().getSimpleName() + "[none]";
+	}
+}
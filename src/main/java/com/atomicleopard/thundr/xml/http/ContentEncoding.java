@@ -0,0 +1,148 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The http content codings supported for compressing xml.
+ * 
+ * <code>deflate</code> is the zlib format, as specified by the http specification.
+ */
+public enum ContentEncoding {
+	Gzip("gzip"),
+	Deflate("deflate");
+
+	private static final int BufferSize = 8192;
+
+	private String value;
+
+	private ContentEncoding(String value) {
+		this.value = value;
+	}
+
+	/**
+	 * @return the value of this coding in http headers
+	 */
+	public String value() {
+		return value;
+	}
+
+	/**
+	 * Wraps the given stream so that everything written is compressed at the given level.
+	 * Flushing the returned stream flushes all data written so far, so that it can be decompressed by the receiver.
+	 * {@link DeflaterOutputStream#finish()} must be called to complete the compressed data, after which the returned stream
+	 * cannot be used.
+	 * 
+	 * @param os
+	 * @param level the compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}
+	 * @return
+	 * @throws IOException
+	 */
+	public DeflaterOutputStream compress(OutputStream os, final int level) throws IOException {
+		if (this == Gzip) {
+			return new GZIPOutputStream(os, BufferSize, true) {
+				{
+					def.setLevel(level);
+				}
+
+				@Override
+				public void finish() throws IOException {
+					super.finish();
+					// release the native memory held by the deflater now rather than on finalization
+					def.end();
+				}
+			};
+		}
+		return new DeflaterOutputStream(os, new Deflater(level), BufferSize, true) {
+			@Override
+			public void finish() throws IOException {
+				super.finish();
+				def.end();
+			}
+		};
+	}
+
+	/**
+	 * Wraps the given stream so that data compressed using this coding is decompressed as it is read.
+	 * Deflate data is accepted both with a zlib wrapper, as the http specification requires, and as a raw deflate stream, as
+	 * some clients send.
+	 * 
+	 * @param is
+	 * @return
+	 * @throws IOException if the stream does not start with a valid header for this coding
+	 */
+	public InputStream decompress(InputStream is) throws IOException {
+		if (this == Gzip) {
+			return new GZIPInputStream(is, BufferSize);
+		}
+		PushbackInputStream pushback = new PushbackInputStream(is, 2);
+		byte[] header = new byte[2];
+		int read = 0;
+		int count;
+		while (read < header.length && (count = pushback.read(header, read, header.length - read)) != -1) {
+			read += count;
+		}
+		pushback.unread(header, 0, read);
+		return new InflaterInputStream(pushback, new Inflater(!isZlibHeader(header, read)), BufferSize) {
+			@Override
+			public void close() throws IOException {
+				super.close();
+				inf.end();
+			}
+		};
+	}
+
+	/**
+	 * @param value a content coding, such as from a <code>Content-Encoding</code> or <code>Accept-Encoding</code> header
+	 * @return the matching {@link ContentEncoding}, or null if it is not one of the supported codings
+	 */
+	public static ContentEncoding from(String value) {
+		if (value == null) {
+			return null;
+		}
+		value = value.trim();
+		if (Gzip.value.equalsIgnoreCase(value) || "x-gzip".equalsIgnoreCase(value)) {
+			return Gzip;
+		}
+		if (Deflate.value.equalsIgnoreCase(value)) {
+			return Deflate;
+		}
+		return null;
+	}
+
+	/**
+	 * A zlib header declares the deflate method in the low bits of its first byte, and is a multiple of 31 when read as a 16 bit
+	 * number.
+	 */
+	private static boolean isZlibHeader(byte[] header, int length) {
+		int cmf = header[0] & 0xff;
+		int flg = header[1] & 0xff;
+		return length == 2 && (cmf & 0x0f) == 8 && (cmf * 256 + flg) % 31 == 0;
+	}
+}
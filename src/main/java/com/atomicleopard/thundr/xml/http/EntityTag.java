@@ -0,0 +1,108 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * Creates strong http entity tags and evaluates them against the <code>If-None-Match</code> headers of a request.
+ * 
+ * Compressed and uncompressed representations of the same content are different entities, so the tag includes the
+ * {@link ContentEncoding} negotiated for the response.
+ */
+public class EntityTag {
+	public static final String Header = "ETag";
+	public static final String IfNoneMatchHeader = "If-None-Match";
+	private static final String Digest = "MD5";
+	private static final char[] Hex = "0123456789abcdef".toCharArray();
+
+	private EntityTag() {
+	}
+
+	/**
+	 * @param version an opaque version of the content, which may only contain characters valid in an entity tag
+	 * @param encoding the encoding negotiated for the response, or null if it is not compressed
+	 * @return the quoted entity tag
+	 */
+	public static String of(String version, ContentEncoding encoding) {
+		for (int i = 0; i < version.length(); i++) {
+			char c = version.charAt(i);
+			// etagc = %x21 / %x23-7E / obs-text
+			if (c == '"' || c <= 0x20 || c == 0x7f) {
+				throw new XmlException("Invalid entity tag version '%s': it cannot contain quotes, whitespace or control characters", version);
+			}
+		}
+		return '"' + version + (encoding == null ? "" : "-" + encoding.value()) + '"';
+	}
+
+	/**
+	 * @param content
+	 * @return a hex encoded digest of the given content, suitable for use as a version
+	 */
+	public static String digest(byte[] content) {
+		try {
+			// the digest only needs to detect changes, not resist collisions, and MD5 is available on every platform
+			byte[] digest = MessageDigest.getInstance(Digest).digest(content);
+			char[] hex = new char[digest.length * 2];
+			for (int i = 0; i < digest.length; i++) {
+				hex[i * 2] = Hex[(digest[i] >> 4) & 0x0f];
+				hex[i * 2 + 1] = Hex[digest[i] & 0x0f];
+			}
+			return new String(hex);
+		} catch (NoSuchAlgorithmException e) {
+			throw new XmlException(e, "Failed to create an entity tag: %s", e.getMessage());
+		}
+	}
+
+	/**
+	 * Only <code>GET</code> and <code>HEAD</code> requests can be answered with <code>304 Not Modified</code>, so this is
+	 * always false for other methods.
+	 * 
+	 * @param req
+	 * @param etag a quoted entity tag, as returned from {@link #of(String, ContentEncoding)}
+	 * @return true if an <code>If-None-Match</code> header of the request matches the given tag
+	 */
+	public static boolean matches(HttpServletRequest req, String etag) {
+		String method = req.getMethod();
+		if (!"GET".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method)) {
+			return false;
+		}
+		@SuppressWarnings("unchecked")
+		Enumeration<String> headers = req.getHeaders(IfNoneMatchHeader);
+		while (headers != null && headers.hasMoreElements()) {
+			for (String candidate : headers.nextElement().split(",")) {
+				candidate = candidate.trim();
+				// If-None-Match uses the weak comparison
+				if (candidate.startsWith("W/")) {
+					candidate = candidate.substring(2);
+				}
+				if ("*".equals(candidate) || etag.equals(candidate)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
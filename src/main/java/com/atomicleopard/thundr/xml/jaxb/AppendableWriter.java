@@ -0,0 +1,91 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * A {@link Writer} which appends everything written to an {@link Appendable}, such as a {@link StringBuilder}.
+ * 
+ * Unlike {@link java.io.StringWriter} it is not synchronized, and characters are appended directly to the target without
+ * intermediate copies. Closing the writer does not close the target.
+ */
+public class AppendableWriter extends Writer {
+	private Appendable target;
+	private StringBuilder builder;
+
+	public AppendableWriter(Appendable target) {
+		this.target = target;
+		this.builder = target instanceof StringBuilder ? (StringBuilder) target : null;
+	}
+
+	public Appendable getTarget() {
+		return target;
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		target.append((char) c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		if (builder != null) {
+			builder.append(cbuf, off, len);
+		} else {
+			target.append(CharBuffer.wrap(cbuf, off, len));
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		target.append(str, off, off + len);
+	}
+
+	@Override
+	public Writer append(CharSequence csq) throws IOException {
+		target.append(csq);
+		return this;
+	}
+
+	@Override
+	public Writer append(CharSequence csq, int start, int end) throws IOException {
+		target.append(csq, start, end);
+		return this;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (target instanceof Flushable) {
+			((Flushable) target).flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+	}
+
+	@Override
+	public String toString() {
+		return target.toString();
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * Processes batches on an {@link Executor}, combining their results using a {@link Combiner}.
+ * 
+ * At most <code>maxPending</code> batches are submitted but not yet combined at any time, callers of {@link #submit(List)} block
+ * until there is room, which stops parsing from running ahead of slow batch processing.
+ * When results are ordered they are combined in the order the batches were submitted, otherwise they are combined as they complete.
+ * 
+ * When a {@link Checkpointer} is given, a checkpoint is saved as each batch is combined, which is only meaningful when results are ordered.
+ * 
+ * The first batch to fail causes all outstanding batches to be cancelled, and the failure is thrown from the next call to
+ * {@link #submit(List)} or {@link #finish()}.
+ */
+class BatchPipeline<T, R> {
+	private Batch<T, R> batch;
+	private Combiner<R> combiner;
+	private Executor executor;
+	private int maxPending;
+	private boolean ordered;
+	private Checkpointer checkpointer;
+
+	private Deque<Task> pending = new ArrayDeque<>();
+	private LinkedBlockingQueue<Task> completed = new LinkedBlockingQueue<>();
+	private AtomicReference<Throwable> failure = new AtomicReference<>();
+	private boolean hasResult = false;
+	private R result = null;
+
+	BatchPipeline(Batch<T, R> batch, Combiner<R> combiner, Executor executor, int maxPending, boolean ordered) {
+		this(batch, combiner, executor, maxPending, ordered, null);
+	}
+
+	BatchPipeline(Batch<T, R> batch, Combiner<R> combiner, Executor executor, int maxPending, boolean ordered, Checkpointer checkpointer) {
+		this.batch = batch;
+		this.combiner = combiner;
+		this.executor = executor;
+		this.maxPending = Math.max(maxPending, 1);
+		this.ordered = ordered;
+		this.checkpointer = checkpointer;
+	}
+
+	/**
+	 * Submits the given items to be processed as a batch, blocking while the maximum number of batches are pending.
+	 */
+	void submit(List<T> items) {
+		submit(items, items.size());
+	}
+
+	/**
+	 * Submits the given items to be processed as a batch as for {@link #submit(List)}
+	 * 
+	 * @param items
+	 * @param elements the number of elements read to produce the items, which is recorded by the checkpoint saved once the batch is combined
+	 */
+	void submit(final List<T> items, int elements) {
+		checkFailure();
+		combineCompleted(false);
+		while (pending.size() >= maxPending) {
+			combineCompleted(true);
+		}
+
+		Task task = new Task(new Callable<R>() {
+			@Override
+			public R call() throws Exception {
+				return batch.process(null, items);
+			}
+		}, elements);
+		pending.addLast(task);
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			pending.removeLast();
+			cancel();
+			throw new XmlException(e, "Failed to process batch, the executor rejected it: %s", e.getMessage());
+		}
+	}
+
+	/**
+	 * Waits for all pending batches to complete
+	 * 
+	 * @return the combined result of all batches
+	 */
+	R finish() {
+		while (!pending.isEmpty()) {
+			combineCompleted(true);
+		}
+		return result;
+	}
+
+	/**
+	 * Cancels all pending batches
+	 */
+	void cancel() {
+		for (Task task : pending) {
+			task.cancel(true);
+		}
+		pending.clear();
+		completed.clear();
+	}
+
+	private void combineCompleted(boolean wait) {
+		try {
+			if (ordered) {
+				while (!pending.isEmpty() && (wait || pending.peekFirst().isDone())) {
+					Task task = pending.removeFirst();
+					combine(task);
+					wait = false;
+				}
+			} else {
+				Task task = wait ? completed.take() : completed.poll();
+				while (task != null) {
+					pending.remove(task);
+					combine(task);
+					task = completed.poll();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel();
+			throw new XmlException(e, "Interrupted while waiting for batches to be processed");
+		}
+	}
+
+	private void combine(Task task) throws InterruptedException {
+		R partial;
+		try {
+			partial = task.get();
+		} catch (ExecutionException | CancellationException e) {
+			checkFailure();
+			throw new XmlException(e, "Failed to process batch: %s", e.getMessage());
+		}
+		if (hasResult) {
+			result = combiner.combine(result, partial);
+		} else {
+			result = partial;
+			hasResult = true;
+		}
+		if (checkpointer != null) {
+			checkpointer.processed(task.size);
+		}
+	}
+
+	private void checkFailure() {
+		Throwable cause = failure.get();
+		if (cause != null) {
+			cancel();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new XmlException(cause, "Failed to process batch: %s", cause.getMessage());
+		}
+	}
+
+	private class Task extends FutureTask<R> {
+		private int size;
+
+		private Task(Callable<R> callable, int size) {
+			super(callable);
+			this.size = size;
+		}
+
+		@Override
+		protected void done() {
+			if (!isCancelled()) {
+				try {
+					get();
+				} catch (ExecutionException e) {
+					failure.compareAndSet(null, e.getCause());
+				} catch (InterruptedException | CancellationException e) {
+					// cannot occur for a completed, uncancelled task
+				}
+			}
+			if (!ordered) {
+				completed.add(this);
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * A {@link StaxFactoryProvider} which creates and configures its factories once, and shares them for all reads and writes.
+ * 
+ * By default, the platform StAX implementation is used. A specific implementation can be used by supplying the factory class
+ * names, or the fastest known implementation available on the classpath can be used like this:
+ * 
+ * <pre>
+ * <code>
+ * Jaxb jaxb = new Jaxb(new JaxbContextRegistry(), new JaxbPool(), CachedStaxFactoryProvider.detect());
+ * </code>
+ * </pre>
+ * 
+ * Detection prefers <a href="https://github.com/FasterXML/aalto-xml">Aalto</a>, then
+ * <a href="https://github.com/FasterXML/woodstox">Woodstox</a>, falling back to the platform implementation.
+ */
+public class CachedStaxFactoryProvider implements StaxFactoryProvider {
+	public static final String[] Aalto = { "com.fasterxml.aalto.stax.InputFactoryImpl", "com.fasterxml.aalto.stax.OutputFactoryImpl" };
+	public static final String[] Woodstox = { "com.ctc.wstx.stax.WstxInputFactory", "com.ctc.wstx.stax.WstxOutputFactory" };
+
+	private Class<? extends XMLInputFactory> inputFactoryClass;
+	private Class<? extends XMLOutputFactory> outputFactoryClass;
+	private volatile XMLInputFactory validatingInputFactory;
+	private volatile XMLInputFactory inputFactory;
+	private volatile XMLOutputFactory outputFactory;
+
+	/**
+	 * Creates a provider using the platform StAX implementation
+	 */
+	public CachedStaxFactoryProvider() {
+		this(null, null);
+	}
+
+	/**
+	 * Creates a provider using the given StAX implementation classes. If either class is null the platform implementation is used.
+	 * The classes are loaded immediately, but the factories are created and configured on first use so that subclasses overriding
+	 * {@link #newXmlInputFactory(boolean)} and {@link #newXmlOutputFactory()} are fully constructed before they are invoked.
+	 * 
+	 * @param inputFactoryClass the fully qualified class name of an {@link XMLInputFactory} implementation
+	 * @param outputFactoryClass the fully qualified class name of an {@link XMLOutputFactory} implementation
+	 */
+	public CachedStaxFactoryProvider(String inputFactoryClass, String outputFactoryClass) {
+		this.inputFactoryClass = inputFactoryClass == null ? null : load(XMLInputFactory.class, inputFactoryClass);
+		this.outputFactoryClass = outputFactoryClass == null ? null : load(XMLOutputFactory.class, outputFactoryClass);
+	}
+
+	/**
+	 * @return a provider using the fastest known StAX implementation available on the classpath
+	 */
+	public static CachedStaxFactoryProvider detect() {
+		for (String[] implementation : new String[][] { Aalto, Woodstox }) {
+			if (isAvailable(implementation[0]) && isAvailable(implementation[1])) {
+				return new CachedStaxFactoryProvider(implementation[0], implementation[1]);
+			}
+		}
+		return new CachedStaxFactoryProvider();
+	}
+
+	@Override
+	public XMLInputFactory inputFactory(boolean validate) {
+		XMLInputFactory factory = validate ? validatingInputFactory : inputFactory;
+		return factory == null ? createInputFactory(validate) : factory;
+	}
+
+	@Override
+	public XMLOutputFactory outputFactory() {
+		XMLOutputFactory factory = outputFactory;
+		return factory == null ? createOutputFactory() : factory;
+	}
+
+	/**
+	 * Create an XmlInputFactory. Override if you have specific feature requirements.
+	 * 
+	 * @param validate
+	 * @return
+	 * @throws FactoryConfigurationError
+	 */
+	protected XMLInputFactory newXmlInputFactory(boolean validate) throws FactoryConfigurationError {
+		XMLInputFactory inputFactory = inputFactoryClass == null ? XMLInputFactory.newInstance() : instantiate(inputFactoryClass);
+		if (!validate) {
+			inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			inputFactory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+		}
+		return inputFactory;
+	}
+
+	/**
+	 * Create an XmlOutputFactory. Override if you have specific feature requirements.
+	 * 
+	 * @return
+	 * @throws FactoryConfigurationError
+	 */
+	protected XMLOutputFactory newXmlOutputFactory() throws FactoryConfigurationError {
+		return outputFactoryClass == null ? XMLOutputFactory.newFactory() : instantiate(outputFactoryClass);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s, %s]", getClass().getSimpleName(), inputFactory(false).getClass().getName(), outputFactory().getClass().getName());
+	}
+
+	private synchronized XMLInputFactory createInputFactory(boolean validate) {
+		if (validate) {
+			if (validatingInputFactory == null) {
+				validatingInputFactory = newXmlInputFactory(true);
+			}
+			return validatingInputFactory;
+		}
+		if (inputFactory == null) {
+			inputFactory = newXmlInputFactory(false);
+		}
+		return inputFactory;
+	}
+
+	private synchronized XMLOutputFactory createOutputFactory() {
+		if (outputFactory == null) {
+			outputFactory = newXmlOutputFactory();
+		}
+		return outputFactory;
+	}
+
+	private static <T> Class<? extends T> load(Class<T> type, String className) {
+		try {
+			return Class.forName(className, true, classLoader()).asSubclass(type);
+		} catch (Exception | LinkageError e) {
+			throw new XmlException(e, "Failed to create %s %s: %s", type.getSimpleName(), className, e.getMessage());
+		}
+	}
+
+	private static <T> T instantiate(Class<T> type) {
+		try {
+			return type.newInstance();
+		} catch (Exception e) {
+			throw new XmlException(e, "Failed to create the StAX factory %s: %s", type.getName(), e.getMessage());
+		}
+	}
+
+	private static boolean isAvailable(String className) {
+		try {
+			Class.forName(className, false, classLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private static ClassLoader classLoader() {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		return classLoader == null ? CachedStaxFactoryProvider.class.getClassLoader() : classLoader;
+	}
+}
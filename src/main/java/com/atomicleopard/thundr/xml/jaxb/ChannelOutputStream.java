@@ -0,0 +1,159 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * An {@link OutputStream} which writes to a {@link WritableByteChannel} through a single direct {@link ByteBuffer}, so that
+ * large outputs reach the channel in a few large writes without any other layers of buffering.
+ * 
+ * Direct buffers are expensive to allocate and their memory is only freed by garbage collection, so the buffers of closed
+ * streams of the {@link #DefaultBufferSize} are shared with the streams created after them. At most {@link #MaxRetainedBuffers}
+ * are retained, however many threads write, while buffers of other sizes are left to be garbage collected.
+ * 
+ * The channel must be blocking, non-blocking {@link SelectableChannel}s are rejected.
+ * 
+ * Closing the stream writes any buffered output and, if requested, forces a {@link FileChannel} to storage. It does not close
+ * the channel.
+ */
+public class ChannelOutputStream extends OutputStream {
+	public static final int DefaultBufferSize = 256 * 1024;
+	public static final int MaxRetainedBuffers = 8;
+	// most recently released first, so that a thread which closes a stream and opens another gets the same buffer back
+	private static final BlockingDeque<ByteBuffer> Buffers = new LinkedBlockingDeque<>(MaxRetainedBuffers);
+
+	private WritableByteChannel channel;
+	private ByteBuffer buffer;
+	private boolean sync;
+	private boolean closed = false;
+
+	public ChannelOutputStream(WritableByteChannel channel) {
+		this(channel, DefaultBufferSize, false);
+	}
+
+	/**
+	 * @param channel
+	 * @param bufferSize the size of the direct buffer output is accumulated in before it is written to the channel
+	 * @param sync if true and the channel is a {@link FileChannel}, the file content is forced to storage on close
+	 */
+	public ChannelOutputStream(WritableByteChannel channel, int bufferSize, boolean sync) {
+		if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+			throw new XmlException("Failed to write xml: the channel %s is in non-blocking mode", channel);
+		}
+		this.channel = channel;
+		this.buffer = borrow(Math.max(bufferSize, 1));
+		this.sync = sync;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		if (!buffer.hasRemaining()) {
+			drain();
+		}
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			if (!buffer.hasRemaining()) {
+				drain();
+			}
+			int count = Math.min(len, buffer.remaining());
+			buffer.put(b, off, count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			try {
+				drain();
+				if (sync && channel instanceof FileChannel) {
+					((FileChannel) channel).force(false);
+				}
+			} finally {
+				release(buffer);
+				buffer = null;
+			}
+		}
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			if (channel.write(buffer) == 0 && channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+				// the channel has been made non-blocking since this stream was created, retrying would spin
+				throw new IOException("The channel is in non-blocking mode and cannot accept more output");
+			}
+		}
+		buffer.clear();
+	}
+
+	ByteBuffer buffer() {
+		return buffer;
+	}
+
+	static int retainedBuffers() {
+		return Buffers.size();
+	}
+
+	private static ByteBuffer borrow(int size) {
+		ByteBuffer retained = size == DefaultBufferSize ? Buffers.pollFirst() : null;
+		if (retained != null) {
+			retained.clear();
+			return retained;
+		}
+		return ByteBuffer.allocateDirect(size);
+	}
+
+	private static void release(ByteBuffer buffer) {
+		// discarded when the pool is full
+		if (buffer.capacity() == DefaultBufferSize) {
+			Buffers.offerFirst(buffer);
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+/**
+ * {@link Checkpoint} records how far through its repeated elements a {@link JaxbReader} has read, so that a read which fails part way
+ * through can be resumed using {@link JaxbReader#resume(Checkpoint)} rather than starting over.
+ * 
+ * The index is the number of elements whose batches have been processed. The offset is the byte offset in the file of the next
+ * element, or -1 if it is not known, in which case resuming skips the elements already processed rather than seeking past them.
+ */
+public class Checkpoint {
+	private long index;
+	private long offset;
+
+	public Checkpoint(long index, long offset) {
+		this.index = index;
+		this.offset = offset;
+	}
+
+	/**
+	 * @return the number of elements processed
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the byte offset of the next element, or -1 if it is not known
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Long.valueOf(index).hashCode() + Long.valueOf(offset).hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Checkpoint)) {
+			return false;
+		}
+		Checkpoint other = (Checkpoint) obj;
+		return index == other.index && offset == other.offset;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[index=%d, offset=%d]", getClass().getSimpleName(), index, offset);
+	}
+}
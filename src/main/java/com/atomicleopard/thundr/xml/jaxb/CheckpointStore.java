@@ -0,0 +1,50 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+/**
+ * {@link CheckpointStore} retains the latest {@link Checkpoint} of each read using {@link JaxbReader#checkpoint(CheckpointStore, String)},
+ * identified by a key chosen by the caller.
+ * 
+ * A checkpoint is saved after every batch is processed, so saving should be cheap relative to processing a batch.
+ * 
+ * @see FileCheckpointStore
+ */
+public interface CheckpointStore {
+	/**
+	 * @param key
+	 * @return the latest checkpoint saved for the given key, or null if there is none
+	 */
+	public Checkpoint load(String key);
+
+	/**
+	 * Saves the given checkpoint, replacing any previous checkpoint for the given key
+	 * 
+	 * @param key
+	 * @param checkpoint
+	 */
+	public void save(String key, Checkpoint checkpoint);
+
+	/**
+	 * Removes any checkpoint for the given key, which is done once a read completes
+	 * 
+	 * @param key
+	 */
+	public void clear(String key);
+}
@@ -0,0 +1,203 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * Saves a {@link Checkpoint} to a {@link CheckpointStore} each time a batch has been processed, as used by
+ * {@link JaxbReader#checkpoint(CheckpointStore, String)}.
+ * 
+ * When reading a file the byte offset of the next element is found by scanning the file's tags with a {@link TagScanner}, which keeps
+ * pace with the elements processed. The locations reported by a StAX parser are no help here, as they are character rather than byte
+ * offsets and are only approximate for many parsers. Scanning is only reliable when the repeated elements are siblings within one
+ * enclosing element and the document contains no comments, CDATA sections, processing instructions or DOCTYPE, so once anything else
+ * is found the offset is recorded as unknown and resuming falls back to skipping elements.
+ */
+class Checkpointer {
+	private static final int BufferSize = 64 * 1024;
+
+	private CheckpointStore store;
+	private String key;
+	private long index;
+	private Offsets offsets;
+
+	/**
+	 * @param store
+	 * @param key
+	 * @param index the number of elements already processed when reading begins
+	 */
+	Checkpointer(CheckpointStore store, String key, long index) {
+		this.store = store;
+		this.key = key;
+		this.index = index;
+	}
+
+	/**
+	 * Finds the offsets of elements by scanning the given file from the start tag of the element at the given index, or from the start of
+	 * the document
+	 * 
+	 * @param file
+	 * @param head the repeated elements of the file, which must be {@link FileSegments.Head#isScannable()}
+	 * @param offset the offset of the element at the current index, or 0 to scan from the start of the document
+	 */
+	Checkpointer scan(Path file, FileSegments.Head head, long offset) throws IOException {
+		this.offsets = new Offsets(file, head, offset, offset == 0 ? 0 : index);
+		return this;
+	}
+
+	long getIndex() {
+		return index;
+	}
+
+	/**
+	 * Saves a checkpoint once the given number of elements following those already processed have been processed
+	 * 
+	 * @param count
+	 */
+	void processed(int count) {
+		index += count;
+		store.save(key, new Checkpoint(index, offsets == null ? -1 : offsets.offsetOf(index)));
+	}
+
+	/**
+	 * Clears the checkpoint once every element has been processed
+	 */
+	void finished() {
+		close();
+		store.clear(key);
+	}
+
+	void close() {
+		if (offsets != null) {
+			offsets.close();
+		}
+	}
+
+	/**
+	 * Scans the file ahead of the elements processed, retaining the offsets of elements which have not yet been processed
+	 */
+	private static class Offsets extends TagScanner {
+		private Path file;
+		private InputStream stream;
+		private byte[] buffer = new byte[BufferSize];
+		private long position;
+		private int depth;
+		private Deque<Long> found = new ArrayDeque<>();
+		private long first;
+		private long next;
+		private boolean started = false;
+		private boolean closed = false;
+		private boolean unknown = false;
+
+		private Offsets(Path file, FileSegments.Head head, long start, long index) throws IOException {
+			super(head.getName(), start == 0 ? 0 : head.getDepth(), start == 0);
+			this.file = file;
+			this.stream = new MappedFileInputStream(file, start, Long.MAX_VALUE);
+			this.position = start;
+			this.depth = head.getDepth();
+			this.first = index;
+			this.next = index;
+		}
+
+		/**
+		 * @param index
+		 * @return the offset of the element at the given index, or -1 if it is not known. Indexes must not decrease between calls.
+		 */
+		private long offsetOf(long index) {
+			while (!found.isEmpty() && first < index) {
+				found.removeFirst();
+				first++;
+			}
+			try {
+				while (!unknown && next <= index && stream != null) {
+					int read = stream.read(buffer);
+					if (read == -1) {
+						close();
+					} else {
+						scan(buffer, read, position);
+						position += read;
+					}
+				}
+			} catch (IOException e) {
+				throw new XmlException(e, "Failed to read xml from %s: %s", file, e.getMessage());
+			}
+			if (unknown || next <= index) {
+				return -1;
+			}
+			// elements found in earlier scans may lie before the index
+			while (first < index) {
+				found.removeFirst();
+				first++;
+			}
+			return found.peekFirst();
+		}
+
+		@Override
+		protected void startTag(long offset, int depth, boolean named) {
+			if (named && (depth != this.depth || closed)) {
+				unknown();
+			} else if (depth == this.depth) {
+				if (named) {
+					found.addLast(offset);
+					next++;
+					started = true;
+				} else if (started && !closed) {
+					// may or may not be a repeated element, depending on the path being read
+					unknown();
+				}
+			}
+		}
+
+		@Override
+		protected void endTag(long offset, int depth) {
+			if (started && depth < this.depth) {
+				closed = true;
+			}
+		}
+
+		@Override
+		protected void unsupported(long offset) {
+			unknown();
+		}
+
+		private void unknown() {
+			unknown = true;
+			found.clear();
+			close();
+		}
+
+		private void close() {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					// only offsets were being read
+				}
+				stream = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link CollectingDeadLetterSink} retains every rejected element in memory, for reads where few are expected.
+ */
+public class CollectingDeadLetterSink implements DeadLetterSink {
+	private List<DeadLetter> deadLetters = new ArrayList<>();
+
+	@Override
+	public synchronized void reject(DeadLetter deadLetter) {
+		deadLetters.add(deadLetter);
+	}
+
+	/**
+	 * @return the elements rejected so far, in the order they were rejected
+	 */
+	public synchronized List<DeadLetter> getDeadLetters() {
+		return new ArrayList<>(deadLetters);
+	}
+
+	public synchronized int size() {
+		return deadLetters.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%d]", getClass().getSimpleName(), size());
+	}
+}
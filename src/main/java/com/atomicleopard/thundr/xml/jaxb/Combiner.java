@@ -0,0 +1,52 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+/**
+ * {@link Combiner} merges the results of {@link Batch}es which were processed independently of each other, for example
+ * when using {@link JaxbReader#processIn(java.util.concurrent.Executor)}.
+ * 
+ * Each batch processed independently is given a null result to start with, so in the following example each
+ * batch returns its own count, and the combiner adds the counts together:
+ * 
+ * <pre>
+ * <code>
+ * Integer count = jaxb.read(Pojo.class).from(data).processIn(executor).stream(new Batch&lt;Pojo, Integer&gt;() {
+ *   public Integer process(Integer result, List&lt;Pojo&gt; batch) {
+ *     service.save(batch);
+ *     return batch.size();
+ *   }
+ * }, new Combiner&lt;Integer&gt;() {
+ *   public Integer combine(Integer left, Integer right) {
+ *     return left + right;
+ *   }
+ * });
+ * </code>
+ * </pre>
+ * 
+ * Combiners must be associative. When results are combined in an unordered fashion they must also be commutative.
+ */
+public interface Combiner<R> {
+	/**
+	 * @param left the result combined so far, which will come from earlier batches when results are combined in order
+	 * @param right the result of the next batch
+	 * @return the combined result
+	 */
+	public R combine(R left, R right);
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * {@link DeadLetter} describes a repeated element which could not be unmarshalled, as handed to a {@link DeadLetterSink}.
+ * 
+ * The position of the element is as reported by the parser for its start tag, so the line, column and offset are -1 if the parser
+ * does not track them. The offset is a character rather than byte offset.
+ */
+public class DeadLetter {
+	private long index;
+	private QName name;
+	private int line;
+	private int column;
+	private long offset;
+	private byte[] fragment;
+	private Throwable cause;
+
+	/**
+	 * @param index the index of the element among the repeated elements of the document
+	 * @param name
+	 * @param line
+	 * @param column
+	 * @param offset
+	 * @param fragment the element as a standalone UTF-8 encoded document
+	 * @param cause
+	 */
+	public DeadLetter(long index, QName name, int line, int column, long offset, byte[] fragment, Throwable cause) {
+		this.index = index;
+		this.name = name;
+		this.line = line;
+		this.column = column;
+		this.offset = offset;
+		this.fragment = fragment;
+		this.cause = cause;
+	}
+
+	/**
+	 * @return the index of the element among the repeated elements of the document, the first being 0
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	public QName getName() {
+		return name;
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * @return the character offset of the start tag of the element, or -1 if it is not known
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the element as a standalone UTF-8 encoded document, redeclaring the namespaces of its enclosing elements
+	 */
+	public byte[] getFragment() {
+		return fragment;
+	}
+
+	/**
+	 * @return the reason the element could not be unmarshalled
+	 */
+	public Throwable getCause() {
+		return cause;
+	}
+
+	/**
+	 * @return a copy of this dead letter for the given element and reason it was rejected
+	 */
+	DeadLetter rejected(byte[] fragment, Throwable cause) {
+		return new DeadLetter(index, name, line, column, offset, fragment, cause);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[index=%d, name=%s, line=%d, column=%d, cause=%s]", getClass().getSimpleName(), index, name, line, column, cause);
+	}
+
+	/**
+	 * @param xmlr positioned on the start of a repeated element
+	 * @param index
+	 * @return the position of the element, to be completed with {@link #rejected(byte[], Throwable)} if it is rejected
+	 */
+	static DeadLetter at(XMLStreamReader xmlr, long index) {
+		// locations may be reused by the parser, so are copied as the element is reached
+		Location location = xmlr.getLocation();
+		if (location == null) {
+			return new DeadLetter(index, xmlr.getName(), -1, -1, -1, null, null);
+		}
+		return new DeadLetter(index, xmlr.getName(), location.getLineNumber(), location.getColumnNumber(), location.getCharacterOffset(), null, null);
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+/**
+ * {@link DeadLetterSink} receives the repeated elements rejected while streaming with {@link ErrorPolicy#SkipAndCollect}, so that they
+ * can be recorded or corrected and loaded separately while the rest of the data is loaded in one pass.
+ * 
+ * Rejected elements are handed over in the order they appear in the xml, on the thread reading the xml.
+ * 
+ * @see CollectingDeadLetterSink
+ */
+public interface DeadLetterSink {
+	/**
+	 * @param deadLetter the rejected element
+	 */
+	public void reject(DeadLetter deadLetter);
+}
@@ -0,0 +1,237 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import jodd.util.StringPool;
+
+/**
+ * Walks an {@link XMLStreamReader} to each of the repeated elements identified by an {@link ElementPath}, ignoring whitespace,
+ * comments and processing instructions between them. Elements which cannot contain a match are skipped without being inspected
+ * further.
+ * 
+ * Each time {@link #next()} returns true the reader is positioned on the start of an element, which must be consumed
+ * (for example by unmarshalling it, or by {@link #capture(XMLOutputFactory)}) so that the reader is left on the event following
+ * the end of the element before {@link #next()} is called again.
+ * 
+ * The namespaces declared by the enclosing elements are retained so that a captured element can be read on its own.
+ */
+class ElementCursor {
+	private XMLStreamReader xmlr;
+	private ElementPath path;
+	private Deque<QName> openNames = new ArrayDeque<>();
+	private Deque<Map<String, String>> open = new ArrayDeque<>();
+	private boolean finished = false;
+
+	ElementCursor(XMLStreamReader xmlr) {
+		this(xmlr, ElementPath.ChildrenOfRoot);
+	}
+
+	ElementCursor(XMLStreamReader xmlr, ElementPath path) {
+		this.xmlr = xmlr;
+		this.path = path;
+	}
+
+	/**
+	 * Advances to the start of the next repeated element
+	 * 
+	 * @return true if the reader is positioned on the start of a repeated element, false if there are no more
+	 */
+	boolean next() throws XMLStreamException {
+		if (finished) {
+			return false;
+		}
+		int event = xmlr.getEventType();
+		while (true) {
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				int depth = open.size();
+				if (path.matches(openNames, depth, xmlr.getName())) {
+					return true;
+				}
+				if (!path.mayMatchBelow(depth, xmlr.getName())) {
+					// skipping leaves the reader on the event after the element, which must be considered too
+					skip();
+					event = xmlr.getEventType();
+					continue;
+				}
+				openNames.push(xmlr.getName());
+				open.push(declaredNamespaces());
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				openNames.pop();
+				open.pop();
+				if (open.isEmpty()) {
+					finished = true;
+					return false;
+				}
+			} else if (event == XMLStreamConstants.END_DOCUMENT || !xmlr.hasNext()) {
+				finished = true;
+				return false;
+			}
+			event = xmlr.next();
+		}
+	}
+
+	/**
+	 * Skips the element the reader is positioned on, without inspecting its content.
+	 * Leaves the reader on the event following the end of the element.
+	 */
+	void skip() throws XMLStreamException {
+		int depth = 0;
+		do {
+			int event = xmlr.getEventType();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+			xmlr.next();
+		} while (depth > 0);
+	}
+
+	/**
+	 * Copies the element the reader is positioned on into a standalone UTF-8 encoded document, redeclaring any namespaces
+	 * declared by enclosing elements. Leaves the reader on the event following the end of the element.
+	 */
+	byte[] capture(XMLOutputFactory outputFactory) throws XMLStreamException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		XMLStreamWriter writer = outputFactory.createXMLStreamWriter(bytes, StringPool.UTF_8);
+		int depth = 0;
+		do {
+			switch (xmlr.getEventType()) {
+				case XMLStreamConstants.START_ELEMENT:
+					writeStartElement(writer, depth == 0);
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					writer.writeEndElement();
+					depth--;
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					writer.writeCharacters(xmlr.getTextCharacters(), xmlr.getTextStart(), xmlr.getTextLength());
+					break;
+				case XMLStreamConstants.CDATA:
+					writer.writeCData(xmlr.getText());
+					break;
+				case XMLStreamConstants.ENTITY_REFERENCE:
+					writer.writeEntityRef(xmlr.getLocalName());
+					break;
+				default:
+					// comments and processing instructions have no bearing on unmarshalling
+			}
+			xmlr.next();
+		} while (depth > 0);
+		writer.flush();
+		writer.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @return the namespace declarations in scope from the enclosing elements of the current element, keyed by prefix
+	 */
+	Map<String, String> inheritedNamespaces() {
+		Map<String, String> namespaces = new LinkedHashMap<>();
+		Iterator<Map<String, String>> outermostFirst = open.descendingIterator();
+		while (outermostFirst.hasNext()) {
+			namespaces.putAll(outermostFirst.next());
+		}
+		return namespaces;
+	}
+
+	/**
+	 * @return the names of the enclosing elements of the current element, outermost first
+	 */
+	List<QName> enclosingNames() {
+		List<QName> names = new ArrayList<>(openNames);
+		Collections.reverse(names);
+		return names;
+	}
+
+	/**
+	 * @return the namespace declarations of each of the enclosing elements of the current element, outermost first
+	 */
+	List<Map<String, String>> enclosingNamespaces() {
+		List<Map<String, String>> namespaces = new ArrayList<>(open);
+		Collections.reverse(namespaces);
+		return namespaces;
+	}
+
+	private void writeStartElement(XMLStreamWriter writer, boolean outermost) throws XMLStreamException {
+		writer.writeStartElement(nonNull(xmlr.getPrefix()), xmlr.getLocalName(), nonNull(xmlr.getNamespaceURI()));
+		Map<String, String> declared = declaredNamespaces();
+		if (outermost) {
+			for (Map.Entry<String, String> inherited : inheritedNamespaces().entrySet()) {
+				if (!declared.containsKey(inherited.getKey())) {
+					writeNamespace(writer, inherited.getKey(), inherited.getValue());
+				}
+			}
+		}
+		for (Map.Entry<String, String> namespace : declared.entrySet()) {
+			writeNamespace(writer, namespace.getKey(), namespace.getValue());
+		}
+		for (int i = 0; i < xmlr.getAttributeCount(); i++) {
+			String namespaceUri = nonNull(xmlr.getAttributeNamespace(i));
+			if (namespaceUri.isEmpty()) {
+				writer.writeAttribute(xmlr.getAttributeLocalName(i), xmlr.getAttributeValue(i));
+			} else {
+				writer.writeAttribute(nonNull(xmlr.getAttributePrefix(i)), namespaceUri, xmlr.getAttributeLocalName(i), xmlr.getAttributeValue(i));
+			}
+		}
+	}
+
+	private void writeNamespace(XMLStreamWriter writer, String prefix, String namespaceUri) throws XMLStreamException {
+		if (prefix.isEmpty()) {
+			writer.writeDefaultNamespace(namespaceUri);
+		} else {
+			writer.writeNamespace(prefix, namespaceUri);
+		}
+	}
+
+	private Map<String, String> declaredNamespaces() {
+		int count = xmlr.getNamespaceCount();
+		if (count == 0) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> namespaces = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			namespaces.put(nonNull(xmlr.getNamespacePrefix(i)), nonNull(xmlr.getNamespaceURI(i)));
+		}
+		return namespaces;
+	}
+
+	private static String nonNull(String value) {
+		return value == null ? "" : value;
+	}
+}
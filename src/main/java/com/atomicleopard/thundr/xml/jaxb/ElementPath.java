@@ -0,0 +1,193 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * Identifies the repeated elements to read from a document, as used by {@link JaxbReader#at(String)}.
+ * 
+ * A path is a series of element names separated by '/'. When it starts with '/' it is absolute, and matches elements whose
+ * full path from the root element is exactly the given path. Otherwise it is relative, and matches elements at any depth whose
+ * innermost names are the given path.
+ * 
+ * Each name is either a local name, which matches elements of that local name in any namespace, a name in the form
+ * <code>{namespace}local</code>, which only matches elements in the given namespace (<code>{}local</code> matching no
+ * namespace), or <code>*</code>, which matches any element.
+ * 
+ * <pre>
+ * <code>
+ * /feed/items/item      - item elements within the items element of the feed root element
+ * /*&#47;*                   - every child of the root element
+ * item                  - item elements at any depth
+ * {urn:orders}order     - order elements in the urn:orders namespace at any depth
+ * </code>
+ * </pre>
+ */
+class ElementPath {
+	/**
+	 * The default path, matching every child of the root element
+	 */
+	static final ElementPath ChildrenOfRoot = parse("/*/*");
+
+	private String path;
+	private boolean absolute;
+	private Segment[] segments;
+
+	private ElementPath(String path, boolean absolute, Segment[] segments) {
+		this.path = path;
+		this.absolute = absolute;
+		this.segments = segments;
+	}
+
+	static ElementPath parse(String path) {
+		if (path == null) {
+			throw new XmlException("An element path must be specified");
+		}
+		boolean absolute = path.startsWith("/");
+		List<Segment> segments = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		boolean inNamespace = false;
+		for (int i = absolute ? 1 : 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if (c == '{' && current.length() == 0) {
+				inNamespace = true;
+			} else if (c == '}') {
+				inNamespace = false;
+			} else if (c == '/' && !inNamespace) {
+				segments.add(Segment.parse(path, current.toString()));
+				current.setLength(0);
+				continue;
+			}
+			current.append(c);
+		}
+		segments.add(Segment.parse(path, current.toString()));
+		return new ElementPath(path, absolute, segments.toArray(new Segment[segments.size()]));
+	}
+
+	/**
+	 * Parses a single element name, such as <code>order</code> or <code>{urn:orders}order</code>
+	 */
+	static ElementPath name(String name) {
+		ElementPath path = parse(name);
+		if (path.absolute || path.segments.length != 1) {
+			throw new XmlException("Invalid element name '%s': use a local name, {namespace}local or *", name);
+		}
+		return path;
+	}
+
+	static ElementPath of(QName name) {
+		return new ElementPath(name.toString(), false, new Segment[] { new Segment(name.getNamespaceURI(), name.getLocalPart()) });
+	}
+
+	/**
+	 * @param ancestors the names of the enclosing elements, innermost first
+	 * @param depth the depth of the element, where the root element is at depth 0
+	 * @param name the name of the element
+	 * @return true if the element is one of the elements identified by this path
+	 */
+	boolean matches(Iterable<QName> ancestors, int depth, QName name) {
+		int last = segments.length - 1;
+		if (absolute ? depth != last : depth < last) {
+			return false;
+		}
+		if (!segments[last].matches(name)) {
+			return false;
+		}
+		Iterator<QName> innermostFirst = ancestors.iterator();
+		for (int i = last - 1; i >= 0; i--) {
+			if (!segments[i].matches(innermostFirst.next())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param name
+	 * @return true if the given name matches the innermost name of this path, regardless of the element's ancestors
+	 */
+	boolean matchesName(QName name) {
+		return segments[segments.length - 1].matches(name);
+	}
+
+	/**
+	 * @param other
+	 * @return true if some element name would match the innermost names of both this path and the given path
+	 */
+	boolean overlapsName(ElementPath other) {
+		return segments[segments.length - 1].overlaps(other.segments[other.segments.length - 1]);
+	}
+
+	/**
+	 * @param depth the depth of an element which did not match, where the root element is at depth 0
+	 * @param name the name of the element, whose ancestors must already have been found to possibly contain a match
+	 * @return true if any of the descendants of the element could match this path
+	 */
+	boolean mayMatchBelow(int depth, QName name) {
+		return !absolute || depth < segments.length - 1 && segments[depth].matches(name);
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+
+	private static class Segment {
+		private String namespaceUri;
+		private String localName;
+
+		private Segment(String namespaceUri, String localName) {
+			this.namespaceUri = namespaceUri;
+			this.localName = localName;
+		}
+
+		private static Segment parse(String path, String segment) {
+			String namespaceUri = null;
+			String localName = segment;
+			if (segment.startsWith("{")) {
+				int end = segment.indexOf('}');
+				if (end < 0) {
+					throw new XmlException("Invalid element path '%s': unterminated namespace in '%s'", path, segment);
+				}
+				namespaceUri = segment.substring(1, end);
+				localName = segment.substring(end + 1);
+			}
+			if (localName.isEmpty() || localName.contains("{") || localName.contains("}") || localName.contains(":")) {
+				throw new XmlException("Invalid element path '%s': '%s' is not an element name, use a local name, {namespace}local or *", path, segment);
+			}
+			return new Segment(namespaceUri, localName);
+		}
+
+		private boolean overlaps(Segment other) {
+			boolean localNames = "*".equals(localName) || "*".equals(other.localName) || localName.equals(other.localName);
+			return localNames && (namespaceUri == null || other.namespaceUri == null || namespaceUri.equals(other.namespaceUri));
+		}
+
+		private boolean matches(QName name) {
+			return ("*".equals(localName) || localName.equals(name.getLocalPart())) && (namespaceUri == null || namespaceUri.equals(name.getNamespaceURI()));
+		}
+	}
+}
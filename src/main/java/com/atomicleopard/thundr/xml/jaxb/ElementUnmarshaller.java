@@ -0,0 +1,143 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.ValidationEvent;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Unmarshals repeated elements one at a time, rejecting those which cannot be unmarshalled rather than failing as required by
+ * {@link ErrorPolicy#Skip} and {@link ErrorPolicy#SkipAndCollect}.
+ * 
+ * An {@link Unmarshaller} is borrowed from the {@link JaxbPool} as required. One which fails is discarded rather than returned to the pool,
+ * and the {@link ValidationEventHandler} installed to reject values which cannot be converted is removed before one is returned.
+ */
+class ElementUnmarshaller<T> {
+	/**
+	 * Rejects errors caused by an exception, such as a value which cannot be converted, while ignoring unexpected content as JAXB does by default
+	 */
+	static final ValidationEventHandler RejectConversionErrors = new ValidationEventHandler() {
+		@Override
+		public boolean handleEvent(ValidationEvent event) {
+			return event.getSeverity() == ValidationEvent.WARNING || (event.getSeverity() == ValidationEvent.ERROR && event.getLinkedException() == null);
+		}
+	};
+
+	private JaxbPool pool;
+	private JAXBContext context;
+	private XMLInputFactory inputFactory;
+	private Class<T> type;
+	private Unmarshaller unmarshaller;
+	private T value;
+	private DeadLetter rejected;
+
+	ElementUnmarshaller(JaxbPool pool, JAXBContext context, XMLInputFactory inputFactory, Class<T> type) {
+		this.pool = pool;
+		this.context = context;
+		this.inputFactory = inputFactory;
+		this.type = type;
+	}
+
+	/**
+	 * Unmarshals the element the reader is positioned on, leaving the reader on the event following the end of the element
+	 * even if it is rejected
+	 * 
+	 * @param xmlr
+	 * @param position the position of the element, from {@link DeadLetter#at(XMLStreamReader, long)}
+	 * @return true if the element was unmarshalled into {@link #getValue()}, false if it was rejected as described by {@link #getRejected()}
+	 * @throws XMLStreamException if the xml is not well formed, which cannot be recovered from
+	 */
+	boolean unmarshal(ResyncingStreamReader xmlr, DeadLetter position) throws JAXBException, XMLStreamException {
+		xmlr.mark();
+		try {
+			value = unmarshaller().unmarshal(xmlr, type).getValue();
+			return true;
+		} catch (JAXBException | RuntimeException e) {
+			discard();
+			xmlr.resync();
+			value = null;
+			rejected = position.rejected(null, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Unmarshals a captured element
+	 * 
+	 * @param fragment the element as a standalone document
+	 * @param position the position of the element, from {@link DeadLetter#at(XMLStreamReader, long)}
+	 * @return true if the element was unmarshalled into {@link #getValue()}, false if it was rejected as described by {@link #getRejected()}
+	 */
+	boolean unmarshal(byte[] fragment, DeadLetter position) throws JAXBException {
+		try {
+			XMLStreamReader xmlr = XmlSources.createXMLStreamReader(inputFactory, new ByteArrayInputStream(fragment), fragment);
+			value = unmarshaller().unmarshal(xmlr, type).getValue();
+			xmlr.close();
+			return true;
+		} catch (JAXBException | XMLStreamException | RuntimeException e) {
+			discard();
+			value = null;
+			rejected = position.rejected(fragment, e);
+			return false;
+		}
+	}
+
+	T getValue() {
+		return value;
+	}
+
+	DeadLetter getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * Returns the unmarshaller in use to the pool
+	 */
+	void release() {
+		if (unmarshaller != null) {
+			try {
+				unmarshaller.setEventHandler(null);
+				pool.release(context, unmarshaller);
+			} catch (JAXBException e) {
+				// not worth retaining
+			}
+			unmarshaller = null;
+		}
+	}
+
+	private Unmarshaller unmarshaller() throws JAXBException {
+		if (unmarshaller == null) {
+			unmarshaller = pool.unmarshaller(context);
+			unmarshaller.setEventHandler(RejectConversionErrors);
+		}
+		return unmarshaller;
+	}
+
+	private void discard() {
+		unmarshaller = null;
+	}
+}
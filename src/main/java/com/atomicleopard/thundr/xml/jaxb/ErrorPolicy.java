@@ -0,0 +1,46 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+/**
+ * Controls what happens when a repeated element cannot be unmarshalled while streaming with {@link JaxbReader#stream(Batch)},
+ * as specified using {@link JaxbReader#onError(ErrorPolicy)}.
+ * 
+ * When elements are skipped, values which JAXB cannot convert (such as a number which does not parse) cause the element to be rejected,
+ * rather than leaving the value unset as JAXB does by default. Unexpected elements and attributes are still ignored.
+ * 
+ * Only elements which fail to unmarshal can be skipped. Xml which is not well formed leaves the parser unable to continue, and always
+ * fails the read.
+ */
+public enum ErrorPolicy {
+	/**
+	 * The first element which cannot be unmarshalled fails the read with an {@link com.atomicleopard.thundr.xml.XmlException}
+	 */
+	FailFast,
+	/**
+	 * Elements which cannot be unmarshalled are skipped, and reading continues from the next element
+	 */
+	Skip,
+	/**
+	 * Elements which cannot be unmarshalled are skipped and handed to a {@link DeadLetterSink}, and reading continues from the next
+	 * element. Each element is copied before it is unmarshalled so that a rejected element can be handed on exactly as it was read,
+	 * which costs about as much again as parsing it.
+	 */
+	SkipAndCollect;
+}
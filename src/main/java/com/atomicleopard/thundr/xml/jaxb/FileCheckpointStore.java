@@ -0,0 +1,110 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+import jodd.util.StringPool;
+
+/**
+ * {@link FileCheckpointStore} is a {@link CheckpointStore} which saves each checkpoint in its own file in a directory.
+ * 
+ * Checkpoints are written to a temporary file which then replaces the previous checkpoint file, so a checkpoint file is never
+ * left partially written if the process dies while saving it.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+	private static final String Extension = ".checkpoint";
+	private static final Charset Utf8 = Charset.forName(StringPool.UTF_8);
+
+	private Path directory;
+
+	/**
+	 * @param directory the directory checkpoint files are written to, which is created if required
+	 */
+	public FileCheckpointStore(Path directory) {
+		this.directory = directory;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public Checkpoint load(String key) {
+		Path file = file(key);
+		try {
+			String[] content = new String(Files.readAllBytes(file), Utf8).trim().split(" ");
+			return new Checkpoint(Long.parseLong(content[0]), Long.parseLong(content[1]));
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			throw new XmlException(e, "Failed to load checkpoint from %s: %s", file, e.getMessage());
+		}
+	}
+
+	@Override
+	public void save(String key, Checkpoint checkpoint) {
+		Path file = file(key);
+		try {
+			Files.createDirectories(directory);
+			Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+			try {
+				Files.write(temp, String.format("%d %d", checkpoint.getIndex(), checkpoint.getOffset()).getBytes(Utf8));
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException e) {
+			throw new XmlException(e, "Failed to save checkpoint to %s: %s", file, e.getMessage());
+		}
+	}
+
+	@Override
+	public void clear(String key) {
+		Path file = file(key);
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			throw new XmlException(e, "Failed to clear checkpoint %s: %s", file, e.getMessage());
+		}
+	}
+
+	private Path file(String key) {
+		try {
+			// encoding keeps keys containing separators or other unsafe characters within the directory
+			return directory.resolve(URLEncoder.encode(key, StringPool.UTF_8) + Extension);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s]", getClass().getSimpleName(), directory);
+	}
+}
@@ -0,0 +1,418 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+import jodd.util.StringPool;
+
+/**
+ * Splits an xml file into segments which can be parsed independently of each other, as used by {@link JaxbReader#parseIn(Executor)}.
+ * 
+ * The file is divided into equal byte ranges which are scanned in parallel for the first start tag of a repeated element in each range.
+ * These start tags become the boundaries between segments. Each segment after the first is preceded by start tags for the elements
+ * enclosing the repeated elements, redeclaring their namespaces, and each segment before the last is followed by the matching end tags,
+ * so every segment is a well formed document in which the same {@link ElementPath} matches its repeated elements.
+ * 
+ * Boundaries can only be found by scanning bytes when every '&lt;' in the document starts a tag, so documents containing comments,
+ * CDATA sections, processing instructions or a DOCTYPE are rejected. So are documents where the repeated elements are not all
+ * siblings, are nested within each other, or which are not in an ASCII compatible encoding.
+ */
+class FileSegments {
+	/**
+	 * Files are not split into segments smaller than this, as the cost of scanning and starting a segment would outweigh the gain
+	 */
+	static final long MinSegmentSize = 1024 * 1024;
+	private static final List<String> Encodings = Arrays.asList(StringPool.UTF_8, "US-ASCII", "ISO-8859-1");
+	private static final int BufferSize = 64 * 1024;
+
+	private Path path;
+	private XMLInputFactory inputFactory;
+	private ElementPath elementPath;
+	private long minSegmentSize;
+
+	FileSegments(Path path, XMLInputFactory inputFactory, ElementPath elementPath) {
+		this(path, inputFactory, elementPath, MinSegmentSize);
+	}
+
+	FileSegments(Path path, XMLInputFactory inputFactory, ElementPath elementPath, long minSegmentSize) {
+		this.path = path;
+		this.inputFactory = inputFactory;
+		this.elementPath = elementPath;
+		this.minSegmentSize = Math.max(minSegmentSize, 1);
+	}
+
+	/**
+	 * Splits the file into at most the given number of segments, scanning its ranges on the given {@link Executor}
+	 * 
+	 * @param count
+	 * @param executor
+	 * @return the segments in document order, or a single segment for the whole file if it cannot usefully be split
+	 */
+	List<Segment> split(int count, Executor executor) {
+		try {
+			long size = Files.size(path);
+			int ranges = (int) Math.max(Math.min(count, size / minSegmentSize), 1);
+			Head head = ranges < 2 ? null : head();
+			if (head == null) {
+				return Collections.singletonList(new Segment(path, 0, size, new byte[0], new byte[0]));
+			}
+			if (!head.isScannable()) {
+				throw rejected("it is %s encoded, only %s can be split", head.encoding, Encodings);
+			}
+			List<Long> boundaries = boundaries(head, scan(head, size, ranges, executor));
+			List<Segment> segments = new ArrayList<>();
+			for (int i = 0; i <= boundaries.size(); i++) {
+				long start = i == 0 ? 0 : boundaries.get(i - 1);
+				long end = i == boundaries.size() ? size : boundaries.get(i);
+				byte[] prefix = i == 0 ? new byte[0] : head.prefix;
+				byte[] suffix = i == boundaries.size() ? new byte[0] : head.suffix;
+				segments.add(new Segment(path, start, end, prefix, suffix));
+			}
+			return segments;
+		} catch (IOException | XMLStreamException e) {
+			throw new XmlException(e, "Failed to read xml from %s: %s", path, e.getMessage());
+		}
+	}
+
+	/**
+	 * Creates a segment from the start tag of a repeated element at the given offset to the end of the file, preceded by
+	 * start tags for the elements enclosing it
+	 * 
+	 * @param head the result of {@link #head()}
+	 * @param offset the offset of the start tag
+	 * @return
+	 */
+	Segment remainder(Head head, long offset) throws IOException {
+		byte[] expected = new byte[head.name.length + 1];
+		expected[0] = '<';
+		System.arraycopy(head.name, 0, expected, 1, head.name.length);
+		byte[] actual = new byte[expected.length];
+		int read = 0;
+		try (InputStream stream = new MappedFileInputStream(path, offset, actual.length)) {
+			int count;
+			while (read < actual.length && (count = stream.read(actual, read, actual.length - read)) != -1) {
+				read += count;
+			}
+		}
+		if (!Arrays.equals(expected, actual)) {
+			throw new XmlException("Failed to read xml from %s: there is no '%s' element at offset %d", path, head.nameString, offset);
+		}
+		return new Segment(path, offset, Files.size(path), head.prefix, new byte[0]);
+	}
+
+	/**
+	 * Reads the start of the document up to the first repeated element to find its name, the elements enclosing it and the encoding
+	 * of the document.
+	 * 
+	 * @return null if the document contains no repeated elements
+	 */
+	Head head() throws IOException, XMLStreamException {
+		try (InputStream stream = new MappedFileInputStream(path)) {
+			XMLStreamReader xmlr = inputFactory.createXMLStreamReader(stream);
+			try {
+				ElementCursor cursor = new ElementCursor(xmlr, elementPath);
+				if (!cursor.next()) {
+					return null;
+				}
+				String encoding = xmlr.getEncoding() == null ? StringPool.UTF_8 : Charset.forName(xmlr.getEncoding()).name();
+				return new Head(encoding, qualifiedName(xmlr.getPrefix(), xmlr.getLocalName()), cursor.enclosingNames(), cursor.enclosingNamespaces());
+			} finally {
+				xmlr.close();
+			}
+		}
+	}
+
+	private List<Range> scan(Head head, long size, int count, Executor executor) throws IOException {
+		List<FutureTask<Range>> tasks = new ArrayList<>();
+		try {
+			for (int i = 0; i < count; i++) {
+				long start = size * i / count;
+				long end = size * (i + 1) / count;
+				FutureTask<Range> task = new FutureTask<Range>(new Range(start, end, head.name));
+				tasks.add(task);
+				executor.execute(task);
+			}
+			List<Range> ranges = new ArrayList<>();
+			for (FutureTask<Range> task : tasks) {
+				ranges.add(task.get());
+			}
+			return ranges;
+		} catch (RejectedExecutionException e) {
+			throw new XmlException(e, "Failed to parse xml, the executor rejected it: %s", e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XmlException(e, "Interrupted while splitting %s into segments", path);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new XmlException(cause, "Failed to split %s into segments: %s", path, cause.getMessage());
+		} finally {
+			for (FutureTask<Range> task : tasks) {
+				task.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Combines the scanned ranges, using the depth at which each range starts to check that the first repeated element found in
+	 * each range is a sibling of the first repeated element of the document.
+	 * 
+	 * @return the offsets of the boundaries between segments
+	 */
+	private List<Long> boundaries(Head head, List<Range> ranges) {
+		int depth = head.names.size();
+		List<Long> boundaries = new ArrayList<>();
+		int base = 0;
+		int lowest = Integer.MAX_VALUE;
+		boolean started = false;
+		for (Range range : ranges) {
+			if (range.candidate >= 0) {
+				if (base + range.candidateDepth != depth) {
+					throw rejected("'%s' elements are nested within each other or appear at different depths", head.nameString);
+				}
+				if (started) {
+					if (Math.min(lowest, base + range.minBefore) < depth) {
+						throw rejected("'%s' elements appear in more than one enclosing element", head.nameString);
+					}
+					boundaries.add(range.candidate);
+				}
+				started = true;
+				lowest = base + range.minAfter;
+			} else if (started) {
+				lowest = Math.min(lowest, base + range.min);
+			}
+			base += range.delta;
+		}
+		return boundaries;
+	}
+
+	private XmlException rejected(String reason, Object... args) {
+		return new XmlException("Unable to parse %s in parallel: %s", path, String.format(reason, args));
+	}
+
+	private static String qualifiedName(String prefix, String localName) {
+		return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+	}
+
+	private static String escape(String value) {
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+	}
+
+	/**
+	 * A part of the file which can be parsed on its own
+	 */
+	static class Segment {
+		private Path path;
+		private long start;
+		private long end;
+		private byte[] prefix;
+		private byte[] suffix;
+
+		private Segment(Path path, long start, long end, byte[] prefix, byte[] suffix) {
+			this.path = path;
+			this.start = start;
+			this.end = end;
+			this.prefix = prefix;
+			this.suffix = suffix;
+		}
+
+		long getStart() {
+			return start;
+		}
+
+		long getEnd() {
+			return end;
+		}
+
+		/**
+		 * @return a stream of the segment as a well formed document
+		 */
+		InputStream open() throws IOException {
+			InputStream content = new MappedFileInputStream(path, start, end - start);
+			return new SequenceInputStream(Collections.enumeration(Arrays.asList(new ByteArrayInputStream(prefix), content, new ByteArrayInputStream(suffix))));
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%d-%d]", path, start, end);
+		}
+	}
+
+	/**
+	 * The name of the repeated elements and the elements enclosing the first of them
+	 */
+	static class Head {
+		private String encoding;
+		private List<QName> names;
+		private String nameString;
+		private byte[] name;
+		private byte[] prefix;
+		private byte[] suffix;
+
+		private Head(String encoding, String name, List<QName> names, List<Map<String, String>> namespaces) throws IOException {
+			this.encoding = encoding;
+			this.names = names;
+			this.nameString = name;
+			this.name = name.getBytes(encoding);
+			StringBuilder prefix = new StringBuilder("<?xml version=\"1.0\" encoding=\"").append(encoding).append("\"?>");
+			StringBuilder suffix = new StringBuilder();
+			for (int i = 0; i < names.size(); i++) {
+				String enclosing = qualifiedName(names.get(i).getPrefix(), names.get(i).getLocalPart());
+				prefix.append('<').append(enclosing);
+				for (Map.Entry<String, String> namespace : namespaces.get(i).entrySet()) {
+					prefix.append(namespace.getKey().isEmpty() ? " xmlns" : " xmlns:" + namespace.getKey());
+					prefix.append("=\"").append(escape(namespace.getValue())).append('"');
+				}
+				prefix.append('>');
+				suffix.insert(0, "</" + enclosing + ">");
+			}
+			this.prefix = prefix.toString().getBytes(encoding);
+			this.suffix = suffix.toString().getBytes(encoding);
+		}
+
+		/**
+		 * @return the depth of the repeated elements, where the root element is at depth 0
+		 */
+		int getDepth() {
+			return names.size();
+		}
+
+		/**
+		 * @return the name of the repeated elements in the encoding of the document
+		 */
+		byte[] getName() {
+			return name;
+		}
+
+		/**
+		 * @return true if the document is in an encoding whose tags can be found by a {@link TagScanner}
+		 */
+		boolean isScannable() {
+			return Encodings.contains(encoding);
+		}
+	}
+
+	/**
+	 * Scans the tags starting in a byte range of the file, tracking the depth of elements relative to the start of the range.
+	 * A range starts at its first '&lt;', which is always the start of a tag, and includes every tag starting before its end.
+	 */
+	private class Range extends TagScanner implements Callable<Range> {
+		private long start;
+		private long end;
+		private boolean done = false;
+
+		private int delta = 0;
+		private int min = 0;
+		private long candidate = -1;
+		private int candidateDepth;
+		private int minBefore = 0;
+		private int minAfter;
+
+		private Range(long start, long end, byte[] name) {
+			super(name, 0, start == 0);
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public Range call() throws IOException {
+			try (InputStream stream = new MappedFileInputStream(path, start, Long.MAX_VALUE)) {
+				byte[] buffer = new byte[BufferSize];
+				long offset = start;
+				int read;
+				while (!done && (read = stream.read(buffer)) != -1) {
+					scan(buffer, read, offset);
+					offset += read;
+				}
+			}
+			if (!done) {
+				delta = depth();
+			}
+			return this;
+		}
+
+		@Override
+		protected void startTag(long offset, int depth, boolean named) {
+			if (!ended(offset) && named && candidate < 0) {
+				candidate = offset;
+				candidateDepth = depth;
+				minAfter = depth;
+			}
+		}
+
+		@Override
+		protected void endTag(long offset, int depth) {
+			if (!ended(offset)) {
+				min = Math.min(min, depth);
+				if (candidate < 0) {
+					minBefore = Math.min(minBefore, depth);
+				} else {
+					minAfter = Math.min(minAfter, depth);
+				}
+			}
+		}
+
+		@Override
+		protected void unsupported(long offset) {
+			if (!ended(offset)) {
+				throw rejected("it contains a comment, CDATA section, processing instruction or DOCTYPE at offset %d", offset);
+			}
+		}
+
+		/**
+		 * @return true once a tag starting after the end of the range has been reached, the rest belonging to the next range
+		 */
+		private boolean ended(long offset) {
+			if (!done && offset >= end) {
+				done = true;
+				delta = depth();
+			}
+			return done;
+		}
+	}
+}
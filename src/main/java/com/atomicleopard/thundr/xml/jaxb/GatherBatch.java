@@ -22,9 +22,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * A {@link Batch} which saves all items across all batches. It gathers, or accumulates, the contents of all the batches together
+ * A {@link Batch} which saves all items across all batches. It gathers, or accumulates, the contents of all the batches together.
+ * It is also a {@link Combiner} which joins the items gathered by batches processed independently.
  */
-public class GatherBatch<T> implements Batch<T, List<T>> {
+public class GatherBatch<T> implements Batch<T, List<T>>, Combiner<List<T>> {
 
 	@Override
 	public List<T> process(List<T> result, List<T> batch) {
@@ -35,4 +36,10 @@ public class GatherBatch<T> implements Batch<T, List<T>> {
 		return result;
 	}
 
+	@Override
+	public List<T> combine(List<T> left, List<T> right) {
+		left.addAll(right);
+		return left;
+	}
+
 }
@@ -20,14 +20,19 @@ package com.atomicleopard.thundr.xml.jaxb;
 
 import java.beans.Introspector;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -40,12 +45,14 @@ import javax.xml.namespace.QName;
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
 import com.atomicleopard.thundr.xml.XmlException;
+import com.atomicleopard.thundr.xml.metrics.JaxbEvent;
+import com.atomicleopard.thundr.xml.metrics.JaxbEvents;
+import com.atomicleopard.thundr.xml.metrics.JaxbMetrics;
 
 /**
  * This class provides a centralised and consistent way of handling Xml to Bean and Bean to Xml conversion.
@@ -124,16 +131,75 @@ import com.atomicleopard.thundr.xml.XmlException;
  * </pre>
  * 
  * <h4>Resource consumption</h4>
- * {@link Jaxb} retains a {@link JAXBContext} for each type it transforms, so they should be considered expensive to throw away and recreate.
- * They are threadsafe and beyond creation of {@link JAXBContext} objects stateless, so you can create one and share it amongst many consumers.  
+ * {@link Jaxb} retains a {@link JAXBContext} for each type it transforms (for both reading and writing) in a {@link JaxbContextRegistry},
+ * so they should be considered expensive to throw away and recreate.
+ * They are threadsafe and beyond creation of {@link JAXBContext} objects stateless, so you can create one and share it amongst many consumers.
+ * Contexts can be created ahead of time using {@link JaxbContextRegistry#preload(Class...)}.
+ * 
+ * <h4>Metrics</h4>
+ * The time taken, bytes read and written and elements streamed by each read and write are reported to the {@link JaxbMetrics}
+ * given on construction. Nothing is measured when using {@link JaxbMetrics#None}, which is the default.
+ * Each read and write is also emitted as a flight recorder event while a recording is in progress, see {@link JaxbEvents}.
  */
 public class Jaxb {
-	private ConcurrentHashMap<Class<?>, JAXBContext> contextMap = new ConcurrentHashMap<>();
+	private static final int InitialBuilderSize = 1024;
+	private static final int MaxRetainedBuilderSize = 256 * 1024;
+	private static final ThreadLocal<StringBuilder> Builders = new ThreadLocal<>();
+
+	private JaxbContextRegistry contexts;
+	private JaxbPool pool;
+	private StaxFactoryProvider staxFactories;
+	private JaxbMetrics metrics;
+	private boolean customMarshallers;
+
+	public Jaxb() {
+		this(new JaxbContextRegistry());
+	}
+
+	public Jaxb(JaxbContextRegistry contexts) {
+		this(contexts, new JaxbPool());
+	}
+
+	public Jaxb(JaxbContextRegistry contexts, JaxbPool pool) {
+		this(contexts, pool, new CachedStaxFactoryProvider());
+	}
+
+	public Jaxb(JaxbContextRegistry contexts, JaxbPool pool, StaxFactoryProvider staxFactories) {
+		this(contexts, pool, staxFactories, JaxbMetrics.None);
+	}
+
+	public Jaxb(JaxbContextRegistry contexts, JaxbPool pool, StaxFactoryProvider staxFactories, JaxbMetrics metrics) {
+		this.contexts = contexts;
+		this.pool = pool;
+		this.staxFactories = staxFactories;
+		this.metrics = metrics;
+		this.customMarshallers = overridesMarshaller(getClass());
+	}
+
+	public JaxbContextRegistry getContexts() {
+		return contexts;
+	}
+
+	public JaxbPool getPool() {
+		return pool;
+	}
+
+	public StaxFactoryProvider getStaxFactories() {
+		return staxFactories;
+	}
+
+	public JaxbMetrics getMetrics() {
+		return metrics;
+	}
 
 	public <T> JaxbReader<T> read(Class<T> type) {
 		return new JaxbReader<T>(this, type);
 	}
 
+	public JaxbDispatchReader dispatch() {
+		return new JaxbDispatchReader(this);
+	}
+
 	public <T> JaxbWriter<T> write(T output) {
 		return new JaxbWriter<T>(this, output);
 	}
@@ -146,17 +212,35 @@ public class Jaxb {
 		return new JaxbBatchWriter<T>(this, output);
 	}
 
-	@SuppressWarnings("unchecked")
 	protected <T> T readOne(InputStream stream, Class<T> type, boolean validate) {
+		return readOne(read(type).from(stream).validate(validate));
+	}
+
+	@SuppressWarnings("unchecked")
+	protected <T> T readOne(JaxbReader<T> reader) {
+		Class<T> type = reader.type;
 		T value = null;
+		JaxbEvent event = JaxbEvents.begin(JaxbEvents.Kind.Read);
+		boolean measured = isMeasured();
+		boolean counted = measured || event.isRecording();
+		long start = measured ? System.nanoTime() : 0;
 		try {
-			XMLInputFactory inputFactory = newXmlInputFactory(validate);
-			XMLStreamReader xmlr = inputFactory.createXMLStreamReader(stream);
+			XMLInputFactory inputFactory = newXmlInputFactory(reader.validate);
+			CountingInputStream counting = counted && reader.data == null ? new CountingInputStream(reader.stream) : null;
+			XMLStreamReader xmlr = XmlSources.createXMLStreamReader(inputFactory, counting == null ? reader.stream : counting, reader.data);
 
 			JAXBContext jaxbContext = getJaxbContext(type);
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+			Unmarshaller unmarshaller = pool.unmarshaller(jaxbContext);
 			value = (T) unmarshaller.unmarshal(xmlr);
+			pool.release(jaxbContext, unmarshaller);
 
+			if (counted) {
+				long bytes = counting == null ? reader.data.length : counting.getCount();
+				if (measured) {
+					metrics.unmarshalled(type, System.nanoTime() - start, bytes);
+				}
+				event.type(type).elements(1).bytes(bytes).commit();
+			}
 			return value;
 		} catch (JAXBException | XMLStreamException e) {
 			throw new XmlException(e, "Failed to read into type '%s': %s", type, e.getMessage());
@@ -164,60 +248,297 @@ public class Jaxb {
 	}
 
 	protected <T, R> R readMany(InputStream stream, Class<T> type, boolean validate, int batchSize, Batch<T, R> batchProcessor) {
+		return readMany(read(type).from(stream).validate(validate).batchSize(batchSize), batchProcessor, null);
+	}
+
+	protected <T, R> R readMany(JaxbReader<T> reader, Batch<T, R> batchProcessor, Combiner<R> combiner) {
+		Checkpoint resume = reader.resumeFrom;
+		JaxbEvent event = JaxbEvents.begin(JaxbEvents.Kind.Read);
+		MeasuredBatch<T, R> measured = isMeasured() || event.isRecording() ? new MeasuredBatch<T, R>(metrics, event.batchSize(reader.batchSize), reader.type, batchProcessor) : null;
+		batchProcessor = measured == null ? batchProcessor : measured;
+		if (reader.isSegmented()) {
+			if (reader.isCheckpointed() || resume != null) {
+				throw new XmlException("Checkpoints cannot be taken or resumed from when parsing a file in segments");
+			}
+			if (reader.errorPolicy != ErrorPolicy.FailFast) {
+				throw new XmlException("Elements cannot be skipped when parsing a file in segments");
+			}
+			R result = readSegmented(reader, batchProcessor, combiner);
+			if (measured != null) {
+				measured.finished(reader.file.toFile().length());
+			}
+			return result;
+		}
+		Class<T> type = reader.type;
+		boolean parallel = reader.executor != null && combiner != null;
+		if (parallel && !reader.ordered && reader.isCheckpointed()) {
+			throw new XmlException("Checkpoints cannot be taken when batches are processed in parallel and combined unordered");
+		}
+		BatchPipeline<T, R> pipeline = null;
+		UnmarshalPipeline<T> unmarshalPipeline = null;
+		Checkpointer checkpointer = null;
+		InputStream remainder = null;
 		try {
-			XMLInputFactory inputFactory = newXmlInputFactory(validate);
-			XMLStreamReader xmlr = inputFactory.createXMLStreamReader(stream);
+			XMLInputFactory inputFactory = newXmlInputFactory(reader.validate);
+			InputStream stream = reader.stream;
+			byte[] data = reader.data;
+			long skip = resume == null ? 0 : resume.getIndex();
+			long offset = 0;
+			FileSegments.Head head = null;
+			if (reader.file != null && (reader.isCheckpointed() || resume != null)) {
+				FileSegments segments = new FileSegments(reader.file, inputFactory, reader.path);
+				head = segments.head();
+				if (head != null && head.isScannable() && resume != null && resume.getOffset() >= 0) {
+					// seek straight to the next element rather than parsing those already processed
+					remainder = segments.remainder(head, resume.getOffset()).open();
+					stream = remainder;
+					data = null;
+					offset = resume.getOffset();
+					skip = 0;
+				}
+			}
+			if (reader.isCheckpointed()) {
+				checkpointer = new Checkpointer(reader.checkpointStore, reader.checkpointKey, resume == null ? 0 : resume.getIndex());
+				if (head != null && head.isScannable()) {
+					checkpointer.scan(reader.file, head, offset);
+				}
+			}
+
+			pipeline = parallel ? new BatchPipeline<T, R>(batchProcessor, combiner, reader.executor, reader.maxPendingBatches, reader.ordered, checkpointer) : null;
+			CountingInputStream counting = measured != null && data == null ? new CountingInputStream(stream) : null;
+			XMLStreamReader xmlr = XmlSources.createXMLStreamReader(inputFactory, counting == null ? stream : counting, data);
+			ResyncingStreamReader resyncing = null;
+			if (reader.errorPolicy == ErrorPolicy.Skip && reader.unmarshalExecutor == null) {
+				// every event must pass through the resyncing reader so that it knows where a rejected element ends
+				resyncing = new ResyncingStreamReader(xmlr);
+				xmlr = resyncing;
+			}
 			JAXBContext jaxbContext = getJaxbContext(type);
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+			Batcher<T, R> batcher = new Batcher<T, R>(batchProcessor, pipeline, reader.batchSize, checkpointer);
+			ElementCursor cursor = new ElementCursor(xmlr, reader.path);
+			skip(cursor, skip);
+			long index = resume == null ? 0 : resume.getIndex();
 
-			while (xmlr.getEventType() != XMLStreamConstants.START_ELEMENT) {
-				// skip headers etc
-				xmlr.nextTag();
+			if (reader.unmarshalExecutor == null && reader.errorPolicy == ErrorPolicy.FailFast) {
+				Unmarshaller unmarshaller = pool.unmarshaller(jaxbContext);
+				while (cursor.next()) {
+					batcher.add(unmarshaller.unmarshal(xmlr, type).getValue());
+				}
+				pool.release(jaxbContext, unmarshaller);
+			} else if (reader.unmarshalExecutor == null) {
+				ElementUnmarshaller<T> elements = new ElementUnmarshaller<T>(pool, jaxbContext, inputFactory, type);
+				XMLOutputFactory outputFactory = staxFactories.outputFactory();
+				while (cursor.next()) {
+					DeadLetter position = DeadLetter.at(xmlr, index++);
+					boolean unmarshalled = resyncing == null ? elements.unmarshal(cursor.capture(outputFactory), position) : elements.unmarshal(resyncing, position);
+					if (unmarshalled) {
+						batcher.add(elements.getValue());
+					} else {
+						batcher.skipped(1);
+						if (reader.deadLetters != null) {
+							reader.deadLetters.reject(elements.getRejected());
+						}
+					}
+				}
+				elements.release();
+			} else {
+				// this thread only captures each element, unmarshalling happens in parallel on the executor
+				unmarshalPipeline = new UnmarshalPipeline<T>(pool, jaxbContext, inputFactory, type, reader.unmarshalExecutor, reader.maxPendingElements, reader.errorPolicy,
+						reader.deadLetters);
+				XMLOutputFactory outputFactory = staxFactories.outputFactory();
+				boolean skipping = reader.errorPolicy != ErrorPolicy.FailFast;
+				while (cursor.next()) {
+					DeadLetter position = skipping ? DeadLetter.at(xmlr, index++) : null;
+					batcher.addAll(unmarshalPipeline.submit(cursor.capture(outputFactory), position));
+					batcher.skipped(unmarshalPipeline.takeRejected());
+				}
+				batcher.addAll(unmarshalPipeline.finish());
+				batcher.skipped(unmarshalPipeline.takeRejected());
+			}
+			R result = batcher.finish();
+			result = pipeline == null ? result : pipeline.finish();
+			if (checkpointer != null) {
+				checkpointer.finished();
 			}
+			if (measured != null) {
+				measured.finished(counting == null ? data.length : counting.getCount());
+			}
+			return result;
+		} catch (JAXBException | XMLStreamException e) {
+			throw new XmlException(e, "Failed to batch process xml: %s", e.getMessage());
+		} catch (IOException e) {
+			throw new XmlException(e, "Failed to read xml from %s: %s", reader.file, e.getMessage());
+		} finally {
+			// no-op on success, stops outstanding work on failure
+			if (unmarshalPipeline != null) {
+				unmarshalPipeline.cancel();
+			}
+			if (pipeline != null) {
+				pipeline.cancel();
+			}
+			if (checkpointer != null) {
+				checkpointer.close();
+			}
+			if (remainder != null) {
+				try {
+					remainder.close();
+				} catch (IOException e) {
+					// the xml has already been read
+				}
+			}
+		}
+	}
 
-			// skip the root element
-			xmlr.nextTag();
+	protected <T, R> R readSegmented(JaxbReader<T> reader, Batch<T, R> batchProcessor, Combiner<R> combiner) {
+		Class<T> type = reader.type;
+		SegmentedParser<T, R> parser = null;
+		try {
+			XMLInputFactory inputFactory = newXmlInputFactory(reader.validate);
+			JAXBContext jaxbContext = getJaxbContext(type);
+			List<FileSegments.Segment> segments = new FileSegments(reader.file, inputFactory, reader.path).split(reader.segments, reader.parseExecutor);
+			parser = new SegmentedParser<T, R>(pool, jaxbContext, inputFactory, type, reader.path, reader.parseExecutor, reader.batchSize, reader.maxPendingBatches, reader.ordered);
+			if (combiner != null) {
+				return parser.process(segments, batchProcessor, combiner);
+			}
+			Batcher<T, R> batcher = new Batcher<T, R>(batchProcessor, null, reader.batchSize);
+			parser.start(segments);
+			List<T> values;
+			while ((values = parser.next()) != null) {
+				batcher.addAll(values);
+			}
+			return batcher.finish();
+		} catch (JAXBException e) {
+			throw new XmlException(e, "Failed to batch process xml: %s", e.getMessage());
+		} finally {
+			// no-op on success, stops outstanding segments on failure
+			if (parser != null) {
+				parser.cancel();
+			}
+		}
+	}
 
-			R result = null;
-			List<T> batch = new ArrayList<T>();
-			while (xmlr.getEventType() == XMLStreamConstants.START_ELEMENT) {
-				JAXBElement<T> element = unmarshaller.unmarshal(xmlr, type);
-				batch.add(element.getValue());
+	protected Map<Class<?>, Object> readDispatched(JaxbDispatchReader reader) {
+		try {
+			List<Dispatch<?>> dispatches = new ArrayList<Dispatch<?>>();
+			boolean measured = false;
+			for (JaxbDispatchReader.Route<?> route : reader.routes.values()) {
+				Dispatch<?> dispatch = dispatch(route, reader.batchSize);
+				measured |= dispatch.measured != null;
+				dispatches.add(dispatch);
+			}
+			CountingInputStream counting = measured ? new CountingInputStream(reader.stream) : null;
+			XMLStreamReader xmlr = newXmlInputFactory(reader.validate).createXMLStreamReader(counting == null ? reader.stream : counting);
+			List<Class<?>> types = reader.types();
+			JAXBContext jaxbContext = contexts.get(types.toArray(new Class<?>[types.size()]));
+			Unmarshaller unmarshaller = pool.unmarshaller(jaxbContext);
 
-				if (batch.size() >= batchSize) {
-					result = batchProcessor.process(result, batch);
-					batch = new ArrayList<T>();
+			// element names repeat, so only match each name against the routes once
+			Map<QName, Dispatch<?>> dispatchByName = new HashMap<QName, Dispatch<?>>();
+			ElementCursor cursor = new ElementCursor(xmlr, reader.path);
+			while (cursor.next()) {
+				QName name = xmlr.getName();
+				if (!dispatchByName.containsKey(name)) {
+					dispatchByName.put(name, findDispatch(dispatches, name));
+				}
+				Dispatch<?> dispatch = dispatchByName.get(name);
+				if (dispatch == null) {
+					cursor.skip();
+				} else {
+					dispatch.add(unmarshaller, xmlr);
 				}
 			}
-			if (batch.size() > 0) {
-				result = batchProcessor.process(result, batch);
-			}
+			pool.release(jaxbContext, unmarshaller);
 
-			return result;
+			Map<Class<?>, Object> results = new LinkedHashMap<Class<?>, Object>();
+			for (Dispatch<?> dispatch : dispatches) {
+				results.put(dispatch.type, dispatch.batcher.finish());
+			}
+			// each type is reported as a streamed read of the whole document
+			for (Dispatch<?> dispatch : dispatches) {
+				if (dispatch.measured != null) {
+					dispatch.measured.finished(counting.getCount());
+				}
+			}
+			return results;
 		} catch (JAXBException | XMLStreamException e) {
 			throw new XmlException(e, "Failed to batch process xml: %s", e.getMessage());
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	private <T> Dispatch<T> dispatch(JaxbDispatchReader.Route<T> route, int batchSize) {
+		Batch<T, Object> batchProcessor = (Batch<T, Object>) route.batchProcessor;
+		JaxbEvent event = JaxbEvents.begin(JaxbEvents.Kind.Read);
+		MeasuredBatch<T, Object> measured = isMeasured() || event.isRecording() ? new MeasuredBatch<T, Object>(metrics, event.batchSize(batchSize), route.type, batchProcessor) : null;
+		return new Dispatch<T>(route, measured, new Batcher<T, Object>(measured == null ? batchProcessor : measured, null, batchSize));
+	}
+
+	private Dispatch<?> findDispatch(List<Dispatch<?>> dispatches, QName name) {
+		for (Dispatch<?> dispatch : dispatches) {
+			if (dispatch.name.matchesName(name)) {
+				return dispatch;
+			}
+		}
+		return null;
+	}
+
+	protected <T> JaxbIterator<T> iterate(JaxbReader<T> reader) {
+		try {
+			return new JaxbIterator<T>(reader, newXmlInputFactory(reader.validate), pool, getJaxbContext(reader.type));
+		} catch (JAXBException e) {
+			throw new XmlException(e, "Failed to read xml: %s", e.getMessage());
+		}
+	}
+
 	/**
 	 * Create an XmlInputFactory. Override if you have specific feature requirements.
 	 * 
+	 * By default this returns the shared factory from the {@link StaxFactoryProvider}, overrides are still used for all reads.
+	 * 
 	 * @param validate
 	 * @return
 	 * @throws FactoryConfigurationError
+	 * @deprecated supply a {@link StaxFactoryProvider} on construction instead, overriding this creates a factory for each read
 	 */
+	@Deprecated
 	protected XMLInputFactory newXmlInputFactory(boolean validate) throws FactoryConfigurationError {
-		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
-		if (!validate) {
-			inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
-			inputFactory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
-		}
-		return inputFactory;
+		return staxFactories.inputFactory(validate);
+	}
+
+	/**
+	 * Create the Marshaller used to write the given object. Override if you have specific marshaller requirements.
+	 * 
+	 * By default this borrows a marshaller from the {@link JaxbPool}, which is returned to it once written. When overridden, the
+	 * returned marshallers are used when writing single objects and streaming many, and are never returned to the pool.
+	 * 
+	 * @param output
+	 * @param encoding
+	 * @param format
+	 * @return
+	 * @throws JAXBException
+	 * @throws PropertyException
+	 * @deprecated supply a {@link JaxbPool} on construction instead, overriding this creates a marshaller for each write
+	 */
+	@Deprecated
+	protected <T> Marshaller marshaller(T output, String encoding, boolean format) throws JAXBException, PropertyException {
+		return pool.marshaller(getJaxbContext(output.getClass()), encoding, format, false);
 	}
 
 	public <T, O extends OutputStream> O writeOne(T output, O os, String encoding, boolean format) {
+		JaxbEvent event = JaxbEvents.begin(JaxbEvents.Kind.Write);
+		boolean measured = isMeasured();
+		long start = measured ? System.nanoTime() : 0;
 		try {
-			marshaller(output, encoding, format).marshal(output, os);
+			Marshaller marshaller = marshaller(output, encoding, format);
+			CountingOutputStream counting = measured || event.isRecording() ? new CountingOutputStream(os) : null;
+			marshaller.marshal(output, counting == null ? os : counting);
+			releaseMarshaller(output, encoding, format, marshaller);
+			if (measured) {
+				metrics.marshalled(output.getClass(), System.nanoTime() - start, counting.getCount());
+			}
+			if (counting != null) {
+				event.type(output.getClass()).elements(1).bytes(counting.getCount()).commit();
+			}
 			return os;
 		} catch (JAXBException e) {
 			throw new XmlException(e, "Failed to generate XML output: %s", e.getMessage());
@@ -225,8 +546,17 @@ public class Jaxb {
 	}
 
 	public <T, W extends Writer> W writeOne(T output, W writer, String encoding, boolean format) {
+		JaxbEvent event = JaxbEvents.begin(JaxbEvents.Kind.Write);
+		boolean measured = isMeasured();
+		long start = measured ? System.nanoTime() : 0;
 		try {
-			marshaller(output, encoding, format).marshal(output, writer);
+			Marshaller marshaller = marshaller(output, encoding, format);
+			marshaller.marshal(output, writer);
+			releaseMarshaller(output, encoding, format, marshaller);
+			if (measured) {
+				metrics.marshalled(output.getClass(), System.nanoTime() - start, -1);
+			}
+			event.type(output.getClass()).elements(1).bytes(-1).commit();
 			return writer;
 		} catch (JAXBException e) {
 			throw new XmlException(e, "Failed to generate XML output: %s", e.getMessage());
@@ -234,78 +564,232 @@ public class Jaxb {
 	}
 
 	public <T, O extends OutputStream> O writeMany(Iterator<T> output, O os, String rootElement, String encoding, boolean format) {
+		return writeMany(output, os, rootElement, encoding, format, 0);
+	}
+
+	public <T, O extends OutputStream> O writeMany(Iterator<T> output, O os, String rootElement, String encoding, boolean format, int flushEvery) {
+		return writeMany(output, os, rootElement, encoding, format, flushEvery, null, 0);
+	}
+
+	/**
+	 * Writes each of the given objects as for {@link #writeMany(Iterator, OutputStream, String, String, boolean, int)}. When an executor
+	 * is given, the objects are marshalled into fragments in parallel on it, and the fragments are written to the output in order
+	 * by the calling thread. At most maxPendingFragments objects are waiting or being marshalled at a time, after which iteration
+	 * waits for marshalling to catch up.
+	 * 
+	 * The objects appear in the same order and with the same content as when written without an executor, but the bytes may differ,
+	 * as each fragment is escaped by the JAXB marshaller rather than the StAX writer.
+	 */
+	public <T, O extends OutputStream> O writeMany(Iterator<T> output, O os, String rootElement, String encoding, boolean format, int flushEvery, Executor executor,
+			int maxPendingFragments) {
+		JaxbEvent event = JaxbEvents.begin(JaxbEvents.Kind.Write);
+		boolean measured = isMeasured() || event.isRecording();
+		long start = measured ? System.nanoTime() : 0;
 		try {
-			XMLStreamWriter writer = XMLOutputFactory.newFactory().createXMLStreamWriter(os, encoding);
-			writeStreamedObjects(output, rootElement, encoding, format, writer);
+			CountingIterator<T> counted = measured ? new CountingIterator<T>(output) : null;
+			CountingOutputStream counting = measured ? new CountingOutputStream(os) : null;
+			OutputStream target = counting == null ? os : counting;
+			XMLStreamWriter writer = staxFactories.outputFactory().createXMLStreamWriter(target, encoding);
+			if (executor == null) {
+				writeStreamedObjects(counted == null ? output : counted, rootElement, encoding, format, writer, flushEvery);
+			} else {
+				writeMarshalledObjects(counted == null ? output : counted, rootElement, encoding, writer, new FragmentOutput(target, flushEvery), executor, maxPendingFragments);
+			}
+			if (counted != null) {
+				counted.finished(metrics, event, start, counting.getCount());
+			}
 			return os;
-		} catch (JAXBException | XMLStreamException e) {
+		} catch (JAXBException | XMLStreamException | IOException e) {
 			throw new XmlException(e, "Failed to generate XML output: %s", e.getMessage());
 		}
 	}
 
 	public <T, W extends Writer> W writeMany(Iterator<T> output, W writer, String rootElement, String encoding, boolean format) {
+		return writeMany(output, writer, rootElement, encoding, format, 0);
+	}
+
+	public <T, W extends Writer> W writeMany(Iterator<T> output, W writer, String rootElement, String encoding, boolean format, int flushEvery) {
+		return writeMany(output, writer, rootElement, encoding, format, flushEvery, null, 0);
+	}
+
+	/**
+	 * Writes each of the given objects as for {@link #writeMany(Iterator, Writer, String, String, boolean, int)}, marshalling them in
+	 * parallel when an executor is given as for {@link #writeMany(Iterator, OutputStream, String, String, boolean, int, Executor, int)}.
+	 */
+	public <T, W extends Writer> W writeMany(Iterator<T> output, W writer, String rootElement, String encoding, boolean format, int flushEvery, Executor executor,
+			int maxPendingFragments) {
+		JaxbEvent event = JaxbEvents.begin(JaxbEvents.Kind.Write);
+		boolean measured = isMeasured() || event.isRecording();
+		long start = measured ? System.nanoTime() : 0;
 		try {
-			XMLStreamWriter xmlWriter = XMLOutputFactory.newFactory().createXMLStreamWriter(writer);
-			writeStreamedObjects(output, rootElement, encoding, format, xmlWriter);
+			CountingIterator<T> counted = measured ? new CountingIterator<T>(output) : null;
+			XMLStreamWriter xmlWriter = staxFactories.outputFactory().createXMLStreamWriter(writer);
+			if (executor == null) {
+				writeStreamedObjects(counted == null ? output : counted, rootElement, encoding, format, xmlWriter, flushEvery);
+			} else {
+				FragmentOutput fragments = new FragmentOutput(writer, Charset.forName(encoding), flushEvery);
+				writeMarshalledObjects(counted == null ? output : counted, rootElement, encoding, xmlWriter, fragments, executor, maxPendingFragments);
+			}
+			if (counted != null) {
+				counted.finished(metrics, event, start, -1);
+			}
 			return writer;
-		} catch (JAXBException | XMLStreamException e) {
+		} catch (JAXBException | XMLStreamException | IOException e) {
 			throw new XmlException(e, "Failed to generate XML output: %s", e.getMessage());
 		}
 	}
 
+	public <T, A extends Appendable> A appendMany(Iterator<T> output, A appendable, String rootElement, String encoding, boolean format) {
+		writeMany(output, new AppendableWriter(appendable), rootElement, encoding, format);
+		return appendable;
+	}
+
+	public <T, A extends Appendable> A appendOne(T output, A appendable, String encoding, boolean format) {
+		writeOne(output, new AppendableWriter(appendable), encoding, format);
+		return appendable;
+	}
+
 	public <T> String writeMany(Iterator<T> output, String rootElement, String encoding, boolean format) {
-		ByteArrayOutputStream baos = writeMany(output, new ByteArrayOutputStream(), rootElement, encoding, format);
-		return string(baos, encoding);
+		if (!isUnicode(encoding)) {
+			return string(writeMany(output, new ByteArrayOutputStream(), rootElement, encoding, format), encoding);
+		}
+		StringBuilder builder = borrowBuilder();
+		String xml = appendMany(output, builder, rootElement, encoding, format).toString();
+		releaseBuilder(builder);
+		return xml;
 	}
 
-	public <T> String writeOne(T output, String encoding, boolean format) {
-		ByteArrayOutputStream baos = writeOne(output, new ByteArrayOutputStream(), encoding, format);
-		return string(baos, encoding);
+	/**
+	 * Writes each of the given objects to a string, marshalling them in parallel on the given executor as for
+	 * {@link #writeMany(Iterator, OutputStream, String, String, boolean, int, Executor, int)}.
+	 */
+	public <T> String writeMany(Iterator<T> output, String rootElement, String encoding, boolean format, Executor executor, int maxPendingFragments) {
+		StringBuilder builder = borrowBuilder();
+		writeMany(output, new AppendableWriter(builder), rootElement, encoding, format, 0, executor, maxPendingFragments);
+		String xml = builder.toString();
+		releaseBuilder(builder);
+		return xml;
 	}
 
-	protected <T> Marshaller marshaller(T output, String encoding, boolean format) throws JAXBException, PropertyException {
-		Class<?> type = output.getClass();
-		JAXBContext jaxbContext = JAXBContext.newInstance(type);
-		Marshaller marshaller = jaxbContext.createMarshaller();
-		marshaller.setProperty(Marshaller.JAXB_ENCODING, encoding);
-		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, format);
-		return marshaller;
+	public <T> String writeOne(T output, String encoding, boolean format) {
+		if (!isUnicode(encoding)) {
+			return string(writeOne(output, new ByteArrayOutputStream(), encoding, format), encoding);
+		}
+		StringBuilder builder = borrowBuilder();
+		String xml = appendOne(output, builder, encoding, format).toString();
+		releaseBuilder(builder);
+		return xml;
 	}
 
 	protected <T> JAXBContext getJaxbContext(Class<T> type) throws JAXBException {
-		JAXBContext context = contextMap.get(type);
+		return contexts.get(type);
+	}
+
+	private <T> void releaseMarshaller(T output, String encoding, boolean format, Marshaller marshaller) throws JAXBException {
+		if (!customMarshallers) {
+			pool.release(getJaxbContext(output.getClass()), encoding, format, false, marshaller);
+		}
+	}
 
-		if (context == null) {
+	/**
+	 * Marshallers created by an overridden {@link #marshaller(Object, String, boolean)} may be configured differently to the
+	 * pooled ones, so they are used in place of the pool rather than returned to it
+	 */
+	private static boolean overridesMarshaller(Class<?> type) {
+		for (Class<?> current = type; current != Jaxb.class; current = current.getSuperclass()) {
 			try {
-				context = JAXBContext.newInstance(type);
-				contextMap.putIfAbsent(type, context);
-			} catch (Exception e) {
-				throw new XmlException(e, "Failed to create a JAXBContext for type %s", type.getName());
+				current.getDeclaredMethod("marshaller", Object.class, String.class, boolean.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// not overridden at this level
 			}
 		}
+		return false;
+	}
 
-		return context;
+	private boolean isMeasured() {
+		return metrics != JaxbMetrics.None;
 	}
 
-	@SuppressWarnings("unchecked")
 	protected <T> void writeStreamedObjects(Iterator<T> output, String rootElement, String encoding, boolean format, XMLStreamWriter writer) throws XMLStreamException, JAXBException,
 			PropertyException {
+		writeStreamedObjects(output, rootElement, encoding, format, writer, 0);
+	}
+
+	/**
+	 * Writes each of the given objects as a child of the root element. When flushEvery is greater than 0, the writer is flushed
+	 * after every flushEvery objects.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> void writeStreamedObjects(Iterator<T> output, String rootElement, String encoding, boolean format, XMLStreamWriter writer, int flushEvery)
+			throws XMLStreamException, JAXBException, PropertyException {
 		writer.writeStartDocument(encoding, "1.0");
 		writer.writeStartElement(rootElement);
 
+		JAXBContext jaxbContext = null;
 		Marshaller marshaller = null;
 		Class<T> type = null;
+		QName elementName = null;
+		int written = 0;
 		while (output.hasNext()) {
 			T object = output.next();
 			if (marshaller == null) {
 				type = (Class<T>) object.getClass();
-				marshaller = marshaller(object, encoding, format);
-				marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+				jaxbContext = getJaxbContext(type);
+				if (customMarshallers) {
+					marshaller = marshaller(object, encoding, format);
+					marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+				} else {
+					marshaller = pool.marshaller(jaxbContext, encoding, format, true);
+				}
+				elementName = QName.valueOf(generateJaxbElementName(type));
 			}
 
-			String jaxbElementName = generateJaxbElementName(type);
-			JAXBElement<T> element = new JAXBElement<T>(QName.valueOf(jaxbElementName), type, object);
+			JAXBElement<T> element = new JAXBElement<T>(elementName, type, object);
 			marshaller.marshal(element, writer);
+			if (flushEvery > 0 && ++written % flushEvery == 0) {
+				writer.flush();
+			}
+		}
+		if (marshaller != null && !customMarshallers) {
+			pool.release(jaxbContext, encoding, format, true, marshaller);
+		}
+		writer.writeEndDocument();
+		writer.flush();
+	}
+
+	/**
+	 * Writes each of the given objects as a child of the root element, marshalling them into fragments in parallel using a
+	 * {@link MarshalPipeline} and writing the fragments directly to the output in order.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> void writeMarshalledObjects(Iterator<T> output, String rootElement, String encoding, XMLStreamWriter writer, FragmentOutput fragments, Executor executor,
+			int maxPendingFragments) throws XMLStreamException, JAXBException, IOException {
+		writer.writeStartDocument(encoding, "1.0");
+		writer.writeStartElement(rootElement);
+		// completes the start tag, so that fragments can follow it in the output
+		writer.writeCharacters("");
+		writer.flush();
+
+		MarshalPipeline<T> pipeline = null;
+		try {
+			while (output.hasNext()) {
+				T object = output.next();
+				if (pipeline == null) {
+					Class<T> type = (Class<T>) object.getClass();
+					QName elementName = QName.valueOf(generateJaxbElementName(type));
+					pipeline = new MarshalPipeline<T>(pool, getJaxbContext(type), elementName, type, encoding, executor, maxPendingFragments);
+				}
+				fragments.write(pipeline, pipeline.submit(object));
+			}
+			if (pipeline != null) {
+				fragments.write(pipeline, pipeline.finish());
+			}
+		} finally {
+			// no-op on success, stops outstanding marshalling on failure
+			if (pipeline != null) {
+				pipeline.cancel();
+			}
 		}
 		writer.writeEndDocument();
 		writer.flush();
@@ -317,6 +801,32 @@ public class Jaxb {
 		return r == null || r.name() == null || r.name().equalsIgnoreCase("##default") ? Introspector.decapitalize(type.getSimpleName()) : r.name();
 	}
 
+	/**
+	 * Strings are marshalled as characters into a {@link StringBuilder} reused by each thread, so that the only copy made is the
+	 * resulting string. The builder is removed while in use, so nested writes get their own.
+	 */
+	private StringBuilder borrowBuilder() {
+		StringBuilder builder = Builders.get();
+		if (builder == null) {
+			return new StringBuilder(InitialBuilderSize);
+		}
+		Builders.remove();
+		return builder;
+	}
+
+	/**
+	 * Characters are only escaped when written as bytes, so strings in encodings which cannot represent every character are
+	 * written as bytes and decoded, ensuring the string can be encoded without loss
+	 */
+	private boolean isUnicode(String encoding) {
+		try {
+			return Charset.forName(encoding).name().startsWith("UTF-");
+		} catch (IllegalArgumentException e) {
+			// unsupported encodings fail when written
+			return false;
+		}
+	}
+
 	private String string(ByteArrayOutputStream baos, String encoding) {
 		try {
 			return new String(baos.toByteArray(), encoding);
@@ -325,4 +835,194 @@ public class Jaxb {
 		}
 	}
 
+	private void releaseBuilder(StringBuilder builder) {
+		// don't hold onto the memory used by unusually large documents
+		if (builder.capacity() <= MaxRetainedBuilderSize) {
+			builder.setLength(0);
+			Builders.set(builder);
+		}
+	}
+
+	/**
+	 * Parses past the given number of repeated elements without unmarshalling them
+	 */
+	private static void skip(ElementCursor cursor, long count) throws XMLStreamException {
+		for (long i = 0; i < count && cursor.next(); i++) {
+			cursor.skip();
+		}
+	}
+
+	/**
+	 * Accumulates values into batches of the configured size, handing each full batch to the {@link Batch} or {@link BatchPipeline}
+	 * and saving a checkpoint once a batch processed directly completes. Rejected elements are counted towards the next batch
+	 * so that checkpoints record every element read.
+	 */
+	private static class Batcher<T, R> {
+		private Batch<T, R> batchProcessor;
+		private BatchPipeline<T, R> pipeline;
+		private int batchSize;
+		private Checkpointer checkpointer;
+		private List<T> batch;
+		private int skipped = 0;
+		private R result = null;
+
+		private Batcher(Batch<T, R> batchProcessor, BatchPipeline<T, R> pipeline, int batchSize) {
+			this(batchProcessor, pipeline, batchSize, null);
+		}
+
+		private Batcher(Batch<T, R> batchProcessor, BatchPipeline<T, R> pipeline, int batchSize, Checkpointer checkpointer) {
+			this.batchProcessor = batchProcessor;
+			this.pipeline = pipeline;
+			this.batchSize = batchSize;
+			this.checkpointer = checkpointer;
+			this.batch = new ArrayList<T>();
+		}
+
+		private void add(T value) {
+			batch.add(value);
+			if (batch.size() >= batchSize) {
+				process();
+			}
+		}
+
+		private void addAll(List<T> values) {
+			for (T value : values) {
+				add(value);
+			}
+		}
+
+		private void skipped(int count) {
+			skipped += count;
+		}
+
+		private R finish() {
+			if (batch.size() > 0) {
+				process();
+			}
+			return result;
+		}
+
+		private void process() {
+			if (pipeline == null) {
+				result = batchProcessor.process(result, batch);
+				if (checkpointer != null) {
+					checkpointer.processed(batch.size() + skipped);
+				}
+			} else {
+				pipeline.submit(batch, batch.size() + skipped);
+			}
+			batch = new ArrayList<T>();
+			skipped = 0;
+		}
+	}
+
+	/**
+	 * Writes the fragments produced by a {@link MarshalPipeline} to a byte or character output, flushing it once at least
+	 * flushEvery objects have been written since the last flush.
+	 */
+	private static class FragmentOutput {
+		private OutputStream os;
+		private Writer writer;
+		private Charset charset;
+		private int flushEvery;
+		private long written = 0;
+
+		private FragmentOutput(OutputStream os, int flushEvery) {
+			this.os = os;
+			this.flushEvery = flushEvery;
+		}
+
+		private FragmentOutput(Writer writer, Charset charset, int flushEvery) {
+			this.writer = writer;
+			this.charset = charset;
+			this.flushEvery = flushEvery;
+		}
+
+		private void write(MarshalPipeline<?> pipeline, List<MarshalPipeline.Fragment> fragments) throws IOException {
+			for (MarshalPipeline.Fragment fragment : fragments) {
+				if (os != null) {
+					fragment.writeTo(os);
+				} else {
+					fragment.writeTo(writer, charset);
+				}
+				long before = written;
+				written += fragment.getObjects();
+				pipeline.release(fragment);
+				if (flushEvery > 0 && written / flushEvery > before / flushEvery) {
+					flush();
+				}
+			}
+		}
+
+		private void flush() throws IOException {
+			if (os != null) {
+				os.flush();
+			} else {
+				writer.flush();
+			}
+		}
+	}
+
+	/**
+	 * Counts the objects taken from an iterator being written, so that the write can be reported to {@link JaxbMetrics}
+	 * and {@link JaxbEvents} against the type of the objects. Empty writes are not reported to metrics, as they have no type.
+	 */
+	private static class CountingIterator<T> implements Iterator<T> {
+		private Iterator<T> delegate;
+		private Class<?> type;
+		private long count = 0;
+
+		private CountingIterator(Iterator<T> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return delegate.hasNext();
+		}
+
+		@Override
+		public T next() {
+			T next = delegate.next();
+			if (type == null && next != null) {
+				type = next.getClass();
+			}
+			count++;
+			return next;
+		}
+
+		@Override
+		public void remove() {
+			delegate.remove();
+		}
+
+		private void finished(JaxbMetrics metrics, JaxbEvent event, long start, long bytes) {
+			if (type != null && metrics != JaxbMetrics.None) {
+				metrics.streamWritten(type, System.nanoTime() - start, count, bytes);
+			}
+			event.type(type).elements(count).bytes(bytes).commit();
+		}
+	}
+
+	/**
+	 * Unmarshals elements routed to one type of a {@link JaxbDispatchReader}, accumulating them into batches for the type
+	 */
+	private static class Dispatch<T> {
+		private ElementPath name;
+		private Class<T> type;
+		private MeasuredBatch<T, Object> measured;
+		private Batcher<T, Object> batcher;
+
+		private Dispatch(JaxbDispatchReader.Route<T> route, MeasuredBatch<T, Object> measured, Batcher<T, Object> batcher) {
+			this.name = route.name;
+			this.type = route.type;
+			this.measured = measured;
+			this.batcher = batcher;
+		}
+
+		private void add(Unmarshaller unmarshaller, XMLStreamReader xmlr) throws JAXBException {
+			batcher.add(unmarshaller.unmarshal(xmlr, type).getValue());
+		}
+	}
+
 }
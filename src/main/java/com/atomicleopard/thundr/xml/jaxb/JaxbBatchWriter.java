@@ -18,10 +18,18 @@
  */
 package com.atomicleopard.thundr.xml.jaxb;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+import com.atomicleopard.thundr.xml.XmlException;
 
 /**
  * {@link JaxbBatchWriter} is a builder for write state when using the {@link Jaxb#write(Iterable)} and {@link Jaxb#write(Iterator)} interfaces.
@@ -34,6 +42,11 @@ public class JaxbBatchWriter<T> {
 	protected boolean format = false;
 	protected String encoding = "UTF-8";
 	protected String rootElement = "Root";
+	protected int flushEvery = 0;
+	protected int bufferSize = ChannelOutputStream.DefaultBufferSize;
+	protected boolean sync = false;
+	protected Executor marshalExecutor = null;
+	protected int maxPendingFragments = 256;
 
 	protected JaxbBatchWriter(Jaxb jaxb, Iterator<T> outputs) {
 		this.output = outputs;
@@ -48,13 +61,28 @@ public class JaxbBatchWriter<T> {
 		this.rootElement = rootElement;
 	}
 
+	protected JaxbBatchWriter(JaxbBatchWriter<T> other) {
+		this.jaxb = other.jaxb;
+		this.output = other.output;
+		this.format = other.format;
+		this.encoding = other.encoding;
+		this.rootElement = other.rootElement;
+		this.flushEvery = other.flushEvery;
+		this.bufferSize = other.bufferSize;
+		this.sync = other.sync;
+		this.marshalExecutor = other.marshalExecutor;
+		this.maxPendingFragments = other.maxPendingFragments;
+	}
+
 	/**
 	 * When invoked, causes the xml output to be formatted. This has no effect on streamed output.
 	 * 
 	 * @return
 	 */
 	public JaxbBatchWriter<T> format() {
-		return new JaxbBatchWriter<T>(jaxb, output, rootElement, encoding, true);
+		JaxbBatchWriter<T> writer = new JaxbBatchWriter<T>(this);
+		writer.format = true;
+		return writer;
 	}
 
 	/**
@@ -64,7 +92,9 @@ public class JaxbBatchWriter<T> {
 	 * @return
 	 */
 	public JaxbBatchWriter<T> encoding(String encoding) {
-		return new JaxbBatchWriter<T>(jaxb, output, rootElement, encoding, format);
+		JaxbBatchWriter<T> writer = new JaxbBatchWriter<T>(this);
+		writer.encoding = encoding;
+		return writer;
 	}
 
 	/**
@@ -74,7 +104,7 @@ public class JaxbBatchWriter<T> {
 	 * @return
 	 */
 	public JaxbBatchWriter<T> encoding(Charset encoding) {
-		return new JaxbBatchWriter<T>(jaxb, output, rootElement, encoding.name(), format);
+		return encoding(encoding.name());
 	}
 
 	/**
@@ -85,7 +115,83 @@ public class JaxbBatchWriter<T> {
 	 * @return
 	 */
 	public JaxbBatchWriter<T> rootElement(String rootElement) {
-		return new JaxbBatchWriter<T>(jaxb, output, rootElement, encoding, format);
+		JaxbBatchWriter<T> writer = new JaxbBatchWriter<T>(this);
+		writer.rootElement = rootElement;
+		return writer;
+	}
+
+	/**
+	 * Causes the output to be flushed after every flushEvery objects are written, so that the xml produced so far is sent on
+	 * rather than held in buffers (for example, so that http clients start receiving a large response straight away).
+	 * Defaults to 0, which only flushes once all objects are written.
+	 * 
+	 * @param flushEvery
+	 * @return
+	 */
+	public JaxbBatchWriter<T> flushEvery(int flushEvery) {
+		JaxbBatchWriter<T> writer = new JaxbBatchWriter<T>(this);
+		writer.flushEvery = Math.max(flushEvery, 0);
+		return writer;
+	}
+
+	/**
+	 * Specifies the size of the direct buffer used when writing to a {@link WritableByteChannel} or {@link Path}.
+	 * Defaults to {@value ChannelOutputStream#DefaultBufferSize} bytes, only buffers of the default size are reused between writes.
+	 * 
+	 * @param bufferSize
+	 * @return
+	 */
+	public JaxbBatchWriter<T> bufferSize(int bufferSize) {
+		JaxbBatchWriter<T> writer = new JaxbBatchWriter<T>(this);
+		writer.bufferSize = Math.max(bufferSize, 1);
+		return writer;
+	}
+
+	/**
+	 * When invoked, causes files written using {@link #to(Path)} or a {@link java.nio.channels.FileChannel} to be forced to
+	 * storage once the output is written.
+	 * 
+	 * @return
+	 */
+	public JaxbBatchWriter<T> sync() {
+		JaxbBatchWriter<T> writer = new JaxbBatchWriter<T>(this);
+		writer.sync = true;
+		return writer;
+	}
+
+	/**
+	 * Causes the objects to be marshalled in parallel on the given {@link Executor}, each worker using its own {@link javax.xml.bind.Marshaller}
+	 * to produce xml fragments in reused buffers. The calling thread takes the objects from the iterator and writes the fragments to
+	 * the output in the order of the objects, so the xml has the same elements and content as when written on one thread, although
+	 * characters may be escaped differently as fragments are escaped by the JAXB marshaller. This is useful when marshalling
+	 * a large number of objects is bound by a single processor.
+	 * 
+	 * At most 256 objects will be waiting or being marshalled at a time, see {@link #marshalIn(Executor, int)}.
+	 * 
+	 * @param executor
+	 * @return
+	 */
+	public JaxbBatchWriter<T> marshalIn(Executor executor) {
+		return marshalIn(executor, maxPendingFragments);
+	}
+
+	/**
+	 * Causes the objects to be marshalled in parallel on the given {@link Executor} as for {@link #marshalIn(Executor)}.
+	 * At most maxPendingFragments objects will be waiting or being marshalled at a time, after which taking objects from the
+	 * iterator will wait for marshalling to catch up. This bounds the memory used by fragments waiting to be written.
+	 * 
+	 * When flushing using {@link #flushEvery(int)}, the output is flushed once at least that many objects have been written, as objects
+	 * are written in groups.
+	 * 
+	 * @param executor
+	 * @param maxPendingFragments
+	 * @return
+	 */
+	public JaxbBatchWriter<T> marshalIn(Executor executor, int maxPendingFragments) {
+		JaxbBatchWriter<T> writer = new JaxbBatchWriter<T>(this);
+		writer.marshalExecutor = executor;
+		writer.maxPendingFragments = Math.max(maxPendingFragments, 1);
+		return writer;
 	}
 
 	/**
@@ -95,7 +201,10 @@ public class JaxbBatchWriter<T> {
 	 * @return the given outputstream with the xml output written to it
 	 */
 	public <O extends OutputStream> O to(O os) {
-		return jaxb.writeMany(output, os, rootElement, encoding, format);
+		if (marshalExecutor != null) {
+			return jaxb.writeMany(output, os, rootElement, encoding, format, flushEvery, marshalExecutor, maxPendingFragments);
+		}
+		return flushEvery == 0 ? jaxb.writeMany(output, os, rootElement, encoding, format) : jaxb.writeMany(output, os, rootElement, encoding, format, flushEvery);
 	}
 
 	/**
@@ -105,7 +214,54 @@ public class JaxbBatchWriter<T> {
 	 * @return the given writer with the xml output written to it
 	 */
 	public <W extends Writer> W to(W writer) {
-		return jaxb.writeMany(output, writer, rootElement, encoding, format);
+		if (marshalExecutor != null) {
+			return jaxb.writeMany(output, writer, rootElement, encoding, format, flushEvery, marshalExecutor, maxPendingFragments);
+		}
+		return flushEvery == 0 ? jaxb.writeMany(output, writer, rootElement, encoding, format) : jaxb.writeMany(output, writer, rootElement, encoding, format, flushEvery);
+	}
+
+	/**
+	 * Writes the previously given objects to the given channel. The channel is not closed.
+	 * 
+	 * @param channel
+	 * @return the given channel with the xml output written to it
+	 */
+	public <C extends WritableByteChannel> C to(C channel) {
+		try (ChannelOutputStream os = new ChannelOutputStream(channel, bufferSize, sync)) {
+			to(os);
+		} catch (IOException e) {
+			throw new XmlException(e, "Failed to write xml to channel: %s", e.getMessage());
+		}
+		return channel;
+	}
+
+	/**
+	 * Writes the previously given objects to the file at the given path, replacing it if it exists.
+	 * 
+	 * @param path
+	 * @return the given path
+	 */
+	public Path to(Path path) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			to(channel);
+		} catch (IOException e) {
+			throw new XmlException(e, "Failed to write xml to %s: %s", path, e.getMessage());
+		}
+		return path;
+	}
+
+	/**
+	 * Appends the previously given objects as xml to the given {@link Appendable}, such as a {@link StringBuilder}.
+	 * 
+	 * @param appendable
+	 * @return the given appendable with the xml output appended to it
+	 */
+	public <A extends Appendable> A appendTo(A appendable) {
+		if (flushEvery == 0 && marshalExecutor == null) {
+			return jaxb.appendMany(output, appendable, rootElement, encoding, format);
+		}
+		to(new AppendableWriter(appendable));
+		return appendable;
 	}
 
 	/**
@@ -114,6 +270,9 @@ public class JaxbBatchWriter<T> {
 	 * @return an xml string with the output
 	 */
 	public String string() {
+		if (marshalExecutor != null) {
+			return jaxb.writeMany(output, rootElement, encoding, format, marshalExecutor, maxPendingFragments);
+		}
 		return jaxb.writeMany(output, rootElement, encoding, format);
 	}
 
@@ -0,0 +1,215 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.bind.JAXBContext;
+
+import com.atomicleopard.thundr.xml.XmlException;
+import com.atomicleopard.thundr.xml.metrics.JaxbMetrics;
+
+import jodd.util.StringPool;
+
+/**
+ * {@link JaxbContextRegistry} retains a {@link JAXBContext} for each type (or set of types) it is asked for.
+ * Creation of a {@link JAXBContext} is expensive, so the registry guarantees that a context is only ever created once per
+ * type, even when many threads ask for the same type at the same time. Callers asking for a context which is currently
+ * being created will wait for that creation rather than starting their own.
+ *
+ * Contexts can be created eagerly using {@link #preload(Class...)} and {@link #preload(String...)}, which is useful
+ * at application startup to avoid the first requests paying the construction cost.
+ *
+ * The time taken to create each context is reported to the {@link JaxbMetrics} given on construction.
+ */
+public class JaxbContextRegistry {
+	private static final String JaxbIndex = "jaxb.index";
+
+	private ConcurrentHashMap<Set<Class<?>>, FutureTask<JAXBContext>> contexts = new ConcurrentHashMap<>();
+	private JaxbMetrics metrics;
+
+	public JaxbContextRegistry() {
+		this(JaxbMetrics.None);
+	}
+
+	public JaxbContextRegistry(JaxbMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public JaxbMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @param type
+	 * @return the {@link JAXBContext} for the given type, creating it if required
+	 */
+	public JAXBContext get(Class<?> type) {
+		return get(Collections.<Class<?>> singleton(type));
+	}
+
+	/**
+	 * @param types
+	 * @return a {@link JAXBContext} which is aware of all of the given types, creating it if required
+	 */
+	public JAXBContext get(Class<?>... types) {
+		return get(new LinkedHashSet<Class<?>>(Arrays.asList(types)));
+	}
+
+	/**
+	 * @param type
+	 * @return true if a {@link JAXBContext} for the given type has been created or is being created
+	 */
+	public boolean contains(Class<?> type) {
+		return contexts.containsKey(Collections.<Class<?>> singleton(type));
+	}
+
+	/**
+	 * Eagerly creates a {@link JAXBContext} for each of the given types.
+	 *
+	 * @param types
+	 * @return this registry
+	 */
+	public JaxbContextRegistry preload(Class<?>... types) {
+		for (Class<?> type : types) {
+			get(type);
+		}
+		return this;
+	}
+
+	/**
+	 * Eagerly creates a {@link JAXBContext} for each of the types listed in the <code>jaxb.index</code> file of the
+	 * given packages. This is the same index file used by {@link JAXBContext#newInstance(String)}.
+	 *
+	 * @param packageNames
+	 * @return this registry
+	 */
+	public JaxbContextRegistry preload(String... packageNames) {
+		for (String packageName : packageNames) {
+			preload(indexedTypes(packageName).toArray(new Class<?>[0]));
+		}
+		return this;
+	}
+
+	protected JAXBContext get(final Set<Class<?>> types) {
+		FutureTask<JAXBContext> creation = contexts.get(types);
+		if (creation == null) {
+			FutureTask<JAXBContext> newCreation = new FutureTask<>(new Callable<JAXBContext>() {
+				@Override
+				public JAXBContext call() throws Exception {
+					if (metrics == JaxbMetrics.None) {
+						return createContext(types);
+					}
+					long start = System.nanoTime();
+					JAXBContext context = createContext(types);
+					long elapsed = System.nanoTime() - start;
+					for (Class<?> type : types) {
+						metrics.contextCreated(type, elapsed);
+					}
+					return context;
+				}
+			});
+			creation = contexts.putIfAbsent(types, newCreation);
+			if (creation == null) {
+				creation = newCreation;
+				creation.run();
+			}
+		}
+		return await(types, creation);
+	}
+
+	/**
+	 * Creates a new {@link JAXBContext}. Override if you have specific context requirements.
+	 *
+	 * @param types
+	 * @return
+	 * @throws Exception
+	 */
+	protected JAXBContext createContext(Set<Class<?>> types) throws Exception {
+		return JAXBContext.newInstance(types.toArray(new Class<?>[0]));
+	}
+
+	protected List<Class<?>> indexedTypes(String packageName) {
+		String resource = packageName.replace('.', '/') + "/" + JaxbIndex;
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		if (classLoader == null) {
+			classLoader = JaxbContextRegistry.class.getClassLoader();
+		}
+		try (InputStream stream = classLoader.getResourceAsStream(resource)) {
+			if (stream == null) {
+				throw new XmlException("Failed to preload JAXBContexts for package %s: no %s file was found", packageName, JaxbIndex);
+			}
+			List<Class<?>> types = new ArrayList<>();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StringPool.UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int comment = line.indexOf('#');
+				String className = (comment < 0 ? line : line.substring(0, comment)).trim();
+				if (!className.isEmpty()) {
+					types.add(Class.forName(packageName + "." + className, true, classLoader));
+				}
+			}
+			return types;
+		} catch (IOException | ClassNotFoundException e) {
+			throw new XmlException(e, "Failed to preload JAXBContexts for package %s: %s", packageName, e.getMessage());
+		}
+	}
+
+	private JAXBContext await(Set<Class<?>> types, FutureTask<JAXBContext> creation) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return creation.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					// don't retain failures, a later call may succeed (i.e. after classloading issues are resolved)
+					contexts.remove(types, creation);
+					throw new XmlException(e.getCause(), "Failed to create a JAXBContext for type %s", describe(types));
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private String describe(Set<Class<?>> types) {
+		List<String> names = new ArrayList<>();
+		for (Class<?> type : types) {
+			names.add(type.getName());
+		}
+		return names.size() == 1 ? names.get(0) : names.toString();
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+import jodd.util.StringPool;
+
+/**
+ * {@link JaxbDispatchReader} is a builder for reading documents whose repeated elements are of several different types, using the
+ * {@link Jaxb#dispatch()} interface. They are immutable builders with a fluent api. As such, you must retain the reference to subsequent
+ * readers created by each call.
+ * 
+ * Each type is registered with the element name it is read from and the {@link Batch} that processes it. The document is then parsed
+ * once, with each element unmarshalled into the type registered for its name using a single {@link javax.xml.bind.JAXBContext} for all
+ * of the types, and handed to that type's {@link Batch}:
+ * 
+ * <pre>
+ * <code>
+ * Map&lt;Class&lt;?&gt;, Object&gt; results = jaxb.dispatch()
+ * 		.on("order", Order.class, orderBatch)
+ * 		.on("refund", Refund.class, refundBatch)
+ * 		.on(Adjustment.class, adjustmentBatch) // the element name is taken from the @XmlRootElement of the type
+ * 		.from(data)
+ * 		.stream();
+ * </code>
+ * </pre>
+ * 
+ * Elements which have no type registered for their name are skipped without being unmarshalled.
+ */
+public class JaxbDispatchReader {
+	protected Jaxb jaxb;
+	protected boolean validate = false;
+	protected InputStream stream = null;
+	protected int batchSize = 200;
+	protected ElementPath path = ElementPath.ChildrenOfRoot;
+	protected Map<Class<?>, Route<?>> routes = new LinkedHashMap<>();
+
+	protected JaxbDispatchReader(Jaxb jaxb) {
+		this.jaxb = jaxb;
+	}
+
+	protected JaxbDispatchReader(JaxbDispatchReader other) {
+		this.jaxb = other.jaxb;
+		this.validate = other.validate;
+		this.stream = other.stream;
+		this.batchSize = other.batchSize;
+		this.path = other.path;
+		this.routes = new LinkedHashMap<>(other.routes);
+	}
+
+	/**
+	 * Reads elements with the given name into the given type, handing them to the given {@link Batch}.
+	 * The name is either a local name, which matches elements of that local name in any namespace, or a name in the form
+	 * <code>{namespace}local</code>, which only matches elements in the given namespace.
+	 * 
+	 * Each element is dispatched to at most one type, so the name must not match any of the elements matched by the names already
+	 * registered. For example <code>order</code> and <code>{urn:orders}order</code> cannot both be registered, nor can <code>*</code>
+	 * be combined with any other name, while <code>{urn:a}order</code> and <code>{urn:b}order</code> can.
+	 * 
+	 * @param elementName
+	 * @param type
+	 * @param batchProcessor
+	 * @return
+	 */
+	public <T> JaxbDispatchReader on(String elementName, Class<T> type, Batch<T, ?> batchProcessor) {
+		if (routes.containsKey(type)) {
+			throw new XmlException("Failed to dispatch elements named '%s' to %s, it is already dispatched from '%s'", elementName, type.getName(), routes.get(type).name);
+		}
+		ElementPath name = ElementPath.name(elementName);
+		for (Route<?> route : routes.values()) {
+			if (route.name.overlapsName(name)) {
+				throw new XmlException("Failed to dispatch elements named '%s' to %s, elements named '%s' are already dispatched to %s", elementName, type.getName(), route.name,
+						route.type.getName());
+			}
+		}
+		JaxbDispatchReader reader = new JaxbDispatchReader(this);
+		reader.routes.put(type, new Route<T>(name, type, batchProcessor));
+		return reader;
+	}
+
+	/**
+	 * Reads elements named as JAXB would name the given type into the given type, handing them to the given {@link Batch}.
+	 * The element name is taken from the {@link javax.xml.bind.annotation.XmlRootElement} annotation of the type, or the
+	 * type's name if it has none, and matches elements in any namespace.
+	 * 
+	 * @param type
+	 * @param batchProcessor
+	 * @return
+	 */
+	public <T> JaxbDispatchReader on(Class<T> type, Batch<T, ?> batchProcessor) {
+		return on(jaxb.generateJaxbElementName(type), type, batchProcessor);
+	}
+
+	/**
+	 * Controls whether validation is performed during reading of xml to JAXB objects. Defaults to false.
+	 * 
+	 * @param validate
+	 * @return
+	 */
+	public JaxbDispatchReader validate(boolean validate) {
+		JaxbDispatchReader reader = new JaxbDispatchReader(this);
+		reader.validate = validate;
+		return reader;
+	}
+
+	/**
+	 * Controls the number of elements of each type processed at a time. Defaults to 200
+	 * 
+	 * @param batchSize
+	 * @return
+	 */
+	public JaxbDispatchReader batchSize(int batchSize) {
+		JaxbDispatchReader reader = new JaxbDispatchReader(this);
+		reader.batchSize = Math.max(batchSize, 1);
+		return reader;
+	}
+
+	/**
+	 * Identifies the elements to dispatch, as for {@link JaxbReader#at(String)}. Defaults to every child of the root element.
+	 * 
+	 * @param path
+	 * @return
+	 */
+	public JaxbDispatchReader at(String path) {
+		JaxbDispatchReader reader = new JaxbDispatchReader(this);
+		reader.path = ElementPath.parse(path);
+		return reader;
+	}
+
+	/**
+	 * Specifies the source of xml to read
+	 * 
+	 * @param stream
+	 * @return
+	 */
+	public JaxbDispatchReader from(InputStream stream) {
+		JaxbDispatchReader reader = new JaxbDispatchReader(this);
+		reader.stream = stream;
+		return reader;
+	}
+
+	/**
+	 * Specifies the source of xml to read
+	 * 
+	 * @param string
+	 * @return
+	 */
+	public JaxbDispatchReader from(String string) {
+		return from(string, StringPool.UTF_8);
+	}
+
+	/**
+	 * Specifies the source of xml to read, including the encoding of the string
+	 * 
+	 * @param string
+	 * @param encoding
+	 * @return
+	 */
+	public JaxbDispatchReader from(String string, String encoding) {
+		try {
+			return from(string.getBytes(encoding));
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Specifies the source of xml to read
+	 * 
+	 * @param data
+	 * @return
+	 */
+	public JaxbDispatchReader from(byte[] data) {
+		return from(new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * Parses the previously specified data source once, handing each element to the {@link Batch} registered for its name.
+	 * 
+	 * @return the result of each {@link Batch}, keyed by the type it processed. Types for which no elements were found have a null result.
+	 */
+	public Map<Class<?>, Object> stream() {
+		if (stream == null) {
+			throw new XmlException("You have not specified a data source, such as an InputStream, String or byte[]");
+		}
+		if (routes.isEmpty()) {
+			throw new XmlException("You have not specified any types to dispatch elements to");
+		}
+		return jaxb.readDispatched(this);
+	}
+
+	protected List<Class<?>> types() {
+		return new ArrayList<Class<?>>(routes.keySet());
+	}
+
+	protected static class Route<T> {
+		protected ElementPath name;
+		protected Class<T> type;
+		protected Batch<T, ?> batchProcessor;
+
+		protected Route(ElementPath name, Class<T> type, Batch<T, ?> batchProcessor) {
+			this.name = name;
+			this.type = type;
+			this.batchProcessor = batchProcessor;
+		}
+	}
+}
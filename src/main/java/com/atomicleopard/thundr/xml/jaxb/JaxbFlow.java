@@ -0,0 +1,74 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+/**
+ * Interfaces for publishing unmarshalled xml to consumers which control the rate at which they receive it.
+ * 
+ * These mirror <code>java.util.concurrent.Flow</code> and the Reactive Streams specification method for method, so that
+ * adapting a {@link Publisher} to either is a matter of delegation. They exist because this library targets Java 7.
+ * 
+ * @see JaxbReader#publisher()
+ */
+public final class JaxbFlow {
+	private JaxbFlow() {
+	}
+
+	/**
+	 * A producer of items which are only delivered to a {@link Subscriber} as they are requested.
+	 */
+	public interface Publisher<T> {
+		/**
+		 * Adds the given subscriber, which will receive {@link Subscriber#onSubscribe(Subscription)} before any other signal.
+		 * 
+		 * @param subscriber
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * A receiver of items, which signals its demand through the {@link Subscription} it is given
+	 */
+	public interface Subscriber<T> {
+		void onSubscribe(Subscription subscription);
+
+		void onNext(T item);
+
+		void onError(Throwable throwable);
+
+		void onComplete();
+	}
+
+	/**
+	 * The link between a {@link Publisher} and a {@link Subscriber}
+	 */
+	public interface Subscription {
+		/**
+		 * Adds n items to the demand of the subscriber. n must be positive.
+		 * 
+		 * @param n
+		 */
+		void request(long n);
+
+		/**
+		 * Stops the delivery of items, possibly after some items which were already requested have been delivered
+		 */
+		void cancel();
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * {@link JaxbIterator} is a pull based alternative to {@link JaxbReader#stream(Batch)}, created using {@link JaxbReader#iterator()}.
+ * 
+ * Nothing is parsed until {@link #hasNext()} or {@link #next()} is first invoked, and each element is only unmarshalled
+ * when it is asked for, so consumers can stop reading at any point without the remainder of the document being parsed.
+ * 
+ * The iterator holds an open {@link XMLStreamReader} and the underlying {@link InputStream}. These are released when the
+ * last element has been read, when reading fails, or when {@link #close()} is invoked, so an iterator which may not be
+ * read to the end should be used in a try-with-resources block.
+ * 
+ * Like the {@link XMLStreamReader} it wraps, a {@link JaxbIterator} is not threadsafe.
+ */
+public class JaxbIterator<T> implements Iterator<T>, Closeable {
+	private Class<T> type;
+	private InputStream stream;
+	private byte[] data;
+	private ElementPath path;
+	private XMLInputFactory inputFactory;
+	private JaxbPool pool;
+	private JAXBContext context;
+
+	private XMLStreamReader xmlr;
+	private ElementCursor cursor;
+	private Unmarshaller unmarshaller;
+	private Boolean hasNext = null;
+	private boolean closed = false;
+
+	protected JaxbIterator(JaxbReader<T> reader, XMLInputFactory inputFactory, JaxbPool pool, JAXBContext context) {
+		this.type = reader.type;
+		this.stream = reader.stream;
+		this.data = reader.data;
+		this.path = reader.path;
+		this.inputFactory = inputFactory;
+		this.pool = pool;
+		this.context = context;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (hasNext == null) {
+			hasNext = !closed && advance();
+			if (!hasNext) {
+				close();
+			}
+		}
+		return hasNext;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		hasNext = null;
+		try {
+			return unmarshaller.unmarshal(xmlr, type).getValue();
+		} catch (JAXBException e) {
+			throw failed(e);
+		}
+	}
+
+	/**
+	 * Not supported, xml is read only
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException(String.format("%s does not support removal", getClass().getSimpleName()));
+	}
+
+	/**
+	 * Stops reading, releasing the underlying {@link XMLStreamReader} and {@link InputStream}. Subsequent calls have no effect.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			hasNext = false;
+			try {
+				if (xmlr != null) {
+					xmlr.close();
+				}
+				stream.close();
+			} catch (XMLStreamException | IOException e) {
+				throw new XmlException(e, "Failed to close xml source: %s", e.getMessage());
+			} finally {
+				if (unmarshaller != null) {
+					pool.release(context, unmarshaller);
+					unmarshaller = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if this iterator has been closed, either explicitly or because there are no more elements
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	private boolean advance() {
+		try {
+			if (xmlr == null) {
+				xmlr = XmlSources.createXMLStreamReader(inputFactory, stream, data);
+				cursor = new ElementCursor(xmlr, path);
+				unmarshaller = pool.unmarshaller(context);
+			}
+			return cursor.next();
+		} catch (JAXBException | XMLStreamException e) {
+			throw failed(e);
+		}
+	}
+
+	private XmlException failed(Exception e) {
+		// don't return an unmarshaller which failed to the pool
+		unmarshaller = null;
+		try {
+			close();
+		} catch (XmlException closeFailure) {
+			// report the original failure
+		}
+		return new XmlException(e, "Failed to read xml: %s", e.getMessage());
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * {@link JaxbPool} retains idle {@link Marshaller} and {@link Unmarshaller} instances so that they can be reused
+ * rather than recreated for every read and write.
+ *
+ * Marshallers are pooled per {@link JAXBContext} (and therefore per type) and by the encoding, format and fragment properties
+ * they were created with. Unmarshallers are pooled per {@link JAXBContext}.
+ *
+ * The pool never blocks. When no idle instance is available a new one is created, and when more than the configured number of
+ * instances are returned for a key the excess are discarded. Instances which have been idle for longer than the idle timeout are
+ * evicted as the pool is used, or when {@link #evictIdle()} is invoked.
+ *
+ * Hit, miss and eviction counts are available to help tune the pool size under load.
+ */
+public class JaxbPool {
+	public static final int DefaultMaxIdle = 16;
+	public static final long DefaultIdleTimeout = TimeUnit.MINUTES.toMillis(5);
+
+	private int maxIdle;
+	private long idleTimeoutNanos;
+	private ConcurrentHashMap<Key, Slot> slots = new ConcurrentHashMap<>();
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+	private AtomicLong evictions = new AtomicLong();
+
+	public JaxbPool() {
+		this(DefaultMaxIdle, DefaultIdleTimeout);
+	}
+
+	/**
+	 * @param maxIdle the maximum number of idle instances retained for each type and property set. 0 disables pooling.
+	 * @param idleTimeoutMillis the time after which an idle instance is evicted from the pool
+	 */
+	public JaxbPool(int maxIdle, long idleTimeoutMillis) {
+		this.maxIdle = Math.max(maxIdle, 0);
+		this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(idleTimeoutMillis, 0));
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	public long getIdleTimeout() {
+		return TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos);
+	}
+
+	/**
+	 * @return the number of times an idle instance was reused
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of times a new instance had to be created
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of idle instances evicted because they exceeded the idle timeout
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the number of idle instances currently retained
+	 */
+	public int getIdle() {
+		int idle = 0;
+		for (Slot slot : slots.values()) {
+			idle += slot.size.get();
+		}
+		return idle;
+	}
+
+	/**
+	 * Borrows a {@link Marshaller} for the given context and properties, creating one if required.
+	 * Return it using {@link #release(JAXBContext, String, boolean, boolean, Marshaller)} once it is no longer in use.
+	 */
+	public Marshaller marshaller(JAXBContext context, String encoding, boolean format, boolean fragment) throws JAXBException {
+		Marshaller marshaller = borrow(new Key(context, encoding, format, fragment), Marshaller.class);
+		if (marshaller == null) {
+			marshaller = context.createMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_ENCODING, encoding);
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, format);
+			if (fragment) {
+				marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+			}
+		}
+		return marshaller;
+	}
+
+	/**
+	 * Borrows an {@link Unmarshaller} for the given context, creating one if required.
+	 * Return it using {@link #release(JAXBContext, Unmarshaller)} once it is no longer in use.
+	 */
+	public Unmarshaller unmarshaller(JAXBContext context) throws JAXBException {
+		Unmarshaller unmarshaller = borrow(new Key(context), Unmarshaller.class);
+		return unmarshaller == null ? context.createUnmarshaller() : unmarshaller;
+	}
+
+	/**
+	 * Returns a {@link Marshaller} previously borrowed with the same arguments to the pool.
+	 * Marshallers whose use resulted in an exception should not be returned.
+	 */
+	public void release(JAXBContext context, String encoding, boolean format, boolean fragment, Marshaller marshaller) {
+		release(new Key(context, encoding, format, fragment), marshaller);
+	}
+
+	/**
+	 * Returns an {@link Unmarshaller} previously borrowed for the same context to the pool.
+	 * Unmarshallers whose use resulted in an exception should not be returned.
+	 */
+	public void release(JAXBContext context, Unmarshaller unmarshaller) {
+		release(new Key(context), unmarshaller);
+	}
+
+	/**
+	 * Evicts all instances which have been idle for longer than the idle timeout.
+	 *
+	 * @return the number of instances evicted
+	 */
+	public int evictIdle() {
+		int evicted = 0;
+		long now = System.nanoTime();
+		for (Slot slot : slots.values()) {
+			evicted += evictIdle(slot, now);
+		}
+		return evicted;
+	}
+
+	/**
+	 * Discards all idle instances
+	 */
+	public void clear() {
+		slots.clear();
+	}
+
+	private <V> V borrow(Key key, Class<V> type) {
+		Slot slot = slots.get(key);
+		Idle idle = slot == null ? null : slot.idle.pollFirst();
+		if (idle == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		slot.size.decrementAndGet();
+		hits.incrementAndGet();
+		evictIdle(slot, System.nanoTime());
+		return type.cast(idle.value);
+	}
+
+	private void release(Key key, Object value) {
+		if (value == null || maxIdle == 0) {
+			return;
+		}
+		Slot slot = slots.get(key);
+		if (slot == null) {
+			Slot newSlot = new Slot();
+			slot = slots.putIfAbsent(key, newSlot);
+			slot = slot == null ? newSlot : slot;
+		}
+		long now = System.nanoTime();
+		evictIdle(slot, now);
+		if (slot.size.incrementAndGet() > maxIdle) {
+			slot.size.decrementAndGet();
+		} else {
+			// most recently used instances are at the head, so idle instances accumulate at the tail
+			slot.idle.offerFirst(new Idle(value, now));
+		}
+	}
+
+	private int evictIdle(Slot slot, long now) {
+		int evicted = 0;
+		Idle oldest;
+		while ((oldest = slot.idle.peekLast()) != null && now - oldest.since > idleTimeoutNanos) {
+			if (slot.idle.removeLastOccurrence(oldest)) {
+				slot.size.decrementAndGet();
+				evictions.incrementAndGet();
+				evicted++;
+			}
+		}
+		return evicted;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[hits=%d, misses=%d, evictions=%d, idle=%d]", getClass().getSimpleName(), getHits(), getMisses(), getEvictions(), getIdle());
+	}
+
+	private static class Slot {
+		private ConcurrentLinkedDeque<Idle> idle = new ConcurrentLinkedDeque<>();
+		private AtomicInteger size = new AtomicInteger();
+	}
+
+	private static class Idle {
+		private Object value;
+		private long since;
+
+		private Idle(Object value, long since) {
+			this.value = value;
+			this.since = since;
+		}
+	}
+
+	private static class Key {
+		private JAXBContext context;
+		private Object[] properties;
+
+		private Key(JAXBContext context, Object... properties) {
+			this.context = context;
+			this.properties = properties;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(context) + Arrays.hashCode(properties);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return context == other.context && Arrays.equals(properties, other.properties);
+		}
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.atomicleopard.thundr.xml.XmlException;
+import com.atomicleopard.thundr.xml.jaxb.JaxbFlow.Publisher;
+import com.atomicleopard.thundr.xml.jaxb.JaxbFlow.Subscriber;
+import com.atomicleopard.thundr.xml.jaxb.JaxbFlow.Subscription;
+
+/**
+ * {@link JaxbPublisher} publishes unmarshalled xml elements to a {@link Subscriber}, created using {@link JaxbReader#publisher()}.
+ * 
+ * Elements are parsed and unmarshalled only as they are requested, on whichever thread calls {@link Subscription#request(long)},
+ * so a slow subscriber simply slows down reading rather than causing elements to be buffered. Cancelling the subscription stops
+ * reading and closes the data source.
+ * 
+ * As the data source can only be read once, a {@link JaxbPublisher} only supports one subscriber. Any further subscribers are
+ * signalled with an error. Failures to open the data source or to create the JAXBContext for the type are also signalled to
+ * the subscriber, rather than thrown from {@link #subscribe(Subscriber)}.
+ */
+public class JaxbPublisher<T> implements Publisher<T> {
+	private JaxbReader<T> reader;
+	private AtomicBoolean subscribed = new AtomicBoolean();
+
+	protected JaxbPublisher(JaxbReader<T> reader) {
+		this.reader = reader;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("Subscriber must not be null");
+		}
+		if (!subscribed.compareAndSet(false, true)) {
+			reject(subscriber, new XmlException("%s only supports a single subscriber, the xml source can only be read once", getClass().getSimpleName()));
+			return;
+		}
+		JaxbIterator<T> iterator;
+		try {
+			iterator = reader.iterator();
+		} catch (RuntimeException e) {
+			// failures to open or start parsing the source are signalled like any other failure to read
+			reject(subscriber, e);
+			return;
+		}
+		subscriber.onSubscribe(new JaxbSubscription<T>(iterator, subscriber));
+	}
+
+	/**
+	 * Signals the given error to a subscriber which will receive no elements
+	 */
+	private void reject(Subscriber<? super T> subscriber, Throwable error) {
+		subscriber.onSubscribe(new Subscription() {
+			@Override
+			public void request(long n) {
+			}
+
+			@Override
+			public void cancel() {
+			}
+		});
+		subscriber.onError(error);
+	}
+
+	/**
+	 * Delivers elements from a {@link JaxbIterator} as they are requested.
+	 * Reading only ever happens on one thread at a time, requests or cancellations made while another thread is delivering
+	 * elements (including from within {@link Subscriber#onNext(Object)}) are picked up by that thread.
+	 */
+	private static class JaxbSubscription<T> implements Subscription {
+		private JaxbIterator<T> iterator;
+		private Subscriber<? super T> subscriber;
+		private AtomicLong demand = new AtomicLong();
+		private AtomicInteger work = new AtomicInteger();
+		private volatile boolean cancelled = false;
+		private volatile Throwable invalidRequest = null;
+		private boolean done = false;
+
+		private JaxbSubscription(JaxbIterator<T> iterator, Subscriber<? super T> subscriber) {
+			this.iterator = iterator;
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException(String.format("Requested %d elements, requests must be positive", n));
+			} else {
+				long current;
+				long next;
+				do {
+					current = demand.get();
+					next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				} while (!demand.compareAndSet(current, next));
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			drain();
+		}
+
+		private void drain() {
+			if (work.getAndIncrement() != 0) {
+				// another thread (or an outer call on this thread) is delivering and will see this request
+				return;
+			}
+			int missed = 1;
+			do {
+				if (!done) {
+					deliver();
+				}
+				missed = work.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void deliver() {
+			try {
+				long emitted = 0;
+				long requested = demand.get();
+				while (!stopped()) {
+					if (emitted == requested) {
+						requested = demand.addAndGet(-emitted);
+						emitted = 0;
+						if (requested == 0) {
+							// complete without waiting for more demand if there is nothing left
+							if (!iterator.hasNext()) {
+								finish(null);
+							}
+							return;
+						}
+					}
+					if (!iterator.hasNext()) {
+						finish(null);
+						return;
+					}
+					T value = iterator.next();
+					emitted++;
+					subscriber.onNext(value);
+				}
+			} catch (RuntimeException | Error e) {
+				finish(e);
+			}
+		}
+
+		private boolean stopped() {
+			if (done) {
+				return true;
+			}
+			if (invalidRequest != null) {
+				finish(invalidRequest);
+				return true;
+			}
+			if (cancelled) {
+				done = true;
+				iterator.close();
+				return true;
+			}
+			return false;
+		}
+
+		private void finish(Throwable failure) {
+			if (done) {
+				return;
+			}
+			done = true;
+			try {
+				iterator.close();
+			} catch (XmlException e) {
+				failure = failure == null ? e : failure;
+			}
+			if (failure == null) {
+				subscriber.onComplete();
+			} else {
+				subscriber.onError(failure);
+			}
+		}
+	}
+}
@@ -19,9 +19,14 @@
 package com.atomicleopard.thundr.xml.jaxb;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.xml.namespace.QName;
 
 import com.atomicleopard.thundr.xml.XmlException;
 
@@ -37,19 +42,51 @@ public class JaxbReader<T> {
 	protected Class<T> type;
 	protected boolean validate = false;
 	protected InputStream stream = null;
+	protected byte[] data = null;
+	protected boolean closeStream = false;
+	protected Path file = null;
 	protected int batchSize = 200;
+	protected Executor executor = null;
+	protected int maxPendingBatches = 4;
+	protected boolean ordered = true;
+	protected Executor unmarshalExecutor = null;
+	protected int maxPendingElements = 256;
+	protected ElementPath path = ElementPath.ChildrenOfRoot;
+	protected Executor parseExecutor = null;
+	protected int segments = Runtime.getRuntime().availableProcessors();
+	protected CheckpointStore checkpointStore = null;
+	protected String checkpointKey = null;
+	protected Checkpoint resumeFrom = null;
+	protected ErrorPolicy errorPolicy = ErrorPolicy.FailFast;
+	protected DeadLetterSink deadLetters = null;
 
 	protected JaxbReader(Jaxb service, Class<T> type) {
 		this.jaxb = service;
 		this.type = type;
 	}
 
-	protected JaxbReader(Jaxb service, Class<T> type, InputStream stream, boolean validate, int batchSize) {
-		this.jaxb = service;
-		this.type = type;
-		this.validate = validate;
-		this.stream = stream;
-		this.batchSize = batchSize;
+	protected JaxbReader(JaxbReader<T> other) {
+		this.jaxb = other.jaxb;
+		this.type = other.type;
+		this.validate = other.validate;
+		this.stream = other.stream;
+		this.data = other.data;
+		this.closeStream = other.closeStream;
+		this.file = other.file;
+		this.batchSize = other.batchSize;
+		this.executor = other.executor;
+		this.maxPendingBatches = other.maxPendingBatches;
+		this.ordered = other.ordered;
+		this.unmarshalExecutor = other.unmarshalExecutor;
+		this.maxPendingElements = other.maxPendingElements;
+		this.path = other.path;
+		this.parseExecutor = other.parseExecutor;
+		this.segments = other.segments;
+		this.checkpointStore = other.checkpointStore;
+		this.checkpointKey = other.checkpointKey;
+		this.resumeFrom = other.resumeFrom;
+		this.errorPolicy = other.errorPolicy;
+		this.deadLetters = other.deadLetters;
 	}
 
 	/**
@@ -59,7 +96,9 @@ public class JaxbReader<T> {
 	 * @return
 	 */
 	public JaxbReader<T> validate(boolean validate) {
-		return new JaxbReader<T>(jaxb, type, stream, validate, batchSize);
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.validate = validate;
+		return reader;
 	}
 
 	/**
@@ -71,7 +110,236 @@ public class JaxbReader<T> {
 	 * @return
 	 */
 	public JaxbReader<T> batchSize(int batchSize) {
-		return new JaxbReader<T>(jaxb, type, stream, validate, Math.max(batchSize, 1));
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.batchSize = Math.max(batchSize, 1);
+		return reader;
+	}
+
+	/**
+	 * Causes batches to be processed on the given {@link Executor} when using {@link #stream(Batch, Combiner)}, so that
+	 * parsing can continue while previous batches are being processed. At most 4 batches will be waiting or being processed at a time,
+	 * after which parsing will wait for processing to catch up.
+	 * 
+	 * @param executor
+	 * @return
+	 */
+	public JaxbReader<T> processIn(Executor executor) {
+		return processIn(executor, maxPendingBatches);
+	}
+
+	/**
+	 * Causes batches to be processed on the given {@link Executor} when using {@link #stream(Batch, Combiner)}, so that
+	 * parsing can continue while previous batches are being processed. At most maxPendingBatches batches will be waiting or being processed
+	 * at a time, after which parsing will wait for processing to catch up. This limits the memory consumed when batches are processed
+	 * slower than they are parsed.
+	 * 
+	 * @param executor
+	 * @param maxPendingBatches
+	 * @return
+	 */
+	public JaxbReader<T> processIn(Executor executor, int maxPendingBatches) {
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.executor = executor;
+		reader.maxPendingBatches = Math.max(maxPendingBatches, 1);
+		return reader;
+	}
+
+	/**
+	 * Controls whether the results of batches processed using {@link #processIn(Executor)} are combined in the order the batches appear in the
+	 * xml, or in the order they complete. Defaults to true.
+	 * 
+	 * @param ordered
+	 * @return
+	 */
+	public JaxbReader<T> ordered(boolean ordered) {
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.ordered = ordered;
+		return reader;
+	}
+
+	/**
+	 * Identifies the repeated elements to read when using the streaming interfaces, for documents where they are not simply the
+	 * children of the root element. Defaults to every child of the root element.
+	 * 
+	 * The path is either absolute, such as <code>/feed/items/item</code>, or relative such as <code>item</code>, which matches
+	 * item elements at any depth. Each name may be a local name, <code>{namespace}local</code> to match only elements in the given
+	 * namespace, or <code>*</code> to match any element.
+	 * 
+	 * Elements which do not match and cannot contain a match are skipped by the parser without being unmarshalled.
+	 * 
+	 * @param path
+	 * @return
+	 */
+	public JaxbReader<T> at(String path) {
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.path = ElementPath.parse(path);
+		return reader;
+	}
+
+	/**
+	 * Identifies the repeated elements to read when using the streaming interfaces as elements of the given name, at any depth.
+	 * The namespace of the given name must match exactly.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public JaxbReader<T> at(QName name) {
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.path = ElementPath.of(name);
+		return reader;
+	}
+
+	/**
+	 * Causes repeated elements to be unmarshalled in parallel on the given {@link Executor} when using the streaming interfaces.
+	 * The reading thread copies each element as it is parsed and hands it to the executor, while elements are still delivered to
+	 * each {@link Batch} in the order they appear in the xml. At most 256 elements will be waiting or being unmarshalled at a time.
+	 * 
+	 * This is worthwhile when unmarshalling rather than parsing dominates, such as for large documents of complex elements.
+	 * 
+	 * @param executor
+	 * @return
+	 */
+	public JaxbReader<T> unmarshalIn(Executor executor) {
+		return unmarshalIn(executor, maxPendingElements);
+	}
+
+	/**
+	 * Causes repeated elements to be unmarshalled in parallel on the given {@link Executor} as for {@link #unmarshalIn(Executor)}.
+	 * At most maxPendingElements elements will be waiting or being unmarshalled at a time, after which reading will wait for
+	 * unmarshalling to catch up.
+	 * 
+	 * @param executor
+	 * @param maxPendingElements
+	 * @return
+	 */
+	public JaxbReader<T> unmarshalIn(Executor executor, int maxPendingElements) {
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.unmarshalExecutor = executor;
+		reader.maxPendingElements = Math.max(maxPendingElements, 1);
+		return reader;
+	}
+
+	/**
+	 * Causes a file specified using {@link #from(Path)} to be split into one segment per available processor, which are parsed
+	 * and unmarshalled in parallel on the given {@link Executor} when using the streaming interfaces, as for
+	 * {@link #parseIn(Executor, int)}.
+	 * 
+	 * @param executor
+	 * @return
+	 */
+	public JaxbReader<T> parseIn(Executor executor) {
+		return parseIn(executor, segments);
+	}
+
+	/**
+	 * Causes a file specified using {@link #from(Path)} to be split into at most the given number of segments, which are parsed
+	 * and unmarshalled in parallel on the given {@link Executor} when using the streaming interfaces. Each segment is read with its own
+	 * parser and unmarshaller. Other data sources are read as normal.
+	 * 
+	 * The file is split at the start tags of repeated elements, which is only possible when they are all siblings within one enclosing
+	 * element and the document is UTF-8, US-ASCII or ISO-8859-1 encoded. Documents containing comments, CDATA sections, processing
+	 * instructions or a DOCTYPE cannot be split safely and are rejected with an {@link XmlException}. Files smaller than a few megabytes
+	 * are read as a single segment.
+	 * 
+	 * When a {@link Combiner} is given to {@link #stream(Batch, Combiner)}, each segment processes its own batches, and the results are
+	 * combined in the order the segments appear in the file, or as they complete when not {@link #ordered(boolean)}. Otherwise batches
+	 * are processed as they are read, in the order they appear in the file or as they become available when not ordered. In that case
+	 * segments only read up to {@link #processIn(Executor, int)} maxPendingBatches batches ahead of the batch being processed.
+	 * 
+	 * @param executor
+	 * @param segments
+	 * @return
+	 */
+	public JaxbReader<T> parseIn(Executor executor, int segments) {
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.parseExecutor = executor;
+		reader.segments = Math.max(segments, 1);
+		return reader;
+	}
+
+	/**
+	 * Causes a {@link Checkpoint} to be saved to the given {@link CheckpointStore} under the given key each time a batch has been
+	 * processed when using {@link #stream(Batch)} or {@link #stream(Batch, Combiner)}, recording the number of elements processed and, when reading a file specified
+	 * using {@link #from(Path)}, the byte offset of the next element. The checkpoint is cleared once reading completes successfully,
+	 * so a checkpoint left in the store identifies a read which did not complete and which can be continued using {@link #resume()}.
+	 * 
+	 * Checkpoints are saved after batches processed using {@link #processIn(Executor)} have been combined in order, so they cannot be
+	 * taken when batches are not {@link #ordered(boolean)}, nor when a file is parsed in segments using {@link #parseIn(Executor)}.
+	 * 
+	 * @param store
+	 * @param key identifies the read within the store
+	 * @return
+	 */
+	public JaxbReader<T> checkpoint(CheckpointStore store, String key) {
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.checkpointStore = store;
+		reader.checkpointKey = key;
+		return reader;
+	}
+
+	/**
+	 * Continues a read from the given {@link Checkpoint} when using {@link #stream(Batch)} or {@link #stream(Batch, Combiner)}, so that only the elements following those
+	 * already processed are unmarshalled and processed. The result given to the first batch is null, as the results of the batches
+	 * processed before the checkpoint are not retained.
+	 * 
+	 * When the checkpoint has the offset of the next element of a file specified using {@link #from(Path)}, the file is read from that
+	 * offset. Otherwise the elements already processed are parsed and skipped without being unmarshalled. A null checkpoint reads from
+	 * the start.
+	 * 
+	 * @param checkpoint
+	 * @return
+	 */
+	public JaxbReader<T> resume(Checkpoint checkpoint) {
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.resumeFrom = checkpoint;
+		return reader;
+	}
+
+	/**
+	 * Continues a read from the checkpoint left in the store specified using {@link #checkpoint(CheckpointStore, String)} as for
+	 * {@link #resume(Checkpoint)}, or reads from the start if there is none.
+	 * 
+	 * @return
+	 */
+	public JaxbReader<T> resume() {
+		if (checkpointStore == null) {
+			throw new XmlException("You have not specified a checkpoint store to resume from");
+		}
+		return resume(checkpointStore.load(checkpointKey));
+	}
+
+	/**
+	 * Controls what happens when a repeated element cannot be unmarshalled when using {@link #stream(Batch)} or
+	 * {@link #stream(Batch, Combiner)}. Defaults to {@link ErrorPolicy#FailFast}.
+	 * 
+	 * When elements are skipped, reading continues from the element following the one rejected, so one bad element does not abort
+	 * the read. Use {@link #onError(ErrorPolicy, DeadLetterSink)} to collect the rejected elements.
+	 * Elements cannot be skipped when a file is parsed in segments using {@link #parseIn(Executor)}.
+	 * 
+	 * @param errorPolicy
+	 * @return
+	 */
+	public JaxbReader<T> onError(ErrorPolicy errorPolicy) {
+		return onError(errorPolicy, null);
+	}
+
+	/**
+	 * Controls what happens when a repeated element cannot be unmarshalled, as for {@link #onError(ErrorPolicy)}. Under
+	 * {@link ErrorPolicy#SkipAndCollect} each rejected element is handed to the given {@link DeadLetterSink}, along with its position
+	 * and the reason it was rejected.
+	 * 
+	 * @param errorPolicy
+	 * @param deadLetters
+	 * @return
+	 */
+	public JaxbReader<T> onError(ErrorPolicy errorPolicy, DeadLetterSink deadLetters) {
+		if (errorPolicy == ErrorPolicy.SkipAndCollect && deadLetters == null) {
+			throw new XmlException("You have not specified a dead letter sink to collect rejected elements");
+		}
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.errorPolicy = errorPolicy;
+		reader.deadLetters = errorPolicy == ErrorPolicy.SkipAndCollect ? deadLetters : null;
+		return reader;
 	}
 
 	/**
@@ -81,7 +349,12 @@ public class JaxbReader<T> {
 	 * @return
 	 */
 	public JaxbReader<T> from(InputStream stream) {
-		return new JaxbReader<T>(jaxb, type, stream, validate, batchSize);
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.stream = stream;
+		reader.data = null;
+		reader.closeStream = false;
+		reader.file = null;
+		return reader;
 	}
 
 	/**
@@ -102,7 +375,7 @@ public class JaxbReader<T> {
 	 * @return
 	 */
 	public JaxbReader<T> from(String string, String encoding) {
-		return new JaxbReader<T>(jaxb, type, stream(string, encoding), validate, batchSize);
+		return from(bytes(string, encoding));
 	}
 
 	/**
@@ -112,7 +385,25 @@ public class JaxbReader<T> {
 	 * @return
 	 */
 	public JaxbReader<T> from(byte[] data) {
-		return new JaxbReader<T>(jaxb, type, stream(data), validate, batchSize);
+		JaxbReader<T> reader = from(new ByteArrayInputStream(data));
+		reader.data = data;
+		return reader;
+	}
+
+	/**
+	 * Specifies a file as the source of xml to read. The file is opened each time the reader is used, read through memory mapped
+	 * segments using a {@link MappedFileInputStream}, and closed once reading completes, so the same reader can be used many times.
+	 * 
+	 * @param path
+	 * @return
+	 */
+	public JaxbReader<T> from(Path path) {
+		JaxbReader<T> reader = new JaxbReader<T>(this);
+		reader.stream = null;
+		reader.data = null;
+		reader.closeStream = false;
+		reader.file = path;
+		return reader;
 	}
 
 	/**
@@ -131,10 +422,12 @@ public class JaxbReader<T> {
 	 * @return
 	 */
 	public T one() {
-		if (stream == null) {
-			throw new XmlException("You have not specified a data source, such as an InputStream, String or byte[]");
+		JaxbReader<T> reader = open();
+		try {
+			return jaxb.readOne(reader);
+		} finally {
+			reader.closeOwnedStream();
 		}
-		return jaxb.readOne(stream, type, validate);
 	}
 
 	/**
@@ -158,7 +451,9 @@ public class JaxbReader<T> {
 	 * @return
 	 */
 	public List<T> list() {
-		return stream(new GatherBatch<T>());
+		GatherBatch<T> gather = new GatherBatch<T>();
+		// when parsing segments in parallel each gathers its own values, which are then joined
+		return isSegmented() ? stream(gather, gather) : stream(gather);
 	}
 
 	/**
@@ -181,26 +476,132 @@ public class JaxbReader<T> {
 	 * 
 	 * The provided {@link Batch} will be invoked once for each batch to be processed (the batch size being controlled by {@link #batchSize(int)}).
 	 * You can utilise the result of the batch to aggregate a result across all batches.
+	 * Batches are always processed as they are parsed, use {@link #stream(Batch, Combiner)} to process them on an {@link Executor}.
 	 * 
 	 * @param batchProcessor
 	 * @return the result of execution across all batches
 	 */
 	public <R> R stream(Batch<T, R> batchProcessor) {
-		if (stream == null) {
+		return stream(batchProcessor, null);
+	}
+
+	/**
+	 * Transforms the previously specified data source from xml into many instances of the expected type, processing them in batches
+	 * as with {@link #stream(Batch)}.
+	 * 
+	 * When an {@link Executor} has been specified using {@link #processIn(Executor)}, each batch is processed independently on the executor
+	 * while parsing continues, and is given a null result. The results of each batch are then merged using the given {@link Combiner}.
+	 * If any batch fails, outstanding batches are cancelled, parsing stops and the failure is thrown.
+	 * 
+	 * When no {@link Executor} has been specified, batches are processed as they are parsed exactly as for {@link #stream(Batch)}, and the
+	 * combiner is not used.
+	 * 
+	 * @param batchProcessor
+	 * @param combiner
+	 * @return the combined result of execution across all batches
+	 */
+	public <R> R stream(Batch<T, R> batchProcessor, Combiner<R> combiner) {
+		// segments are read directly from the file, so it is not opened as a whole
+		JaxbReader<T> reader = isSegmented() ? this : open();
+		try {
+			return jaxb.readMany(reader, batchProcessor, combiner);
+		} finally {
+			reader.closeOwnedStream();
+		}
+	}
+
+	/**
+	 * Transforms the previously specified data source from xml into many instances of the expected type, one at a time as they are
+	 * asked for. The implication is that the root element contains a list of xml fragments that match the expected type, as for
+	 * {@link #stream(Batch)}.
+	 * 
+	 * The returned {@link JaxbIterator} closes the data source once all elements have been read, or when it is closed, so if
+	 * you may stop before the end use it in a try-with-resources block:
+	 * 
+	 * <pre>
+	 * <code>
+	 * try (JaxbIterator&lt;Javabean&gt; beans = jaxb.read(Javabean.class).from(data).iterator()) {
+	 * 	while (beans.hasNext()) {
+	 * 		Javabean bean = beans.next();
+	 * 		&hellip;
+	 * 	}
+	 * }
+	 * </code>
+	 * </pre>
+	 * 
+	 * @return
+	 */
+	public JaxbIterator<T> iterator() {
+		JaxbReader<T> reader = open();
+		try {
+			return jaxb.iterate(reader);
+		} catch (RuntimeException e) {
+			reader.closeOwnedStream();
+			throw e;
+		}
+	}
+
+	/**
+	 * Transforms the previously specified data source from xml into many instances of the expected type, publishing them to a
+	 * {@link JaxbFlow.Subscriber} as it requests them. The implication is that the root element contains a list of xml fragments
+	 * that match the expected type, as for {@link #stream(Batch)}.
+	 * 
+	 * Elements are only parsed and unmarshalled as they are requested, so the rate of reading is controlled by the subscriber and
+	 * nothing is buffered. Cancelling the subscription stops reading and closes the data source.
+	 * 
+	 * @return
+	 */
+	public JaxbPublisher<T> publisher() {
+		if (stream == null && file == null) {
 			throw new XmlException("You have not specified a data source, such as an InputStream, String or byte[]");
 		}
-		return jaxb.readMany(stream, type, validate, batchSize, batchProcessor);
+		return new JaxbPublisher<T>(this);
+	}
+
+	protected boolean isCheckpointed() {
+		return checkpointStore != null;
+	}
+
+	protected boolean isSegmented() {
+		return file != null && parseExecutor != null;
 	}
 
-	private InputStream stream(String string, String encoding) {
+	/**
+	 * @return this reader if it reads from a stream, otherwise a copy reading from a newly opened stream of the file which is owned by the
+	 *         copy and must be closed once reading completes
+	 */
+	protected JaxbReader<T> open() {
+		if (stream != null) {
+			return this;
+		}
+		if (file == null) {
+			throw new XmlException("You have not specified a data source, such as an InputStream, String or byte[]");
+		}
 		try {
-			return stream(string.getBytes(encoding));
-		} catch (UnsupportedEncodingException e) {
-			throw new RuntimeException(e);
+			JaxbReader<T> reader = new JaxbReader<T>(this);
+			reader.stream = new MappedFileInputStream(file);
+			reader.closeStream = true;
+			return reader;
+		} catch (IOException e) {
+			throw new XmlException(e, "Failed to read xml from %s: %s", file, e.getMessage());
+		}
+	}
+
+	private void closeOwnedStream() {
+		if (closeStream) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				// the xml has already been read
+			}
 		}
 	}
 
-	private InputStream stream(byte[] data) {
-		return new ByteArrayInputStream(data);
+	private byte[] bytes(String string, String encoding) {
+		try {
+			return string.getBytes(encoding);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
 	}
 }
@@ -18,9 +18,16 @@
  */
 package com.atomicleopard.thundr.xml.jaxb;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.atomicleopard.thundr.xml.XmlException;
 
 /**
  * {@link JaxbWriter} is a builder for write state when using the {@link Jaxb#write(Object)} interface.
@@ -32,6 +39,8 @@ public class JaxbWriter<T> {
 	protected T output;
 	protected boolean format = false;
 	protected String encoding = "UTF-8";
+	protected int bufferSize = ChannelOutputStream.DefaultBufferSize;
+	protected boolean sync = false;
 
 	protected JaxbWriter(Jaxb jaxb, T output) {
 		this.output = output;
@@ -45,13 +54,24 @@ public class JaxbWriter<T> {
 		this.encoding = encoding;
 	}
 
+	protected JaxbWriter(JaxbWriter<T> other) {
+		this.jaxb = other.jaxb;
+		this.output = other.output;
+		this.format = other.format;
+		this.encoding = other.encoding;
+		this.bufferSize = other.bufferSize;
+		this.sync = other.sync;
+	}
+
 	/**
 	 * When invoked, causes the xml output to be formatted. This has no effect on streamed output.
 	 * 
 	 * @return
 	 */
 	public JaxbWriter<T> format() {
-		return new JaxbWriter<T>(jaxb, output, encoding, true);
+		JaxbWriter<T> writer = new JaxbWriter<T>(this);
+		writer.format = true;
+		return writer;
 	}
 
 	/**
@@ -61,7 +81,9 @@ public class JaxbWriter<T> {
 	 * @return
 	 */
 	public JaxbWriter<T> encoding(String encoding) {
-		return new JaxbWriter<T>(jaxb, output, encoding, format);
+		JaxbWriter<T> writer = new JaxbWriter<T>(this);
+		writer.encoding = encoding;
+		return writer;
 	}
 
 	/**
@@ -71,7 +93,32 @@ public class JaxbWriter<T> {
 	 * @return
 	 */
 	public JaxbWriter<T> encoding(Charset encoding) {
-		return new JaxbWriter<T>(jaxb, output, encoding.name(), format);
+		return encoding(encoding.name());
+	}
+
+	/**
+	 * Specifies the size of the direct buffer used when writing to a {@link WritableByteChannel} or {@link Path}.
+	 * Defaults to {@value ChannelOutputStream#DefaultBufferSize} bytes, only buffers of the default size are reused between writes.
+	 * 
+	 * @param bufferSize
+	 * @return
+	 */
+	public JaxbWriter<T> bufferSize(int bufferSize) {
+		JaxbWriter<T> writer = new JaxbWriter<T>(this);
+		writer.bufferSize = Math.max(bufferSize, 1);
+		return writer;
+	}
+
+	/**
+	 * When invoked, causes files written using {@link #to(Path)} or a {@link java.nio.channels.FileChannel} to be forced to
+	 * storage once the output is written.
+	 * 
+	 * @return
+	 */
+	public JaxbWriter<T> sync() {
+		JaxbWriter<T> writer = new JaxbWriter<T>(this);
+		writer.sync = true;
+		return writer;
 	}
 
 	/**
@@ -94,6 +141,46 @@ public class JaxbWriter<T> {
 		return jaxb.writeOne(output, writer, encoding, format);
 	}
 
+	/**
+	 * Writes the previously given object to the given channel. The channel is not closed.
+	 * 
+	 * @param channel
+	 * @return the given channel with the xml output written to it
+	 */
+	public <C extends WritableByteChannel> C to(C channel) {
+		try (ChannelOutputStream os = new ChannelOutputStream(channel, bufferSize, sync)) {
+			to(os);
+		} catch (IOException e) {
+			throw new XmlException(e, "Failed to write xml to channel: %s", e.getMessage());
+		}
+		return channel;
+	}
+
+	/**
+	 * Writes the previously given object to the file at the given path, replacing it if it exists.
+	 * 
+	 * @param path
+	 * @return the given path
+	 */
+	public Path to(Path path) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			to(channel);
+		} catch (IOException e) {
+			throw new XmlException(e, "Failed to write xml to %s: %s", path, e.getMessage());
+		}
+		return path;
+	}
+
+	/**
+	 * Appends the previously given object as xml to the given {@link Appendable}, such as a {@link StringBuilder}.
+	 * 
+	 * @param appendable
+	 * @return the given appendable with the xml output appended to it
+	 */
+	public <A extends Appendable> A appendTo(A appendable) {
+		return jaxb.appendOne(output, appendable, encoding, format);
+	}
+
 	/**
 	 * Writes the previously given object to an xml string
 	 * 
@@ -0,0 +1,177 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link InputStream} which reads a file through a sequence of memory mapped segments, so that large files are parsed
+ * straight from the operating system's page cache rather than being copied through heap buffers.
+ * 
+ * Only one segment is referenced by the stream at a time, but segments which have been read remain mapped until they are
+ * garbage collected, as mappings cannot be released explicitly. Address space and open mappings therefore grow with the amount
+ * of the file read since the last collection, not just the segment size. On a 32 bit JVM, or where the number of mappings is
+ * limited, use a smaller segment size for very large files.
+ */
+public class MappedFileInputStream extends InputStream {
+	public static final long DefaultSegmentSize = 64L * 1024 * 1024;
+
+	private FileChannel channel;
+	private long end;
+	private long segmentSize;
+	private long mapped;
+	private MappedByteBuffer segment = null;
+	private long mark = -1;
+
+	public MappedFileInputStream(Path path) throws IOException {
+		this(path, DefaultSegmentSize);
+	}
+
+	/**
+	 * @param path
+	 * @param segmentSize the number of bytes of the file mapped at a time
+	 * @throws IOException
+	 */
+	public MappedFileInputStream(Path path, long segmentSize) throws IOException {
+		this(path, 0, Long.MAX_VALUE, segmentSize);
+	}
+
+	/**
+	 * Reads part of a file
+	 * 
+	 * @param path
+	 * @param position the position in the file of the first byte to read
+	 * @param length the maximum number of bytes to read
+	 * @throws IOException
+	 */
+	public MappedFileInputStream(Path path, long position, long length) throws IOException {
+		this(path, position, length, DefaultSegmentSize);
+	}
+
+	/**
+	 * Reads part of a file
+	 * 
+	 * @param path
+	 * @param position the position in the file of the first byte to read
+	 * @param length the maximum number of bytes to read
+	 * @param segmentSize the number of bytes of the file mapped at a time
+	 * @throws IOException
+	 */
+	public MappedFileInputStream(Path path, long position, long length, long segmentSize) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		long fileSize = channel.size();
+		this.mapped = Math.min(Math.max(position, 0), fileSize);
+		this.end = Math.max(length, 0) > fileSize - mapped ? fileSize : mapped + Math.max(length, 0);
+		this.segmentSize = Math.max(segmentSize, 1);
+	}
+
+	@Override
+	public int read() throws IOException {
+		return nextSegment() ? segment.get() & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextSegment()) {
+			return -1;
+		}
+		int count = Math.min(len, segment.remaining());
+		segment.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = Math.max(Math.min(n, end - position()), 0);
+		seek(position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(end - position(), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		mark = position();
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		if (mark < 0) {
+			throw new IOException("Mark not set");
+		}
+		seek(mark);
+	}
+
+	@Override
+	public void close() throws IOException {
+		segment = null;
+		channel.close();
+	}
+
+	/**
+	 * @return the position in the file of the next byte to be read
+	 */
+	public long position() {
+		return segment == null ? mapped : mapped - segment.remaining();
+	}
+
+	private boolean nextSegment() throws IOException {
+		if (!channel.isOpen()) {
+			throw new IOException("Stream closed");
+		}
+		if (segment != null && segment.hasRemaining()) {
+			return true;
+		}
+		if (mapped >= end) {
+			return false;
+		}
+		map(mapped);
+		return true;
+	}
+
+	private void seek(long position) throws IOException {
+		segment = null;
+		mapped = position;
+		if (position < end) {
+			map(position);
+		}
+	}
+
+	private void map(long position) throws IOException {
+		long length = Math.min(segmentSize, end - position);
+		segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		mapped = position + length;
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * Marshals objects into xml fragments on an {@link Executor}, handing back the fragments in the order the objects were submitted
+ * so that a single thread can write them to the output.
+ * 
+ * Objects are grouped into tasks of up to {@link #ObjectsPerTask} objects to amortise the cost of handing work to the executor.
+ * Each task borrows its own fragment {@link Marshaller} from the {@link JaxbPool}, so workers never share a marshaller, and marshals
+ * its objects into one {@link Fragment}. Fragments are reused once they have been written and {@link #release(Fragment)}d.
+ * At most <code>maxPending</code> objects are submitted but not yet handed back at any time, callers of {@link #submit(Object)} block
+ * until there is room, which bounds the memory held by fragments waiting to be written.
+ */
+class MarshalPipeline<T> {
+	static final int ObjectsPerTask = 16;
+	static final int InitialFragmentSize = 8 * 1024;
+	static final int MaxRetainedFragmentSize = 256 * 1024;
+
+	private JaxbPool pool;
+	private JAXBContext context;
+	private QName elementName;
+	private Class<T> type;
+	private String encoding;
+	private Executor executor;
+	private int objectsPerTask;
+	private int maxPendingTasks;
+
+	private Deque<FutureTask<Fragment>> pending = new ArrayDeque<>();
+	private ConcurrentLinkedQueue<Fragment> idle = new ConcurrentLinkedQueue<>();
+	private List<T> objects;
+
+	MarshalPipeline(JaxbPool pool, JAXBContext context, QName elementName, Class<T> type, String encoding, Executor executor, int maxPending) {
+		this.pool = pool;
+		this.context = context;
+		this.elementName = elementName;
+		this.type = type;
+		this.encoding = encoding;
+		this.executor = executor;
+		this.objectsPerTask = Math.min(ObjectsPerTask, Math.max(maxPending, 1));
+		this.maxPendingTasks = Math.max(maxPending / objectsPerTask, 1);
+		this.objects = new ArrayList<>(objectsPerTask);
+	}
+
+	/**
+	 * Submits the given object to be marshalled, blocking while the maximum number of objects are pending.
+	 * 
+	 * @return the fragments which have been marshalled since the last call, in submission order
+	 */
+	List<Fragment> submit(T object) {
+		objects.add(object);
+		if (objects.size() < objectsPerTask) {
+			return Collections.emptyList();
+		}
+		List<Fragment> fragments = new ArrayList<>();
+		while (pending.size() >= maxPendingTasks) {
+			collect(fragments);
+		}
+		dispatch();
+		while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+			collect(fragments);
+		}
+		return fragments;
+	}
+
+	/**
+	 * Waits for all pending objects to be marshalled
+	 * 
+	 * @return the fragments which have been marshalled since the last call to {@link #submit(Object)}, in submission order
+	 */
+	List<Fragment> finish() {
+		if (!objects.isEmpty()) {
+			dispatch();
+		}
+		List<Fragment> fragments = new ArrayList<>();
+		while (!pending.isEmpty()) {
+			collect(fragments);
+		}
+		return fragments;
+	}
+
+	/**
+	 * Returns a fragment which has been written, so that its memory can be reused
+	 */
+	void release(Fragment fragment) {
+		// don't hold onto the memory used by unusually large fragments
+		if (fragment.capacity() <= MaxRetainedFragmentSize) {
+			fragment.reset();
+			idle.offer(fragment);
+		}
+	}
+
+	/**
+	 * Cancels all pending objects
+	 */
+	void cancel() {
+		for (FutureTask<Fragment> task : pending) {
+			task.cancel(true);
+		}
+		pending.clear();
+		objects.clear();
+	}
+
+	private void dispatch() {
+		final List<T> taskObjects = objects;
+		objects = new ArrayList<>(objectsPerTask);
+		FutureTask<Fragment> task = new FutureTask<>(new Callable<Fragment>() {
+			@Override
+			public Fragment call() throws Exception {
+				return marshal(taskObjects);
+			}
+		});
+		pending.addLast(task);
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			cancel();
+			throw new XmlException(e, "Failed to marshal xml, the executor rejected it: %s", e.getMessage());
+		}
+	}
+
+	private void collect(List<Fragment> fragments) {
+		FutureTask<Fragment> task = pending.removeFirst();
+		try {
+			fragments.add(task.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel();
+			throw new XmlException(e, "Interrupted while waiting for xml to be marshalled");
+		} catch (ExecutionException | CancellationException e) {
+			cancel();
+			Throwable cause = e.getCause() == null ? e : e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new XmlException(cause, "Failed to generate XML output: %s", cause.getMessage());
+		}
+	}
+
+	private Fragment marshal(List<T> objects) throws JAXBException {
+		// formatting has no effect on streamed output, so fragments are never formatted
+		Marshaller marshaller = pool.marshaller(context, encoding, false, true);
+		Fragment fragment = idle.poll();
+		fragment = fragment == null ? new Fragment() : fragment;
+		for (T object : objects) {
+			marshaller.marshal(new JAXBElement<T>(elementName, type, object), fragment);
+		}
+		fragment.objects = objects.size();
+		pool.release(context, encoding, false, true, marshaller);
+		return fragment;
+	}
+
+	/**
+	 * The encoded xml of one or more consecutive objects
+	 */
+	static class Fragment extends ByteArrayOutputStream {
+		private int objects;
+
+		Fragment() {
+			super(InitialFragmentSize);
+		}
+
+		/**
+		 * @return the number of objects in this fragment
+		 */
+		int getObjects() {
+			return objects;
+		}
+
+		int capacity() {
+			return buf.length;
+		}
+
+		/**
+		 * Writes this fragment as characters, decoding it from the charset it was marshalled with
+		 */
+		void writeTo(Writer writer, Charset charset) throws IOException {
+			writer.write(new String(buf, 0, count, charset));
+		}
+	}
+}
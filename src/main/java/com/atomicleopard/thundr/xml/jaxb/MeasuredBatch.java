@@ -0,0 +1,70 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.atomicleopard.thundr.xml.metrics.JaxbEvent;
+import com.atomicleopard.thundr.xml.metrics.JaxbMetrics;
+
+/**
+ * Reports the time taken to process each batch of a streamed read to {@link JaxbMetrics}, and counts the elements processed
+ * so that the whole read can be reported to the metrics and its {@link JaxbEvent} once it completes. Batches may be processed
+ * concurrently.
+ */
+class MeasuredBatch<T, R> implements Batch<T, R> {
+	private JaxbMetrics metrics;
+	private JaxbEvent event;
+	private Class<T> type;
+	private Batch<T, R> delegate;
+	private long started = System.nanoTime();
+	private AtomicLong elements = new AtomicLong();
+
+	MeasuredBatch(JaxbMetrics metrics, JaxbEvent event, Class<T> type, Batch<T, R> delegate) {
+		this.metrics = metrics;
+		this.event = event;
+		this.type = type;
+		this.delegate = delegate;
+	}
+
+	@Override
+	public R process(R result, List<T> batch) {
+		boolean timed = metrics != JaxbMetrics.None;
+		long start = timed ? System.nanoTime() : 0;
+		R processed = delegate.process(result, batch);
+		if (timed) {
+			metrics.batchProcessed(type, System.nanoTime() - start, batch.size());
+		}
+		elements.addAndGet(batch.size());
+		return processed;
+	}
+
+	/**
+	 * Reports the completed read
+	 * 
+	 * @param bytes the number of bytes read
+	 */
+	void finished(long bytes) {
+		if (metrics != JaxbMetrics.None) {
+			metrics.streamRead(type, System.nanoTime() - started, elements.get(), bytes);
+		}
+		event.type(type).elements(elements.get()).bytes(bytes).commit();
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * Tracks the depth of the elements an {@link XMLStreamReader} passes through, so that after a failure part way through unmarshalling
+ * an element the reader can be moved on to the event following the end of that element, from where the next sibling can be read.
+ * 
+ * Every event is reached through {@link #next()}, including those consumed by {@link #nextTag()} and {@link #getElementText()},
+ * so the depth is tracked however the reader is driven.
+ */
+class ResyncingStreamReader extends StreamReaderDelegate {
+	private int depth = 0;
+	private int elementDepth = -1;
+	private long events = 0;
+	private long ended = -1;
+
+	ResyncingStreamReader(XMLStreamReader reader) {
+		super(reader);
+		if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+			depth = 1;
+		}
+	}
+
+	/**
+	 * Marks the element the reader is positioned on as the one to {@link #resync()} past
+	 */
+	void mark() {
+		elementDepth = depth;
+		ended = -1;
+	}
+
+	/**
+	 * Moves the reader to the event following the end of the marked element, unless it is already past it
+	 */
+	void resync() throws XMLStreamException {
+		while (ended < 0) {
+			next();
+		}
+		if (events == ended) {
+			next();
+		}
+	}
+
+	@Override
+	public int next() throws XMLStreamException {
+		int event = super.next();
+		events++;
+		if (event == XMLStreamConstants.START_ELEMENT) {
+			depth++;
+		} else if (event == XMLStreamConstants.END_ELEMENT) {
+			depth--;
+			if (depth == elementDepth - 1 && ended < 0) {
+				ended = events;
+			}
+		}
+		return event;
+	}
+
+	@Override
+	public int nextTag() throws XMLStreamException {
+		int event = next();
+		while (event == XMLStreamConstants.SPACE || event == XMLStreamConstants.COMMENT || event == XMLStreamConstants.PROCESSING_INSTRUCTION
+				|| (event == XMLStreamConstants.CHARACTERS && isWhiteSpace())) {
+			event = next();
+		}
+		if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+			throw new XMLStreamException("Expected a start or end tag", getLocation());
+		}
+		return event;
+	}
+
+	@Override
+	public String getElementText() throws XMLStreamException {
+		if (getEventType() != XMLStreamConstants.START_ELEMENT) {
+			throw new XMLStreamException("Expected a start tag", getLocation());
+		}
+		StringBuilder text = new StringBuilder();
+		int event = next();
+		while (event != XMLStreamConstants.END_ELEMENT) {
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE
+					|| event == XMLStreamConstants.ENTITY_REFERENCE) {
+				text.append(getText());
+			} else if (event != XMLStreamConstants.COMMENT && event != XMLStreamConstants.PROCESSING_INSTRUCTION) {
+				throw new XMLStreamException("Expected text only within an element", getLocation());
+			}
+			event = next();
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,367 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * Parses and unmarshals the {@link FileSegments.Segment}s of a file in parallel on an {@link Executor}, each with its own
+ * {@link XMLStreamReader} and {@link Unmarshaller}.
+ * 
+ * When used with {@link #process(List, Batch, Combiner)} each segment processes its own batches as it reads them, and the results
+ * of the segments are combined in document order, or as the segments complete.
+ * 
+ * When used with {@link #next()} the batches themselves are handed back, in document order or as they become available. A segment
+ * stops reading once <code>maxPending</code> of its batches are waiting to be handed back, and is resubmitted to the executor once
+ * they are taken, so workers never block waiting for the caller and memory use is bounded however many threads the executor has.
+ * When ordered, later segments can only read ahead by <code>maxPending</code> batches while earlier segments are handed back.
+ */
+class SegmentedParser<T, R> {
+	private JaxbPool pool;
+	private JAXBContext context;
+	private XMLInputFactory inputFactory;
+	private Class<T> type;
+	private ElementPath path;
+	private Executor executor;
+	private int batchSize;
+	private int maxPending;
+	private boolean ordered;
+	private Batch<T, R> batchProcessor = null;
+	private Combiner<R> combiner = null;
+
+	private List<Worker> workers = new ArrayList<>();
+	private List<Worker> active = new ArrayList<>();
+	private Object signal = new Object();
+	private Throwable failure = null;
+	private volatile boolean cancelled = false;
+
+	SegmentedParser(JaxbPool pool, JAXBContext context, XMLInputFactory inputFactory, Class<T> type, ElementPath path, Executor executor, int batchSize, int maxPending, boolean ordered) {
+		this.pool = pool;
+		this.context = context;
+		this.inputFactory = inputFactory;
+		this.type = type;
+		this.path = path;
+		this.executor = executor;
+		this.batchSize = Math.max(batchSize, 1);
+		this.maxPending = Math.max(maxPending, 1);
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Starts reading the given segments, whose batches are then handed back by {@link #next()}
+	 */
+	void start(List<FileSegments.Segment> segments) {
+		for (FileSegments.Segment segment : segments) {
+			workers.add(new Worker(segment));
+		}
+		active.addAll(workers);
+		synchronized (signal) {
+			for (Worker worker : workers) {
+				schedule(worker);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the next batch of values to be read
+	 * 
+	 * @return the next batch, or null once all segments have been read
+	 */
+	List<T> next() {
+		synchronized (signal) {
+			while (true) {
+				checkFailure();
+				Iterator<Worker> iterator = active.iterator();
+				while (iterator.hasNext()) {
+					Worker worker = iterator.next();
+					List<T> batch = worker.take();
+					if (batch != null) {
+						return batch;
+					}
+					if (worker.finished) {
+						iterator.remove();
+					} else if (ordered) {
+						break;
+					}
+				}
+				if (active.isEmpty()) {
+					return null;
+				}
+				await();
+			}
+		}
+	}
+
+	/**
+	 * Reads the given segments, processing each batch in the segment it was read from
+	 * 
+	 * @return the combined result of all batches
+	 */
+	R process(List<FileSegments.Segment> segments, Batch<T, R> batchProcessor, Combiner<R> combiner) {
+		this.batchProcessor = batchProcessor;
+		this.combiner = combiner;
+		start(segments);
+		boolean hasResult = false;
+		R result = null;
+		while (!active.isEmpty()) {
+			Worker worker = awaitFinished();
+			if (worker.hasResult) {
+				result = hasResult ? combiner.combine(result, worker.result) : worker.result;
+				hasResult = true;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Stops reading all segments
+	 */
+	void cancel() {
+		cancelled = true;
+		for (Worker worker : workers) {
+			worker.cancel();
+		}
+	}
+
+	private Worker awaitFinished() {
+		synchronized (signal) {
+			while (true) {
+				checkFailure();
+				for (Worker worker : active) {
+					if (worker.finished) {
+						active.remove(worker);
+						return worker;
+					}
+					if (ordered) {
+						break;
+					}
+				}
+				await();
+			}
+		}
+	}
+
+	private void schedule(Worker worker) {
+		worker.scheduled = true;
+		try {
+			executor.execute(worker);
+		} catch (RejectedExecutionException e) {
+			worker.scheduled = false;
+			throw new XmlException(e, "Failed to parse xml, the executor rejected it: %s", e.getMessage());
+		}
+	}
+
+	private void await() {
+		try {
+			signal.wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XmlException(e, "Interrupted while waiting for xml to be parsed");
+		}
+	}
+
+	private void checkFailure() {
+		Throwable cause = failure;
+		if (cause != null) {
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new XmlException(cause, "Failed to batch process xml: %s", cause.getMessage());
+		}
+	}
+
+	/**
+	 * Reads one segment. Steps of a worker never run concurrently, as each is only resubmitted once it has stopped.
+	 */
+	private class Worker implements Runnable {
+		private FileSegments.Segment segment;
+		private InputStream stream;
+		private XMLStreamReader xmlr;
+		private ElementCursor cursor;
+		private Unmarshaller unmarshaller;
+
+		// guarded by signal
+		private Deque<List<T>> batches = new ArrayDeque<>();
+		private boolean scheduled = false;
+		private boolean finished = false;
+		private boolean hasResult = false;
+		private R result = null;
+
+		private Worker(FileSegments.Segment segment) {
+			this.segment = segment;
+		}
+
+		@Override
+		public void run() {
+			synchronized (this) {
+				try {
+					if (batchProcessor == null) {
+						readBatches();
+					} else {
+						processBatches();
+					}
+				} catch (Throwable e) {
+					close();
+					synchronized (signal) {
+						failure = failure == null ? e : failure;
+						finished = true;
+						scheduled = false;
+						signal.notifyAll();
+					}
+				}
+			}
+		}
+
+		private void readBatches() throws Exception {
+			do {
+				boolean last = false;
+				while (!last && !cancelled && hasRoom()) {
+					List<T> batch = read();
+					last = batch.size() < batchSize;
+					synchronized (signal) {
+						if (!batch.isEmpty()) {
+							batches.addLast(batch);
+						}
+						finished = last;
+						signal.notifyAll();
+					}
+				}
+			} while (!stop());
+		}
+
+		private void processBatches() throws Exception {
+			boolean hasSegmentResult = false;
+			R segmentResult = null;
+			List<T> batch;
+			do {
+				batch = read();
+				if (!batch.isEmpty()) {
+					R partial = batchProcessor.process(null, batch);
+					segmentResult = hasSegmentResult ? combiner.combine(segmentResult, partial) : partial;
+					hasSegmentResult = true;
+				}
+			} while (batch.size() == batchSize);
+			synchronized (signal) {
+				hasResult = hasSegmentResult;
+				result = segmentResult;
+				finished = true;
+				scheduled = false;
+				signal.notifyAll();
+			}
+		}
+
+		/**
+		 * @return up to a batch of values, fewer only once the segment has been read
+		 */
+		private List<T> read() throws Exception {
+			List<T> batch = new ArrayList<>(batchSize);
+			if (cancelled) {
+				return batch;
+			}
+			if (xmlr == null) {
+				stream = segment.open();
+				xmlr = inputFactory.createXMLStreamReader(stream);
+				cursor = new ElementCursor(xmlr, path);
+				unmarshaller = pool.unmarshaller(context);
+			}
+			while (batch.size() < batchSize && !cancelled && cursor.next()) {
+				batch.add(unmarshaller.unmarshal(xmlr, type).getValue());
+			}
+			if (batch.size() < batchSize && !cancelled) {
+				pool.release(context, unmarshaller);
+				unmarshaller = null;
+				close();
+			}
+			return batch;
+		}
+
+		/**
+		 * Takes the next batch waiting to be handed back, resubmitting this worker if it had stopped for lack of room. Called holding signal.
+		 */
+		private List<T> take() {
+			List<T> batch = batches.pollFirst();
+			if (batch != null && !finished && !scheduled && !cancelled) {
+				schedule(this);
+			}
+			return batch;
+		}
+
+		private boolean hasRoom() {
+			synchronized (signal) {
+				return batches.size() < maxPending;
+			}
+		}
+
+		/**
+		 * @return true if this worker should stop, false if there is room for more batches again
+		 */
+		private boolean stop() {
+			synchronized (signal) {
+				if (finished || cancelled || batches.size() >= maxPending) {
+					scheduled = false;
+					return true;
+				}
+				return false;
+			}
+		}
+
+		private void cancel() {
+			synchronized (this) {
+				close();
+			}
+		}
+
+		private void close() {
+			try {
+				if (xmlr != null) {
+					xmlr.close();
+				}
+			} catch (Exception e) {
+				// the segment is no longer being read
+			}
+			try {
+				if (stream != null) {
+					stream.close();
+				}
+			} catch (IOException e) {
+				// the segment is no longer being read
+			}
+			xmlr = null;
+			stream = null;
+		}
+	}
+}
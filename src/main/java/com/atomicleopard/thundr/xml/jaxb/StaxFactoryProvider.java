@@ -0,0 +1,42 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+/**
+ * {@link StaxFactoryProvider} supplies the StAX factories used by {@link Jaxb} to read and write xml.
+ * Implementations are expected to return configured, shared factories rather than creating them on each call,
+ * as factory creation involves service lookups and is expensive.
+ * 
+ * @see CachedStaxFactoryProvider
+ */
+public interface StaxFactoryProvider {
+	/**
+	 * @param validate whether the returned factory should perform DTD support and validation
+	 * @return an {@link XMLInputFactory} which can be used to create readers
+	 */
+	public XMLInputFactory inputFactory(boolean validate);
+
+	/**
+	 * @return an {@link XMLOutputFactory} which can be used to create writers
+	 */
+	public XMLOutputFactory outputFactory();
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+/**
+ * Scans the tags of an xml document byte by byte without parsing it, tracking the depth of the elements they start and end.
+ * Every start tag is reported, noting whether it has the given name, as is every end tag.
+ * 
+ * This is only reliable when every '&lt;' in the document starts a tag, as '&lt;' cannot appear in attribute values or text.
+ * Comments, CDATA sections, processing instructions and DOCTYPEs can contain anything, so they are reported as unsupported,
+ * other than the xml declaration at the start of a document. Scanning can begin at the start of any tag, as long as
+ * the depth at that point is known.
+ */
+abstract class TagScanner {
+	private static final int Text = 0;
+	private static final int Open = 1;
+	private static final int Name = 2;
+	private static final int Attributes = 3;
+	private static final int Quoted = 4;
+	private static final int EndTag = 5;
+	private static final int Declaration = 6;
+
+	private byte[] name;
+	private boolean documentStart;
+	private int depth;
+	private int state = Text;
+	private long tagStart = -1;
+	private int matched = 0;
+	private int quote = 0;
+	private int last = 0;
+
+	/**
+	 * @param name the name of the start tags to note, in the encoding of the document
+	 * @param depth the depth of elements where scanning begins, where the root element is at depth 0
+	 * @param documentStart true if scanning begins at the start of the document, where an xml declaration is allowed
+	 */
+	TagScanner(byte[] name, int depth, boolean documentStart) {
+		this.name = name;
+		this.depth = depth;
+		this.documentStart = documentStart;
+	}
+
+	/**
+	 * @return the depth of elements after the bytes scanned so far
+	 */
+	int depth() {
+		return depth;
+	}
+
+	/**
+	 * Scans the next bytes of the document
+	 * 
+	 * @param buffer
+	 * @param length the number of bytes in the buffer to scan
+	 * @param offset the offset in the document of the first byte in the buffer
+	 */
+	void scan(byte[] buffer, int length, long offset) {
+		for (int i = 0; i < length; i++, offset++) {
+			int b = buffer[i];
+			switch (state) {
+				case Text:
+					if (b == '<') {
+						tagStart = offset;
+						state = Open;
+					}
+					break;
+				case Open:
+					if (b == '/') {
+						endTag(tagStart, depth - 1);
+						depth--;
+						state = EndTag;
+					} else if (b == '?' && documentStart) {
+						state = Declaration;
+					} else if (b == '!' || b == '?') {
+						unsupported(tagStart);
+						state = Text;
+					} else {
+						matched = b == name[0] ? 1 : -1;
+						state = Name;
+					}
+					documentStart = false;
+					break;
+				case Name:
+					if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>') {
+						startTag(tagStart, depth, matched == name.length);
+						if (b == '>') {
+							depth++;
+							state = Text;
+						} else {
+							state = Attributes;
+						}
+					} else {
+						matched = matched > 0 && matched < name.length && name[matched] == b ? matched + 1 : -1;
+					}
+					break;
+				case Attributes:
+					if (b == '"' || b == '\'') {
+						quote = b;
+						state = Quoted;
+					} else if (b == '>') {
+						if (last != '/') {
+							depth++;
+						}
+						state = Text;
+					}
+					break;
+				case Quoted:
+					if (b == quote) {
+						state = Attributes;
+					}
+					break;
+				case EndTag:
+					if (b == '>') {
+						state = Text;
+					}
+					break;
+				case Declaration:
+					if (b == '>' && last == '?') {
+						state = Text;
+					}
+					break;
+			}
+			last = b;
+		}
+	}
+
+	/**
+	 * Invoked once the name of a start tag has been scanned
+	 * 
+	 * @param offset the offset of the '&lt;' starting the tag
+	 * @param depth the depth of the element the tag starts
+	 * @param named true if the tag has the name being scanned for
+	 */
+	protected abstract void startTag(long offset, int depth, boolean named);
+
+	/**
+	 * Invoked at the start of an end tag
+	 * 
+	 * @param offset the offset of the '&lt;' starting the tag
+	 * @param depth the depth of the element the tag ends
+	 */
+	protected abstract void endTag(long offset, int depth);
+
+	/**
+	 * Invoked at the start of a comment, CDATA section, processing instruction or DOCTYPE, after which scanning is no longer reliable
+	 * 
+	 * @param offset the offset of the '&lt;' starting the construct
+	 */
+	protected abstract void unsupported(long offset);
+}
@@ -0,0 +1,244 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+/**
+ * Unmarshals captured xml fragments on an {@link Executor}, handing back the results in the order the fragments were submitted.
+ * 
+ * Fragments are grouped into tasks of up to {@link #FragmentsPerTask} fragments to amortise the cost of handing work to the executor.
+ * Each task borrows its own {@link Unmarshaller} from the {@link JaxbPool}, so workers never share an unmarshaller.
+ * At most <code>maxPending</code> fragments are submitted but not yet handed back at any time, callers of {@link #submit(byte[])}
+ * block until there is room, which stops capturing from running ahead of unmarshalling.
+ * 
+ * Unless the {@link ErrorPolicy} is {@link ErrorPolicy#FailFast}, fragments which cannot be unmarshalled are rejected rather than failing,
+ * and are handed to the {@link DeadLetterSink} (if any) in submission order on the thread collecting the results.
+ */
+class UnmarshalPipeline<T> {
+	static final int FragmentsPerTask = 16;
+
+	private JaxbPool pool;
+	private JAXBContext context;
+	private XMLInputFactory inputFactory;
+	private Class<T> type;
+	private Executor executor;
+	private int fragmentsPerTask;
+	private int maxPendingTasks;
+	private ErrorPolicy errorPolicy;
+	private DeadLetterSink deadLetters;
+
+	private Deque<FutureTask<Unmarshalled>> pending = new ArrayDeque<>();
+	private List<byte[]> fragments;
+	private List<DeadLetter> positions;
+	private int rejected = 0;
+
+	UnmarshalPipeline(JaxbPool pool, JAXBContext context, XMLInputFactory inputFactory, Class<T> type, Executor executor, int maxPending) {
+		this(pool, context, inputFactory, type, executor, maxPending, ErrorPolicy.FailFast, null);
+	}
+
+	UnmarshalPipeline(JaxbPool pool, JAXBContext context, XMLInputFactory inputFactory, Class<T> type, Executor executor, int maxPending, ErrorPolicy errorPolicy,
+			DeadLetterSink deadLetters) {
+		this.pool = pool;
+		this.context = context;
+		this.inputFactory = inputFactory;
+		this.type = type;
+		this.executor = executor;
+		this.fragmentsPerTask = Math.min(FragmentsPerTask, Math.max(maxPending, 1));
+		this.maxPendingTasks = Math.max(maxPending / fragmentsPerTask, 1);
+		this.errorPolicy = errorPolicy;
+		this.deadLetters = deadLetters;
+		this.fragments = new ArrayList<>(fragmentsPerTask);
+		this.positions = new ArrayList<>(fragmentsPerTask);
+	}
+
+	/**
+	 * Submits the given fragment to be unmarshalled, blocking while the maximum number of fragments are pending.
+	 * 
+	 * @return the values which have been unmarshalled since the last call, in submission order
+	 */
+	List<T> submit(byte[] fragment) {
+		return submit(fragment, null);
+	}
+
+	/**
+	 * Submits the given fragment to be unmarshalled as for {@link #submit(byte[])}
+	 * 
+	 * @param fragment
+	 * @param position the position of the fragment, from {@link DeadLetter#at(javax.xml.stream.XMLStreamReader, long)}, used to describe
+	 *            the fragment if it is rejected
+	 * @return the values which have been unmarshalled since the last call, in submission order
+	 */
+	List<T> submit(byte[] fragment, DeadLetter position) {
+		fragments.add(fragment);
+		positions.add(position);
+		if (fragments.size() < fragmentsPerTask) {
+			return Collections.emptyList();
+		}
+		List<T> values = new ArrayList<>();
+		while (pending.size() >= maxPendingTasks) {
+			collect(values);
+		}
+		dispatch();
+		while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+			collect(values);
+		}
+		return values;
+	}
+
+	/**
+	 * Waits for all pending fragments to be unmarshalled
+	 * 
+	 * @return the values which have been unmarshalled since the last call to {@link #submit(byte[])}, in submission order
+	 */
+	List<T> finish() {
+		if (!fragments.isEmpty()) {
+			dispatch();
+		}
+		List<T> values = new ArrayList<>();
+		while (!pending.isEmpty()) {
+			collect(values);
+		}
+		return values;
+	}
+
+	/**
+	 * @return the number of fragments rejected since the last call
+	 */
+	int takeRejected() {
+		int count = rejected;
+		rejected = 0;
+		return count;
+	}
+
+	/**
+	 * Cancels all pending fragments
+	 */
+	void cancel() {
+		for (FutureTask<Unmarshalled> task : pending) {
+			task.cancel(true);
+		}
+		pending.clear();
+		fragments.clear();
+		positions.clear();
+	}
+
+	private void dispatch() {
+		final List<byte[]> taskFragments = fragments;
+		final List<DeadLetter> taskPositions = positions;
+		fragments = new ArrayList<>(fragmentsPerTask);
+		positions = new ArrayList<>(fragmentsPerTask);
+		FutureTask<Unmarshalled> task = new FutureTask<>(new Callable<Unmarshalled>() {
+			@Override
+			public Unmarshalled call() throws Exception {
+				return errorPolicy == ErrorPolicy.FailFast ? unmarshal(taskFragments) : unmarshal(taskFragments, taskPositions);
+			}
+		});
+		pending.addLast(task);
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			cancel();
+			throw new XmlException(e, "Failed to unmarshal xml, the executor rejected it: %s", e.getMessage());
+		}
+	}
+
+	private void collect(List<T> values) {
+		FutureTask<Unmarshalled> task = pending.removeFirst();
+		try {
+			Unmarshalled unmarshalled = task.get();
+			values.addAll(unmarshalled.values);
+			rejected += unmarshalled.rejected.size();
+			if (deadLetters != null) {
+				for (DeadLetter deadLetter : unmarshalled.rejected) {
+					deadLetters.reject(deadLetter);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel();
+			throw new XmlException(e, "Interrupted while waiting for xml to be unmarshalled");
+		} catch (ExecutionException | CancellationException e) {
+			cancel();
+			Throwable cause = e.getCause() == null ? e : e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new XmlException(cause, "Failed to batch process xml: %s", cause.getMessage());
+		}
+	}
+
+	private Unmarshalled unmarshal(List<byte[]> fragments) throws JAXBException, XMLStreamException {
+		Unmarshaller unmarshaller = pool.unmarshaller(context);
+		Unmarshalled unmarshalled = new Unmarshalled(fragments.size());
+		for (byte[] fragment : fragments) {
+			XMLStreamReader xmlr = XmlSources.createXMLStreamReader(inputFactory, new ByteArrayInputStream(fragment), fragment);
+			unmarshalled.values.add(unmarshaller.unmarshal(xmlr, type).getValue());
+			xmlr.close();
+		}
+		pool.release(context, unmarshaller);
+		return unmarshalled;
+	}
+
+	private Unmarshalled unmarshal(List<byte[]> fragments, List<DeadLetter> positions) throws JAXBException {
+		ElementUnmarshaller<T> unmarshaller = new ElementUnmarshaller<T>(pool, context, inputFactory, type);
+		Unmarshalled unmarshalled = new Unmarshalled(fragments.size());
+		for (int i = 0; i < fragments.size(); i++) {
+			if (unmarshaller.unmarshal(fragments.get(i), positions.get(i))) {
+				unmarshalled.values.add(unmarshaller.getValue());
+			} else {
+				unmarshalled.rejected.add(unmarshaller.getRejected());
+			}
+		}
+		unmarshaller.release();
+		return unmarshalled;
+	}
+
+	private class Unmarshalled {
+		private List<T> values;
+		private List<DeadLetter> rejected = new ArrayList<>(0);
+
+		private Unmarshalled(int size) {
+			this.values = new ArrayList<>(size);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+
+/**
+ * Creates {@link XMLStreamReader}s for the data sources of a {@link JaxbReader}.
+ * 
+ * StAX2 implementations (Woodstox and Aalto) can parse a byte array in place, so when one is in use byte array sources are
+ * given to it directly rather than being wrapped in a {@link ByteArrayInputStream}. StAX2 is located reflectively, as it is
+ * not a dependency of this library.
+ */
+class XmlSources {
+	private static final String InputFactory2 = "org.codehaus.stax2.XMLInputFactory2";
+	private static final String ByteArraySource = "org.codehaus.stax2.io.Stax2ByteArraySource";
+
+	/**
+	 * The byte array source constructor for each input factory implementation, or null where it is not StAX2. Looked up once per
+	 * implementation class so that reading byte arrays involves no further reflection than the construction itself.
+	 */
+	private static final ClassValue<Constructor<?>> ByteArraySources = new ClassValue<Constructor<?>>() {
+		@Override
+		protected Constructor<?> computeValue(Class<?> inputFactoryClass) {
+			return byteArraySourceConstructor(inputFactoryClass);
+		}
+	};
+
+	private XmlSources() {
+	}
+
+	/**
+	 * @param inputFactory
+	 * @param stream the data source
+	 * @param data the bytes the stream reads, if they are available, otherwise null
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	static XMLStreamReader createXMLStreamReader(XMLInputFactory inputFactory, InputStream stream, byte[] data) throws XMLStreamException {
+		Source source = data == null ? null : byteArraySource(inputFactory, data);
+		return source == null ? inputFactory.createXMLStreamReader(stream) : inputFactory.createXMLStreamReader(source);
+	}
+
+	private static Source byteArraySource(XMLInputFactory inputFactory, byte[] data) {
+		Constructor<?> constructor = ByteArraySources.get(inputFactory.getClass());
+		if (constructor == null) {
+			return null;
+		}
+		try {
+			return (Source) constructor.newInstance(data, 0, data.length);
+		} catch (Exception e) {
+			// the source could not be created, read from the stream instead
+			return null;
+		}
+	}
+
+	private static Constructor<?> byteArraySourceConstructor(Class<?> inputFactoryClass) {
+		try {
+			ClassLoader classLoader = inputFactoryClass.getClassLoader();
+			if (classLoader == null || !Class.forName(InputFactory2, false, classLoader).isAssignableFrom(inputFactoryClass)) {
+				return null;
+			}
+			return Class.forName(ByteArraySource, true, classLoader).getConstructor(byte[].class, int.class, int.class);
+		} catch (Exception | LinkageError e) {
+			// not a StAX2 implementation, read from the stream instead
+			return null;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link Histogram} records the distribution of non-negative values without locking or allocating, so that it can be updated
+ * on every read and write.
+ * 
+ * Values are counted in buckets whose bounds are powers of two, so percentiles are an upper bound accurate to within a factor
+ * of two (and never greater than the maximum recorded value). The count, sum and maximum are exact.
+ */
+public class Histogram {
+	private static final int Buckets = 64;
+
+	private AtomicLongArray buckets = new AtomicLongArray(Buckets);
+	private AtomicLong count = new AtomicLong();
+	private AtomicLong sum = new AtomicLong();
+	private AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records the given value. Negative values are ignored.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			return;
+		}
+		buckets.incrementAndGet(bucket(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long current;
+		while ((current = max.get()) < value && !max.compareAndSet(current, value)) {
+			// another thread recorded a value, check against it
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getSum() {
+		return sum.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return the mean of the recorded values, or 0 if none have been recorded
+	 */
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) getSum() / count;
+	}
+
+	/**
+	 * @param percentile from 0 to 100
+	 * @return an upper bound for the given percentile of the recorded values, or 0 if none have been recorded
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[Buckets];
+		long total = 0;
+		for (int i = 0; i < Buckets; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		double bounded = Math.min(Math.max(percentile, 0), 100);
+		long rank = Math.max(1, (long) Math.ceil(bounded * total / 100));
+		long seen = 0;
+		int bucket = 0;
+		for (; bucket < Buckets - 1; bucket++) {
+			seen += counts[bucket];
+			if (seen >= rank) {
+				break;
+			}
+		}
+		return Math.min(upperBound(bucket), getMax());
+	}
+
+	/**
+	 * Discards all recorded values
+	 */
+	public void clear() {
+		for (int i = 0; i < Buckets; i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[count=%d, mean=%.1f, p50=%d, p99=%d, max=%d]", getClass().getSimpleName(), getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+	}
+
+	/**
+	 * Bucket 0 holds 0, and bucket n holds values from 2^(n-1) to 2^n - 1
+	 */
+	private static int bucket(long value) {
+		return Long.SIZE - Long.numberOfLeadingZeros(value);
+	}
+
+	private static long upperBound(int bucket) {
+		return bucket == Buckets - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link HistogramJaxbMetrics} records a {@link Histogram} of each {@link Metric} for each type read or written, in memory.
+ * Recording is lock free and allocates only when a type is first seen, so it is suitable for use in production. Expose the
+ * histograms through whatever reporting mechanism your application uses.
+ */
+public class HistogramJaxbMetrics implements JaxbMetrics {
+	public enum Metric {
+		/**
+		 * Nanoseconds taken to create a {@link javax.xml.bind.JAXBContext}
+		 */
+		ContextCreation,
+		/**
+		 * Nanoseconds taken to unmarshal a single document
+		 */
+		Unmarshal,
+		/**
+		 * Nanoseconds taken to marshal a single object
+		 */
+		Marshal,
+		/**
+		 * Bytes read for each document or stream
+		 */
+		BytesIn,
+		/**
+		 * Bytes written for each object or stream, when written as bytes
+		 */
+		BytesOut,
+		/**
+		 * Nanoseconds taken to read a stream of elements, including processing their batches
+		 */
+		StreamRead,
+		/**
+		 * Nanoseconds taken to write a stream of objects
+		 */
+		StreamWrite,
+		/**
+		 * Elements read in each stream
+		 */
+		ElementsRead,
+		/**
+		 * Objects written in each stream
+		 */
+		ElementsWritten,
+		/**
+		 * Nanoseconds taken to process each batch of streamed elements
+		 */
+		BatchProcessing,
+		/**
+		 * Elements in each batch of streamed elements
+		 */
+		BatchSize
+	}
+
+	private ConcurrentHashMap<Class<?>, Histogram[]> histograms = new ConcurrentHashMap<>();
+
+	@Override
+	public void contextCreated(Class<?> type, long nanos) {
+		record(type, Metric.ContextCreation, nanos);
+	}
+
+	@Override
+	public void unmarshalled(Class<?> type, long nanos, long bytes) {
+		record(type, Metric.Unmarshal, nanos);
+		record(type, Metric.BytesIn, bytes);
+	}
+
+	@Override
+	public void marshalled(Class<?> type, long nanos, long bytes) {
+		record(type, Metric.Marshal, nanos);
+		record(type, Metric.BytesOut, bytes);
+	}
+
+	@Override
+	public void streamRead(Class<?> type, long nanos, long elements, long bytes) {
+		record(type, Metric.StreamRead, nanos);
+		record(type, Metric.ElementsRead, elements);
+		record(type, Metric.BytesIn, bytes);
+	}
+
+	@Override
+	public void streamWritten(Class<?> type, long nanos, long elements, long bytes) {
+		record(type, Metric.StreamWrite, nanos);
+		record(type, Metric.ElementsWritten, elements);
+		record(type, Metric.BytesOut, bytes);
+	}
+
+	@Override
+	public void batchProcessed(Class<?> type, long nanos, int size) {
+		record(type, Metric.BatchProcessing, nanos);
+		record(type, Metric.BatchSize, size);
+	}
+
+	/**
+	 * @return the types for which metrics have been recorded
+	 */
+	public Set<Class<?>> getTypes() {
+		return Collections.unmodifiableSet(histograms.keySet());
+	}
+
+	/**
+	 * @param type
+	 * @param metric
+	 * @return the histogram of the given metric for the given type, which is empty if nothing has been recorded
+	 */
+	public Histogram get(Class<?> type, Metric metric) {
+		Histogram[] forType = histograms.get(type);
+		return forType == null ? new Histogram() : forType[metric.ordinal()];
+	}
+
+	/**
+	 * @param type
+	 * @return the histogram of each metric for the given type
+	 */
+	public Map<Metric, Histogram> get(Class<?> type) {
+		Map<Metric, Histogram> result = new LinkedHashMap<>();
+		for (Metric metric : Metric.values()) {
+			result.put(metric, get(type, metric));
+		}
+		return result;
+	}
+
+	/**
+	 * Discards all recorded metrics
+	 */
+	public void clear() {
+		histograms.clear();
+	}
+
+	private void record(Class<?> type, Metric metric, long value) {
+		Histogram[] forType = histograms.get(type);
+		if (forType == null) {
+			Histogram[] newForType = new Histogram[Metric.values().length];
+			for (int i = 0; i < newForType.length; i++) {
+				newForType[i] = new Histogram();
+			}
+			forType = histograms.putIfAbsent(type, newForType);
+			forType = forType == null ? newForType : forType;
+		}
+		forType[metric.ordinal()].record(value);
+	}
+}
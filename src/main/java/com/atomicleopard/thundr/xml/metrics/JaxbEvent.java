@@ -0,0 +1,100 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.metrics;
+
+/**
+ * A {@link JaxbEvent} is a Java Flight Recorder event in progress, started by {@link JaxbEvents#begin(JaxbEvents.Kind)}. The attributes
+ * of the work done are set as it completes, and the event is then committed. The duration of the event is the time between
+ * beginning and committing it.
+ * 
+ * When nothing is being recorded {@link #Disabled} is returned, which ignores everything, so callers don't need to check before
+ * setting attributes.
+ */
+public class JaxbEvent {
+	public static final JaxbEvent Disabled = new JaxbEvent(null, null);
+
+	private JaxbEvents.Recorder recorder;
+	private Object event;
+
+	JaxbEvent(JaxbEvents.Recorder recorder, Object event) {
+		this.recorder = recorder;
+		this.event = event;
+	}
+
+	/**
+	 * @return true if this event will be recorded when committed
+	 */
+	public boolean isRecording() {
+		return event != null;
+	}
+
+	/**
+	 * @param type the type read or written
+	 * @return this event
+	 */
+	public JaxbEvent type(Class<?> type) {
+		return set(JaxbEvents.Type, type == null ? null : type.getName());
+	}
+
+	/**
+	 * @param elements the number of elements read or written
+	 * @return this event
+	 */
+	public JaxbEvent elements(long elements) {
+		return set(JaxbEvents.Elements, elements);
+	}
+
+	/**
+	 * @param bytes the number of bytes read or written, or -1 if they were not counted
+	 * @return this event
+	 */
+	public JaxbEvent bytes(long bytes) {
+		return set(JaxbEvents.Bytes, bytes);
+	}
+
+	/**
+	 * @param batchSize the batch size of a streamed read
+	 * @return this event
+	 */
+	public JaxbEvent batchSize(int batchSize) {
+		return set(JaxbEvents.BatchSize, batchSize);
+	}
+
+	/**
+	 * Ends the event and records it
+	 */
+	public void commit() {
+		if (event != null) {
+			recorder.invoke(recorder.commit, event);
+			event = null;
+		}
+	}
+
+	private JaxbEvent set(int field, Object value) {
+		if (event != null) {
+			recorder.invoke(recorder.set, event, field, value);
+		}
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[recording=%s]", getClass().getSimpleName(), isRecording());
+	}
+}
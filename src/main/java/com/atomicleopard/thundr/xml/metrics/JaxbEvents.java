@@ -0,0 +1,259 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link JaxbEvents} emits Java Flight Recorder events for xml work, so that time spent in JAXB can be correlated with garbage
+ * collection and I/O stalls in a recording rather than appearing as anonymous reflection frames. Each {@link Kind} of event
+ * records the name of the type read or written, the number of elements and bytes, and the batch size of streamed reads.
+ * 
+ * This library targets Java 7, so the events are defined at runtime using <code>jdk.jfr.EventFactory</code> when the platform
+ * provides it (Java 8u262 and later), and are otherwise never emitted. Whether anything is recording is tracked by listening to
+ * the flight recorder, so when nothing is recording {@link #begin(Kind)} costs one volatile read and returns {@link JaxbEvent#Disabled}.
+ * Recorder state is never initialised by this class, and failures to emit events are ignored so that they cannot affect the
+ * work being recorded.
+ * 
+ * Like other application events they are enabled by default, and can be disabled in the settings of a recording using
+ * the name of each {@link Kind}, for example <code>com.atomicleopard.thundr.xml.Read#enabled=false</code>. Stack traces are
+ * not recorded, as they would only show the reflective calls made to emit the event.
+ */
+public final class JaxbEvents {
+	public enum Kind {
+		/**
+		 * Xml read by {@link com.atomicleopard.thundr.xml.jaxb.Jaxb}, as one object or streamed
+		 */
+		Read("XML Read", "Xml unmarshalled by Jaxb"),
+		/**
+		 * Xml written by {@link com.atomicleopard.thundr.xml.jaxb.Jaxb}, as one object or streamed
+		 */
+		Write("XML Write", "Xml marshalled by Jaxb"),
+		/**
+		 * A request body bound to a controller parameter by {@link com.atomicleopard.thundr.xml.bind.JaxbBinder}
+		 */
+		Bind("XML Bind", "Xml request body bound to a parameter"),
+		/**
+		 * An {@link com.atomicleopard.thundr.xml.view.XmlView} resolved by {@link com.atomicleopard.thundr.xml.view.JaxbViewResolver}
+		 */
+		Resolve("XML View", "Xml view written to a response");
+
+		private String label;
+		private String description;
+
+		private Kind(String label, String description) {
+			this.label = label;
+			this.description = description;
+		}
+
+		/**
+		 * @return the name of the event in a recording
+		 */
+		public String eventName() {
+			return Prefix + name();
+		}
+	}
+
+	static final int Type = 0;
+	static final int Elements = 1;
+	static final int Bytes = 2;
+	static final int BatchSize = 3;
+
+	private static final String Prefix = "com.atomicleopard.thundr.xml.";
+	// declared without an initialiser before Jfr, as the recorder may report a recording in progress as it is created
+	private static volatile boolean recording;
+	private static final Recorder Jfr = Recorder.create();
+
+	private JaxbEvents() {
+	}
+
+	/**
+	 * @return true if the platform supports flight recorder events
+	 */
+	public static boolean isAvailable() {
+		return Jfr != null;
+	}
+
+	/**
+	 * @return true if a flight recording is in progress
+	 */
+	public static boolean isRecording() {
+		return recording;
+	}
+
+	/**
+	 * Begins an event of the given kind
+	 * 
+	 * @param kind
+	 * @return the event, which is {@link JaxbEvent#Disabled} unless a recording has the event enabled
+	 */
+	public static JaxbEvent begin(Kind kind) {
+		return recording ? Jfr.begin(kind) : JaxbEvent.Disabled;
+	}
+
+	/**
+	 * Binds to the flight recorder api reflectively, and keeps track of whether a recording is in progress
+	 */
+	static class Recorder implements InvocationHandler {
+		private Class<?> flightRecorder;
+		private Method getFlightRecorder;
+		private Method getRecordings;
+		private Method getState;
+		private Method createFactory;
+		private Method newEvent;
+		private Method getEventType;
+		private Method isEnabled;
+		private Method begin;
+		Method set;
+		Method commit;
+		private Object[] factories = new Object[Kind.values().length];
+		private Object[] eventTypes = new Object[Kind.values().length];
+
+		static Recorder create() {
+			try {
+				Recorder recorder = new Recorder();
+				recorder.listen();
+				return recorder;
+			} catch (Exception | LinkageError e) {
+				// flight recorder is not supported by this platform
+				return null;
+			}
+		}
+
+		private Recorder() throws ReflectiveOperationException {
+			ClassLoader classLoader = ClassLoader.getSystemClassLoader();
+			flightRecorder = Class.forName("jdk.jfr.FlightRecorder", false, classLoader);
+			getFlightRecorder = flightRecorder.getMethod("getFlightRecorder");
+			getRecordings = flightRecorder.getMethod("getRecordings");
+			getState = Class.forName("jdk.jfr.Recording", false, classLoader).getMethod("getState");
+			createFactory = Class.forName("jdk.jfr.EventFactory", false, classLoader).getMethod("create", List.class, List.class);
+			newEvent = createFactory.getDeclaringClass().getMethod("newEvent");
+			getEventType = createFactory.getDeclaringClass().getMethod("getEventType");
+			isEnabled = Class.forName("jdk.jfr.EventType", false, classLoader).getMethod("isEnabled");
+			Class<?> event = Class.forName("jdk.jfr.Event", false, classLoader);
+			begin = event.getMethod("begin");
+			set = event.getMethod("set", int.class, Object.class);
+			commit = event.getMethod("commit");
+		}
+
+		private void listen() throws ReflectiveOperationException {
+			Class<?> listener = Class.forName("jdk.jfr.FlightRecorderListener", false, flightRecorder.getClassLoader());
+			Object proxy = Proxy.newProxyInstance(listener.getClassLoader(), new Class<?>[] { listener }, this);
+			flightRecorder.getMethod("addListener", listener).invoke(null, proxy);
+		}
+
+		/**
+		 * Invoked as the flight recorder listener, when the recorder is initialised and each time a recording changes state
+		 */
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "recorderInitialized":
+				case "recordingStateChanged":
+					recording = anyRunning();
+					return null;
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				case "toString":
+					return JaxbEvents.class.getSimpleName();
+				default:
+					return null;
+			}
+		}
+
+		JaxbEvent begin(Kind kind) {
+			try {
+				Object factory = factory(kind);
+				if (!(Boolean) isEnabled.invoke(eventTypes[kind.ordinal()])) {
+					return JaxbEvent.Disabled;
+				}
+				Object event = newEvent.invoke(factory);
+				begin.invoke(event);
+				return new JaxbEvent(this, event);
+			} catch (Exception | LinkageError e) {
+				return JaxbEvent.Disabled;
+			}
+		}
+
+		void invoke(Method method, Object event, Object... args) {
+			try {
+				method.invoke(event, args);
+			} catch (Exception | LinkageError e) {
+				// the event is lost, but the work it describes is unaffected
+			}
+		}
+
+		private boolean anyRunning() {
+			try {
+				List<?> recordings = (List<?>) getRecordings.invoke(getFlightRecorder.invoke(null));
+				for (Object recording : recordings) {
+					if ("RUNNING".equals(String.valueOf(getState.invoke(recording)))) {
+						return true;
+					}
+				}
+				return false;
+			} catch (Exception | LinkageError e) {
+				return false;
+			}
+		}
+
+		private synchronized Object factory(Kind kind) throws ReflectiveOperationException {
+			Object factory = factories[kind.ordinal()];
+			if (factory == null) {
+				List<Object> annotations = Arrays.asList(
+						annotation("jdk.jfr.Name", kind.eventName()),
+						annotation("jdk.jfr.Label", kind.label),
+						annotation("jdk.jfr.Description", kind.description),
+						annotation("jdk.jfr.Category", new String[] { "thundr", "XML" }),
+						annotation("jdk.jfr.StackTrace", false));
+				List<Object> fields = new ArrayList<>();
+				// in the order of the field indexes used by JaxbEvent
+				fields.add(field(String.class, "type", "Type"));
+				fields.add(field(long.class, "elements", "Elements"));
+				fields.add(field(long.class, "bytes", "Bytes"));
+				fields.add(field(int.class, "batchSize", "Batch Size"));
+				factory = createFactory.invoke(null, annotations, fields);
+				eventTypes[kind.ordinal()] = getEventType.invoke(factory);
+				factories[kind.ordinal()] = factory;
+			}
+			return factory;
+		}
+
+		private Object annotation(String type, Object value) throws ReflectiveOperationException {
+			ClassLoader classLoader = flightRecorder.getClassLoader();
+			Class<? extends Annotation> annotationType = Class.forName(type, false, classLoader).asSubclass(Annotation.class);
+			return Class.forName("jdk.jfr.AnnotationElement", false, classLoader).getConstructor(Class.class, Object.class).newInstance(annotationType, value);
+		}
+
+		private Object field(Class<?> type, String name, String label) throws ReflectiveOperationException {
+			ClassLoader classLoader = flightRecorder.getClassLoader();
+			List<Object> annotations = Arrays.asList(annotation("jdk.jfr.Label", label));
+			return Class.forName("jdk.jfr.ValueDescriptor", false, classLoader).getConstructor(Class.class, String.class, List.class).newInstance(type, name, annotations);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.metrics;
+
+import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+import com.atomicleopard.thundr.xml.jaxb.JaxbContextRegistry;
+
+/**
+ * {@link JaxbMetrics} is notified of the work done by {@link Jaxb} and {@link JaxbContextRegistry}, so that the time spent
+ * reading and writing xml can be observed in production. Register an implementation with the injection context before
+ * the XmlContribModule is configured, or use the <code>xmlMetrics</code> property.
+ * 
+ * Implementations are invoked on the thread doing the work, often concurrently, so they must be threadsafe and should
+ * return quickly. All times are in nanoseconds. The default, {@link #None}, does nothing and is never invoked, so that
+ * no time is spent measuring when metrics are not required.
+ * 
+ * @see HistogramJaxbMetrics
+ */
+public interface JaxbMetrics {
+	/**
+	 * Does nothing. {@link Jaxb} skips measurement entirely when this is in use.
+	 */
+	public static final JaxbMetrics None = new NoopJaxbMetrics();
+
+	/**
+	 * A {@link javax.xml.bind.JAXBContext} was created. Contexts created for many types report the time against each type.
+	 */
+	void contextCreated(Class<?> type, long nanos);
+
+	/**
+	 * A single document was unmarshalled
+	 * 
+	 * @param bytes the number of bytes read
+	 */
+	void unmarshalled(Class<?> type, long nanos, long bytes);
+
+	/**
+	 * A single object was marshalled
+	 * 
+	 * @param bytes the number of bytes written, or -1 when written as characters
+	 */
+	void marshalled(Class<?> type, long nanos, long bytes);
+
+	/**
+	 * Many elements were read in a streaming fashion. The time includes the time taken to process each batch.
+	 * Reads which dispatch elements to several types report a streamed read for each of the types.
+	 * 
+	 * @param elements the number of elements unmarshalled
+	 * @param bytes the number of bytes read, which is the whole document for each type of a dispatched read
+	 */
+	void streamRead(Class<?> type, long nanos, long elements, long bytes);
+
+	/**
+	 * Many objects were written in a streaming fashion
+	 * 
+	 * @param elements the number of objects marshalled
+	 * @param bytes the number of bytes written, or -1 when written as characters
+	 */
+	void streamWritten(Class<?> type, long nanos, long elements, long bytes);
+
+	/**
+	 * A batch of streamed elements was processed by a {@link com.atomicleopard.thundr.xml.jaxb.Batch}
+	 * 
+	 * @param size the number of elements in the batch
+	 */
+	void batchProcessed(Class<?> type, long nanos, int size);
+}
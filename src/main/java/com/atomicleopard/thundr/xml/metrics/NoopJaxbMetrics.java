@@ -0,0 +1,48 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.metrics;
+
+/**
+ * A {@link JaxbMetrics} which ignores everything, see {@link JaxbMetrics#None}
+ */
+public class NoopJaxbMetrics implements JaxbMetrics {
+	@Override
+	public void contextCreated(Class<?> type, long nanos) {
+	}
+
+	@Override
+	public void unmarshalled(Class<?> type, long nanos, long bytes) {
+	}
+
+	@Override
+	public void marshalled(Class<?> type, long nanos, long bytes) {
+	}
+
+	@Override
+	public void streamRead(Class<?> type, long nanos, long elements, long bytes) {
+	}
+
+	@Override
+	public void streamWritten(Class<?> type, long nanos, long elements, long bytes) {
+	}
+
+	@Override
+	public void batchProcessed(Class<?> type, long nanos, int size) {
+	}
+}
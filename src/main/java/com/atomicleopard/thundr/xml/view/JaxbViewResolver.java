@@ -18,10 +18,23 @@
  */
 package com.atomicleopard.thundr.xml.view;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.atomicleopard.thundr.xml.http.AcceptEncoding;
+import com.atomicleopard.thundr.xml.http.BufferingOutputStream;
+import com.atomicleopard.thundr.xml.http.CompressingOutputStream;
+import com.atomicleopard.thundr.xml.http.Compression;
+import com.atomicleopard.thundr.xml.http.ContentEncoding;
+import com.atomicleopard.thundr.xml.http.EntityTag;
 import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+import com.atomicleopard.thundr.xml.jaxb.JaxbBatchWriter;
+import com.atomicleopard.thundr.xml.metrics.JaxbEvent;
+import com.atomicleopard.thundr.xml.metrics.JaxbEvents;
 import com.threewks.thundr.view.BaseView;
 import com.threewks.thundr.view.ViewResolutionException;
 import com.threewks.thundr.view.ViewResolver;
@@ -29,36 +42,242 @@ import com.threewks.thundr.view.ViewResolver;
 /**
  * A {@link ViewResolver} that produces Xml output using JAXB.
  * 
+ * Responses can be compressed with gzip or deflate, negotiated from the <code>Accept-Encoding</code> header of the request, by
+ * supplying a {@link Compression} to the resolver or to individual {@link XmlView}s. Compression is disabled by default.
+ * 
+ * Views can also carry an <code>ETag</code>, see {@link XmlView#withETag()} and {@link XmlView#withVersion(String)}, in which
+ * case requests with a matching <code>If-None-Match</code> header are answered with <code>304 Not Modified</code>.
+ * 
+ * Given an {@link XmlCache}, the content of views with a cache key is marshalled once and then sent from the cache, see
+ * {@link XmlView#withCacheKey(String)}.
+ * 
+ * Given {@link ResponseBuffers}, responses are marshalled into memory and sent with a <code>Content-Length</code> unless they
+ * outgrow the buffer, in which case they are streamed.
+ * 
  * @see Jaxb
  * @see XmlView
  */
 public class JaxbViewResolver implements ViewResolver<XmlView> {
+	public static final String VaryHeader = "Vary";
+
 	private Jaxb jaxb;
+	private Compression compression;
+	private XmlCache cache;
+	private ResponseBuffers buffers;
 
 	public JaxbViewResolver() {
 		this(new Jaxb());
 	}
 
 	public JaxbViewResolver(Jaxb jaxb) {
+		this(jaxb, Compression.None);
+	}
+
+	/**
+	 * @param jaxb
+	 * @param compression controls compression of responses for views which don't specify their own {@link Compression}
+	 */
+	public JaxbViewResolver(Jaxb jaxb, Compression compression) {
+		this(jaxb, compression, null);
+	}
+
+	/**
+	 * @param jaxb
+	 * @param compression controls compression of responses for views which don't specify their own {@link Compression}
+	 * @param cache retains the content of views which have a cache key, or null to marshal every view
+	 */
+	public JaxbViewResolver(Jaxb jaxb, Compression compression, XmlCache cache) {
+		this(jaxb, compression, cache, null);
+	}
+
+	/**
+	 * @param jaxb
+	 * @param compression controls compression of responses for views which don't specify their own {@link Compression}
+	 * @param cache retains the content of views which have a cache key, or null to marshal every view
+	 * @param buffers buffers responses so they can be sent with a <code>Content-Length</code>, or null to stream every response
+	 */
+	public JaxbViewResolver(Jaxb jaxb, Compression compression, XmlCache cache, ResponseBuffers buffers) {
 		this.jaxb = jaxb;
+		this.compression = compression;
+		this.cache = cache;
+		this.buffers = buffers;
 	}
 
 	public Jaxb getJaxb() {
 		return jaxb;
 	}
 
+	public Compression getCompression() {
+		return compression;
+	}
+
+	/**
+	 * @return the {@link XmlCache} used for views with a cache key, or null if there is none
+	 */
+	public XmlCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * @return the {@link ResponseBuffers} used to buffer responses, or null if responses are streamed
+	 */
+	public ResponseBuffers getBuffers() {
+		return buffers;
+	}
+
 	@Override
 	public void resolve(HttpServletRequest req, HttpServletResponse resp, XmlView viewResult) {
 		Object output = viewResult.getOutput();
+		JaxbEvent event = JaxbEvents.begin(JaxbEvents.Kind.Resolve);
 		try {
 			String encoding = viewResult.getCharacterEncoding();
 			BaseView.applyToResponse(viewResult, resp);
-			jaxb.write(output).encoding(encoding).to(resp.getOutputStream());
+			Compression compression = viewResult.getCompression() == null ? this.compression : viewResult.getCompression();
+			ContentEncoding contentEncoding = negotiate(req, resp, compression);
+
+			if (viewResult.getVersion() != null && notModified(req, resp, EntityTag.of(viewResult.getVersion(), contentEncoding))) {
+				close(output);
+				event.type(output.getClass()).bytes(0).commit();
+				return;
+			}
+
+			boolean computeETag = viewResult.isETag() && viewResult.getVersion() == null;
+			byte[] content = null;
+			String cacheKey = cache == null ? null : cacheKey(req, viewResult);
+			if (cache != null && cacheKey != null) {
+				content = cache.get(cacheKey, encoding);
+				if (content == null) {
+					content = marshal(viewResult, encoding);
+					cache.put(cacheKey, encoding, content);
+				} else {
+					close(output);
+				}
+			} else if (computeETag) {
+				// the tag has to be sent before the content, so the content is marshalled in full first
+				content = marshal(viewResult, encoding);
+			}
+			if (content != null && contentEncoding != null && !compression.exceedsThreshold(content.length)) {
+				// the content is known to be sent uncompressed, so it is tagged as the same representation for every client
+				contentEncoding = null;
+			}
+			if (computeETag && notModified(req, resp, EntityTag.of(EntityTag.digest(content), contentEncoding))) {
+				event.type(output.getClass()).bytes(0).commit();
+				return;
+			}
+
+			OutputStream os = resp.getOutputStream();
+			// content already in memory is written once anyway, and periodically flushed views should not be held back
+			boolean buffer = buffers != null && content == null && !(viewResult.isStreamed() && viewResult.getFlushEvery() > 0);
+			BufferingOutputStream buffering = buffer ? buffers.open(resp, os, output.getClass()) : null;
+			os = buffering == null ? os : buffering;
+			CompressingOutputStream compressing = contentEncoding == null ? null : new CompressingOutputStream(resp, os, contentEncoding, compression);
+			OutputStream body = compressing == null ? os : compressing;
+			if (content == null) {
+				write(viewResult, encoding, body);
+			} else {
+				if (compressing == null) {
+					resp.setContentLength(content.length);
+				}
+				body.write(content);
+			}
+			if (compressing != null) {
+				compressing.close();
+			}
+			if (buffering != null) {
+				buffering.close();
+				buffers.release(output.getClass(), buffering);
+			}
+			// the size of content marshalled as it is written is carried by the nested write event
+			event.type(output.getClass()).bytes(content == null ? -1 : content.length).commit();
 		} catch (Exception e) {
 			throw new ViewResolutionException(e, "Failed to generate XML output for object '%s': %s", output.toString(), e.getMessage());
 		}
 	}
 
+	/**
+	 * Negotiates compression of the response from the request's <code>Accept-Encoding</code> headers.
+	 * 
+	 * @return the encoding to compress the response with, or null if the response should not be compressed
+	 */
+	protected ContentEncoding negotiate(HttpServletRequest req, HttpServletResponse resp, Compression compression) {
+		if (!compression.isEnabled()) {
+			return null;
+		}
+		// the response differs by Accept-Encoding whether or not this request is compressed
+		resp.addHeader(VaryHeader, AcceptEncoding.Header);
+		return AcceptEncoding.negotiate(req);
+	}
+
+	/**
+	 * Sets the <code>ETag</code> of the response, answering with <code>304 Not Modified</code> if the request already has it.
+	 * 
+	 * @return true if the response is complete and no content should be written
+	 */
+	protected boolean notModified(HttpServletRequest req, HttpServletResponse resp, String etag) {
+		resp.setHeader(EntityTag.Header, etag);
+		if (EntityTag.matches(req, etag)) {
+			resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The key the content of the view is cached with. This is the view's own cache key where it has one, otherwise its version
+	 * scoped to the type of its output and the request URI, as the same version of unrelated views identifies different content.
+	 * 
+	 * @return the key, or null if the content should not be cached
+	 */
+	protected String cacheKey(HttpServletRequest req, XmlView viewResult) {
+		if (viewResult.getCacheKey() != null) {
+			return viewResult.getCacheKey();
+		}
+		if (viewResult.getVersion() == null) {
+			return null;
+		}
+		String query = req.getQueryString();
+		String uri = query == null ? req.getRequestURI() : req.getRequestURI() + "?" + query;
+		return String.format("%s %s %s", viewResult.getOutput().getClass().getName(), uri, viewResult.getVersion());
+	}
+
+	protected byte[] marshal(XmlView viewResult, String encoding) throws Exception {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		write(viewResult, encoding, buffer);
+		return buffer.toByteArray();
+	}
+
+	protected void write(XmlView viewResult, String encoding, OutputStream os) throws Exception {
+		if (viewResult.isStreamed()) {
+			writeStreamed(viewResult, encoding, os);
+		} else {
+			jaxb.write(viewResult.getOutput()).encoding(encoding).to(os);
+		}
+	}
+
+	/**
+	 * Writes each object of the view's output in turn, closing the output afterwards if it is {@link AutoCloseable}
+	 * (such as a {@link com.atomicleopard.thundr.xml.jaxb.JaxbIterator}).
+	 */
+	protected void writeStreamed(XmlView viewResult, String encoding, OutputStream os) throws Exception {
+		Object output = viewResult.getOutput();
+		try {
+			Iterator<?> iterator = output instanceof Iterator ? (Iterator<?>) output : ((Iterable<?>) output).iterator();
+			JaxbBatchWriter<?> writer = jaxb.write(iterator).encoding(encoding).flushEvery(viewResult.getFlushEvery());
+			if (viewResult.getRootElement() != null) {
+				writer = writer.rootElement(viewResult.getRootElement());
+			}
+			writer.to(os);
+		} finally {
+			close(output);
+		}
+	}
+
+	private void close(Object output) throws Exception {
+		if (output instanceof AutoCloseable) {
+			((AutoCloseable) output).close();
+		}
+	}
+
 	@Override
 	public String toString() {
 		return this.getClass().getSimpleName();
@@ -0,0 +1,140 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.view;
+
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.atomicleopard.thundr.xml.http.BufferingOutputStream;
+
+/**
+ * {@link ResponseBuffers} allows the {@link JaxbViewResolver} to marshal responses into memory, so that they can be sent with a
+ * <code>Content-Length</code> in a single write rather than as many small chunked writes. Responses which outgrow the maximum
+ * size are streamed instead.
+ *
+ * Buffers are retained for reuse once a response is written. The size of the responses for each type of output is tracked,
+ * so that buffers are presized to avoid growing them while marshalling.
+ */
+public class ResponseBuffers {
+	public static final int DefaultMaxSize = 64 * 1024;
+	public static final int DefaultMaxIdle = 16;
+	private static final int MinSize = 512;
+
+	private int maxSize;
+	private int maxIdle;
+	private ConcurrentLinkedQueue<byte[]> idle = new ConcurrentLinkedQueue<>();
+	private AtomicInteger idleCount = new AtomicInteger();
+	private ConcurrentHashMap<Class<?>, Integer> typicalSizes = new ConcurrentHashMap<>();
+	private AtomicLong buffered = new AtomicLong();
+	private AtomicLong streamed = new AtomicLong();
+
+	public ResponseBuffers() {
+		this(DefaultMaxSize, DefaultMaxIdle);
+	}
+
+	/**
+	 * @param maxSize the largest response which is buffered
+	 * @param maxIdle the number of buffers retained for reuse
+	 */
+	public ResponseBuffers(int maxSize, int maxIdle) {
+		this.maxSize = Math.max(maxSize, 0);
+		this.maxIdle = Math.max(maxIdle, 0);
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	/**
+	 * @return the number of responses sent from a buffer
+	 */
+	public long getBuffered() {
+		return buffered.get();
+	}
+
+	/**
+	 * @return the number of responses which outgrew the buffer and were streamed
+	 */
+	public long getStreamed() {
+		return streamed.get();
+	}
+
+	/**
+	 * @param type
+	 * @return the typical size of responses for the given type of output, or 0 if none have been written
+	 */
+	public int getTypicalSize(Class<?> type) {
+		Integer size = typicalSizes.get(type);
+		return size == null ? 0 : size;
+	}
+
+	/**
+	 * Opens a buffered stream for the body of a response for the given type of output.
+	 * Return it using {@link #release(Class, BufferingOutputStream)} once it is closed.
+	 */
+	public BufferingOutputStream open(HttpServletResponse resp, OutputStream target, Class<?> type) {
+		// allow some headroom over the typical size so that slightly larger responses don't need to grow the buffer
+		int size = Math.min(maxSize, Math.max(MinSize, getTypicalSize(type) + getTypicalSize(type) / 4));
+		byte[] buffer = idle.poll();
+		if (buffer == null) {
+			buffer = new byte[size];
+		} else {
+			idleCount.decrementAndGet();
+			if (buffer.length < size) {
+				buffer = new byte[size];
+			}
+		}
+		return new BufferingOutputStream(resp, target, buffer, maxSize);
+	}
+
+	/**
+	 * Records the size of the response written to the given stream, and retains its buffer for reuse.
+	 * Streams whose use resulted in an exception should not be released.
+	 */
+	public void release(Class<?> type, BufferingOutputStream stream) {
+		(stream.isStreaming() ? streamed : buffered).incrementAndGet();
+		learn(type, stream.getSize());
+		if (idleCount.incrementAndGet() > maxIdle) {
+			idleCount.decrementAndGet();
+		} else {
+			idle.offer(stream.getBuffer());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[buffered=%d, streamed=%d, idle=%d]", getClass().getSimpleName(), getBuffered(), getStreamed(), idleCount.get());
+	}
+
+	private void learn(Class<?> type, long size) {
+		int observed = (int) Math.min(size, maxSize);
+		Integer typical = typicalSizes.get(type);
+		// an exponential moving average, concurrent updates may be lost but it is only used as a hint
+		typicalSizes.put(type, typical == null ? observed : typical + (observed - typical) / 8);
+	}
+}
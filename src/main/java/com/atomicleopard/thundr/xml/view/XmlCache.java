@@ -0,0 +1,185 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.view;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link XmlCache} retains the marshalled content of {@link XmlView}s which have a cache key, so that views whose output doesn't
+ * change can be sent without marshalling them again. See {@link XmlView#withCacheKey(String)}.
+ *
+ * Content is held per character encoding, and the least recently used content is evicted once the total size of all content
+ * exceeds the configured number of bytes. Content larger than the whole cache is never retained.
+ *
+ * Hit, miss and eviction counts are available to help tune the cache size under load.
+ */
+public class XmlCache {
+	public static final long DefaultMaxBytes = 16 * 1024 * 1024;
+
+	private long maxBytes;
+	private long bytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	public XmlCache() {
+		this(DefaultMaxBytes);
+	}
+
+	/**
+	 * @param maxBytes the total size of content retained by this cache
+	 */
+	public XmlCache(long maxBytes) {
+		this.maxBytes = Math.max(maxBytes, 0);
+	}
+
+	/**
+	 * The returned content is shared, and must not be modified.
+	 * 
+	 * @param key
+	 * @param encoding the character encoding of the content
+	 * @return the cached content, or null if there is none
+	 */
+	public synchronized byte[] get(String key, String encoding) {
+		byte[] content = entries.get(new Key(key, encoding));
+		if (content == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return content;
+	}
+
+	/**
+	 * Retains the given content, evicting the least recently used content if required. The content must not be modified
+	 * after it is cached.
+	 * 
+	 * @param key
+	 * @param encoding the character encoding of the content
+	 * @param content
+	 */
+	public synchronized void put(String key, String encoding, byte[] content) {
+		if (content.length > maxBytes) {
+			return;
+		}
+		byte[] previous = entries.put(new Key(key, encoding), content);
+		bytes += content.length - (previous == null ? 0 : previous.length);
+		Iterator<byte[]> eldest = entries.values().iterator();
+		while (bytes > maxBytes) {
+			bytes -= eldest.next().length;
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Discards the content for the given key in all encodings
+	 * 
+	 * @param key
+	 */
+	public synchronized void invalidate(String key) {
+		Iterator<Map.Entry<Key, byte[]>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Key, byte[]> entry = iterator.next();
+			if (entry.getKey().key.equals(key)) {
+				bytes -= entry.getValue().length;
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Discards all content
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @return the total size of content currently retained
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of entries currently retained
+	 */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of times content was found in the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of times content was not found in the cache
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of entries evicted to keep the cache within its size
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s[hits=%d, misses=%d, evictions=%d, size=%d, bytes=%d]", getClass().getSimpleName(), hits, misses, evictions, entries.size(), bytes);
+	}
+
+	private static class Key {
+		private String key;
+		private String encoding;
+
+		private Key(String key, String encoding) {
+			this.key = key;
+			this.encoding = encoding;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * key.hashCode() + (encoding == null ? 0 : encoding.toUpperCase().hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return key.equals(other.key) && (encoding == null ? other.encoding == null : encoding.equalsIgnoreCase(other.encoding));
+		}
+	}
+}
@@ -18,13 +18,37 @@
  */
 package com.atomicleopard.thundr.xml.view;
 
+import java.util.Iterator;
+
+import com.atomicleopard.thundr.xml.http.Compression;
+
 import com.threewks.thundr.http.ContentType;
 import com.threewks.thundr.http.StatusCode;
 import com.threewks.thundr.view.DataView;
 
 import jodd.util.StringPool;
 
+/**
+ * A view which produces Xml output using JAXB, resolved by the {@link JaxbViewResolver}.
+ * 
+ * By default the output is marshalled as a single object. When the output is an {@link Iterator}, or an {@link Iterable} with
+ * a root element, each object is instead marshalled in turn as a child of the root element as it is iterated. This keeps memory
+ * consumption constant for large outputs, particularly when combined with {@link #withFlushEvery(int)} so that clients
+ * start receiving the response straight away.
+ * 
+ * <pre>
+ * <code>
+ * return new XmlView(service.exportIterator(), "Export").withFlushEvery(100);
+ * </code>
+ * </pre>
+ */
 public class XmlView extends DataView<XmlView> {
+	private String rootElement = null;
+	private int flushEvery = 0;
+	private Compression compression = null;
+	private boolean etag = false;
+	private String version = null;
+	private String cacheKey = null;
 
 	public XmlView(Object output) {
 		super(output);
@@ -33,8 +57,158 @@ public class XmlView extends DataView<XmlView> {
 		withCharacterEncoding(StringPool.UTF_8);
 	}
 
+	/**
+	 * Creates a view which writes each of the given objects as a child of the given root element
+	 * 
+	 * @param output
+	 * @param rootElement
+	 */
+	public XmlView(Iterable<?> output, String rootElement) {
+		this((Object) output);
+		this.rootElement = rootElement;
+	}
+
+	/**
+	 * Creates a view which writes each of the given objects as a child of the given root element as they are iterated
+	 * 
+	 * @param output
+	 * @param rootElement
+	 */
+	public XmlView(Iterator<?> output, String rootElement) {
+		this((Object) output);
+		this.rootElement = rootElement;
+	}
+
 	protected XmlView(DataView<?> other) {
 		super(other);
+		if (other instanceof XmlView) {
+			XmlView xmlView = (XmlView) other;
+			this.rootElement = xmlView.rootElement;
+			this.flushEvery = xmlView.flushEvery;
+			this.compression = xmlView.compression;
+			this.etag = xmlView.etag;
+			this.version = xmlView.version;
+			this.cacheKey = xmlView.cacheKey;
+		}
+	}
+
+	/**
+	 * Specifies the name of the root element which wraps each object when the output is an {@link Iterator} or {@link Iterable}
+	 * 
+	 * @param rootElement
+	 * @return
+	 */
+	public XmlView withRootElement(String rootElement) {
+		this.rootElement = rootElement;
+		return this;
+	}
+
+	/**
+	 * Causes the response to be flushed after every flushEvery objects are written when the output is written as a stream of objects.
+	 * Defaults to 0, which only flushes once all objects are written.
+	 * 
+	 * @param flushEvery
+	 * @return
+	 */
+	public XmlView withFlushEvery(int flushEvery) {
+		this.flushEvery = Math.max(flushEvery, 0);
+		return this;
+	}
+
+	/**
+	 * Controls compression of this view, overriding the {@link Compression} of the {@link JaxbViewResolver}.
+	 * 
+	 * @param compression
+	 * @return
+	 */
+	public XmlView withCompression(Compression compression) {
+		this.compression = compression;
+		return this;
+	}
+
+	/**
+	 * Adds a strong <code>ETag</code> to the response, computed from the marshalled content. Requests with a matching
+	 * <code>If-None-Match</code> header receive a <code>304 Not Modified</code> response without the content.
+	 * 
+	 * The content is marshalled in full before any of it is sent, including when the output is streamed. Where the version of the
+	 * content is already known, {@link #withVersion(String)} avoids this.
+	 * 
+	 * @return
+	 */
+	public XmlView withETag() {
+		this.etag = true;
+		return this;
+	}
+
+	/**
+	 * Adds a strong <code>ETag</code> to the response derived from the given version of the content, such as a revision number or
+	 * last modified timestamp. Requests with a matching <code>If-None-Match</code> header receive a <code>304 Not Modified</code>
+	 * response without the output being marshalled.
+	 * 
+	 * @param version an opaque version, which cannot contain quotes, whitespace or control characters
+	 * @return
+	 */
+	public XmlView withVersion(String version) {
+		this.version = version;
+		return this;
+	}
+
+	/**
+	 * Allows the marshalled content of this view to be cached by the {@link JaxbViewResolver}, if it has an {@link XmlCache}.
+	 * Views with the same cache key must always produce the same content, so the key should identify both the output and its
+	 * version. Where no cache key is given, the version supplied to {@link #withVersion(String)} is used, scoped to the type of the
+	 * output and the request so that unrelated views with the same version never share content.
+	 * 
+	 * @param cacheKey
+	 * @return
+	 */
+	public XmlView withCacheKey(String cacheKey) {
+		this.cacheKey = cacheKey;
+		return this;
+	}
+
+	public String getRootElement() {
+		return rootElement;
+	}
+
+	public int getFlushEvery() {
+		return flushEvery;
+	}
+
+	/**
+	 * @return the {@link Compression} for this view, or null if the resolver's compression applies
+	 */
+	public Compression getCompression() {
+		return compression;
+	}
+
+	/**
+	 * @return true if an <code>ETag</code> should be computed from the marshalled content
+	 */
+	public boolean isETag() {
+		return etag;
+	}
+
+	/**
+	 * @return the version of the content used for the <code>ETag</code>, or null if none was supplied
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the cache key given to {@link #withCacheKey(String)}, or null if none was given
+	 */
+	public String getCacheKey() {
+		return cacheKey;
+	}
+
+	/**
+	 * @return true if the output is written as a stream of objects within a root element, rather than as a single object
+	 */
+	public boolean isStreamed() {
+		Object output = getOutput();
+		return output instanceof Iterator || rootElement != null && output instanceof Iterable;
 	}
 
 }
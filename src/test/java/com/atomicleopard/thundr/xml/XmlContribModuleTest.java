@@ -22,10 +22,22 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 import com.atomicleopard.thundr.xml.bind.JaxbBinder;
+import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+import com.atomicleopard.thundr.xml.jaxb.JaxbContextRegistry;
+import com.atomicleopard.thundr.xml.jaxb.JaxbPool;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNamedRootElement;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNoRoot;
+import com.atomicleopard.thundr.xml.metrics.HistogramJaxbMetrics;
+import com.atomicleopard.thundr.xml.metrics.JaxbMetrics;
+import com.atomicleopard.thundr.xml.metrics.NoopJaxbMetrics;
 import com.atomicleopard.thundr.xml.view.JaxbViewResolver;
+import com.atomicleopard.thundr.xml.view.XmlCache;
 import com.atomicleopard.thundr.xml.view.XmlNegotiator;
 import com.atomicleopard.thundr.xml.view.XmlView;
 import com.threewks.thundr.bind.BinderModule;
@@ -39,6 +51,9 @@ import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistry;
 import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistryImpl;
 
 public class XmlContribModuleTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
 	private UpdatableInjectionContext injectionContext = new InjectionContextImpl();
 	private ViewResolverRegistry viewResolverRegistry = new ViewResolverRegistry();
 	private ViewNegotiatorRegistry viewNegotiatorRegistry = new ViewNegotiatorRegistryImpl();
@@ -68,4 +83,149 @@ public class XmlContribModuleTest {
 		assertThat(viewNegotiatorRegistry.getNegotiator("application/xml"), instanceOf(XmlNegotiator.class));
 		assertThat(binderRegistry.hasBinder(JaxbBinder.class), is(true));
 	}
+
+	@Test
+	public void shouldMakeJaxbAvailable() {
+		module.configure(injectionContext);
+
+		assertThat(injectionContext.get(Jaxb.class), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldPreloadConfiguredClassesAndPackages() {
+		injectionContext.inject(XmlPojoWithNoRoot.class.getName()).named(XmlContribModule.PreloadClassesProperty).as(String.class);
+		injectionContext.inject(" com.atomicleopard.thundr.xml.jaxb.test ,").named(XmlContribModule.PreloadPackagesProperty).as(String.class);
+		module.configure(injectionContext);
+
+		JaxbContextRegistry contexts = injectionContext.get(Jaxb.class).getContexts();
+		assertThat(contexts.contains(XmlPojoWithNoRoot.class), is(true));
+		assertThat(contexts.contains(XmlPojo.class), is(true));
+		assertThat(contexts.contains(XmlPojoWithNamedRootElement.class), is(true));
+	}
+
+	@Test
+	public void shouldConfigurePoolFromProperties() {
+		injectionContext.inject("4").named(XmlContribModule.PoolMaxIdleProperty).as(String.class);
+		injectionContext.inject("1000").named(XmlContribModule.PoolIdleTimeoutProperty).as(String.class);
+		module.configure(injectionContext);
+
+		JaxbPool pool = injectionContext.get(Jaxb.class).getPool();
+		assertThat(pool.getMaxIdle(), is(4));
+		assertThat(pool.getIdleTimeout(), is(1000L));
+	}
+
+	@Test
+	public void shouldNotCompressByDefault() {
+		module.configure(injectionContext);
+
+		JaxbViewResolver viewResolver = (JaxbViewResolver) viewResolverRegistry.findViewResolver(new XmlView(null));
+		assertThat(viewResolver.getCompression().isEnabled(), is(false));
+	}
+
+	@Test
+	public void shouldConfigureCompressionFromProperties() {
+		injectionContext.inject("true").named(XmlContribModule.CompressionProperty).as(String.class);
+		injectionContext.inject("2048").named(XmlContribModule.CompressionThresholdProperty).as(String.class);
+		injectionContext.inject("6").named(XmlContribModule.CompressionLevelProperty).as(String.class);
+		module.configure(injectionContext);
+
+		JaxbViewResolver viewResolver = (JaxbViewResolver) viewResolverRegistry.findViewResolver(new XmlView(null));
+		assertThat(viewResolver.getCompression().isEnabled(), is(true));
+		assertThat(viewResolver.getCompression().getThreshold(), is(2048));
+		assertThat(viewResolver.getCompression().getLevel(), is(6));
+	}
+
+	@Test
+	public void shouldConfigureCacheFromProperties() {
+		injectionContext.inject("1024").named(XmlContribModule.CacheMaxBytesProperty).as(String.class);
+		module.configure(injectionContext);
+
+		JaxbViewResolver viewResolver = (JaxbViewResolver) viewResolverRegistry.findViewResolver(new XmlView(null));
+		XmlCache cache = injectionContext.get(XmlCache.class);
+		assertThat(cache.getMaxBytes(), is(1024L));
+		assertThat(viewResolver.getCache(), is(sameInstance(cache)));
+	}
+
+	@Test
+	public void shouldConfigureBuffersFromProperties() {
+		injectionContext.inject("8192").named(XmlContribModule.BufferMaxBytesProperty).as(String.class);
+		module.configure(injectionContext);
+
+		JaxbViewResolver viewResolver = (JaxbViewResolver) viewResolverRegistry.findViewResolver(new XmlView(null));
+		assertThat(viewResolver.getBuffers().getMaxSize(), is(8192));
+	}
+
+	@Test
+	public void shouldNotCacheOrBufferByDefault() {
+		module.configure(injectionContext);
+
+		JaxbViewResolver viewResolver = (JaxbViewResolver) viewResolverRegistry.findViewResolver(new XmlView(null));
+		assertThat(viewResolver.getCache(), is(nullValue()));
+		assertThat(viewResolver.getBuffers(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldNotMeasureByDefault() {
+		module.configure(injectionContext);
+
+		assertThat(injectionContext.get(JaxbMetrics.class), is(JaxbMetrics.None));
+		assertThat(injectionContext.get(Jaxb.class).getMetrics(), is(JaxbMetrics.None));
+	}
+
+	@Test
+	public void shouldRecordHistogramMetricsWhenEnabled() {
+		injectionContext.inject("true").named(XmlContribModule.MetricsProperty).as(String.class);
+		module.configure(injectionContext);
+
+		JaxbMetrics metrics = injectionContext.get(JaxbMetrics.class);
+		assertThat(metrics, instanceOf(HistogramJaxbMetrics.class));
+		assertThat(injectionContext.get(Jaxb.class).getMetrics(), is(sameInstance(metrics)));
+		assertThat(injectionContext.get(Jaxb.class).getContexts().getMetrics(), is(sameInstance(metrics)));
+	}
+
+	@Test
+	public void shouldCreateMetricsOfConfiguredClass() {
+		injectionContext.inject(NoopJaxbMetrics.class.getName()).named(XmlContribModule.MetricsProperty).as(String.class);
+		module.configure(injectionContext);
+
+		assertThat(injectionContext.get(Jaxb.class).getMetrics(), instanceOf(NoopJaxbMetrics.class));
+		assertThat(injectionContext.get(Jaxb.class).getMetrics(), is(not(JaxbMetrics.None)));
+	}
+
+	@Test
+	public void shouldUseMetricsFromInjectionContext() {
+		JaxbMetrics metrics = new HistogramJaxbMetrics();
+		injectionContext.inject(metrics).as(JaxbMetrics.class);
+		injectionContext.inject("false").named(XmlContribModule.MetricsProperty).as(String.class);
+		module.configure(injectionContext);
+
+		assertThat(injectionContext.get(Jaxb.class).getMetrics(), is(sameInstance(metrics)));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenMetricsClassCannotBeCreated() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to create the JaxbMetrics com.example.Missing");
+
+		injectionContext.inject("com.example.Missing").named(XmlContribModule.MetricsProperty).as(String.class);
+		module.configure(injectionContext);
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenPoolPropertyIsNotANumber() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("The property xmlPoolMaxIdle must be a number, but was 'lots'");
+
+		injectionContext.inject("lots").named(XmlContribModule.PoolMaxIdleProperty).as(String.class);
+		module.configure(injectionContext);
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenPreloadingUnknownClass() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to preload a JAXBContext for com.example.Missing: class not found");
+
+		injectionContext.inject("com.example.Missing").named(XmlContribModule.PreloadClassesProperty).as(String.class);
+		module.configure(injectionContext);
+	}
 }
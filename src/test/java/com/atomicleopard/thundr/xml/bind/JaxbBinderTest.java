@@ -21,10 +21,20 @@ package com.atomicleopard.thundr.xml.bind;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -50,12 +60,19 @@ public class JaxbBinderTest {
 
 	private Jaxb jaxb = new Jaxb();
 	private JaxbBinder binder = new JaxbBinder(jaxb);
+	private String xml = "<xmlPojo><id>id</id></xmlPojo>";
 
 	@Test
 	public void shouldRetainJaxBInstance() {
 		assertThat(binder.getJaxb(), is(jaxb));
 	}
 
+	@Test
+	public void shouldRetainMaxDecodedBytes() {
+		assertThat(binder.getMaxDecodedBytes(), is(JaxbBinder.DefaultMaxDecodedBytes));
+		assertThat(new JaxbBinder(jaxb, 1024).getMaxDecodedBytes(), is(1024L));
+	}
+
 	@Test
 	public void shouldReturnTrueForCanBindForApplicationXml() {
 		assertThat(binder.canBind(null), is(false));
@@ -95,6 +112,110 @@ public class JaxbBinderTest {
 		assertThat(xmlPojo.getAmount(), is(new BigDecimal("98.76")));
 	}
 
+	@Test
+	public void shouldDecodeGzipRequestContent() throws IOException {
+		req.header("Content-Encoding", "gzip");
+		InputStream body = binder.decode(req, new ByteArrayInputStream(gzip(xml.getBytes("UTF-8"))));
+
+		XmlPojo xmlPojo = jaxb.read(XmlPojo.class).from(body).one();
+		assertThat(xmlPojo.getId(), is("id"));
+	}
+
+	@Test
+	public void shouldDecodeDeflateRequestContent() throws IOException {
+		req.header("Content-Encoding", "deflate");
+		InputStream body = binder.decode(req, new ByteArrayInputStream(deflate(xml.getBytes("UTF-8"))));
+
+		XmlPojo xmlPojo = jaxb.read(XmlPojo.class).from(body).one();
+		assertThat(xmlPojo.getId(), is("id"));
+	}
+
+	@Test
+	public void shouldDecodeMultipleCodingsInReverseOrder() throws IOException {
+		req.header("Content-Encoding", "deflate, identity").header("Content-Encoding", "gzip");
+		InputStream body = binder.decode(req, new ByteArrayInputStream(gzip(deflate(xml.getBytes("UTF-8")))));
+
+		assertThat(new String(read(body), "UTF-8"), is(xml));
+	}
+
+	@Test
+	public void shouldNotDecodeIdentityOrUnencodedRequestContent() throws IOException {
+		InputStream body = new ByteArrayInputStream(new byte[0]);
+		assertThat(binder.decode(req, body), is(sameInstance(body)));
+
+		req.header("Content-Encoding", "identity");
+		assertThat(binder.decode(req, body), is(sameInstance(body)));
+	}
+
+	@Test
+	public void shouldThrowBindExceptionForUnsupportedContentEncoding() {
+		thrown.expect(BindException.class);
+		thrown.expectMessage("Failed to bind parameter 'xml' as XmlPojo using JAXB: Unsupported Content-Encoding 'br'");
+
+		req.header("Content-Encoding", "br").content("<xmlPojo><id>id</id></xmlPojo>");
+		binder.bindToParameter(req, parameterDescription);
+	}
+
+	@Test
+	public void shouldThrowBindExceptionWhenContentIsNotEncodedAsDeclared() {
+		thrown.expect(BindException.class);
+		thrown.expectMessage("Failed to bind parameter 'xml' as XmlPojo using JAXB");
+
+		req.header("Content-Encoding", "gzip").content("<xmlPojo><id>id</id></xmlPojo>");
+		binder.bindToParameter(req, parameterDescription);
+	}
+
+	@Test
+	public void shouldThrowBindExceptionWhenDecodedContentExceedsMaximum() throws IOException {
+		thrown.expect(BindException.class);
+		thrown.expectMessage("The decoded request body exceeds the maximum of 1024 bytes");
+
+		binder = new JaxbBinder(jaxb, 1024);
+		req.header("Content-Encoding", "gzip");
+		InputStream body = binder.decode(req, new ByteArrayInputStream(gzip(new byte[1024 * 1024])));
+		read(body);
+	}
+
+	@Test
+	public void shouldDecodeContentUpToMaximum() throws IOException {
+		binder = new JaxbBinder(jaxb, 1024);
+		req.header("Content-Encoding", "gzip");
+		InputStream body = binder.decode(req, new ByteArrayInputStream(gzip(new byte[1024])));
+		assertThat(read(body).length, is(1024));
+	}
+
+	@Test
+	public void shouldNotLimitDecodedContentWhenMaximumIsDisabled() throws IOException {
+		binder = new JaxbBinder(jaxb, 0);
+		req.header("Content-Encoding", "gzip");
+		InputStream body = binder.decode(req, new ByteArrayInputStream(gzip(new byte[1024 * 1024])));
+		assertThat(read(body).length, is(1024 * 1024));
+	}
+
+	@Test
+	public void shouldCloseDecodedContentWhenBound() {
+		List<InputStream> closed = new ArrayList<>();
+		binder = closeRecordingBinder(closed);
+
+		req.content(xml);
+		assertThat(binder.bindToParameter(req, parameterDescription), is(notNullValue()));
+		assertThat(closed, is(not(empty())));
+	}
+
+	@Test
+	public void shouldCloseDecodedContentWhenBindingFails() {
+		List<InputStream> closed = new ArrayList<>();
+		binder = closeRecordingBinder(closed);
+
+		req.content("Not xml");
+		try {
+			binder.bindToParameter(req, parameterDescription);
+		} catch (BindException e) {
+			// expected
+		}
+		assertThat(closed, is(not(empty())));
+	}
+
 	@Test
 	public void shouldFindFirstUnboundParameterWhichIsAJavabean() {
 		assertThat(binder.findParameterDescriptionForXmlParameter(bindings), is(nullValue()));
@@ -186,4 +307,44 @@ public class JaxbBinderTest {
 
 		binder.bindToParameter(req, parameterDescription);
 	}
+	private JaxbBinder closeRecordingBinder(final List<InputStream> closed) {
+		return new JaxbBinder(jaxb) {
+			@Override
+			protected InputStream decode(HttpServletRequest req, InputStream body) throws IOException {
+				return new FilterInputStream(body) {
+					@Override
+					public void close() throws IOException {
+						closed.add(this);
+						super.close();
+					}
+				};
+			}
+		};
+	}
+
+	private byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (GZIPOutputStream os = new GZIPOutputStream(baos)) {
+			os.write(content);
+		}
+		return baos.toByteArray();
+	}
+
+	private byte[] deflate(byte[] content) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (DeflaterOutputStream os = new DeflaterOutputStream(baos)) {
+			os.write(content);
+		}
+		return baos.toByteArray();
+	}
+
+	private byte[] read(InputStream is) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			os.write(buffer, 0, read);
+		}
+		return os.toByteArray();
+	}
 }
@@ -0,0 +1,87 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import static com.atomicleopard.expressive.Expressive.list;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+
+public class AcceptEncodingTest {
+
+	@Test
+	public void shouldChooseSupportedEncoding() {
+		assertThat(AcceptEncoding.negotiate(list("gzip")), is(ContentEncoding.Gzip));
+		assertThat(AcceptEncoding.negotiate(list("deflate")), is(ContentEncoding.Deflate));
+		assertThat(AcceptEncoding.negotiate(list("x-gzip")), is(ContentEncoding.Gzip));
+		assertThat(AcceptEncoding.negotiate(list("br, deflate")), is(ContentEncoding.Deflate));
+	}
+
+	@Test
+	public void shouldReturnNullWhenNoSupportedEncodingIsAccepted() {
+		assertThat(AcceptEncoding.negotiate(list("br")), is(nullValue()));
+		assertThat(AcceptEncoding.negotiate(list("identity")), is(nullValue()));
+		assertThat(AcceptEncoding.negotiate(list("")), is(nullValue()));
+		assertThat(AcceptEncoding.negotiate(Collections.<String> emptyList()), is(nullValue()));
+	}
+
+	@Test
+	public void shouldPreferGzipWhenQualitiesAreEqual() {
+		assertThat(AcceptEncoding.negotiate(list("deflate, gzip")), is(ContentEncoding.Gzip));
+		assertThat(AcceptEncoding.negotiate(list("deflate;q=0.5, gzip;q=0.5")), is(ContentEncoding.Gzip));
+	}
+
+	@Test
+	public void shouldChooseHighestQuality() {
+		assertThat(AcceptEncoding.negotiate(list("gzip;q=0.5, deflate;q=0.8")), is(ContentEncoding.Deflate));
+		assertThat(AcceptEncoding.negotiate(list("gzip; q=0.9", "deflate ;Q=0.1")), is(ContentEncoding.Gzip));
+	}
+
+	@Test
+	public void shouldExcludeEncodingsWithZeroQuality() {
+		assertThat(AcceptEncoding.negotiate(list("gzip;q=0")), is(nullValue()));
+		assertThat(AcceptEncoding.negotiate(list("gzip;q=0, deflate")), is(ContentEncoding.Deflate));
+		assertThat(AcceptEncoding.negotiate(list("*, gzip;q=0")), is(ContentEncoding.Deflate));
+	}
+
+	@Test
+	public void shouldApplyWildcardToEncodingsNotListed() {
+		assertThat(AcceptEncoding.negotiate(list("*")), is(ContentEncoding.Gzip));
+		assertThat(AcceptEncoding.negotiate(list("gzip;q=0.2, *;q=0.5")), is(ContentEncoding.Deflate));
+		assertThat(AcceptEncoding.negotiate(list("*;q=0")), is(nullValue()));
+	}
+
+	@Test
+	public void shouldIgnoreInvalidQualities() {
+		assertThat(AcceptEncoding.negotiate(list("gzip;q=abc")), is(nullValue()));
+		assertThat(AcceptEncoding.negotiate(list("gzip;q=2, deflate")), is(ContentEncoding.Deflate));
+	}
+
+	@Test
+	public void shouldNegotiateFromRequestHeaders() {
+		assertThat(AcceptEncoding.negotiate(new MockHttpServletRequest()), is(nullValue()));
+		assertThat(AcceptEncoding.negotiate(new MockHttpServletRequest().header("Accept-Encoding", "deflate")), is(ContentEncoding.Deflate));
+		assertThat(AcceptEncoding.negotiate(new MockHttpServletRequest().header("Accept-Encoding", "deflate;q=0.5").header("Accept-Encoding", "gzip")), is(ContentEncoding.Gzip));
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+
+public class BufferingOutputStreamTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+	private ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+	@Test
+	public void shouldWriteOnceWithContentLengthOnClose() throws IOException {
+		BufferingOutputStream os = new BufferingOutputStream(resp, target, new byte[4], 16);
+		os.write("0123".getBytes());
+		os.write('4');
+		os.write("56789".getBytes());
+		os.flush();
+		assertThat(target.size(), is(0));
+		os.close();
+
+		assertThat(new String(target.toByteArray()), is("0123456789"));
+		assertThat(resp.getContentLength(), is(10));
+		assertThat(os.isStreaming(), is(false));
+		assertThat(os.getSize(), is(10L));
+	}
+
+	@Test
+	public void shouldGrowBufferUpToMaxSize() throws IOException {
+		BufferingOutputStream os = new BufferingOutputStream(resp, target, new byte[4], 12);
+		os.write("01234".getBytes());
+		assertThat(os.getBuffer().length, is(8));
+		os.write("56789".getBytes());
+		assertThat(os.getBuffer().length, is(12));
+		assertThat(os.isStreaming(), is(false));
+	}
+
+	@Test
+	public void shouldStreamOnceBodyOutgrowsBuffer() throws IOException {
+		BufferingOutputStream os = new BufferingOutputStream(resp, target, new byte[4], 8);
+		os.write("0123".getBytes());
+		os.write("45678".getBytes());
+		assertThat(new String(target.toByteArray()), is("012345678"));
+		os.write('9');
+		os.close();
+
+		assertThat(new String(target.toByteArray()), is("0123456789"));
+		assertThat(os.isStreaming(), is(true));
+		assertThat(os.getSize(), is(10L));
+	}
+
+	@Test
+	public void shouldBufferEmptyBody() throws IOException {
+		BufferingOutputStream os = new BufferingOutputStream(resp, target, new byte[4], 8);
+		os.close();
+
+		assertThat(target.size(), is(0));
+		assertThat(resp.getContentLength(), is(0));
+	}
+
+	@Test
+	public void shouldThrowIOExceptionWhenWritingAfterClose() throws IOException {
+		thrown.expect(IOException.class);
+		thrown.expectMessage("Stream closed");
+
+		BufferingOutputStream os = new BufferingOutputStream(resp, target, new byte[4], 8);
+		os.close();
+		os.write('a');
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+
+public class CompressingOutputStreamTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+	private ByteArrayOutputStream target = new ByteArrayOutputStream();
+	private Compression compression = new Compression().threshold(16);
+
+	@Test
+	public void shouldWriteUncompressedWithContentLengthWhenUnderThreshold() throws IOException {
+		CompressingOutputStream os = new CompressingOutputStream(resp, target, ContentEncoding.Gzip, compression);
+		os.write("0123456789".getBytes());
+		os.write('a');
+		assertThat(target.size(), is(0));
+		os.close();
+
+		assertThat(os.isCompressed(), is(false));
+		assertThat(new String(target.toByteArray()), is("0123456789a"));
+		assertThat(resp.getContentLength(), is(11));
+		assertThat(resp.<String> header("Content-Encoding"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldWriteUncompressedWhenExactlyThreshold() throws IOException {
+		CompressingOutputStream os = new CompressingOutputStream(resp, target, ContentEncoding.Gzip, compression);
+		os.write("0123456789abcdef".getBytes());
+		os.close();
+
+		assertThat(os.isCompressed(), is(false));
+		assertThat(new String(target.toByteArray()), is("0123456789abcdef"));
+	}
+
+	@Test
+	public void shouldCompressWithGzipWhenOverThreshold() throws IOException {
+		CompressingOutputStream os = new CompressingOutputStream(resp, target, ContentEncoding.Gzip, compression);
+		os.write("0123456789".getBytes());
+		os.write("0123456789".getBytes());
+		os.close();
+
+		assertThat(os.isCompressed(), is(true));
+		assertThat(resp.<String> header("Content-Encoding"), is("gzip"));
+		assertThat(read(new GZIPInputStream(new ByteArrayInputStream(target.toByteArray()))), is("01234567890123456789"));
+	}
+
+	@Test
+	public void shouldCompressWithDeflateWhenOverThreshold() throws IOException {
+		CompressingOutputStream os = new CompressingOutputStream(resp, target, ContentEncoding.Deflate, compression);
+		os.write("01234567890123456789".getBytes());
+		os.close();
+
+		assertThat(os.isCompressed(), is(true));
+		assertThat(resp.<String> header("Content-Encoding"), is("deflate"));
+		assertThat(read(new InflaterInputStream(new ByteArrayInputStream(target.toByteArray()))), is("01234567890123456789"));
+	}
+
+	@Test
+	public void shouldNotWriteAnythingOnFlushBeforeThresholdIsReached() throws IOException {
+		CompressingOutputStream os = new CompressingOutputStream(resp, target, ContentEncoding.Gzip, compression);
+		os.write("0123".getBytes());
+		os.flush();
+		assertThat(target.size(), is(0));
+	}
+
+	@Test
+	public void shouldWriteCompressedDataOnFlushOnceCompressing() throws IOException {
+		CompressingOutputStream os = new CompressingOutputStream(resp, target, ContentEncoding.Gzip, compression);
+		os.write("01234567890123456789".getBytes());
+		os.flush();
+		assertThat(target.size(), is(greaterThan(0)));
+	}
+
+	@Test
+	public void shouldNotCloseTarget() throws IOException {
+		CompressingOutputStream os = new CompressingOutputStream(resp, target, ContentEncoding.Gzip, compression);
+		os.write("0123".getBytes());
+		os.close();
+		os.close();
+		target.write('4');
+		assertThat(new String(target.toByteArray()), is("01234"));
+	}
+
+	@Test
+	public void shouldThrowIOExceptionWhenWritingAfterClose() throws IOException {
+		thrown.expect(IOException.class);
+		thrown.expectMessage("Stream closed");
+
+		CompressingOutputStream os = new CompressingOutputStream(resp, target, ContentEncoding.Gzip, compression);
+		os.close();
+		os.write('a');
+	}
+
+	private String read(InputStream is) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			os.write(buffer, 0, read);
+		}
+		return new String(os.toByteArray());
+	}
+}
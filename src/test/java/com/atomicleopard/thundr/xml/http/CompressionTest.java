@@ -0,0 +1,87 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.zip.Deflater;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+public class CompressionTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void shouldDefaultThresholdAndLevel() {
+		Compression compression = new Compression();
+		assertThat(compression.isEnabled(), is(true));
+		assertThat(compression.getThreshold(), is(Compression.DefaultThreshold));
+		assertThat(compression.getLevel(), is(Deflater.DEFAULT_COMPRESSION));
+	}
+
+	@Test
+	public void shouldNotBeEnabledForNone() {
+		assertThat(Compression.None.isEnabled(), is(false));
+		assertThat(Compression.None.threshold(10).isEnabled(), is(false));
+	}
+
+	@Test
+	public void shouldReturnNewInstancesWhenModified() {
+		Compression compression = new Compression();
+		Compression modified = compression.threshold(10).level(Deflater.BEST_SPEED);
+		assertThat(modified, is(not(sameInstance(compression))));
+		assertThat(modified.getThreshold(), is(10));
+		assertThat(modified.getLevel(), is(Deflater.BEST_SPEED));
+		assertThat(compression.getThreshold(), is(Compression.DefaultThreshold));
+		assertThat(compression.getLevel(), is(Deflater.DEFAULT_COMPRESSION));
+	}
+
+	@Test
+	public void shouldExceedThresholdOnlyWhenLarger() {
+		Compression compression = new Compression().threshold(10);
+		assertThat(compression.exceedsThreshold(9), is(false));
+		assertThat(compression.exceedsThreshold(10), is(false));
+		assertThat(compression.exceedsThreshold(11), is(true));
+	}
+
+	@Test
+	public void shouldTreatNegativeThresholdAsZero() {
+		assertThat(new Compression().threshold(-1).getThreshold(), is(0));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionForInvalidLevel() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Compression level must be between 1 and 9, or -1 for the default, but was 10");
+
+		new Compression().level(10);
+	}
+
+	@Test
+	public void shouldDescribeInToString() {
+		assertThat(new Compression().threshold(10).level(5).toString(), is("Compression[threshold=10, level=5]"));
+		assertThat(Compression.None.toString(), is("Compression[none]"));
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class ContentEncodingTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private byte[] data = "<?xml version=\"1.0\"?><root><value>compress me</value><value>compress me</value></root>".getBytes();
+
+	@Test
+	public void shouldHaveHeaderValues() {
+		assertThat(ContentEncoding.Gzip.value(), is("gzip"));
+		assertThat(ContentEncoding.Deflate.value(), is("deflate"));
+	}
+
+	@Test
+	public void shouldParseFromHeaderValues() {
+		assertThat(ContentEncoding.from("gzip"), is(ContentEncoding.Gzip));
+		assertThat(ContentEncoding.from(" GZIP "), is(ContentEncoding.Gzip));
+		assertThat(ContentEncoding.from("x-gzip"), is(ContentEncoding.Gzip));
+		assertThat(ContentEncoding.from("deflate"), is(ContentEncoding.Deflate));
+		assertThat(ContentEncoding.from("br"), is(nullValue()));
+		assertThat(ContentEncoding.from(null), is(nullValue()));
+	}
+
+	@Test
+	public void shouldCompressWithGzip() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		DeflaterOutputStream compressed = ContentEncoding.Gzip.compress(os, Deflater.BEST_COMPRESSION);
+		compressed.write(data);
+		compressed.finish();
+
+		assertThat(read(new GZIPInputStream(new ByteArrayInputStream(os.toByteArray()))), is(data));
+	}
+
+	@Test
+	public void shouldCompressWithDeflate() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		DeflaterOutputStream compressed = ContentEncoding.Deflate.compress(os, Deflater.BEST_SPEED);
+		compressed.write(data);
+		compressed.finish();
+
+		assertThat(read(new InflaterInputStream(new ByteArrayInputStream(os.toByteArray()))), is(data));
+	}
+
+	@Test
+	public void shouldFlushAllDataWrittenSoFar() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		DeflaterOutputStream compressed = ContentEncoding.Gzip.compress(os, Deflater.DEFAULT_COMPRESSION);
+		compressed.write(data);
+		compressed.flush();
+
+		InputStream is = new GZIPInputStream(new ByteArrayInputStream(os.toByteArray()));
+		byte[] read = new byte[data.length];
+		int offset = 0;
+		while (offset < read.length) {
+			offset += is.read(read, offset, read.length - offset);
+		}
+		assertThat(read, is(data));
+	}
+
+	@Test
+	public void shouldDecompressGzip() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(os)) {
+			gzip.write(data);
+		}
+
+		assertThat(read(ContentEncoding.Gzip.decompress(new ByteArrayInputStream(os.toByteArray()))), is(data));
+	}
+
+	@Test
+	public void shouldDecompressZlibDeflate() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try (DeflaterOutputStream deflate = new DeflaterOutputStream(os)) {
+			deflate.write(data);
+		}
+
+		assertThat(read(ContentEncoding.Deflate.decompress(new ByteArrayInputStream(os.toByteArray()))), is(data));
+	}
+
+	@Test
+	public void shouldDecompressRawDeflate() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try (DeflaterOutputStream deflate = new DeflaterOutputStream(os, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+			deflate.write(data);
+		}
+
+		assertThat(read(ContentEncoding.Deflate.decompress(new ByteArrayInputStream(os.toByteArray()))), is(data));
+	}
+
+	@Test
+	public void shouldThrowIOExceptionWhenDecompressingInvalidGzip() throws IOException {
+		thrown.expect(IOException.class);
+
+		ContentEncoding.Gzip.decompress(new ByteArrayInputStream(data));
+	}
+
+	private byte[] read(InputStream is) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			os.write(buffer, 0, read);
+		}
+		return os.toByteArray();
+	}
+}
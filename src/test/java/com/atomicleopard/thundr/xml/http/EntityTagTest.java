@@ -0,0 +1,87 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+
+public class EntityTagTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private MockHttpServletRequest req = new MockHttpServletRequest().method("GET");
+
+	@Test
+	public void shouldQuoteVersionAndIncludeEncoding() {
+		assertThat(EntityTag.of("v1", null), is("\"v1\""));
+		assertThat(EntityTag.of("v1", ContentEncoding.Gzip), is("\"v1-gzip\""));
+		assertThat(EntityTag.of("v1", ContentEncoding.Deflate), is("\"v1-deflate\""));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionForInvalidVersion() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Invalid entity tag version 'a\"b': it cannot contain quotes, whitespace or control characters");
+
+		EntityTag.of("a\"b", null);
+	}
+
+	@Test
+	public void shouldDigestContent() {
+		assertThat(EntityTag.digest("content".getBytes()), is("9a0364b9e99bb480dd25e1f0284c8555"));
+		assertThat(EntityTag.digest(new byte[0]), is("d41d8cd98f00b204e9800998ecf8427e"));
+	}
+
+	@Test
+	public void shouldMatchIfNoneMatch() {
+		assertThat(EntityTag.matches(req, "\"v1\""), is(false));
+
+		req.header("If-None-Match", "\"v0\", \"v1\"");
+		assertThat(EntityTag.matches(req, "\"v1\""), is(true));
+		assertThat(EntityTag.matches(req, "\"v2\""), is(false));
+	}
+
+	@Test
+	public void shouldMatchAcrossMultipleHeaders() {
+		req.header("If-None-Match", "\"v0\"").header("If-None-Match", "\"v1\"");
+		assertThat(EntityTag.matches(req, "\"v1\""), is(true));
+	}
+
+	@Test
+	public void shouldMatchWeakTagsAndWildcard() {
+		req.header("If-None-Match", "W/\"v1\"");
+		assertThat(EntityTag.matches(req, "\"v1\""), is(true));
+
+		MockHttpServletRequest wildcard = new MockHttpServletRequest().method("HEAD").header("If-None-Match", "*");
+		assertThat(EntityTag.matches(wildcard, "\"v1\""), is(true));
+	}
+
+	@Test
+	public void shouldNotMatchForMethodsOtherThanGetOrHead() {
+		MockHttpServletRequest post = new MockHttpServletRequest().method("POST").header("If-None-Match", "\"v1\"");
+		assertThat(EntityTag.matches(post, "\"v1\""), is(false));
+	}
+}
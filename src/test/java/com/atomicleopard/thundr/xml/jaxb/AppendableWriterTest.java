@@ -0,0 +1,70 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.CharBuffer;
+
+import org.junit.Test;
+
+public class AppendableWriterTest {
+
+	@Test
+	public void shouldAppendToStringBuilder() throws IOException {
+		StringBuilder builder = new StringBuilder("start:");
+		AppendableWriter writer = new AppendableWriter(builder);
+		writer.write('a');
+		writer.write("xbcx".toCharArray(), 1, 2);
+		writer.write("xdex", 1, 2);
+		writer.append("fg").append("xhx", 1, 2);
+		writer.close();
+
+		assertThat(builder.toString(), is("start:abcdefgh"));
+		assertThat(writer.toString(), is("start:abcdefgh"));
+		assertThat(writer.getTarget(), is((Appendable) builder));
+	}
+
+	@Test
+	public void shouldAppendToOtherAppendables() throws IOException {
+		CharBuffer buffer = CharBuffer.allocate(16);
+		AppendableWriter writer = new AppendableWriter(buffer);
+		writer.write('a');
+		writer.write("xbcx".toCharArray(), 1, 2);
+		writer.write("xdex", 1, 2);
+
+		buffer.flip();
+		assertThat(buffer.toString(), is("abcde"));
+	}
+
+	@Test
+	public void shouldFlushFlushableTarget() throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		PrintStream ps = new PrintStream(baos, false, "UTF-8");
+		AppendableWriter writer = new AppendableWriter(ps);
+		writer.write("abc");
+		writer.flush();
+
+		assertThat(new String(baos.toByteArray(), "UTF-8"), is("abc"));
+	}
+}
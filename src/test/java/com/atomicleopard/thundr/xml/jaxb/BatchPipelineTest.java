@@ -0,0 +1,232 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static com.atomicleopard.expressive.Expressive.list;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+public class BatchPipelineTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private ExecutorService executor = Executors.newFixedThreadPool(4);
+	private Batch<Integer, List<Integer>> gather = new GatherBatch<Integer>();
+	private Combiner<List<Integer>> concat = new Combiner<List<Integer>>() {
+		@Override
+		public List<Integer> combine(List<Integer> left, List<Integer> right) {
+			left.addAll(right);
+			return left;
+		}
+	};
+
+	private Combiner<Integer> sum = new Combiner<Integer>() {
+		@Override
+		public Integer combine(Integer left, Integer right) {
+			return left + right;
+		}
+	};
+
+	@After
+	public void after() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldCombineResultsInSubmissionOrderWhenOrdered() {
+		Batch<Integer, List<Integer>> slowFirst = new Batch<Integer, List<Integer>>() {
+			@Override
+			public List<Integer> process(List<Integer> result, List<Integer> batch) {
+				sleep(batch.get(0) == 1 ? 50 : 0);
+				return gather.process(result, batch);
+			}
+		};
+		BatchPipeline<Integer, List<Integer>> pipeline = new BatchPipeline<>(slowFirst, concat, executor, 4, true);
+		pipeline.submit(list(1, 2));
+		pipeline.submit(list(3, 4));
+		pipeline.submit(list(5));
+
+		assertThat(pipeline.finish(), is((List<Integer>) list(1, 2, 3, 4, 5)));
+	}
+
+	@Test
+	public void shouldSaveCheckpointAsEachBatchIsCombinedInOrder() {
+		final List<Checkpoint> saved = new ArrayList<>();
+		CheckpointStore store = new CheckpointStore() {
+			@Override
+			public Checkpoint load(String key) {
+				return null;
+			}
+
+			@Override
+			public void save(String key, Checkpoint checkpoint) {
+				saved.add(checkpoint);
+			}
+
+			@Override
+			public void clear(String key) {
+			}
+		};
+		Batch<Integer, List<Integer>> slowFirst = new Batch<Integer, List<Integer>>() {
+			@Override
+			public List<Integer> process(List<Integer> result, List<Integer> batch) {
+				sleep(batch.get(0) == 1 ? 50 : 0);
+				return gather.process(result, batch);
+			}
+		};
+		BatchPipeline<Integer, List<Integer>> pipeline = new BatchPipeline<>(slowFirst, concat, executor, 4, true, new Checkpointer(store, "key", 10));
+		pipeline.submit(list(1, 2));
+		pipeline.submit(list(3, 4, 5));
+		pipeline.submit(list(6));
+		pipeline.finish();
+
+		assertThat(saved, is((List<Checkpoint>) list(new Checkpoint(12, -1), new Checkpoint(15, -1), new Checkpoint(16, -1))));
+	}
+
+	@Test
+	public void shouldCombineAllResultsWhenUnordered() {
+		BatchPipeline<Integer, List<Integer>> pipeline = new BatchPipeline<>(gather, concat, executor, 2, false);
+		for (int i = 0; i < 10; i++) {
+			pipeline.submit(list(i));
+		}
+
+		assertThat(pipeline.finish(), containsInAnyOrder(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+	}
+
+	@Test
+	public void shouldProcessEachBatchWithNullResult() {
+		final List<Integer> results = new ArrayList<>();
+		Batch<Integer, Integer> batch = new Batch<Integer, Integer>() {
+			@Override
+			public Integer process(Integer result, List<Integer> batch) {
+				synchronized (results) {
+					results.add(result);
+				}
+				return batch.size();
+			}
+		};
+		BatchPipeline<Integer, Integer> pipeline = new BatchPipeline<>(batch, sum, executor, 2, true);
+		pipeline.submit(list(1, 2));
+		pipeline.submit(list(3));
+
+		assertThat(pipeline.finish(), is(3));
+		assertThat(results, is((List<Integer>) list((Integer) null, null)));
+	}
+
+	@Test
+	public void shouldReturnNullWhenNoBatchesSubmitted() {
+		BatchPipeline<Integer, List<Integer>> pipeline = new BatchPipeline<>(gather, concat, executor, 2, true);
+		assertThat(pipeline.finish(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldLimitPendingBatches() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger started = new AtomicInteger();
+		Batch<Integer, Integer> blocking = new Batch<Integer, Integer>() {
+			@Override
+			public Integer process(Integer result, List<Integer> batch) {
+				started.incrementAndGet();
+				await(release);
+				return 1;
+			}
+		};
+		final BatchPipeline<Integer, Integer> pipeline = new BatchPipeline<>(blocking, sum, executor, 2, true);
+		pipeline.submit(list(1));
+		pipeline.submit(list(2));
+
+		final CountDownLatch submitted = new CountDownLatch(1);
+		new Thread() {
+			@Override
+			public void run() {
+				pipeline.submit(list(3));
+				submitted.countDown();
+			}
+		}.start();
+
+		assertThat(submitted.await(100, TimeUnit.MILLISECONDS), is(false));
+		assertThat(started.get(), is(2));
+		release.countDown();
+		assertThat(submitted.await(1, TimeUnit.SECONDS), is(true));
+	}
+
+	@Test
+	public void shouldFailFastWhenBatchFails() {
+		thrown.expect(IllegalStateException.class);
+		thrown.expectMessage("expected");
+
+		Batch<Integer, Integer> failing = new Batch<Integer, Integer>() {
+			@Override
+			public Integer process(Integer result, List<Integer> batch) {
+				throw new IllegalStateException("expected");
+			}
+		};
+		BatchPipeline<Integer, Integer> pipeline = new BatchPipeline<>(failing, sum, executor, 2, true);
+		pipeline.submit(list(1));
+		sleep(50);
+		pipeline.submit(list(2));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenExecutorRejectsBatch() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to process batch, the executor rejected it: rejected");
+
+		Executor rejecting = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("rejected");
+			}
+		};
+		new BatchPipeline<>(gather, concat, rejecting, 2, true).submit(list(1));
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+public class CachedStaxFactoryProviderTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private CachedStaxFactoryProvider provider = new CachedStaxFactoryProvider();
+
+	@Test
+	public void shouldReturnSameFactoriesForEachCall() {
+		assertThat(provider.inputFactory(true), is(sameInstance(provider.inputFactory(true))));
+		assertThat(provider.inputFactory(false), is(sameInstance(provider.inputFactory(false))));
+		assertThat(provider.outputFactory(), is(sameInstance(provider.outputFactory())));
+	}
+
+	@Test
+	public void shouldReturnDistinctFactoriesForValidatingAndNonValidatingReads() {
+		assertThat(provider.inputFactory(true), is(not(sameInstance(provider.inputFactory(false)))));
+	}
+
+	@Test
+	public void shouldDisableDtdSupportAndValidationForNonValidatingReads() {
+		XMLInputFactory inputFactory = provider.inputFactory(false);
+		assertThat(inputFactory.getProperty(XMLInputFactory.SUPPORT_DTD), is((Object) false));
+		assertThat(inputFactory.getProperty(XMLInputFactory.IS_VALIDATING), is((Object) false));
+	}
+
+	@Test
+	public void shouldUseGivenImplementationClasses() {
+		XMLInputFactory platformInputFactory = XMLInputFactory.newInstance();
+		XMLOutputFactory platformOutputFactory = XMLOutputFactory.newFactory();
+		provider = new CachedStaxFactoryProvider(platformInputFactory.getClass().getName(), platformOutputFactory.getClass().getName());
+
+		assertThat(provider.inputFactory(false), instanceOf(platformInputFactory.getClass()));
+		assertThat(provider.outputFactory(), instanceOf(platformOutputFactory.getClass()));
+	}
+
+	@Test
+	public void shouldFallBackToPlatformImplementationWhenDetectingWithoutKnownImplementations() {
+		provider = CachedStaxFactoryProvider.detect();
+
+		assertThat(provider.inputFactory(false), instanceOf(XMLInputFactory.newInstance().getClass()));
+		assertThat(provider.outputFactory(), instanceOf(XMLOutputFactory.newFactory().getClass()));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenImplementationCannotBeCreated() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to create XMLInputFactory com.example.Missing");
+
+		new CachedStaxFactoryProvider("com.example.Missing", null);
+	}
+
+	@Test
+	public void shouldCreateFactoriesOnFirstUseSoSubclassesAreFullyConstructed() {
+		final XMLInputFactory custom = XMLInputFactory.newInstance();
+		provider = new CachedStaxFactoryProvider() {
+			private XMLInputFactory configured = custom;
+
+			@Override
+			protected XMLInputFactory newXmlInputFactory(boolean validate) {
+				return configured;
+			}
+		};
+
+		assertThat(provider.inputFactory(false), is(sameInstance(custom)));
+		assertThat(provider.inputFactory(true), is(sameInstance(custom)));
+	}
+}
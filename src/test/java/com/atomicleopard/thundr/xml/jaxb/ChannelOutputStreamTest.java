@@ -0,0 +1,177 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static com.atomicleopard.expressive.Expressive.list;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+public class ChannelOutputStreamTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private ByteArrayOutputStream baos = new ByteArrayOutputStream();
+	private RecordingChannel channel = new RecordingChannel(Channels.newChannel(baos));
+
+	@Test
+	public void shouldBufferWritesUntilBufferIsFull() throws IOException {
+		ChannelOutputStream os = new ChannelOutputStream(channel, 4, false);
+		os.write('0');
+		os.write("12".getBytes());
+		assertThat(baos.size(), is(0));
+
+		os.write("3456789".getBytes());
+		assertThat(new String(baos.toByteArray()), is("01234567"));
+		assertThat(channel.writes, is((List<Integer>) list(4, 4)));
+
+		os.close();
+		assertThat(new String(baos.toByteArray()), is("0123456789"));
+		assertThat(channel.writes, is((List<Integer>) list(4, 4, 2)));
+	}
+
+	@Test
+	public void shouldWriteBufferedOutputOnFlush() throws IOException {
+		ChannelOutputStream os = new ChannelOutputStream(channel, 16, false);
+		os.write("012".getBytes());
+		os.flush();
+		assertThat(new String(baos.toByteArray()), is("012"));
+	}
+
+	@Test
+	public void shouldNotCloseChannel() throws IOException {
+		ChannelOutputStream os = new ChannelOutputStream(channel);
+		os.close();
+		os.close();
+		assertThat(channel.isOpen(), is(true));
+	}
+
+	@Test
+	public void shouldThrowIOExceptionWhenWritingAfterClose() throws IOException {
+		thrown.expect(IOException.class);
+		thrown.expectMessage("Stream closed");
+
+		ChannelOutputStream os = new ChannelOutputStream(channel);
+		os.close();
+		os.write('a');
+	}
+
+	@Test
+	public void shouldReuseDirectBufferOfClosedStream() throws IOException {
+		ChannelOutputStream first = new ChannelOutputStream(channel);
+		ByteBuffer buffer = first.buffer();
+		first.write("abc".getBytes());
+		first.close();
+
+		ChannelOutputStream second = new ChannelOutputStream(channel);
+		assertThat(second.buffer(), is(sameInstance(buffer)));
+		assertThat(second.buffer().position(), is(0));
+		second.write("def".getBytes());
+		second.close();
+		assertThat(new String(baos.toByteArray()), is("abcdef"));
+	}
+
+	@Test
+	public void shouldNotShareDirectBufferBetweenOpenStreams() throws IOException {
+		ChannelOutputStream first = new ChannelOutputStream(channel);
+		ChannelOutputStream second = new ChannelOutputStream(channel);
+		assertThat(second.buffer(), is(not(sameInstance(first.buffer()))));
+		first.close();
+		second.close();
+	}
+
+	@Test
+	public void shouldNotRetainBuffersOfOtherSizes() throws IOException {
+		ChannelOutputStream first = new ChannelOutputStream(channel, 1024, false);
+		ByteBuffer buffer = first.buffer();
+		first.close();
+
+		ChannelOutputStream second = new ChannelOutputStream(channel, 1024, false);
+		assertThat(second.buffer(), is(not(sameInstance(buffer))));
+		assertThat(second.buffer().capacity(), is(1024));
+		second.close();
+	}
+
+	@Test
+	public void shouldRetainAtMostMaxRetainedBuffers() throws IOException {
+		List<ChannelOutputStream> streams = new ArrayList<>();
+		for (int i = 0; i < ChannelOutputStream.MaxRetainedBuffers + 2; i++) {
+			streams.add(new ChannelOutputStream(channel));
+		}
+		for (ChannelOutputStream stream : streams) {
+			stream.close();
+		}
+		assertThat(ChannelOutputStream.retainedBuffers(), is(ChannelOutputStream.MaxRetainedBuffers));
+	}
+
+	@Test
+	public void shouldRejectNonBlockingChannels() throws IOException {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("non-blocking mode");
+
+		Pipe pipe = Pipe.open();
+		try {
+			pipe.sink().configureBlocking(false);
+			new ChannelOutputStream(pipe.sink());
+		} finally {
+			pipe.sink().close();
+			pipe.source().close();
+		}
+	}
+
+	private static class RecordingChannel implements WritableByteChannel {
+		private WritableByteChannel delegate;
+		private List<Integer> writes = new ArrayList<>();
+
+		private RecordingChannel(WritableByteChannel delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			int written = delegate.write(src);
+			writes.add(written);
+			return written;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return delegate.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			delegate.close();
+		}
+	}
+}
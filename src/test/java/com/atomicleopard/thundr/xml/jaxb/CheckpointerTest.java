@@ -0,0 +1,187 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CheckpointerTest {
+	private XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+	private RecordingStore store = new RecordingStore();
+	private Path path;
+
+	@Before
+	public void before() throws IOException {
+		path = Files.createTempFile("checkpointer", ".xml");
+	}
+
+	@After
+	public void after() throws IOException {
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void shouldSaveIndexWithoutOffsetWhenNotScanning() {
+		Checkpointer checkpointer = new Checkpointer(store, "key", 10);
+		checkpointer.processed(5);
+		checkpointer.processed(3);
+		assertThat(store.saved, is(list(new Checkpoint(15, -1), new Checkpoint(18, -1))));
+		assertThat(checkpointer.getIndex(), is(18L));
+	}
+
+	@Test
+	public void shouldSaveOffsetOfNextElement() throws Exception {
+		String xml = "<?xml version=\"1.0\"?>\n<feed><header><title>t</title></header><items>\n" + items(10) + "</items></feed>";
+		write(xml);
+		Checkpointer checkpointer = checkpointer("/feed/items/item", 0, 0);
+		checkpointer.processed(2);
+		checkpointer.processed(2);
+		checkpointer.processed(5);
+		checkpointer.processed(1);
+		assertThat(store.saved, is(list(new Checkpoint(2, offset(xml, 2)), new Checkpoint(4, offset(xml, 4)), new Checkpoint(9, offset(xml, 9)), new Checkpoint(10, -1))));
+	}
+
+	@Test
+	public void shouldSaveOffsetsWhenScanningFromAnElement() throws Exception {
+		String xml = "<root>" + items(2000) + "</root>";
+		write(xml);
+		Checkpointer checkpointer = checkpointer("item", offset(xml, 1000), 1000);
+		checkpointer.processed(200);
+		checkpointer.processed(700);
+		assertThat(store.saved, is(list(new Checkpoint(1200, offset(xml, 1200)), new Checkpoint(1900, offset(xml, 1900)))));
+	}
+
+	@Test
+	public void shouldSaveUnknownOffsetWhenDocumentContainsComments() throws Exception {
+		String xml = "<root>" + items(4) + "<!-- <item> -->" + items(4) + "</root>";
+		write(xml);
+		Checkpointer checkpointer = checkpointer("item", 0, 0);
+		checkpointer.processed(2);
+		assertThat(store.saved, is(list(new Checkpoint(2, -1))));
+	}
+
+	@Test
+	public void shouldSaveUnknownOffsetWhenRepeatedElementsHaveDifferentNames() throws Exception {
+		String xml = "<root>" + items(4) + "<other/>" + items(4) + "</root>";
+		write(xml);
+		Checkpointer checkpointer = checkpointer("*", 0, 0);
+		checkpointer.processed(2);
+		assertThat(store.saved, is(list(new Checkpoint(2, -1))));
+	}
+
+	@Test
+	public void shouldSaveUnknownOffsetWhenRepeatedElementsAreNested() throws Exception {
+		String xml = "<root>" + items(4) + "<item><item/></item></root>";
+		write(xml);
+		Checkpointer checkpointer = checkpointer("item", 0, 0);
+		checkpointer.processed(2);
+		assertThat(store.saved, is(list(new Checkpoint(2, -1))));
+	}
+
+	@Test
+	public void shouldSaveUnknownOffsetWhenNamedElementsAppearInAnotherEnclosingElement() throws Exception {
+		String xml = "<feed><header><item>not repeated</item></header><items>" + items(4) + "</items></feed>";
+		write(xml);
+		Checkpointer checkpointer = checkpointer("/feed/items/item", 0, 0);
+		checkpointer.processed(2);
+		assertThat(store.saved, is(list(new Checkpoint(2, -1))));
+	}
+
+	@Test
+	public void shouldIgnoreElementsFollowingTheEnclosingElement() throws Exception {
+		String xml = "<feed><items>" + items(4) + "</items><footer><note/></footer></feed>";
+		write(xml);
+		Checkpointer checkpointer = checkpointer("/feed/items/item", 0, 0);
+		checkpointer.processed(2);
+		assertThat(store.saved, is(list(new Checkpoint(2, offset(xml, 2)))));
+	}
+
+	@Test
+	public void shouldClearCheckpointWhenFinished() throws Exception {
+		write("<root>" + items(4) + "</root>");
+		Checkpointer checkpointer = checkpointer("item", 0, 0);
+		checkpointer.processed(4);
+		checkpointer.finished();
+		assertThat(store.checkpoints.containsKey("key"), is(false));
+	}
+
+	private Checkpointer checkpointer(String elementPath, long offset, long index) throws Exception {
+		FileSegments.Head head = new FileSegments(path, inputFactory, ElementPath.parse(elementPath)).head();
+		return new Checkpointer(store, "key", index).scan(path, head, offset);
+	}
+
+	private String items(int count) {
+		StringBuilder items = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			items.append("<item id=\"").append(i).append("\"><name>").append(i).append("</name></item>\n");
+		}
+		return items.toString();
+	}
+
+	private long offset(String xml, int id) {
+		return xml.indexOf("<item id=\"" + id + "\">");
+	}
+
+	private void write(String xml) throws IOException {
+		Files.write(path, xml.getBytes("UTF-8"));
+	}
+
+	private List<Checkpoint> list(Checkpoint... checkpoints) {
+		List<Checkpoint> list = new ArrayList<>();
+		for (Checkpoint checkpoint : checkpoints) {
+			list.add(checkpoint);
+		}
+		return list;
+	}
+
+	private static class RecordingStore implements CheckpointStore {
+		private Map<String, Checkpoint> checkpoints = new HashMap<>();
+		private List<Checkpoint> saved = new ArrayList<>();
+
+		@Override
+		public Checkpoint load(String key) {
+			return checkpoints.get(key);
+		}
+
+		@Override
+		public void save(String key, Checkpoint checkpoint) {
+			checkpoints.put(key, checkpoint);
+			saved.add(checkpoint);
+		}
+
+		@Override
+		public void clear(String key) {
+			checkpoints.remove(key);
+		}
+	}
+}
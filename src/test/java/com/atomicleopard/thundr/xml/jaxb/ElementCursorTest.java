@@ -0,0 +1,150 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static com.atomicleopard.expressive.Expressive.list;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.Test;
+
+import jodd.util.StringPool;
+
+public class ElementCursorTest {
+	private XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+	private XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+	@Test
+	public void shouldVisitEachChildOfRootIgnoringWhitespaceAndComments() throws Exception {
+		String xml = "<?xml version=\"1.0\"?>\n<!-- header -->\n<root>\n  <a>1</a>\n  <!-- between -->\n  <b><c>2</c></b>\n  <?pi data?>\n  <d/>\n</root>\n";
+		assertThat(capture(xml), is((List<String>) list("<a>1</a>", "<b><c>2</c></b>", "<d></d>")));
+	}
+
+	@Test
+	public void shouldVisitNothingForEmptyRoot() throws Exception {
+		assertThat(capture("<root/>").isEmpty(), is(true));
+		assertThat(capture("<root>  </root>").isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldRemainFinishedOnceRootHasEnded() throws Exception {
+		XMLStreamReader xmlr = reader("<root><a/></root>");
+		ElementCursor cursor = new ElementCursor(xmlr);
+		assertThat(cursor.next(), is(true));
+		cursor.capture(outputFactory);
+		assertThat(cursor.next(), is(false));
+		assertThat(cursor.next(), is(false));
+	}
+
+	@Test
+	public void shouldRedeclareInheritedNamespacesWhenCapturing() throws Exception {
+		String xml = "<root xmlns=\"urn:default\" xmlns:x=\"urn:x\"><x:a x:attr=\"1\" plain=\"2\"><b>text</b></x:a></root>";
+		List<String> captured = capture(xml);
+		assertThat(captured.size(), is(1));
+
+		XMLStreamReader fragment = reader(captured.get(0));
+		fragment.nextTag();
+		assertThat(fragment.getNamespaceURI(), is("urn:x"));
+		assertThat(fragment.getLocalName(), is("a"));
+		assertThat(fragment.getAttributeValue("urn:x", "attr"), is("1"));
+		assertThat(fragment.getAttributeValue(null, "plain"), is("2"));
+		fragment.nextTag();
+		assertThat(fragment.getNamespaceURI(), is("urn:default"));
+		assertThat(fragment.getLocalName(), is("b"));
+		assertThat(fragment.getElementText(), is("text"));
+	}
+
+	@Test
+	public void shouldPreferNamespacesDeclaredOnTheCapturedElement() throws Exception {
+		String xml = "<root xmlns:x=\"urn:outer\"><a xmlns:x=\"urn:inner\"><x:b/></a></root>";
+		XMLStreamReader fragment = reader(capture(xml).get(0));
+		fragment.nextTag();
+		fragment.nextTag();
+		assertThat(fragment.getNamespaceURI(), is("urn:inner"));
+	}
+
+	@Test
+	public void shouldRetainCdataAndEscapedText() throws Exception {
+		String xml = "<root><a><![CDATA[<not markup>]]> &amp; more</a></root>";
+		XMLStreamReader fragment = reader(capture(xml).get(0));
+		fragment.nextTag();
+		assertThat(fragment.getElementText(), is("<not markup> & more"));
+	}
+
+	@Test
+	public void shouldVisitOnlyElementsMatchingPath() throws Exception {
+		String xml = "<feed><header><item>ignored</item></header><items><item>1</item><other/><item>2</item></items><items><item>3</item></items></feed>";
+		assertThat(capture(xml, "/feed/items/item"), is((List<String>) list("<item>1</item>", "<item>2</item>", "<item>3</item>")));
+		assertThat(capture(xml, "item"), is((List<String>) list("<item>ignored</item>", "<item>1</item>", "<item>2</item>", "<item>3</item>")));
+		assertThat(capture(xml, "header/item"), is((List<String>) list("<item>ignored</item>")));
+		assertThat(capture(xml, "/other/items/item").isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldNotDescendIntoMatchedElements() throws Exception {
+		String xml = "<root><item><item>nested</item></item></root>";
+		assertThat(capture(xml, "item"), is((List<String>) list("<item><item>nested</item></item>")));
+	}
+
+	@Test
+	public void shouldSkipElements() throws Exception {
+		XMLStreamReader xmlr = reader("<root><a><b/><c>text</c></a><d/></root>");
+		ElementCursor cursor = new ElementCursor(xmlr);
+		assertThat(cursor.next(), is(true));
+		cursor.skip();
+		assertThat(cursor.next(), is(true));
+		assertThat(xmlr.getLocalName(), is("d"));
+	}
+
+	@Test
+	public void shouldRedeclareNamespacesFromAllEnclosingElements() throws Exception {
+		String xml = "<feed xmlns:a=\"urn:a\"><items xmlns:b=\"urn:b\"><a:item><b:value/></a:item></items></feed>";
+		XMLStreamReader fragment = reader(capture(xml, "/feed/items/*").get(0));
+		fragment.nextTag();
+		assertThat(fragment.getNamespaceURI(), is("urn:a"));
+		fragment.nextTag();
+		assertThat(fragment.getNamespaceURI(), is("urn:b"));
+	}
+
+	private List<String> capture(String xml) throws Exception {
+		return capture(xml, "/*/*");
+	}
+
+	private List<String> capture(String xml, String path) throws Exception {
+		ElementCursor cursor = new ElementCursor(reader(xml), ElementPath.parse(path));
+		List<String> captured = new ArrayList<>();
+		while (cursor.next()) {
+			captured.add(new String(cursor.capture(outputFactory), StringPool.UTF_8));
+		}
+		return captured;
+	}
+
+	private XMLStreamReader reader(String xml) throws XMLStreamException {
+		return inputFactory.createXMLStreamReader(new ByteArrayInputStream(xml.getBytes()));
+	}
+}
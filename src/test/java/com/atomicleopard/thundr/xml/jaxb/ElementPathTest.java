@@ -0,0 +1,180 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static com.atomicleopard.expressive.Expressive.list;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+public class ElementPathTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private QName feed = new QName("feed");
+	private QName items = new QName("items");
+	private QName item = new QName("item");
+	private QName nsItem = new QName("urn:items", "item");
+
+	@Test
+	public void shouldMatchAbsolutePathExactly() {
+		ElementPath path = ElementPath.parse("/feed/items/item");
+		assertThat(path.matches(innermostFirst(items, feed), 2, item), is(true));
+		assertThat(path.matches(innermostFirst(items, feed), 2, nsItem), is(true));
+		assertThat(path.matches(innermostFirst(feed, feed), 2, item), is(false));
+		assertThat(path.matches(innermostFirst(feed), 1, item), is(false));
+		assertThat(path.matches(innermostFirst(items, items, feed), 3, item), is(false));
+	}
+
+	@Test
+	public void shouldMatchRelativePathAtAnyDepth() {
+		ElementPath path = ElementPath.parse("items/item");
+		assertThat(path.matches(innermostFirst(items, feed), 2, item), is(true));
+		assertThat(path.matches(innermostFirst(items, feed, feed), 3, item), is(true));
+		assertThat(path.matches(innermostFirst(items), 1, item), is(true));
+		assertThat(path.matches(innermostFirst(feed), 1, item), is(false));
+		assertThat(path.matches(innermostFirst(), 0, item), is(false));
+
+		path = ElementPath.parse("item");
+		assertThat(path.matches(innermostFirst(), 0, item), is(true));
+		assertThat(path.matches(innermostFirst(feed, items, feed), 3, item), is(true));
+		assertThat(path.matches(innermostFirst(feed), 1, items), is(false));
+	}
+
+	@Test
+	public void shouldMatchWildcards() {
+		ElementPath path = ElementPath.parse("/*/*");
+		assertThat(path.matches(innermostFirst(feed), 1, item), is(true));
+		assertThat(path.matches(innermostFirst(items), 1, nsItem), is(true));
+		assertThat(path.matches(innermostFirst(), 0, feed), is(false));
+		assertThat(path.matches(innermostFirst(items, feed), 2, item), is(false));
+	}
+
+	@Test
+	public void shouldMatchNamespacesWhenSpecified() {
+		ElementPath path = ElementPath.parse("/feed/{urn:items}item");
+		assertThat(path.matches(innermostFirst(feed), 1, nsItem), is(true));
+		assertThat(path.matches(innermostFirst(feed), 1, item), is(false));
+
+		path = ElementPath.parse("/feed/{}item");
+		assertThat(path.matches(innermostFirst(feed), 1, item), is(true));
+		assertThat(path.matches(innermostFirst(feed), 1, nsItem), is(false));
+	}
+
+	@Test
+	public void shouldAllowSlashesInNamespaces() {
+		ElementPath path = ElementPath.parse("/feed/{http://example.com/items}item");
+		assertThat(path.matches(innermostFirst(feed), 1, new QName("http://example.com/items", "item")), is(true));
+		assertThat(path.toString(), is("/feed/{http://example.com/items}item"));
+	}
+
+	@Test
+	public void shouldMatchQNameExactlyAtAnyDepth() {
+		ElementPath path = ElementPath.of(nsItem);
+		assertThat(path.matches(innermostFirst(items, feed), 2, nsItem), is(true));
+		assertThat(path.matches(innermostFirst(items, feed), 2, item), is(false));
+	}
+
+	@Test
+	public void shouldOnlyDescendWhereAbsolutePathCouldMatch() {
+		ElementPath path = ElementPath.parse("/feed/items/item");
+		assertThat(path.mayMatchBelow(0, feed), is(true));
+		assertThat(path.mayMatchBelow(0, items), is(false));
+		assertThat(path.mayMatchBelow(1, items), is(true));
+		assertThat(path.mayMatchBelow(1, new QName("header")), is(false));
+		assertThat(path.mayMatchBelow(2, items), is(false));
+
+		path = ElementPath.parse("item");
+		assertThat(path.mayMatchBelow(0, feed), is(true));
+		assertThat(path.mayMatchBelow(10, feed), is(true));
+	}
+
+	@Test
+	public void shouldMatchSingleNameRegardlessOfAncestors() {
+		assertThat(ElementPath.name("item").matchesName(nsItem), is(true));
+		assertThat(ElementPath.name("{urn:items}item").matchesName(item), is(false));
+		assertThat(ElementPath.name("*").matchesName(feed), is(true));
+	}
+
+	@Test
+	public void shouldOverlapNamesWhichCouldMatchTheSameElement() {
+		assertThat(ElementPath.name("item").overlapsName(ElementPath.name("item")), is(true));
+		assertThat(ElementPath.name("item").overlapsName(ElementPath.name("{urn:items}item")), is(true));
+		assertThat(ElementPath.name("{urn:items}item").overlapsName(ElementPath.name("item")), is(true));
+		assertThat(ElementPath.name("*").overlapsName(ElementPath.name("{urn:items}item")), is(true));
+		assertThat(ElementPath.name("{urn:items}*").overlapsName(ElementPath.name("item")), is(true));
+		assertThat(ElementPath.name("{}item").overlapsName(ElementPath.name("item")), is(true));
+	}
+
+	@Test
+	public void shouldNotOverlapNamesWhichCannotMatchTheSameElement() {
+		assertThat(ElementPath.name("item").overlapsName(ElementPath.name("feed")), is(false));
+		assertThat(ElementPath.name("item").overlapsName(ElementPath.name("Item")), is(false));
+		assertThat(ElementPath.name("{urn:a}item").overlapsName(ElementPath.name("{urn:b}item")), is(false));
+		assertThat(ElementPath.name("{urn:a}*").overlapsName(ElementPath.name("{urn:b}item")), is(false));
+		assertThat(ElementPath.name("{}item").overlapsName(ElementPath.name("{urn:a}item")), is(false));
+	}
+
+	@Test
+	public void shouldRejectPathsAsNames() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Invalid element name '/item'");
+		ElementPath.name("/item");
+	}
+
+	@Test
+	public void shouldRejectEmptySegments() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Invalid element path '/feed//item'");
+		ElementPath.parse("/feed//item");
+	}
+
+	@Test
+	public void shouldRejectPrefixedNames() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Invalid element path '/feed/x:item'");
+		ElementPath.parse("/feed/x:item");
+	}
+
+	@Test
+	public void shouldRejectUnterminatedNamespace() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("unterminated namespace");
+		ElementPath.parse("/feed/{urn:items");
+	}
+
+	@Test
+	public void shouldRejectNullPath() {
+		thrown.expect(XmlException.class);
+		ElementPath.parse(null);
+	}
+
+	private List<QName> innermostFirst(QName... names) {
+		return list(names);
+	}
+}
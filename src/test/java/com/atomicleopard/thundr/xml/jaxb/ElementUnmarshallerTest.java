@@ -0,0 +1,100 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+
+import org.junit.Test;
+
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+
+import jodd.util.StringPool;
+
+public class ElementUnmarshallerTest {
+	private JaxbPool pool = new JaxbPool();
+	private JAXBContext context = new JaxbContextRegistry().get(XmlPojo.class);
+	private XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+	private DeadLetter position = new DeadLetter(3, new QName("xmlPojo"), 2, 1, 40, null, null);
+
+	@Test
+	public void shouldUnmarshalFragmentIgnoringUnexpectedContent() throws Exception {
+		ElementUnmarshaller<XmlPojo> unmarshaller = new ElementUnmarshaller<>(pool, context, inputFactory, XmlPojo.class);
+		byte[] fragment = "<xmlPojo other=\"x\"><unknown>u</unknown><amount>1.5</amount><id>id1</id></xmlPojo>".getBytes(StringPool.UTF_8);
+
+		assertThat(unmarshaller.unmarshal(fragment, position), is(true));
+		assertThat(unmarshaller.getValue().getId(), is("id1"));
+		assertThat(unmarshaller.getValue().getAmount(), is(new BigDecimal("1.5")));
+	}
+
+	@Test
+	public void shouldRejectFragmentWithValueWhichCannotBeConverted() throws Exception {
+		ElementUnmarshaller<XmlPojo> unmarshaller = new ElementUnmarshaller<>(pool, context, inputFactory, XmlPojo.class);
+		byte[] fragment = "<xmlPojo><amount>lots</amount><id>id1</id></xmlPojo>".getBytes(StringPool.UTF_8);
+
+		assertThat(unmarshaller.unmarshal(fragment, position), is(false));
+		DeadLetter rejected = unmarshaller.getRejected();
+		assertThat(rejected.getIndex(), is(3L));
+		assertThat(rejected.getName(), is(new QName("xmlPojo")));
+		assertThat(rejected.getLine(), is(2));
+		assertThat(rejected.getFragment(), is(fragment));
+		assertThat(rejected.getCause(), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldResyncReaderAfterRejectingElement() throws Exception {
+		ElementUnmarshaller<XmlPojo> unmarshaller = new ElementUnmarshaller<>(pool, context, inputFactory, XmlPojo.class);
+		ResyncingStreamReader xmlr = new ResyncingStreamReader(
+				inputFactory.createXMLStreamReader(new StringReader("<Root><xmlPojo><amount>lots</amount><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></Root>")));
+		xmlr.nextTag();
+		xmlr.nextTag();
+
+		assertThat(unmarshaller.unmarshal(xmlr, position), is(false));
+		assertThat(unmarshaller.getRejected().getFragment(), is(nullValue()));
+		assertThat(xmlr.getLocalName(), is("xmlPojo"));
+		assertThat(unmarshaller.unmarshal(xmlr, position), is(true));
+		assertThat(unmarshaller.getValue().getId(), is("id2"));
+	}
+
+	@Test
+	public void shouldReturnUnmarshallerToPoolWithDefaultEventHandler() throws Exception {
+		ElementUnmarshaller<XmlPojo> unmarshaller = new ElementUnmarshaller<>(pool, context, inputFactory, XmlPojo.class);
+		unmarshaller.unmarshal("<xmlPojo><id>id1</id></xmlPojo>".getBytes(StringPool.UTF_8), position);
+		unmarshaller.release();
+
+		assertThat(pool.getIdle(), is(1));
+		assertThat(pool.unmarshaller(context).getEventHandler(), is(not(ElementUnmarshaller.RejectConversionErrors)));
+	}
+
+	@Test
+	public void shouldDiscardUnmarshallerWhichFailed() throws Exception {
+		ElementUnmarshaller<XmlPojo> unmarshaller = new ElementUnmarshaller<>(pool, context, inputFactory, XmlPojo.class);
+		unmarshaller.unmarshal("<xmlPojo><amount>lots</amount></xmlPojo>".getBytes(StringPool.UTF_8), position);
+		unmarshaller.release();
+
+		assertThat(pool.getIdle(), is(0));
+	}
+}
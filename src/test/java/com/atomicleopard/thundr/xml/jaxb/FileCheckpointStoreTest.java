@@ -0,0 +1,120 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+public class FileCheckpointStoreTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private Path directory;
+	private FileCheckpointStore store;
+
+	@Before
+	public void before() throws IOException {
+		directory = Files.createTempDirectory("checkpoints");
+		store = new FileCheckpointStore(directory.resolve("store"));
+	}
+
+	@After
+	public void after() throws IOException {
+		delete(directory);
+	}
+
+	@Test
+	public void shouldReturnNullWhenNoCheckpointSaved() {
+		assertThat(store.load("import"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldSaveAndLoadCheckpoint() {
+		store.save("import", new Checkpoint(8000000, 1234567890123L));
+		assertThat(store.load("import"), is(new Checkpoint(8000000, 1234567890123L)));
+		assertThat(store.load("other"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldReplaceCheckpointAndLeaveNoTemporaryFiles() throws IOException {
+		store.save("import", new Checkpoint(200, 100));
+		store.save("import", new Checkpoint(400, -1));
+		assertThat(store.load("import"), is(new Checkpoint(400, -1)));
+		assertThat(files(store.getDirectory()).size(), is(1));
+	}
+
+	@Test
+	public void shouldClearCheckpoint() throws IOException {
+		store.save("import", new Checkpoint(200, 100));
+		store.clear("import");
+		assertThat(store.load("import"), is(nullValue()));
+		assertThat(files(store.getDirectory()).size(), is(0));
+		store.clear("import");
+	}
+
+	@Test
+	public void shouldKeepKeysWithinDirectory() throws IOException {
+		store.save("../feeds/products.xml", new Checkpoint(1, 2));
+		assertThat(store.load("../feeds/products.xml"), is(new Checkpoint(1, 2)));
+		assertThat(files(store.getDirectory()).size(), is(1));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenCheckpointIsCorrupt() throws IOException {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to load checkpoint from");
+		Files.createDirectories(store.getDirectory());
+		Files.write(store.getDirectory().resolve("import.checkpoint"), "garbage".getBytes());
+		store.load("import");
+	}
+
+	private List<Path> files(Path directory) throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				files.add(file);
+			}
+		}
+		return files;
+	}
+
+	private void delete(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			for (Path child : files(path)) {
+				delete(child);
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+}
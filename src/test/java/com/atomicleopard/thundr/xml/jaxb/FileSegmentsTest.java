@@ -0,0 +1,206 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+
+public class FileSegmentsTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+	private ExecutorService executor = Executors.newFixedThreadPool(4);
+	private Path path;
+
+	@Before
+	public void before() throws IOException {
+		path = Files.createTempFile("file-segments", ".xml");
+	}
+
+	@After
+	public void after() throws IOException {
+		executor.shutdownNow();
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void shouldSplitAtRepeatedElementsIntoContiguousSegments() throws Exception {
+		write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<feed><header><title>t</title></header><items>\n" + items(200, "") + "</items><footer/></feed>\n");
+
+		List<FileSegments.Segment> segments = new FileSegments(path, inputFactory, ElementPath.parse("/feed/items/item"), 256).split(8, executor);
+		assertThat(segments.size(), is(8));
+		assertThat(segments.get(0).getStart(), is(0L));
+		for (int i = 1; i < segments.size(); i++) {
+			assertThat(segments.get(i).getStart(), is(segments.get(i - 1).getEnd()));
+		}
+		assertThat(segments.get(segments.size() - 1).getEnd(), is(Files.size(path)));
+		assertThat(ids(segments, "/feed/items/item"), is(expectedIds(200)));
+	}
+
+	@Test
+	public void shouldSplitChildrenOfRootWithAttributesAndEmptyElements() throws Exception {
+		StringBuilder xml = new StringBuilder("<root>");
+		for (int i = 0; i < 200; i++) {
+			xml.append("<item id=\"").append(i).append("\" note='a>b' />\n");
+		}
+		write(xml.append("</root>").toString());
+
+		List<FileSegments.Segment> segments = new FileSegments(path, inputFactory, ElementPath.ChildrenOfRoot, 256).split(4, executor);
+		assertThat(segments.size(), is(4));
+		assertThat(ids(segments, "/*/*"), is(expectedIds(200)));
+	}
+
+	@Test
+	public void shouldRedeclareNamespacesOfEnclosingElements() throws Exception {
+		StringBuilder xml = new StringBuilder("<f:feed xmlns:f=\"urn:feed\" xmlns=\"urn:items\"><f:items>");
+		for (int i = 0; i < 200; i++) {
+			xml.append("<item id=\"").append(i).append("\"><f:name>name</f:name></item>");
+		}
+		write(xml.append("</f:items></f:feed>").toString());
+
+		List<FileSegments.Segment> segments = new FileSegments(path, inputFactory, ElementPath.parse("{urn:items}item"), 256).split(4, executor);
+		assertThat(segments.size(), is(4));
+		assertThat(ids(segments, "{urn:items}item"), is(expectedIds(200)));
+	}
+
+	@Test
+	public void shouldNotSplitSmallFiles() throws Exception {
+		write("<root>" + items(10, "") + "</root>");
+		List<FileSegments.Segment> segments = new FileSegments(path, inputFactory, ElementPath.ChildrenOfRoot).split(4, executor);
+		assertThat(segments.size(), is(1));
+		assertThat(segments.get(0).getEnd(), is(Files.size(path)));
+	}
+
+	@Test
+	public void shouldReturnOneSegmentWhenThereAreNoRepeatedElements() throws Exception {
+		write("<root>" + items(100, "") + "</root>");
+		List<FileSegments.Segment> segments = new FileSegments(path, inputFactory, ElementPath.parse("missing"), 256).split(4, executor);
+		assertThat(segments.size(), is(1));
+	}
+
+	@Test
+	public void shouldRejectDocumentsContainingComments() throws Exception {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Unable to parse");
+		thrown.expectMessage("comment, CDATA section, processing instruction or DOCTYPE");
+		write("<root>" + items(100, "") + "<!-- <item id=\"x\"> --></root>");
+		new FileSegments(path, inputFactory, ElementPath.ChildrenOfRoot, 256).split(4, executor);
+	}
+
+	@Test
+	public void shouldRejectDocumentsContainingCdata() throws Exception {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("comment, CDATA section, processing instruction or DOCTYPE");
+		write("<root>" + items(100, "<![CDATA[<item>]]>") + "</root>");
+		new FileSegments(path, inputFactory, ElementPath.ChildrenOfRoot, 256).split(4, executor);
+	}
+
+	@Test
+	public void shouldRejectNestedRepeatedElements() throws Exception {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("'item' elements are nested within each other or appear at different depths");
+		StringBuilder xml = new StringBuilder("<root>");
+		for (int i = 0; i < 20; i++) {
+			xml.append("<item id=\"").append(i).append("\"><padding>").append(padding(200)).append("</padding><item/></item>");
+		}
+		write(xml.append("</root>").toString());
+		new FileSegments(path, inputFactory, ElementPath.parse("item"), 256).split(8, executor);
+	}
+
+	@Test
+	public void shouldRejectRepeatedElementsInMoreThanOneEnclosingElement() throws Exception {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("'item' elements appear in more than one enclosing element");
+		write("<root><a>" + items(100, "") + "</a><b>" + items(100, "") + "</b></root>");
+		new FileSegments(path, inputFactory, ElementPath.parse("item"), 256).split(8, executor);
+	}
+
+	@Test
+	public void shouldRejectUnsupportedEncodings() throws Exception {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("it is UTF-16");
+		Files.write(path, ("<?xml version=\"1.0\" encoding=\"UTF-16\"?><root>" + items(100, "") + "</root>").getBytes("UTF-16"));
+		new FileSegments(path, inputFactory, ElementPath.ChildrenOfRoot, 256).split(4, executor);
+	}
+
+	private void write(String xml) throws IOException {
+		Files.write(path, xml.getBytes("UTF-8"));
+	}
+
+	private String items(int count, String content) {
+		StringBuilder items = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			items.append("<item id=\"").append(i).append("\"><name>name ").append(i).append("</name>").append(content).append("</item>\n");
+		}
+		return items.toString();
+	}
+
+	private String padding(int length) {
+		StringBuilder padding = new StringBuilder();
+		while (padding.length() < length) {
+			padding.append("padding ");
+		}
+		return padding.toString();
+	}
+
+	private List<String> expectedIds(int count) {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add(String.valueOf(i));
+		}
+		return ids;
+	}
+
+	private List<String> ids(List<FileSegments.Segment> segments, String elementPath) throws Exception {
+		List<String> ids = new ArrayList<>();
+		for (FileSegments.Segment segment : segments) {
+			try (InputStream stream = segment.open()) {
+				XMLStreamReader xmlr = inputFactory.createXMLStreamReader(stream);
+				ElementCursor cursor = new ElementCursor(xmlr, ElementPath.parse(elementPath));
+				while (cursor.next()) {
+					ids.add(xmlr.getAttributeValue(null, "id"));
+					cursor.skip();
+				}
+				xmlr.close();
+			}
+		}
+		return ids;
+	}
+}
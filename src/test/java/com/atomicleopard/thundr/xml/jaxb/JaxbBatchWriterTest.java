@@ -25,13 +25,23 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.junit.After;
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -44,6 +54,12 @@ public class JaxbBatchWriterTest {
 	private XmlPojo pojo1 = new XmlPojo();;
 	private XmlPojo pojo2 = new XmlPojo();;
 	private Iterator<XmlPojo> pojos = Arrays.asList(pojo1, pojo2).iterator();
+	private ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@After
+	public void after() {
+		executor.shutdownNow();
+	}
 
 	@Test
 	public void shouldRetainJaxbAndInput() {
@@ -80,6 +96,43 @@ public class JaxbBatchWriterTest {
 		assertThat(writer.format, is(true));
 	}
 
+	@Test
+	public void shouldRetainFlushEvery() {
+		JaxbBatchWriter<XmlPojo> original = new JaxbBatchWriter<XmlPojo>(jaxb, pojos);
+		assertThat(original.flushEvery, is(0));
+
+		JaxbBatchWriter<XmlPojo> writer = original.flushEvery(10);
+		assertThat(writer, is(not(sameInstance(original))));
+		assertThat(writer.flushEvery, is(10));
+		assertThat(writer.format().encoding("UTF-16").rootElement("Other").flushEvery, is(10));
+		assertThat(writer.flushEvery(-1).flushEvery, is(0));
+	}
+
+	@Test
+	public void shouldRetainSettingsWhenChangingEachSetting() {
+		JaxbBatchWriter<XmlPojo> writer = new JaxbBatchWriter<XmlPojo>(jaxb, pojos).rootElement("Pojos").format().encoding("UTF-16");
+		assertThat(writer.rootElement, is("Pojos"));
+		assertThat(writer.format, is(true));
+		assertThat(writer.encoding, is("UTF-16"));
+		assertThat(writer.jaxb, is(jaxb));
+	}
+
+	@Test
+	public void shouldFlushAfterEveryFlushEveryObjects() {
+		final List<Integer> flushedAt = new ArrayList<>();
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream() {
+			@Override
+			public void flush() {
+				flushedAt.add(size());
+			}
+		};
+		Iterator<XmlPojo> pojos = list(new XmlPojo(), new XmlPojo(), new XmlPojo()).iterator();
+		new JaxbBatchWriter<XmlPojo>(jaxb, pojos).flushEvery(2).to(baos);
+		assertThat(flushedAt.size(), is(2));
+		assertThat(flushedAt.get(0), is(greaterThan(0)));
+		assertThat(flushedAt.get(1), is(baos.size()));
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void shouldWriteToStringUsingJaxb() {
@@ -131,4 +184,145 @@ public class JaxbBatchWriterTest {
 		String xml = batchWriter.string();
 		assertThat(xml, is("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Root><XmlPojo><amount>1.23</amount><id>id</id><name>name</name></XmlPojo><XmlPojo><amount>3.21</amount><id>id2</id><name>name2</name></XmlPojo></Root>"));
 	}
+
+	@Test
+	public void shouldRetainBufferSizeAndSync() {
+		JaxbBatchWriter<XmlPojo> original = new JaxbBatchWriter<XmlPojo>(jaxb, pojos);
+		assertThat(original.bufferSize, is(ChannelOutputStream.DefaultBufferSize));
+		assertThat(original.sync, is(false));
+
+		JaxbBatchWriter<XmlPojo> writer = original.bufferSize(1024).sync().rootElement("Pojos");
+		assertThat(writer, is(not(sameInstance(original))));
+		assertThat(writer.bufferSize, is(1024));
+		assertThat(writer.sync, is(true));
+		assertThat(writer.rootElement, is("Pojos"));
+		assertThat(original.bufferSize, is(ChannelOutputStream.DefaultBufferSize));
+	}
+
+	@Test
+	public void shouldWriteToChannel() {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		WritableByteChannel channel = Channels.newChannel(baos);
+		List<XmlPojo> output = list(new XmlPojo("id1", null, null), new XmlPojo("id2", null, null));
+		WritableByteChannel out = new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).bufferSize(16).to(channel);
+
+		assertThat(out, is(channel));
+		assertThat(new String(baos.toByteArray()), is("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Root><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></Root>"));
+	}
+
+	@Test
+	public void shouldWriteToPath() throws IOException {
+		Path path = Files.createTempFile("jaxb-batch-writer", ".xml");
+		try {
+			List<XmlPojo> output = list(new XmlPojo("id1", null, null), new XmlPojo("id2", null, null));
+			Path out = new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).rootElement("Pojos").sync().to(path);
+
+			assertThat(out, is(path));
+			assertThat(new String(Files.readAllBytes(path), "UTF-8"),
+					is("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Pojos><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></Pojos>"));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldRetainMarshalExecutor() {
+		JaxbBatchWriter<XmlPojo> original = new JaxbBatchWriter<XmlPojo>(jaxb, pojos);
+		assertThat(original.marshalExecutor, is(nullValue()));
+
+		JaxbBatchWriter<XmlPojo> writer = original.marshalIn(executor);
+		assertThat(writer, is(not(sameInstance(original))));
+		assertThat(writer.marshalExecutor, is((Object) executor));
+		assertThat(writer.maxPendingFragments, is(original.maxPendingFragments));
+		assertThat(writer.marshalIn(executor, 32).maxPendingFragments, is(32));
+		assertThat(writer.marshalIn(executor, 32).rootElement("Pojos").format().flushEvery(5).marshalExecutor, is((Object) executor));
+		assertThat(original.marshalExecutor, is(nullValue()));
+	}
+
+	@Test
+	public void shouldMarshalInParallelWithOutputInSourceOrder() throws UnsupportedEncodingException {
+		List<XmlPojo> output = manyPojos(1000);
+
+		ByteArrayOutputStream baos = new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).marshalIn(executor, 64).to(new ByteArrayOutputStream());
+		assertSameContent(baos.toString("UTF-8"), output);
+		assertSameContent(new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).marshalIn(executor).to(new StringWriter()).toString(), output);
+		assertSameContent(new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).marshalIn(executor, 1).string(), output);
+	}
+
+	@Test
+	public void shouldMarshalContentRequiringEscapingInParallel() {
+		List<XmlPojo> output = list(new XmlPojo("<a & b>", "\"quoted\" 'text'\n", new BigDecimal("1.5")), new XmlPojo("]]>", "\u00e9\u4e2d", null));
+
+		assertSameContent(new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).marshalIn(executor).string(), output);
+		assertSameContent(new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).string(), output);
+	}
+
+	@Test
+	public void shouldMarshalInParallelWithEncoding() throws UnsupportedEncodingException {
+		List<XmlPojo> output = list(new XmlPojo("caf\u00e9", null, null), new XmlPojo("\u00fcber", null, null));
+		String expected = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><Root><xmlPojo><id>caf\u00e9</id></xmlPojo><xmlPojo><id>\u00fcber</id></xmlPojo></Root>";
+
+		ByteArrayOutputStream baos = new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).encoding("ISO-8859-1").marshalIn(executor).to(new ByteArrayOutputStream());
+		assertThat(baos.toString("ISO-8859-1"), is(expected));
+		assertThat(new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).encoding("ISO-8859-1").marshalIn(executor).string(), is(expected));
+	}
+
+	@Test
+	public void shouldMarshalNothingInParallel() {
+		String expected = new JaxbBatchWriter<XmlPojo>(jaxb, new ArrayList<XmlPojo>().iterator()).string();
+		String xml = new JaxbBatchWriter<XmlPojo>(jaxb, new ArrayList<XmlPojo>().iterator()).marshalIn(executor).string();
+		assertThat(xml, is(expected));
+	}
+
+	@Test
+	public void shouldFlushAfterEveryFlushEveryObjectsWhenMarshallingInParallel() {
+		final List<Integer> flushedAt = new ArrayList<>();
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream() {
+			@Override
+			public void flush() {
+				flushedAt.add(size());
+			}
+		};
+		new JaxbBatchWriter<XmlPojo>(jaxb, manyPojos(100).iterator()).flushEvery(10).marshalIn(executor, 32).to(baos);
+		assertThat(flushedAt.size(), is(greaterThanOrEqualTo(6)));
+		assertThat(flushedAt.get(flushedAt.size() - 1), is(baos.size()));
+	}
+
+	@Test
+	public void shouldMarshalInParallelToChannelAndPath() throws IOException {
+		List<XmlPojo> output = manyPojos(100);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).bufferSize(64).marshalIn(executor).to(Channels.newChannel(baos));
+		assertSameContent(new String(baos.toByteArray(), "UTF-8"), output);
+
+		Path path = Files.createTempFile("jaxb-batch-writer", ".xml");
+		try {
+			new JaxbBatchWriter<XmlPojo>(jaxb, output.iterator()).marshalIn(executor).to(path);
+			assertSameContent(new String(Files.readAllBytes(path), "UTF-8"), output);
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	/**
+	 * Compares the parsed objects rather than the xml, as parallel marshalling may escape characters differently
+	 */
+	private void assertSameContent(String xml, List<XmlPojo> expected) {
+		List<XmlPojo> actual = jaxb.read(XmlPojo.class).from(xml).list();
+		assertThat(actual.size(), is(expected.size()));
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(actual.get(i).getId(), is(expected.get(i).getId()));
+			assertThat(actual.get(i).getName(), is(expected.get(i).getName()));
+			assertThat(actual.get(i).getAmount(), is(expected.get(i).getAmount()));
+		}
+	}
+
+	private List<XmlPojo> manyPojos(int count) {
+		List<XmlPojo> pojos = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			pojos.add(new XmlPojo("id" + i, "name" + i, new BigDecimal(i)));
+		}
+		return pojos;
+	}
 }
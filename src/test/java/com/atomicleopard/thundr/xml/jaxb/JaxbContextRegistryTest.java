@@ -0,0 +1,170 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBContext;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNamedRootElement;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNoRoot;
+import com.atomicleopard.thundr.xml.metrics.HistogramJaxbMetrics;
+import com.atomicleopard.thundr.xml.metrics.HistogramJaxbMetrics.Metric;
+import com.atomicleopard.thundr.xml.metrics.JaxbMetrics;
+
+public class JaxbContextRegistryTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private JaxbContextRegistry registry = new JaxbContextRegistry();
+
+	@Test
+	public void shouldCreateContextOnceAndRetainIt() {
+		assertThat(registry.contains(XmlPojo.class), is(false));
+
+		JAXBContext context = registry.get(XmlPojo.class);
+		assertThat(context, is(notNullValue()));
+		assertThat(registry.contains(XmlPojo.class), is(true));
+		assertThat(registry.get(XmlPojo.class), is(sameInstance(context)));
+	}
+
+	@Test
+	public void shouldCreateDistinctContextForSetOfTypes() {
+		JAXBContext single = registry.get(XmlPojo.class);
+		JAXBContext union = registry.get(XmlPojo.class, XmlPojoWithNoRoot.class);
+		assertThat(union, is(not(sameInstance(single))));
+		assertThat(registry.get(XmlPojo.class, XmlPojoWithNoRoot.class), is(sameInstance(union)));
+	}
+
+	@Test
+	public void shouldReportContextCreationForEachType() {
+		HistogramJaxbMetrics metrics = new HistogramJaxbMetrics();
+		registry = new JaxbContextRegistry(metrics);
+		registry.get(XmlPojo.class);
+		registry.get(XmlPojo.class);
+		registry.get(XmlPojo.class, XmlPojoWithNoRoot.class);
+
+		assertThat(registry.getMetrics(), is((JaxbMetrics) metrics));
+		assertThat(metrics.get(XmlPojo.class, Metric.ContextCreation).getCount(), is(2L));
+		assertThat(metrics.get(XmlPojoWithNoRoot.class, Metric.ContextCreation).getCount(), is(1L));
+	}
+
+	@Test
+	public void shouldNotMeasureContextCreationByDefault() {
+		assertThat(registry.getMetrics(), is(JaxbMetrics.None));
+	}
+
+	@Test
+	public void shouldOnlyCreateContextOnceWhenRequestedConcurrently() throws Exception {
+		final AtomicInteger creations = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		final JaxbContextRegistry registry = new JaxbContextRegistry() {
+			@Override
+			protected JAXBContext createContext(Set<Class<?>> types) throws Exception {
+				creations.incrementAndGet();
+				return super.createContext(types);
+			}
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<JAXBContext>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(new Callable<JAXBContext>() {
+					@Override
+					public JAXBContext call() throws Exception {
+						start.await();
+						return registry.get(XmlPojo.class);
+					}
+				}));
+			}
+			start.countDown();
+			JAXBContext first = results.get(0).get();
+			for (Future<JAXBContext> result : results) {
+				assertThat(result.get(), is(sameInstance(first)));
+			}
+			assertThat(creations.get(), is(1));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldPreloadClasses() {
+		registry.preload(XmlPojo.class, XmlPojoWithNoRoot.class);
+		assertThat(registry.contains(XmlPojo.class), is(true));
+		assertThat(registry.contains(XmlPojoWithNoRoot.class), is(true));
+		assertThat(registry.contains(XmlPojoWithNamedRootElement.class), is(false));
+	}
+
+	@Test
+	public void shouldPreloadPackagesUsingJaxbIndex() {
+		registry.preload("com.atomicleopard.thundr.xml.jaxb.test");
+		assertThat(registry.contains(XmlPojo.class), is(true));
+		assertThat(registry.contains(XmlPojoWithNamedRootElement.class), is(true));
+		assertThat(registry.contains(XmlPojoWithNoRoot.class), is(false));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenPreloadingPackageWithoutJaxbIndex() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to preload JAXBContexts for package com.atomicleopard.thundr.xml: no jaxb.index file was found");
+
+		registry.preload("com.atomicleopard.thundr.xml");
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionAndNotRetainFailedContexts() {
+		final AtomicInteger creations = new AtomicInteger();
+		JaxbContextRegistry registry = new JaxbContextRegistry() {
+			@Override
+			protected JAXBContext createContext(Set<Class<?>> types) throws Exception {
+				creations.incrementAndGet();
+				throw new IllegalStateException("expected");
+			}
+		};
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				registry.get(XmlPojo.class);
+			} catch (XmlException e) {
+				assertThat(e.getMessage(), is("Failed to create a JAXBContext for type " + XmlPojo.class.getName()));
+			}
+		}
+		assertThat(creations.get(), is(2));
+		assertThat(registry.contains(XmlPojo.class), is(false));
+	}
+}
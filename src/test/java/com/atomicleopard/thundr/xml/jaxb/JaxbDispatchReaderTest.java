@@ -0,0 +1,225 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNamedRootElement;
+import com.atomicleopard.thundr.xml.metrics.HistogramJaxbMetrics;
+import com.atomicleopard.thundr.xml.metrics.HistogramJaxbMetrics.Metric;
+
+public class JaxbDispatchReaderTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private Jaxb jaxb = new Jaxb();
+	private String xml = "<Root>\n<xmlPojo><id>a1</id></xmlPojo>\n<XmlPojo><id>b1</id></XmlPojo>\n<unknown><id>x</id></unknown>\n<xmlPojo><id>a2</id></xmlPojo>\n<XmlPojo><id>b2</id></XmlPojo>\n<xmlPojo><id>a3</id></xmlPojo>\n</Root>";
+
+	@Test
+	public void shouldDispatchEachElementToTheBatchForItsType() {
+		Map<Class<?>, Object> results = jaxb.dispatch()
+				.on("xmlPojo", XmlPojo.class, new GatherBatch<XmlPojo>())
+				.on("XmlPojo", XmlPojoWithNamedRootElement.class, new GatherBatch<XmlPojoWithNamedRootElement>())
+				.from(xml)
+				.stream();
+
+		@SuppressWarnings("unchecked")
+		List<XmlPojo> pojos = (List<XmlPojo>) results.get(XmlPojo.class);
+		assertThat(pojos.size(), is(3));
+		assertThat(pojos.get(0).getId(), is("a1"));
+		assertThat(pojos.get(2).getId(), is("a3"));
+
+		@SuppressWarnings("unchecked")
+		List<XmlPojoWithNamedRootElement> named = (List<XmlPojoWithNamedRootElement>) results.get(XmlPojoWithNamedRootElement.class);
+		assertThat(named.size(), is(2));
+		assertThat(named.get(0).getId(), is("b1"));
+		assertThat(named.get(1).getId(), is("b2"));
+	}
+
+	@Test
+	public void shouldDeriveElementNameFromType() {
+		Map<Class<?>, Object> results = jaxb.dispatch()
+				.on(XmlPojo.class, new Counter<XmlPojo>())
+				.on(XmlPojoWithNamedRootElement.class, new Counter<XmlPojoWithNamedRootElement>())
+				.from(xml)
+				.stream();
+		assertThat(results.get(XmlPojo.class), is((Object) 3));
+		assertThat(results.get(XmlPojoWithNamedRootElement.class), is((Object) 2));
+	}
+
+	@Test
+	public void shouldProcessEachTypeInBatches() {
+		final List<Integer> sizes = new ArrayList<>();
+		jaxb.dispatch().on(XmlPojo.class, new Batch<XmlPojo, Void>() {
+			@Override
+			public Void process(Void result, List<XmlPojo> batch) {
+				sizes.add(batch.size());
+				return null;
+			}
+		}).batchSize(2).from(xml).stream();
+		assertThat(sizes.size(), is(2));
+		assertThat(sizes.get(0), is(2));
+		assertThat(sizes.get(1), is(1));
+	}
+
+	@Test
+	public void shouldHaveNullResultForTypesWithNoElements() {
+		Map<Class<?>, Object> results = jaxb.dispatch().on("missing", XmlPojo.class, new Counter<XmlPojo>()).from(xml).stream();
+		assertThat(results.containsKey(XmlPojo.class), is(true));
+		assertThat(results.get(XmlPojo.class), nullValue());
+	}
+
+	@Test
+	public void shouldMatchNamespacesWhenSpecified() {
+		String xml = "<Root xmlns:a=\"urn:a\"><a:xmlPojo><id>1</id></a:xmlPojo><xmlPojo><id>2</id></xmlPojo></Root>";
+		Map<Class<?>, Object> results = jaxb.dispatch().on("{}xmlPojo", XmlPojo.class, new Counter<XmlPojo>()).from(xml).stream();
+		assertThat(results.get(XmlPojo.class), is((Object) 1));
+	}
+
+	@Test
+	public void shouldDispatchElementsAtPath() {
+		String xml = "<feed><header><xmlPojo><id>h</id></xmlPojo></header><items><xmlPojo><id>1</id></xmlPojo><XmlPojo><id>2</id></XmlPojo></items></feed>";
+		Map<Class<?>, Object> results = jaxb.dispatch()
+				.on(XmlPojo.class, new Counter<XmlPojo>())
+				.on(XmlPojoWithNamedRootElement.class, new Counter<XmlPojoWithNamedRootElement>())
+				.at("/feed/items/*")
+				.from(xml)
+				.stream();
+		assertThat(results.get(XmlPojo.class), is((Object) 1));
+		assertThat(results.get(XmlPojoWithNamedRootElement.class), is((Object) 1));
+	}
+
+	@Test
+	public void shouldReturnNewInstanceForEachChange() {
+		JaxbDispatchReader original = jaxb.dispatch();
+		JaxbDispatchReader reader = original.on(XmlPojo.class, new Counter<XmlPojo>());
+		assertThat(reader, is(not(sameInstance(original))));
+		assertThat(original.routes.isEmpty(), is(true));
+		assertThat(reader.routes.size(), is(1));
+		assertThat(reader.validate(true).validate, is(true));
+		assertThat(reader.batchSize(0).batchSize, is(1));
+		assertThat(reader.validate(true).routes.size(), is(1));
+	}
+
+	@Test
+	public void shouldThrowExceptionWhenTypeIsDispatchedTwice() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("it is already dispatched from 'xmlPojo'");
+		jaxb.dispatch().on(XmlPojo.class, new Counter<XmlPojo>()).on("other", XmlPojo.class, new Counter<XmlPojo>());
+	}
+
+	@Test
+	public void shouldReportMetricsForEachDispatchedType() {
+		HistogramJaxbMetrics metrics = new HistogramJaxbMetrics();
+		jaxb = new Jaxb(new JaxbContextRegistry(), new JaxbPool(), new CachedStaxFactoryProvider(), metrics);
+
+		jaxb.dispatch()
+				.on("xmlPojo", XmlPojo.class, new Counter<XmlPojo>())
+				.on("XmlPojo", XmlPojoWithNamedRootElement.class, new Counter<XmlPojoWithNamedRootElement>())
+				.batchSize(2)
+				.from(xml)
+				.stream();
+
+		long bytes = xml.length();
+		assertThat(metrics.get(XmlPojo.class, Metric.StreamRead).getCount(), is(1L));
+		assertThat(metrics.get(XmlPojo.class, Metric.ElementsRead).getMax(), is(3L));
+		assertThat(metrics.get(XmlPojo.class, Metric.BytesIn).getMax(), is(bytes));
+		assertThat(metrics.get(XmlPojo.class, Metric.BatchProcessing).getCount(), is(2L));
+		assertThat(metrics.get(XmlPojo.class, Metric.BatchSize).getSum(), is(3L));
+		assertThat(metrics.get(XmlPojoWithNamedRootElement.class, Metric.StreamRead).getCount(), is(1L));
+		assertThat(metrics.get(XmlPojoWithNamedRootElement.class, Metric.ElementsRead).getMax(), is(2L));
+		assertThat(metrics.get(XmlPojoWithNamedRootElement.class, Metric.BytesIn).getMax(), is(bytes));
+		assertThat(metrics.get(XmlPojoWithNamedRootElement.class, Metric.BatchProcessing).getCount(), is(1L));
+	}
+
+	@Test
+	public void shouldThrowExceptionWhenNameIsDispatchedTwice() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to dispatch elements named 'xmlPojo' to " + XmlPojoWithNamedRootElement.class.getName() + ", elements named 'xmlPojo' are already dispatched to "
+				+ XmlPojo.class.getName());
+		jaxb.dispatch().on(XmlPojo.class, new Counter<XmlPojo>()).on("xmlPojo", XmlPojoWithNamedRootElement.class, new Counter<XmlPojoWithNamedRootElement>());
+	}
+
+	@Test
+	public void shouldThrowExceptionWhenLocalNameOverlapsNamespacedName() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("elements named 'xmlPojo' are already dispatched to " + XmlPojo.class.getName());
+		jaxb.dispatch().on("xmlPojo", XmlPojo.class, new Counter<XmlPojo>()).on("{urn:pojos}xmlPojo", XmlPojoWithNamedRootElement.class,
+				new Counter<XmlPojoWithNamedRootElement>());
+	}
+
+	@Test
+	public void shouldThrowExceptionWhenWildcardOverlapsOtherNames() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("elements named '*' are already dispatched to " + XmlPojo.class.getName());
+		jaxb.dispatch().on("*", XmlPojo.class, new Counter<XmlPojo>()).on("XmlPojo", XmlPojoWithNamedRootElement.class, new Counter<XmlPojoWithNamedRootElement>());
+	}
+
+	@Test
+	public void shouldDispatchSameLocalNameInDifferentNamespaces() {
+		String namespaced = "<Root xmlns:a=\"urn:a\" xmlns:b=\"urn:b\"><a:xmlPojo><id>a1</id></a:xmlPojo><b:xmlPojo><id>b1</id></b:xmlPojo><a:xmlPojo><id>a2</id></a:xmlPojo></Root>";
+		Map<Class<?>, Object> results = jaxb.dispatch()
+				.on("{urn:a}xmlPojo", XmlPojo.class, new Counter<XmlPojo>())
+				.on("{urn:b}xmlPojo", XmlPojoWithNamedRootElement.class, new Counter<XmlPojoWithNamedRootElement>())
+				.from(namespaced)
+				.stream();
+
+		assertThat(results.get(XmlPojo.class), is((Object) 2));
+		assertThat(results.get(XmlPojoWithNamedRootElement.class), is((Object) 1));
+	}
+
+	@Test
+	public void shouldThrowExceptionForInvalidElementName() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Invalid element name 'a/b'");
+		jaxb.dispatch().on("a/b", XmlPojo.class, new Counter<XmlPojo>());
+	}
+
+	@Test
+	public void shouldThrowExceptionWhenNoTypesSpecified() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("You have not specified any types to dispatch elements to");
+		jaxb.dispatch().from(xml).stream();
+	}
+
+	@Test
+	public void shouldThrowExceptionWhenNoStreamSpecified() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("You have not specified a data source, such as an InputStream, String or byte[]");
+		jaxb.dispatch().on(XmlPojo.class, new Counter<XmlPojo>()).stream();
+	}
+
+	private static class Counter<T> implements Batch<T, Integer> {
+		@Override
+		public Integer process(Integer result, List<T> batch) {
+			return batch.size() + (result == null ? 0 : result);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.NoSuchElementException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+
+import jodd.util.StringPool;
+
+public class JaxbIteratorTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private Jaxb jaxb = new Jaxb();
+	private String xml = "<Root>\n<xmlPojo><id>id1</id></xmlPojo>\n<xmlPojo><id>id2</id></xmlPojo>\n<xmlPojo><id>id3</id></xmlPojo>\n</Root>";
+
+	@Test
+	public void shouldIterateOverEachElement() {
+		JaxbIterator<XmlPojo> iterator = jaxb.read(XmlPojo.class).from(xml).iterator();
+		assertThat(iterator.hasNext(), is(true));
+		assertThat(iterator.next().getId(), is("id1"));
+		assertThat(iterator.next().getId(), is("id2"));
+		assertThat(iterator.hasNext(), is(true));
+		assertThat(iterator.hasNext(), is(true));
+		assertThat(iterator.next().getId(), is("id3"));
+		assertThat(iterator.hasNext(), is(false));
+		assertThat(iterator.isClosed(), is(true));
+	}
+
+	@Test
+	public void shouldNotReadUntilAsked() {
+		TrackingInputStream stream = new TrackingInputStream(xml);
+		JaxbIterator<XmlPojo> iterator = jaxb.read(XmlPojo.class).from(stream).iterator();
+		assertThat(stream.read, is(false));
+		iterator.hasNext();
+		assertThat(stream.read, is(true));
+	}
+
+	@Test
+	public void shouldCloseStreamWhenExhausted() {
+		TrackingInputStream stream = new TrackingInputStream(xml);
+		JaxbIterator<XmlPojo> iterator = jaxb.read(XmlPojo.class).from(stream).iterator();
+		while (iterator.hasNext()) {
+			iterator.next();
+		}
+		assertThat(stream.closed, is(true));
+	}
+
+	@Test
+	public void shouldCloseStreamAndReturnUnmarshallerWhenClosedEarly() {
+		TrackingInputStream stream = new TrackingInputStream(xml);
+		long idle = jaxb.getPool().getIdle();
+		try (JaxbIterator<XmlPojo> iterator = jaxb.read(XmlPojo.class).from(stream).iterator()) {
+			assertThat(iterator.next().getId(), is("id1"));
+		}
+		assertThat(stream.closed, is(true));
+		assertThat(jaxb.getPool().getIdle(), is((int) idle + 1));
+	}
+
+	@Test
+	public void shouldHaveNoMoreElementsOnceClosed() {
+		JaxbIterator<XmlPojo> iterator = jaxb.read(XmlPojo.class).from(xml).iterator();
+		iterator.close();
+		iterator.close();
+		assertThat(iterator.isClosed(), is(true));
+		assertThat(iterator.hasNext(), is(false));
+	}
+
+	@Test
+	public void shouldThrowNoSuchElementExceptionWhenExhausted() {
+		thrown.expect(NoSuchElementException.class);
+		JaxbIterator<XmlPojo> iterator = jaxb.read(XmlPojo.class).from("<Root/>").iterator();
+		iterator.next();
+	}
+
+	@Test
+	public void shouldNotSupportRemove() {
+		thrown.expect(UnsupportedOperationException.class);
+		jaxb.read(XmlPojo.class).from(xml).iterator().remove();
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionAndCloseStreamWhenXmlIsMalformed() {
+		TrackingInputStream stream = new TrackingInputStream("<Root><xmlPojo><id>id1</id></xmlPojo><xmlPojo>");
+		JaxbIterator<XmlPojo> iterator = jaxb.read(XmlPojo.class).from(stream).iterator();
+		assertThat(iterator.next().getId(), is("id1"));
+		try {
+			iterator.hasNext();
+			iterator.next();
+			throw new AssertionError("Expected an XmlException");
+		} catch (XmlException e) {
+			assertThat(e.getMessage(), startsWith("Failed to read xml"));
+		}
+		assertThat(stream.closed, is(true));
+		assertThat(iterator.hasNext(), is(false));
+	}
+
+	@Test
+	public void shouldThrowExceptionWhenNoStreamSpecified() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("You have not specified a data source, such as an InputStream, String or byte[]");
+		jaxb.read(XmlPojo.class).iterator();
+	}
+
+	private static class TrackingInputStream extends ByteArrayInputStream {
+		private boolean read = false;
+		private boolean closed = false;
+
+		private TrackingInputStream(String xml) {
+			super(xml.getBytes(Charset.forName(StringPool.UTF_8)));
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			read = true;
+			return super.read(b, off, len);
+		}
+
+		@Override
+		public synchronized int read() {
+			read = true;
+			return super.read();
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+			super.close();
+		}
+	}
+}
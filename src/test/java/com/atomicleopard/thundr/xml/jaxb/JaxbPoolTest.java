@@ -0,0 +1,134 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import org.junit.Test;
+
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNoRoot;
+
+public class JaxbPoolTest {
+	private JaxbContextRegistry contexts = new JaxbContextRegistry();
+	private JAXBContext context = contexts.get(XmlPojo.class);
+	private JaxbPool pool = new JaxbPool();
+
+	@Test
+	public void shouldDefaultConfiguration() {
+		assertThat(pool.getMaxIdle(), is(JaxbPool.DefaultMaxIdle));
+		assertThat(pool.getIdleTimeout(), is(JaxbPool.DefaultIdleTimeout));
+		assertThat(pool.getHits(), is(0L));
+		assertThat(pool.getMisses(), is(0L));
+		assertThat(pool.getEvictions(), is(0L));
+		assertThat(pool.getIdle(), is(0));
+	}
+
+	@Test
+	public void shouldCreateMarshallerWithProperties() throws JAXBException {
+		Marshaller marshaller = pool.marshaller(context, "UTF-16", true, true);
+		assertThat(marshaller.getProperty(Marshaller.JAXB_ENCODING), is((Object) "UTF-16"));
+		assertThat(marshaller.getProperty(Marshaller.JAXB_FORMATTED_OUTPUT), is((Object) true));
+		assertThat(marshaller.getProperty(Marshaller.JAXB_FRAGMENT), is((Object) true));
+		assertThat(pool.getMisses(), is(1L));
+	}
+
+	@Test
+	public void shouldReuseReleasedMarshallerForSameProperties() throws JAXBException {
+		Marshaller marshaller = pool.marshaller(context, "UTF-8", false, false);
+		pool.release(context, "UTF-8", false, false, marshaller);
+		assertThat(pool.getIdle(), is(1));
+
+		assertThat(pool.marshaller(context, "UTF-8", false, false), is(sameInstance(marshaller)));
+		assertThat(pool.getHits(), is(1L));
+		assertThat(pool.getMisses(), is(1L));
+		assertThat(pool.getIdle(), is(0));
+	}
+
+	@Test
+	public void shouldNotReuseMarshallerForDifferentPropertiesOrContext() throws JAXBException {
+		Marshaller marshaller = pool.marshaller(context, "UTF-8", false, false);
+		pool.release(context, "UTF-8", false, false, marshaller);
+
+		assertThat(pool.marshaller(context, "UTF-16", false, false), is(not(sameInstance(marshaller))));
+		assertThat(pool.marshaller(context, "UTF-8", true, false), is(not(sameInstance(marshaller))));
+		assertThat(pool.marshaller(context, "UTF-8", false, true), is(not(sameInstance(marshaller))));
+		assertThat(pool.marshaller(contexts.get(XmlPojoWithNoRoot.class), "UTF-8", false, false), is(not(sameInstance(marshaller))));
+		assertThat(pool.getHits(), is(0L));
+		assertThat(pool.getMisses(), is(5L));
+	}
+
+	@Test
+	public void shouldReuseReleasedUnmarshaller() throws JAXBException {
+		Unmarshaller unmarshaller = pool.unmarshaller(context);
+		pool.release(context, unmarshaller);
+
+		assertThat(pool.unmarshaller(context), is(sameInstance(unmarshaller)));
+		assertThat(pool.unmarshaller(context), is(not(sameInstance(unmarshaller))));
+		assertThat(pool.getHits(), is(1L));
+		assertThat(pool.getMisses(), is(2L));
+	}
+
+	@Test
+	public void shouldBoundIdleInstances() throws JAXBException {
+		pool = new JaxbPool(2, JaxbPool.DefaultIdleTimeout);
+		Unmarshaller unmarshaller1 = pool.unmarshaller(context);
+		Unmarshaller unmarshaller2 = pool.unmarshaller(context);
+		Unmarshaller unmarshaller3 = pool.unmarshaller(context);
+		pool.release(context, unmarshaller1);
+		pool.release(context, unmarshaller2);
+		pool.release(context, unmarshaller3);
+
+		assertThat(pool.getIdle(), is(2));
+	}
+
+	@Test
+	public void shouldNotRetainInstancesWhenMaxIdleIsZero() throws JAXBException {
+		pool = new JaxbPool(0, JaxbPool.DefaultIdleTimeout);
+		pool.release(context, pool.unmarshaller(context));
+
+		assertThat(pool.getIdle(), is(0));
+	}
+
+	@Test
+	public void shouldEvictIdleInstances() throws JAXBException, InterruptedException {
+		pool = new JaxbPool(4, 1);
+		pool.release(context, pool.unmarshaller(context));
+		pool.release(context, "UTF-8", false, false, pool.marshaller(context, "UTF-8", false, false));
+		assertThat(pool.getIdle(), is(2));
+
+		Thread.sleep(10);
+		assertThat(pool.evictIdle(), is(2));
+		assertThat(pool.getIdle(), is(0));
+		assertThat(pool.getEvictions(), is(2L));
+	}
+
+	@Test
+	public void shouldClearIdleInstances() throws JAXBException {
+		pool.release(context, pool.unmarshaller(context));
+		pool.clear();
+		assertThat(pool.getIdle(), is(0));
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static com.atomicleopard.expressive.Expressive.list;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+import com.atomicleopard.thundr.xml.jaxb.JaxbFlow.Subscriber;
+import com.atomicleopard.thundr.xml.jaxb.JaxbFlow.Subscription;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+
+import jodd.util.StringPool;
+
+public class JaxbPublisherTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private Jaxb jaxb = new Jaxb();
+	private String xml = "<Root><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo><xmlPojo><id>id3</id></xmlPojo></Root>";
+
+	@Test
+	public void shouldDeliverNothingUntilRequested() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		jaxb.read(XmlPojo.class).from(xml).publisher().subscribe(subscriber);
+		assertThat(subscriber.subscription, is(notNullValue()));
+		assertThat(subscriber.ids.isEmpty(), is(true));
+		assertThat(subscriber.completed, is(false));
+	}
+
+	@Test
+	public void shouldDeliverOnlyAsManyAsRequested() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		jaxb.read(XmlPojo.class).from(xml).publisher().subscribe(subscriber);
+		subscriber.subscription.request(1);
+		assertThat(subscriber.ids, is((List<String>) list("id1")));
+		subscriber.subscription.request(1);
+		assertThat(subscriber.ids, is((List<String>) list("id1", "id2")));
+		assertThat(subscriber.completed, is(false));
+		subscriber.subscription.request(5);
+		assertThat(subscriber.ids, is((List<String>) list("id1", "id2", "id3")));
+		assertThat(subscriber.completed, is(true));
+		assertThat(subscriber.error, nullValue());
+	}
+
+	@Test
+	public void shouldCompleteWithoutFurtherDemandOnceExhausted() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		jaxb.read(XmlPojo.class).from(xml).publisher().subscribe(subscriber);
+		subscriber.subscription.request(3);
+		assertThat(subscriber.ids.size(), is(3));
+		assertThat(subscriber.completed, is(true));
+	}
+
+	@Test
+	public void shouldSupportUnboundedDemand() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		jaxb.read(XmlPojo.class).from(xml).publisher().subscribe(subscriber);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertThat(subscriber.ids.size(), is(3));
+		assertThat(subscriber.completed, is(true));
+	}
+
+	@Test
+	public void shouldSupportRequestsFromWithinOnNext() {
+		RecordingSubscriber subscriber = new RecordingSubscriber() {
+			@Override
+			public void onNext(XmlPojo item) {
+				super.onNext(item);
+				subscription.request(1);
+			}
+		};
+		jaxb.read(XmlPojo.class).from(xml).publisher().subscribe(subscriber);
+		subscriber.subscription.request(1);
+		assertThat(subscriber.ids, is((List<String>) list("id1", "id2", "id3")));
+		assertThat(subscriber.completed, is(true));
+	}
+
+	@Test
+	public void shouldStopReadingAndCloseSourceWhenCancelled() {
+		TrackingInputStream stream = new TrackingInputStream(xml);
+		RecordingSubscriber subscriber = new RecordingSubscriber() {
+			@Override
+			public void onNext(XmlPojo item) {
+				super.onNext(item);
+				subscription.cancel();
+			}
+		};
+		jaxb.read(XmlPojo.class).from(stream).publisher().subscribe(subscriber);
+		subscriber.subscription.request(10);
+		assertThat(subscriber.ids, is((List<String>) list("id1")));
+		assertThat(stream.closed, is(true));
+		assertThat(subscriber.completed, is(false));
+		assertThat(subscriber.error, nullValue());
+
+		subscriber.subscription.request(10);
+		assertThat(subscriber.ids.size(), is(1));
+	}
+
+	@Test
+	public void shouldSignalErrorForNonPositiveRequest() {
+		TrackingInputStream stream = new TrackingInputStream(xml);
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		jaxb.read(XmlPojo.class).from(stream).publisher().subscribe(subscriber);
+		subscriber.subscription.request(0);
+		assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+		assertThat(stream.closed, is(true));
+	}
+
+	@Test
+	public void shouldSignalErrorWhenXmlIsMalformed() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		jaxb.read(XmlPojo.class).from("<Root><xmlPojo><id>id1</id></xmlPojo><xmlPojo>").publisher().subscribe(subscriber);
+		subscriber.subscription.request(10);
+		assertThat(subscriber.ids, is((List<String>) list("id1")));
+		assertThat(subscriber.error, instanceOf(XmlException.class));
+		assertThat(subscriber.completed, is(false));
+	}
+
+	@Test
+	public void shouldSignalErrorWhenXmlIsMalformedBeforeTheFirstElement() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		jaxb.read(XmlPojo.class).from("<?xml version=\"1.0\"?><<Root>").publisher().subscribe(subscriber);
+		assertThat(subscriber.subscription, is(notNullValue()));
+
+		subscriber.subscription.request(10);
+		assertThat(subscriber.ids, is(empty()));
+		assertThat(subscriber.error, instanceOf(XmlException.class));
+		assertThat(subscriber.completed, is(false));
+	}
+
+	@Test
+	public void shouldSignalErrorWhenTypeCannotBeBound() {
+		final List<Throwable> errors = new ArrayList<>();
+		final List<Subscription> subscriptions = new ArrayList<>();
+		jaxb.read(Runnable.class).from(xml).publisher().subscribe(new Subscriber<Runnable>() {
+			@Override
+			public void onSubscribe(Subscription subscription) {
+				subscriptions.add(subscription);
+			}
+
+			@Override
+			public void onNext(Runnable item) {
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				errors.add(throwable);
+			}
+
+			@Override
+			public void onComplete() {
+			}
+		});
+		assertThat(subscriptions.size(), is(1));
+		assertThat(errors.size(), is(1));
+		assertThat(errors.get(0), instanceOf(XmlException.class));
+	}
+
+	@Test
+	public void shouldSignalErrorWhenSourceCannotBeOpened() {
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		jaxb.read(XmlPojo.class).from(Paths.get("does-not-exist.xml")).publisher().subscribe(subscriber);
+		assertThat(subscriber.subscription, is(notNullValue()));
+		assertThat(subscriber.error, instanceOf(XmlException.class));
+		assertThat(subscriber.error.getMessage(), containsString("does-not-exist.xml"));
+	}
+
+	@Test
+	public void shouldSignalErrorToSecondSubscriber() {
+		JaxbPublisher<XmlPojo> publisher = jaxb.read(XmlPojo.class).from(xml).publisher();
+		publisher.subscribe(new RecordingSubscriber());
+		RecordingSubscriber second = new RecordingSubscriber();
+		publisher.subscribe(second);
+		assertThat(second.subscription, is(notNullValue()));
+		assertThat(second.error, instanceOf(XmlException.class));
+	}
+
+	@Test
+	public void shouldRejectNullSubscriber() {
+		thrown.expect(NullPointerException.class);
+		jaxb.read(XmlPojo.class).from(xml).publisher().subscribe(null);
+	}
+
+	@Test
+	public void shouldThrowExceptionWhenNoStreamSpecified() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("You have not specified a data source, such as an InputStream, String or byte[]");
+		jaxb.read(XmlPojo.class).publisher();
+	}
+
+	private static class RecordingSubscriber implements Subscriber<XmlPojo> {
+		protected Subscription subscription;
+		private List<String> ids = new ArrayList<>();
+		private boolean completed = false;
+		private Throwable error = null;
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(XmlPojo item) {
+			ids.add(item.getId());
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+	}
+
+	private static class TrackingInputStream extends ByteArrayInputStream {
+		private boolean closed = false;
+
+		private TrackingInputStream(String xml) {
+			super(xml.getBytes(Charset.forName(StringPool.UTF_8)));
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+			super.close();
+		}
+	}
+}
@@ -18,15 +18,27 @@
  */
 package com.atomicleopard.thundr.xml.jaxb;
 
+import static com.atomicleopard.expressive.Expressive.list;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.namespace.QName;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -35,6 +47,8 @@ import org.junit.rules.ExpectedException;
 import com.atomicleopard.thundr.xml.XmlException;
 import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
 
+import jodd.util.StringPool;
+
 public class JaxbReaderTest {
 
 	@Rule
@@ -200,6 +214,655 @@ public class JaxbReaderTest {
 		assertThat(batches.get(19).get(0).getId(), is(notNullValue()));
 	}
 
+	@Test
+	public void shouldChangeExecutorAndOrderingAndReturnNewInstance() {
+		JaxbReader<XmlPojo> original = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class);
+		assertThat(original.executor, nullValue());
+		assertThat(original.maxPendingBatches, is(4));
+		assertThat(original.ordered, is(true));
+
+		Executor executor = mock(Executor.class);
+		JaxbReader<XmlPojo> reader = original.processIn(executor);
+		assertThat(reader.executor, is(executor));
+		assertThat(reader.maxPendingBatches, is(4));
+		assertThat(reader, is(not(sameInstance(original))));
+
+		reader = reader.processIn(executor, 0);
+		assertThat(reader.maxPendingBatches, is(1));
+
+		reader = reader.ordered(false);
+		assertThat(reader.ordered, is(false));
+		assertThat(reader.executor, is(executor));
+	}
+
+	@Test
+	public void shouldStreamInParallelCombiningResultsInOrder() {
+		String xml = "<Root>";
+		for (int i = 0; i < 50; i++) {
+			xml += "<xmlPojo><id>" + i + "</id></xmlPojo>";
+		}
+		xml += "</Root>";
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<XmlPojo> result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(xml).batchSize(3).processIn(executor, 2).stream(new GatherBatch<XmlPojo>(), new Combiner<List<XmlPojo>>() {
+				@Override
+				public List<XmlPojo> combine(List<XmlPojo> left, List<XmlPojo> right) {
+					left.addAll(right);
+					return left;
+				}
+			});
+			assertThat(result.size(), is(50));
+			for (int i = 0; i < 50; i++) {
+				assertThat(result.get(i).getId(), is("" + i));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldChangeUnmarshalExecutorAndReturnNewInstance() {
+		JaxbReader<XmlPojo> original = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class);
+		assertThat(original.unmarshalExecutor, nullValue());
+		assertThat(original.maxPendingElements, is(256));
+
+		Executor executor = mock(Executor.class);
+		JaxbReader<XmlPojo> reader = original.unmarshalIn(executor);
+		assertThat(reader.unmarshalExecutor, is(executor));
+		assertThat(reader.maxPendingElements, is(256));
+		assertThat(reader, is(not(sameInstance(original))));
+
+		reader = reader.unmarshalIn(executor, 0);
+		assertThat(reader.maxPendingElements, is(1));
+		assertThat(reader.batchSize(5).unmarshalExecutor, is(executor));
+	}
+
+	@Test
+	public void shouldStreamElementsSeparatedByWhitespaceAndComments() {
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Root>\n\t<xmlPojo><id>id1</id></xmlPojo>\n\t<!-- comment -->\n\t<xmlPojo><id>id2</id></xmlPojo>\n</Root>\n";
+		List<XmlPojo> result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(xml).list();
+		assertThat(result.size(), is(2));
+		assertThat(result.get(0).getId(), is("id1"));
+		assertThat(result.get(1).getId(), is("id2"));
+	}
+
+	@Test
+	public void shouldUnmarshalInParallelPreservingOrder() {
+		String xml = "<Root xmlns:unused=\"urn:unused\">\n";
+		for (int i = 0; i < 500; i++) {
+			xml += "\t<xmlPojo><amount>" + i + ".5</amount><id>" + i + "</id><name>name" + i + "</name></xmlPojo>\n";
+		}
+		xml += "</Root>";
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<List<XmlPojo>> batches = new ArrayList<>();
+			Integer count = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(xml).batchSize(7).unmarshalIn(executor, 32).stream(new Batch<XmlPojo, Integer>() {
+				@Override
+				public Integer process(Integer result, List<XmlPojo> batch) {
+					batches.add(batch);
+					return batch.size() + (result == null ? 0 : result);
+				}
+			});
+			assertThat(count, is(500));
+			assertThat(batches.size(), is(72));
+			assertThat(batches.get(0).size(), is(7));
+			assertThat(batches.get(71).size(), is(3));
+			int i = 0;
+			for (List<XmlPojo> batch : batches) {
+				for (XmlPojo pojo : batch) {
+					assertThat(pojo.getId(), is("" + i));
+					assertThat(pojo.getName(), is("name" + i));
+					assertThat(pojo.getAmount(), is(new BigDecimal(i + ".5")));
+					i++;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldUnmarshalAndProcessInParallel() {
+		String xml = "<Root>";
+		for (int i = 0; i < 100; i++) {
+			xml += "<xmlPojo><id>" + i + "</id></xmlPojo>";
+		}
+		xml += "</Root>";
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<XmlPojo> result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(xml).batchSize(10).unmarshalIn(executor).processIn(executor).stream(new GatherBatch<XmlPojo>(), new Combiner<List<XmlPojo>>() {
+				@Override
+				public List<XmlPojo> combine(List<XmlPojo> left, List<XmlPojo> right) {
+					left.addAll(right);
+					return left;
+				}
+			});
+			assertThat(result.size(), is(100));
+			for (int i = 0; i < 100; i++) {
+				assertThat(result.get(i).getId(), is("" + i));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenXmlIsMalformedWhileUnmarshallingInParallel() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to batch process xml");
+
+		String xml = "<Root><xmlPojo><id>1</id></xmlPojo><xmlPojo><id>2</xmlPojo></Root>";
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(xml).unmarshalIn(executor).list();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldChangePathAndReturnNewInstance() {
+		JaxbReader<XmlPojo> original = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class);
+		assertThat(original.path, is(ElementPath.ChildrenOfRoot));
+
+		JaxbReader<XmlPojo> reader = original.at("/feed/items/xmlPojo");
+		assertThat(reader.path.toString(), is("/feed/items/xmlPojo"));
+		assertThat(reader, is(not(sameInstance(original))));
+		assertThat(reader.batchSize(5).path, is(sameInstance(reader.path)));
+
+		reader = reader.at(new QName("urn:pojo", "xmlPojo"));
+		assertThat(reader.path.toString(), is("{urn:pojo}xmlPojo"));
+	}
+
+	@Test
+	public void shouldStreamNestedElementsMatchingPath() {
+		String xml = "<feed><header><title>Feed</title><xmlPojo><id>header</id></xmlPojo></header><items><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></items></feed>";
+		List<XmlPojo> result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(xml).at("/feed/items/xmlPojo").list();
+		assertThat(result.size(), is(2));
+		assertThat(result.get(0).getId(), is("id1"));
+		assertThat(result.get(1).getId(), is("id2"));
+	}
+
+	@Test
+	public void shouldIterateOverAndUnmarshalInParallelElementsMatchingPath() {
+		String xml = "<feed><header/><items><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></items></feed>";
+		JaxbReader<XmlPojo> reader = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).at("xmlPojo");
+
+		JaxbIterator<XmlPojo> iterator = reader.from(xml).iterator();
+		assertThat(iterator.next().getId(), is("id1"));
+		assertThat(iterator.next().getId(), is("id2"));
+		assertThat(iterator.hasNext(), is(false));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<XmlPojo> result = reader.from(xml).unmarshalIn(executor).list();
+			assertThat(result.size(), is(2));
+			assertThat(result.get(1).getId(), is("id2"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldThrowExceptionForInvalidPath() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Invalid element path");
+		new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).at("/feed//item");
+	}
+
+	@Test
+	public void shouldReadOneFromPath() throws IOException {
+		Path path = Files.createTempFile("jaxb-reader", ".xml");
+		try {
+			Files.write(path, "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id><name>name</name></xmlPojo>".getBytes("UTF-8"));
+			JaxbReader<XmlPojo> reader = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(path);
+			assertThat(reader.file, is(path));
+			assertThat(reader.stream, is(nullValue()));
+
+			XmlPojo result = reader.one();
+			assertThat(result.getId(), is("id"));
+			assertThat(result.getName(), is("name"));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldListAndIterateFromPath() throws IOException {
+		Path path = Files.createTempFile("jaxb-reader", ".xml");
+		try {
+			Files.write(path, "<Root><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></Root>".getBytes("UTF-8"));
+			JaxbReader<XmlPojo> reader = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class);
+
+			List<XmlPojo> result = reader.from(path).list();
+			assertThat(result.size(), is(2));
+			assertThat(result.get(1).getId(), is("id2"));
+
+			try (JaxbIterator<XmlPojo> iterator = reader.from(path).iterator()) {
+				assertThat(iterator.next().getId(), is("id1"));
+				assertThat(iterator.next().getId(), is("id2"));
+				assertThat(iterator.hasNext(), is(false));
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldCloseFileOnceReadFromPath() throws IOException {
+		Path path = Files.createTempFile("jaxb-reader", ".xml");
+		try {
+			Files.write(path, "<Root><xmlPojo><id>id1</id></xmlPojo></Root>".getBytes("UTF-8"));
+			List<JaxbReader<XmlPojo>> opened = new ArrayList<>();
+			JaxbReader<XmlPojo> reader = openRecordingReader(new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(path), opened);
+			reader.list();
+
+			assertThat(opened.size(), is(1));
+			thrown.expect(IOException.class);
+			thrown.expectMessage("Stream closed");
+			opened.get(0).stream.read();
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldCloseFileWhenReadingFromPathFails() throws IOException {
+		Path path = Files.createTempFile("jaxb-reader", ".xml");
+		try {
+			Files.write(path, "<xmlPojo><id>".getBytes("UTF-8"));
+			List<JaxbReader<XmlPojo>> opened = new ArrayList<>();
+			JaxbReader<XmlPojo> reader = openRecordingReader(new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(path), opened);
+			try {
+				reader.one();
+			} catch (XmlException e) {
+				assertThat(e.getMessage(), containsString("Failed to read into type"));
+			}
+
+			assertThat(opened.size(), is(1));
+			thrown.expect(IOException.class);
+			thrown.expectMessage("Stream closed");
+			opened.get(0).stream.read();
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldThrowExceptionWhenPathCannotBeRead() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to read xml from");
+		new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(Paths.get("does-not-exist.xml")).one();
+	}
+
+	@Test
+	public void shouldNotOpenPathUntilRead() {
+		JaxbReader<XmlPojo> reader = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(Paths.get("does-not-exist.xml"));
+		assertThat(reader.stream, is(nullValue()));
+		assertThat(reader.from("<xmlPojo><id>id</id></xmlPojo>").one().getId(), is("id"));
+	}
+
+	@Test
+	public void shouldReadFromPathManyTimes() throws IOException {
+		Path path = Files.createTempFile("jaxb-reader", ".xml");
+		try {
+			Files.write(path, "<Root><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></Root>".getBytes("UTF-8"));
+			JaxbReader<XmlPojo> reader = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(path).batchSize(1);
+
+			assertThat(reader.list().size(), is(2));
+			assertThat(reader.list().size(), is(2));
+			try (JaxbIterator<XmlPojo> iterator = reader.iterator()) {
+				assertThat(iterator.next().getId(), is("id1"));
+			}
+			assertThat(reader.validate(false).list().get(1).getId(), is("id2"));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldRetainDataOnlyForByteArraySources() {
+		byte[] data = "<xmlPojo><id>id</id></xmlPojo>".getBytes();
+		JaxbReader<XmlPojo> reader = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(data);
+		assertThat(reader.data, is(sameInstance(data)));
+		assertThat(reader.closeStream, is(false));
+		assertThat(reader.batchSize(10).data, is(sameInstance(data)));
+		assertThat(reader.one().getId(), is("id"));
+
+		assertThat(reader.from("<xmlPojo/>").data, is(notNullValue()));
+		assertThat(reader.from(new ByteArrayInputStream(data)).data, is(nullValue()));
+	}
+
+	@Test
+	public void shouldChangeParseExecutorAndReturnNewInstance() {
+		JaxbReader<XmlPojo> original = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class);
+		assertThat(original.parseExecutor, is(nullValue()));
+		assertThat(original.segments, is(Runtime.getRuntime().availableProcessors()));
+
+		Executor executor = mock(Executor.class);
+		JaxbReader<XmlPojo> reader = original.parseIn(executor, 0);
+		assertThat(reader.parseExecutor, is(executor));
+		assertThat(reader.segments, is(1));
+		assertThat(reader, is(not(sameInstance(original))));
+		assertThat(reader.batchSize(10).parseExecutor, is(executor));
+		assertThat(reader.parseIn(executor, 6).segments, is(6));
+		assertThat(reader.isSegmented(), is(false));
+	}
+
+	@Test
+	public void shouldParseSegmentsOfPathInParallel() throws IOException {
+		Path path = Files.createTempFile("jaxb-reader", ".xml");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Root>\n");
+			for (int i = 0; i < 30000; i++) {
+				xml.append("<xmlPojo><amount>").append(i).append(".25</amount><id>id").append(i).append("</id><name>name</name></xmlPojo>\n");
+			}
+			Files.write(path, xml.append("</Root>\n").toString().getBytes("UTF-8"));
+			assertThat(Files.size(path) > 2 * FileSegments.MinSegmentSize, is(true));
+
+			JaxbReader<XmlPojo> reader = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(path).batchSize(100).parseIn(executor, 4);
+			assertThat(reader.isSegmented(), is(true));
+			List<XmlPojo> result = reader.list();
+			assertThat(result.size(), is(30000));
+			for (int i = 0; i < result.size(); i++) {
+				assertThat(result.get(i).getId(), is("id" + i));
+			}
+
+			Integer count = reader.from(path).ordered(false).stream(new Batch<XmlPojo, Integer>() {
+				@Override
+				public Integer process(Integer result, List<XmlPojo> batch) {
+					return (result == null ? 0 : result) + batch.size();
+				}
+			});
+			assertThat(count, is(30000));
+
+			BigDecimal total = reader.from(path).stream(new Batch<XmlPojo, BigDecimal>() {
+				@Override
+				public BigDecimal process(BigDecimal result, List<XmlPojo> batch) {
+					BigDecimal total = BigDecimal.ZERO;
+					for (XmlPojo pojo : batch) {
+						total = total.add(pojo.getAmount());
+					}
+					return total;
+				}
+			}, new Combiner<BigDecimal>() {
+				@Override
+				public BigDecimal combine(BigDecimal left, BigDecimal right) {
+					return left.add(right);
+				}
+			});
+			assertThat(total, is(new BigDecimal("449992500.00")));
+		} finally {
+			executor.shutdownNow();
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldReadOtherSourcesAsNormalWhenParsingInParallel() {
+		String xml = "<Root><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></Root>";
+		Executor executor = mock(Executor.class);
+		List<XmlPojo> result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).parseIn(executor).from(xml).list();
+		assertThat(result.size(), is(2));
+		assertThat(result.get(1).getId(), is("id2"));
+	}
+
+	@Test
+	public void shouldChangeCheckpointAndResumeAndReturnNewInstance() {
+		JaxbReader<XmlPojo> original = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class);
+		assertThat(original.checkpointStore, is(nullValue()));
+		assertThat(original.resumeFrom, is(nullValue()));
+		assertThat(original.isCheckpointed(), is(false));
+
+		CheckpointStore store = new MemoryStore();
+		JaxbReader<XmlPojo> reader = original.checkpoint(store, "import");
+		assertThat(reader.checkpointStore, is(store));
+		assertThat(reader.checkpointKey, is("import"));
+		assertThat(reader.isCheckpointed(), is(true));
+		assertThat(reader, is(not(sameInstance(original))));
+		assertThat(reader.resume().resumeFrom, is(nullValue()));
+
+		store.save("import", new Checkpoint(400, 1000));
+		JaxbReader<XmlPojo> resumed = reader.resume();
+		assertThat(resumed.resumeFrom, is(new Checkpoint(400, 1000)));
+		assertThat(resumed.batchSize(10).resumeFrom, is(new Checkpoint(400, 1000)));
+		assertThat(resumed.resume(null).resumeFrom, is(nullValue()));
+		assertThat(resumed.checkpointStore, is(store));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenResumingWithoutCheckpointStore() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("You have not specified a checkpoint store to resume from");
+		new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).resume();
+	}
+
+	@Test
+	public void shouldCheckpointEachBatchAndResumePathFromOffsetOfNextElement() throws IOException {
+		Path path = Files.createTempFile("jaxb-reader", ".xml");
+		MemoryStore store = new MemoryStore();
+		try {
+			String xml = pojos(1000);
+			Files.write(path, xml.getBytes("UTF-8"));
+			JaxbReader<XmlPojo> reader = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(path).batchSize(100).checkpoint(store, "import");
+			try {
+				reader.stream(failAfter(400));
+			} catch (IllegalStateException e) {
+				// the import died part way through
+			}
+			assertThat(store.load("import"), is(new Checkpoint(400, xml.indexOf("<xmlPojo><id>id400<"))));
+
+			List<String> ids = reader.from(path).resume().stream(new Batch<XmlPojo, List<String>>() {
+				@Override
+				public List<String> process(List<String> result, List<XmlPojo> batch) {
+					result = result == null ? new ArrayList<String>() : result;
+					for (XmlPojo pojo : batch) {
+						result.add(pojo.getId());
+					}
+					return result;
+				}
+			});
+			assertThat(ids.size(), is(600));
+			assertThat(ids.get(0), is("id400"));
+			assertThat(ids.get(599), is("id999"));
+			assertThat(store.load("import"), is(nullValue()));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldResumeBySkippingElementsWhenOffsetIsUnknown() {
+		String xml = pojos(10).replace("<Root>", "<Root><!-- comment -->");
+		List<XmlPojo> result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(xml).resume(new Checkpoint(7, -1)).list();
+		assertThat(result.size(), is(3));
+		assertThat(result.get(0).getId(), is("id7"));
+	}
+
+	@Test
+	public void shouldSaveUnknownOffsetAndResumeBySkippingForStreams() {
+		MemoryStore store = new MemoryStore();
+		JaxbReader<XmlPojo> reader = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).batchSize(2).checkpoint(store, "import");
+		try {
+			reader.from(pojos(10)).stream(failAfter(4));
+		} catch (IllegalStateException e) {
+			// the import died part way through
+		}
+		assertThat(store.load("import"), is(new Checkpoint(4, -1)));
+
+		List<XmlPojo> result = reader.from(pojos(10)).resume().list();
+		assertThat(result.size(), is(6));
+		assertThat(result.get(0).getId(), is("id4"));
+		assertThat(store.load("import"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldCheckpointBatchesProcessedInParallelInOrder() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		MemoryStore store = new MemoryStore();
+		try {
+			Integer count = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(pojos(10)).batchSize(3).processIn(executor).checkpoint(store, "import")
+					.stream(new Batch<XmlPojo, Integer>() {
+						@Override
+						public Integer process(Integer result, List<XmlPojo> batch) {
+							return batch.size();
+						}
+					}, new Combiner<Integer>() {
+						@Override
+						public Integer combine(Integer left, Integer right) {
+							return left + right;
+						}
+					});
+			assertThat(count, is(10));
+			assertThat(store.saved, is((List<Checkpoint>) list(new Checkpoint(3, -1), new Checkpoint(6, -1), new Checkpoint(9, -1), new Checkpoint(10, -1))));
+			assertThat(store.load("import"), is(nullValue()));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenCheckpointingUnorderedParallelBatches() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Checkpoints cannot be taken when batches are processed in parallel and combined unordered");
+		Executor executor = mock(Executor.class);
+		GatherBatch<XmlPojo> gather = new GatherBatch<XmlPojo>();
+		new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(pojos(2)).processIn(executor).ordered(false).checkpoint(new MemoryStore(), "import").stream(gather, gather);
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenCheckpointingSegmentedParsing() throws IOException {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Checkpoints cannot be taken or resumed from when parsing a file in segments");
+		Path path = Files.createTempFile("jaxb-reader", ".xml");
+		try {
+			Files.write(path, pojos(2).getBytes("UTF-8"));
+			Executor executor = mock(Executor.class);
+			new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(path).parseIn(executor).resume(new Checkpoint(1, -1)).list();
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenCheckpointOffsetIsNotAnElement() throws IOException {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("there is no 'xmlPojo' element at offset 3");
+		Path path = Files.createTempFile("jaxb-reader", ".xml");
+		try {
+			Files.write(path, pojos(2).getBytes("UTF-8"));
+			new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(path).resume(new Checkpoint(1, 3)).list();
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldChangeErrorPolicyAndReturnNewInstance() {
+		JaxbReader<XmlPojo> original = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class);
+		assertThat(original.errorPolicy, is(ErrorPolicy.FailFast));
+		assertThat(original.deadLetters, is(nullValue()));
+
+		JaxbReader<XmlPojo> reader = original.onError(ErrorPolicy.Skip);
+		assertThat(reader.errorPolicy, is(ErrorPolicy.Skip));
+		assertThat(reader, is(not(sameInstance(original))));
+
+		DeadLetterSink deadLetters = new CollectingDeadLetterSink();
+		reader = reader.onError(ErrorPolicy.SkipAndCollect, deadLetters);
+		assertThat(reader.errorPolicy, is(ErrorPolicy.SkipAndCollect));
+		assertThat(reader.deadLetters, is(deadLetters));
+		assertThat(reader.batchSize(10).deadLetters, is(deadLetters));
+		assertThat(reader.onError(ErrorPolicy.FailFast, deadLetters).deadLetters, is(nullValue()));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenCollectingWithoutDeadLetterSink() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("You have not specified a dead letter sink to collect rejected elements");
+		new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).onError(ErrorPolicy.SkipAndCollect);
+	}
+
+	@Test
+	public void shouldLeaveValuesWhichCannotBeConvertedUnsetWhenFailingFast() {
+		List<XmlPojo> result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(pojosWithBadAmounts(4, 2)).list();
+		assertThat(result.size(), is(4));
+		assertThat(result.get(2).getAmount(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldSkipElementsWhichCannotBeUnmarshalled() {
+		List<XmlPojo> result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(pojosWithBadAmounts(10, 0, 4, 5, 9)).onError(ErrorPolicy.Skip).list();
+		assertThat(ids(result), is((List<String>) list("id1", "id2", "id3", "id6", "id7", "id8")));
+	}
+
+	@Test
+	public void shouldSkipAndCollectElementsWhichCannotBeUnmarshalled() throws IOException {
+		CollectingDeadLetterSink deadLetters = new CollectingDeadLetterSink();
+		List<XmlPojo> result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(pojosWithBadAmounts(10, 4, 5)).onError(ErrorPolicy.SkipAndCollect, deadLetters).list();
+		assertThat(result.size(), is(8));
+		assertThat(result.get(4).getId(), is("id6"));
+
+		List<DeadLetter> rejected = deadLetters.getDeadLetters();
+		assertThat(rejected.size(), is(2));
+		assertThat(rejected.get(0).getIndex(), is(4L));
+		assertThat(rejected.get(0).getName(), is(new QName("xmlPojo")));
+		assertThat(rejected.get(0).getLine(), is(7));
+		assertThat(new String(rejected.get(0).getFragment(), StringPool.UTF_8), containsString("<id>id4</id>"));
+		assertThat(rejected.get(0).getCause(), is(notNullValue()));
+		assertThat(rejected.get(1).getIndex(), is(5L));
+	}
+
+	@Test
+	public void shouldSkipAndCollectElementsWhenUnmarshallingInParallel() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		CollectingDeadLetterSink deadLetters = new CollectingDeadLetterSink();
+		try {
+			List<XmlPojo> result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(pojosWithBadAmounts(100, 10, 50, 99)).unmarshalIn(executor)
+					.onError(ErrorPolicy.SkipAndCollect, deadLetters).list();
+			assertThat(result.size(), is(97));
+			assertThat(result.get(10).getId(), is("id11"));
+			assertThat(deadLetters.size(), is(3));
+			assertThat(deadLetters.getDeadLetters().get(2).getIndex(), is(99L));
+
+			result = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(pojosWithBadAmounts(100, 10)).unmarshalIn(executor).onError(ErrorPolicy.Skip).list();
+			assertThat(result.size(), is(99));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldCountSkippedElementsInCheckpoints() {
+		MemoryStore store = new MemoryStore();
+		new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(pojosWithBadAmounts(10, 1, 2)).batchSize(3).onError(ErrorPolicy.Skip).checkpoint(store, "import")
+				.stream(new GatherBatch<XmlPojo>());
+		assertThat(store.saved, is((List<Checkpoint>) list(new Checkpoint(5, -1), new Checkpoint(8, -1), new Checkpoint(10, -1))));
+	}
+
+	@Test
+	public void shouldFailWhenSkippingElementsOfXmlWhichIsNotWellFormed() {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to batch process xml");
+		new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from("<Root><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</xmlPojo></Root>").onError(ErrorPolicy.Skip).list();
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenSkippingElementsOfSegmentedParsing() throws IOException {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Elements cannot be skipped when parsing a file in segments");
+		Path path = Files.createTempFile("jaxb-reader", ".xml");
+		try {
+			Files.write(path, pojos(2).getBytes("UTF-8"));
+			new JaxbReader<XmlPojo>(jaxb, XmlPojo.class).from(path).parseIn(mock(Executor.class)).onError(ErrorPolicy.Skip).list();
+		} finally {
+			Files.delete(path);
+		}
+	}
+
 	@Test
 	public void shouldRestrictBatchSizeToPositiveInteger() {
 		JaxbReader<XmlPojo> reader = new JaxbReader<XmlPojo>(jaxb, XmlPojo.class);
@@ -208,4 +871,73 @@ public class JaxbReaderTest {
 		assertThat(reader.batchSize(0).batchSize, is(1));
 		assertThat(reader.batchSize(1).batchSize, is(1));
 	}
+
+	private String pojos(int count) {
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Root>\n");
+		for (int i = 0; i < count; i++) {
+			xml.append("<xmlPojo><id>id").append(i).append("</id><name>name</name></xmlPojo>\n");
+		}
+		return xml.append("</Root>\n").toString();
+	}
+
+	private String pojosWithBadAmounts(int count, Integer... bad) {
+		String xml = pojos(count);
+		for (Integer i : bad) {
+			xml = xml.replace("<xmlPojo><id>id" + i + "<", "<xmlPojo><amount>lots</amount><id>id" + i + "<");
+		}
+		return xml;
+	}
+
+	private List<String> ids(List<XmlPojo> pojos) {
+		List<String> ids = new ArrayList<>();
+		for (XmlPojo pojo : pojos) {
+			ids.add(pojo.getId());
+		}
+		return ids;
+	}
+
+	private Batch<XmlPojo, Integer> failAfter(final int count) {
+		return new Batch<XmlPojo, Integer>() {
+			@Override
+			public Integer process(Integer result, List<XmlPojo> batch) {
+				result = (result == null ? 0 : result) + batch.size();
+				if (result > count) {
+					throw new IllegalStateException("Failed after " + count);
+				}
+				return result;
+			}
+		};
+	}
+
+	private static class MemoryStore implements CheckpointStore {
+		private Map<String, Checkpoint> checkpoints = new HashMap<>();
+		private List<Checkpoint> saved = new ArrayList<>();
+
+		@Override
+		public synchronized Checkpoint load(String key) {
+			return checkpoints.get(key);
+		}
+
+		@Override
+		public synchronized void save(String key, Checkpoint checkpoint) {
+			checkpoints.put(key, checkpoint);
+			saved.add(checkpoint);
+		}
+
+		@Override
+		public synchronized void clear(String key) {
+			checkpoints.remove(key);
+		}
+	}
+
+	private JaxbReader<XmlPojo> openRecordingReader(JaxbReader<XmlPojo> reader, final List<JaxbReader<XmlPojo>> opened) {
+		return new JaxbReader<XmlPojo>(reader) {
+			@Override
+			protected JaxbReader<XmlPojo> open() {
+				JaxbReader<XmlPojo> open = super.open();
+				opened.add(open);
+				return open;
+			}
+		};
+	}
 }
@@ -22,17 +22,27 @@ import static com.atomicleopard.expressive.Expressive.list;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLInputFactory;
+
 import org.junit.Test;
 
 import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
 import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNamedRootElement;
 import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNoRoot;
+import com.atomicleopard.thundr.xml.metrics.HistogramJaxbMetrics;
+import com.atomicleopard.thundr.xml.metrics.HistogramJaxbMetrics.Metric;
+import com.atomicleopard.thundr.xml.metrics.JaxbMetrics;
 
 import jodd.io.StringOutputStream;
 
@@ -95,6 +105,57 @@ public class JaxbTest {
 		assertThat(data, is(expected.getBytes("ISO-8859-1")));
 	}
 
+	@Test
+	public void shouldWriteNonAsciiCharactersToString() {
+		XmlPojo xmlPojo = new XmlPojo("caf\u00e9", "\u20ac", null);
+
+		String xml = jaxb.write(xmlPojo).string();
+		assertThat(xml, is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>caf\u00e9</id><name>\u20ac</name></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldWriteCharactersOutsideEncodingAsReferencesToString() throws UnsupportedEncodingException {
+		XmlPojo xmlPojo = new XmlPojo("caf\u00e9", "\u20ac", null);
+
+		String one = jaxb.write(xmlPojo).encoding("ISO-8859-1").string();
+		assertThat(one, is("<?xml version=\"1.0\" encoding=\"ISO-8859-1\" standalone=\"yes\"?><xmlPojo><id>caf\u00e9</id><name>&#8364;</name></xmlPojo>"));
+		assertThat(new String(one.getBytes("ISO-8859-1"), "ISO-8859-1"), is(one));
+
+		String many = jaxb.write(list(xmlPojo)).encoding("ISO-8859-1").string();
+		assertThat(many, is("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><Root><xmlPojo><id>caf\u00e9</id><name>&#x20ac;</name></xmlPojo></Root>"));
+		assertThat(new String(many.getBytes("ISO-8859-1"), "ISO-8859-1"), is(many));
+	}
+
+	@Test
+	public void shouldWriteSuccessiveStringsIndependently() {
+		String first = jaxb.write(new XmlPojo("first", null, null)).string();
+		String second = jaxb.write(new XmlPojo("2", null, null)).string();
+		String many = jaxb.write(list(new XmlPojo("3", null, null))).string();
+
+		assertThat(first, is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>first</id></xmlPojo>"));
+		assertThat(second, is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>2</id></xmlPojo>"));
+		assertThat(many, is("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Root><xmlPojo><id>3</id></xmlPojo></Root>"));
+	}
+
+	@Test
+	public void shouldAppendXmlForPojo() {
+		StringBuilder builder = new StringBuilder("xml:");
+		StringBuilder result = jaxb.write(xmlPojo()).appendTo(builder);
+
+		assertThat(result, is(sameInstance(builder)));
+		assertThat(builder.toString(), is("xml:<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><amount>1.23</amount><id>Id</id><name>Name</name></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldAppendXmlForPojoIterator() {
+		StringBuilder builder = new StringBuilder("xml:");
+		jaxb.write(list(new XmlPojo("1", null, null), new XmlPojo("2", null, null))).rootElement("Pojos").appendTo(builder);
+		jaxb.write(list(new XmlPojo("3", null, null)).iterator()).flushEvery(1).appendTo(builder);
+
+		assertThat(builder.toString(), is("xml:<?xml version=\"1.0\" encoding=\"UTF-8\"?><Pojos><xmlPojo><id>1</id></xmlPojo><xmlPojo><id>2</id></xmlPojo></Pojos>"
+				+ "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Root><xmlPojo><id>3</id></xmlPojo></Root>"));
+	}
+
 	@Test
 	public void shouldWriteXmlForNamedRootPojo() {
 		XmlPojoWithNamedRootElement xmlPojo = xmlPojoWithNamedRoot();
@@ -264,6 +325,58 @@ public class JaxbTest {
 		assertThat(hydrated.get(2).getAmount(), is(new BigDecimal("3.23")));
 	}
 
+	@Test
+	public void shouldNotMeasureByDefault() {
+		assertThat(jaxb.getMetrics(), is(JaxbMetrics.None));
+	}
+
+	@Test
+	public void shouldReportMetricsForSingleReadsAndWrites() {
+		HistogramJaxbMetrics metrics = new HistogramJaxbMetrics();
+		jaxb = new Jaxb(new JaxbContextRegistry(), new JaxbPool(), new CachedStaxFactoryProvider(), metrics);
+
+		byte[] data = jaxb.write(xmlPojo()).to(new ByteArrayOutputStream()).toByteArray();
+		jaxb.write(xmlPojo()).string();
+		jaxb.read(XmlPojo.class).from(data).one();
+		jaxb.read(XmlPojo.class).from(new ByteArrayInputStream(data)).one();
+
+		assertThat(metrics.get(XmlPojo.class, Metric.Marshal).getCount(), is(2L));
+		assertThat(metrics.get(XmlPojo.class, Metric.BytesOut).getCount(), is(1L));
+		assertThat(metrics.get(XmlPojo.class, Metric.BytesOut).getMax(), is((long) data.length));
+		assertThat(metrics.get(XmlPojo.class, Metric.Unmarshal).getCount(), is(2L));
+		assertThat(metrics.get(XmlPojo.class, Metric.BytesIn).getCount(), is(2L));
+		assertThat(metrics.get(XmlPojo.class, Metric.BytesIn).getSum(), is(2L * data.length));
+	}
+
+	@Test
+	public void shouldReportMetricsForStreamedReadsAndWrites() {
+		HistogramJaxbMetrics metrics = new HistogramJaxbMetrics();
+		jaxb = new Jaxb(new JaxbContextRegistry(), new JaxbPool(), new CachedStaxFactoryProvider(), metrics);
+
+		byte[] data = jaxb.write(list(xmlPojo(1), xmlPojo(2), xmlPojo(3))).to(new ByteArrayOutputStream()).toByteArray();
+		List<XmlPojo> read = jaxb.read(XmlPojo.class).from(new ByteArrayInputStream(data)).batchSize(2).stream(new GatherBatch<XmlPojo>());
+
+		assertThat(read.size(), is(3));
+		assertThat(metrics.get(XmlPojo.class, Metric.StreamWrite).getCount(), is(1L));
+		assertThat(metrics.get(XmlPojo.class, Metric.ElementsWritten).getMax(), is(3L));
+		assertThat(metrics.get(XmlPojo.class, Metric.BytesOut).getMax(), is((long) data.length));
+		assertThat(metrics.get(XmlPojo.class, Metric.StreamRead).getCount(), is(1L));
+		assertThat(metrics.get(XmlPojo.class, Metric.ElementsRead).getMax(), is(3L));
+		assertThat(metrics.get(XmlPojo.class, Metric.BytesIn).getMax(), is((long) data.length));
+		assertThat(metrics.get(XmlPojo.class, Metric.BatchProcessing).getCount(), is(2L));
+		assertThat(metrics.get(XmlPojo.class, Metric.BatchSize).getSum(), is(3L));
+	}
+
+	@Test
+	public void shouldNotReportEmptyStreamedWrites() {
+		HistogramJaxbMetrics metrics = new HistogramJaxbMetrics();
+		jaxb = new Jaxb(new JaxbContextRegistry(), new JaxbPool(), new CachedStaxFactoryProvider(), metrics);
+
+		jaxb.write(new ArrayList<XmlPojo>()).string();
+
+		assertThat(metrics.getTypes(), is(empty()));
+	}
+
 	private XmlPojo xmlPojo() {
 		return xmlPojo(null);
 	}
@@ -293,4 +406,57 @@ public class JaxbTest {
 		BigDecimal amount = new BigDecimal((i == null ? "1" : i) + ".23");
 		return new XmlPojo("Id" + iStr, "Name" + iStr, amount);
 	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void shouldReadUsingOverriddenXmlInputFactory() {
+		final List<Boolean> created = new ArrayList<>();
+		jaxb = new Jaxb() {
+			@Override
+			protected XMLInputFactory newXmlInputFactory(boolean validate) {
+				created.add(validate);
+				return super.newXmlInputFactory(validate);
+			}
+		};
+		byte[] data = jaxb.write(xmlPojo()).to(new ByteArrayOutputStream()).toByteArray();
+
+		jaxb.read(XmlPojo.class).from(data).one();
+		jaxb.read(XmlPojo.class).from(new ByteArrayInputStream(data)).validate(true).one();
+
+		assertThat(created, contains(false, true));
+	}
+
+	@Test
+	public void shouldWriteUsingOverriddenMarshaller() throws JAXBException {
+		final List<Object> created = new ArrayList<>();
+		jaxb = new Jaxb() {
+			@Override
+			protected <T> Marshaller marshaller(T output, String encoding, boolean format) throws JAXBException {
+				created.add(output);
+				Marshaller marshaller = JAXBContext.newInstance(output.getClass()).createMarshaller();
+				marshaller.setProperty(Marshaller.JAXB_ENCODING, encoding);
+				marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, format);
+				marshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, "urn:pojo pojo.xsd");
+				return marshaller;
+			}
+		};
+		XmlPojo xmlPojo = new XmlPojo("Id", null, null);
+
+		String one = jaxb.write(xmlPojo).string();
+		String many = jaxb.write(list(xmlPojo, xmlPojo)).string();
+
+		assertThat(one, containsString("xsi:schemaLocation=\"urn:pojo pojo.xsd\""));
+		assertThat(many, containsString("xsi:schemaLocation=\"urn:pojo pojo.xsd\""));
+		assertThat(many, startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Root><xmlPojo"));
+		assertThat(created.size(), is(2));
+		assertThat(jaxb.getPool().getIdle(), is(0));
+	}
+
+	@Test
+	public void shouldReturnDefaultMarshallersToPool() {
+		jaxb.write(xmlPojo()).string();
+		jaxb.write(list(xmlPojo())).string();
+
+		assertThat(jaxb.getPool().getIdle(), is(2));
+	}
 }
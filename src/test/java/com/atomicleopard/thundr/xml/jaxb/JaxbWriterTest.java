@@ -23,17 +23,28 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
 
 import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
 import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNamedRootElement;
 
 public class JaxbWriterTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
 
 	private Jaxb jaxb = new Jaxb();
 	private XmlPojo pojo = new XmlPojo();
@@ -114,4 +125,56 @@ public class JaxbWriterTest {
 		String xml = new JaxbWriter<XmlPojoWithNamedRootElement>(jaxb, new XmlPojoWithNamedRootElement("id", "name", new BigDecimal("1.23"))).string();
 		assertThat(xml, is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><XmlPojo><amount>1.23</amount><id>id</id><name>name</name></XmlPojo>"));
 	}
+
+	@Test
+	public void shouldRetainBufferSizeAndSync() {
+		JaxbWriter<XmlPojo> original = new JaxbWriter<XmlPojo>(jaxb, pojo);
+		assertThat(original.bufferSize, is(ChannelOutputStream.DefaultBufferSize));
+		assertThat(original.sync, is(false));
+
+		JaxbWriter<XmlPojo> writer = original.bufferSize(1024).sync().encoding("UTF-16");
+		assertThat(writer, is(not(sameInstance(original))));
+		assertThat(writer.bufferSize, is(1024));
+		assertThat(writer.sync, is(true));
+		assertThat(writer.encoding, is("UTF-16"));
+		assertThat(original.bufferSize, is(ChannelOutputStream.DefaultBufferSize));
+	}
+
+	@Test
+	public void shouldWriteToChannel() {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		WritableByteChannel channel = Channels.newChannel(baos);
+		WritableByteChannel out = new JaxbWriter<XmlPojo>(jaxb, new XmlPojo("id", null, null)).bufferSize(8).to(channel);
+
+		assertThat(out, is(channel));
+		assertThat(channel.isOpen(), is(true));
+		assertThat(new String(baos.toByteArray()), is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldWriteToPath() throws IOException {
+		Path path = Files.createTempFile("jaxb-writer", ".xml");
+		try {
+			Files.write(path, "previous content which is longer than the xml output, and so must be truncated...............".getBytes());
+			Path out = new JaxbWriter<XmlPojo>(jaxb, new XmlPojo("id", null, null)).sync().to(path);
+
+			assertThat(out, is(path));
+			assertThat(new String(Files.readAllBytes(path), "UTF-8"), is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenPathCannotBeWritten() throws IOException {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to write xml to ");
+
+		Path directory = Files.createTempDirectory("jaxb-writer");
+		try {
+			new JaxbWriter<XmlPojo>(jaxb, new XmlPojo("id", null, null)).to(directory.resolve("missing").resolve("file.xml"));
+		} finally {
+			Files.delete(directory);
+		}
+	}
 }
@@ -0,0 +1,168 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class MappedFileInputStreamTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private Path path;
+
+	@Before
+	public void before() throws IOException {
+		path = Files.createTempFile("mapped-file", ".xml");
+		Files.write(path, "0123456789".getBytes());
+	}
+
+	@After
+	public void after() throws IOException {
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void shouldReadBytesAcrossSegments() throws IOException {
+		try (MappedFileInputStream is = new MappedFileInputStream(path, 3)) {
+			StringBuilder sb = new StringBuilder();
+			int b;
+			while ((b = is.read()) != -1) {
+				sb.append((char) b);
+			}
+			assertThat(sb.toString(), is("0123456789"));
+			assertThat(is.read(), is(-1));
+		}
+	}
+
+	@Test
+	public void shouldReadArraysAcrossSegments() throws IOException {
+		try (MappedFileInputStream is = new MappedFileInputStream(path, 4)) {
+			byte[] buffer = new byte[8];
+			assertThat(is.read(buffer, 0, 8), is(4));
+			assertThat(is.read(buffer, 4, 4), is(4));
+			assertThat(new String(buffer), is("01234567"));
+			assertThat(is.read(buffer, 0, 8), is(2));
+			assertThat(is.read(buffer, 0, 8), is(-1));
+			assertThat(is.read(buffer, 0, 0), is(0));
+		}
+	}
+
+	@Test
+	public void shouldReadWholeFileWithDefaultSegmentSize() throws IOException {
+		try (MappedFileInputStream is = new MappedFileInputStream(path)) {
+			assertThat(is.available(), is(10));
+			assertThat(read(is), is("0123456789"));
+			assertThat(is.available(), is(0));
+		}
+	}
+
+	@Test
+	public void shouldReadPartOfFile() throws IOException {
+		try (MappedFileInputStream is = new MappedFileInputStream(path, 2, 5, 2)) {
+			assertThat(is.position(), is(2L));
+			assertThat(is.available(), is(5));
+			assertThat(read(is), is("23456"));
+		}
+		try (MappedFileInputStream is = new MappedFileInputStream(path, 7, Long.MAX_VALUE)) {
+			assertThat(read(is), is("789"));
+		}
+		try (MappedFileInputStream is = new MappedFileInputStream(path, 20, 5)) {
+			assertThat(is.read(), is(-1));
+		}
+	}
+
+	@Test
+	public void shouldSkipAcrossSegments() throws IOException {
+		try (MappedFileInputStream is = new MappedFileInputStream(path, 3)) {
+			assertThat(is.read(), is((int) '0'));
+			assertThat(is.skip(5), is(5L));
+			assertThat(is.position(), is(6L));
+			assertThat(is.available(), is(4));
+			assertThat(is.skip(10), is(4L));
+			assertThat(is.read(), is(-1));
+		}
+	}
+
+	@Test
+	public void shouldResetToMark() throws IOException {
+		try (MappedFileInputStream is = new MappedFileInputStream(path, 3)) {
+			assertThat(is.markSupported(), is(true));
+			is.skip(2);
+			is.mark(0);
+			assertThat(is.skip(5), is(5L));
+			is.reset();
+			assertThat(read(is), is("23456789"));
+		}
+	}
+
+	@Test
+	public void shouldReadEmptyFile() throws IOException {
+		Files.write(path, new byte[0]);
+		try (MappedFileInputStream is = new MappedFileInputStream(path)) {
+			assertThat(is.read(), is(-1));
+			assertThat(is.read(new byte[4], 0, 4), is(-1));
+		}
+	}
+
+	@Test
+	public void shouldFailToResetWithoutMark() throws IOException {
+		thrown.expect(IOException.class);
+		try (MappedFileInputStream is = new MappedFileInputStream(path)) {
+			is.reset();
+		}
+	}
+
+	@Test
+	public void shouldFailToReadOnceClosed() throws IOException {
+		thrown.expect(IOException.class);
+		thrown.expectMessage("Stream closed");
+		MappedFileInputStream is = new MappedFileInputStream(path);
+		is.close();
+		is.read();
+	}
+
+	@Test
+	public void shouldFailForMissingFile() throws IOException {
+		thrown.expect(IOException.class);
+		new MappedFileInputStream(Paths.get(path.toString() + ".missing"));
+	}
+
+	private String read(MappedFileInputStream is) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[3];
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			baos.write(buffer, 0, read);
+		}
+		return new String(baos.toByteArray());
+	}
+}
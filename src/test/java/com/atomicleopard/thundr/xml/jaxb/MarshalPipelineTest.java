@@ -0,0 +1,165 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+
+import jodd.util.StringPool;
+
+public class MarshalPipelineTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private ExecutorService executor = Executors.newFixedThreadPool(4);
+	private JaxbPool pool = new JaxbPool();
+	private JAXBContext context = new JaxbContextRegistry().get(XmlPojo.class);
+	private QName elementName = new QName("xmlPojo");
+
+	@After
+	public void after() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldReturnFragmentsInSubmissionOrder() throws Exception {
+		MarshalPipeline<XmlPojo> pipeline = new MarshalPipeline<>(pool, context, elementName, XmlPojo.class, StringPool.UTF_8, executor, 8);
+		List<MarshalPipeline.Fragment> fragments = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			fragments.addAll(pipeline.submit(new XmlPojo("id" + i, null, null)));
+		}
+		fragments.addAll(pipeline.finish());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int objects = 0;
+		for (MarshalPipeline.Fragment fragment : fragments) {
+			fragment.writeTo(out);
+			objects += fragment.getObjects();
+		}
+		assertThat(objects, is(100));
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			expected.append("<xmlPojo><id>id").append(i).append("</id></xmlPojo>");
+		}
+		assertThat(out.toString(StringPool.UTF_8), is(expected.toString()));
+	}
+
+	@Test
+	public void shouldGroupObjectsIntoFragmentsUpToMaxPending() throws Exception {
+		MarshalPipeline<XmlPojo> pipeline = new MarshalPipeline<>(pool, context, elementName, XmlPojo.class, StringPool.UTF_8, executor, 4);
+		List<MarshalPipeline.Fragment> fragments = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			fragments.addAll(pipeline.submit(new XmlPojo("id" + i, null, null)));
+		}
+		fragments.addAll(pipeline.finish());
+
+		assertThat(fragments.size(), is(3));
+		assertThat(fragments.get(0).getObjects(), is(4));
+		assertThat(fragments.get(2).getObjects(), is(2));
+	}
+
+	@Test
+	public void shouldRetainObjectsUntilATaskIsFull() throws Exception {
+		MarshalPipeline<XmlPojo> pipeline = new MarshalPipeline<>(pool, context, elementName, XmlPojo.class, StringPool.UTF_8, executor, 256);
+		for (int i = 0; i < MarshalPipeline.ObjectsPerTask - 1; i++) {
+			assertThat(pipeline.submit(new XmlPojo("id" + i, null, null)).isEmpty(), is(true));
+		}
+		assertThat(pool.getMisses(), is(0L));
+		List<MarshalPipeline.Fragment> fragments = pipeline.finish();
+		assertThat(fragments.size(), is(1));
+		assertThat(fragments.get(0).getObjects(), is(MarshalPipeline.ObjectsPerTask - 1));
+	}
+
+	@Test
+	public void shouldBorrowMarshallersFromThePool() throws Exception {
+		MarshalPipeline<XmlPojo> pipeline = new MarshalPipeline<>(pool, context, elementName, XmlPojo.class, StringPool.UTF_8, executor, 64);
+		for (int i = 0; i < 64; i++) {
+			pipeline.submit(new XmlPojo("id" + i, null, null));
+		}
+		pipeline.finish();
+		assertThat(pool.getIdle(), is(greaterThan(0)));
+		assertThat(pool.getHits() + pool.getMisses(), is(64L / MarshalPipeline.ObjectsPerTask));
+	}
+
+	@Test
+	public void shouldReuseReleasedFragments() throws Exception {
+		Executor sameThread = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		};
+		MarshalPipeline<XmlPojo> pipeline = new MarshalPipeline<>(pool, context, elementName, XmlPojo.class, StringPool.UTF_8, sameThread, 1);
+		MarshalPipeline.Fragment first = pipeline.submit(new XmlPojo("id1", null, null)).get(0);
+		pipeline.release(first);
+		MarshalPipeline.Fragment second = pipeline.submit(new XmlPojo("id2", null, null)).get(0);
+
+		assertThat(second, is(sameInstance(first)));
+		assertThat(second.toString(StringPool.UTF_8), is("<xmlPojo><id>id2</id></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldDecodeFragmentsWrittenAsCharacters() throws Exception {
+		MarshalPipeline<XmlPojo> pipeline = new MarshalPipeline<>(pool, context, elementName, XmlPojo.class, "ISO-8859-1", executor, 1);
+		List<MarshalPipeline.Fragment> fragments = new ArrayList<>(pipeline.submit(new XmlPojo("café", null, null)));
+		fragments.addAll(pipeline.finish());
+		StringWriter writer = new StringWriter();
+		for (MarshalPipeline.Fragment fragment : fragments) {
+			fragment.writeTo(writer, Charset.forName("ISO-8859-1"));
+		}
+
+		assertThat(writer.toString(), is("<xmlPojo><id>café</id></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenExecutorRejectsWork() throws Exception {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to marshal xml, the executor rejected it");
+
+		Executor rejecting = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("full");
+			}
+		};
+		MarshalPipeline<XmlPojo> pipeline = new MarshalPipeline<>(pool, context, elementName, XmlPojo.class, StringPool.UTF_8, rejecting, 1);
+		pipeline.submit(new XmlPojo("id1", null, null));
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringReader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+public class ResyncingStreamReaderTest {
+	private XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+	@Test
+	public void shouldResyncToEventFollowingMarkedElement() throws XMLStreamException {
+		ResyncingStreamReader xmlr = reader("<root><item><a><b>1</b></a><c/></item><next/></root>");
+		xmlr.nextTag();
+		xmlr.nextTag();
+		assertThat(xmlr.getLocalName(), is("item"));
+		xmlr.mark();
+		xmlr.nextTag();
+		xmlr.nextTag();
+		assertThat(xmlr.getLocalName(), is("b"));
+
+		xmlr.resync();
+		assertThat(xmlr.getEventType(), is(XMLStreamConstants.START_ELEMENT));
+		assertThat(xmlr.getLocalName(), is("next"));
+	}
+
+	@Test
+	public void shouldResyncFromStartOfMarkedElement() throws XMLStreamException {
+		ResyncingStreamReader xmlr = reader("<root><item><item/></item><next/></root>");
+		xmlr.nextTag();
+		xmlr.nextTag();
+		xmlr.mark();
+
+		xmlr.resync();
+		assertThat(xmlr.getLocalName(), is("next"));
+	}
+
+	@Test
+	public void shouldMoveOffEndOfMarkedElement() throws XMLStreamException {
+		ResyncingStreamReader xmlr = reader("<root><item><a/></item>text<next/></root>");
+		xmlr.nextTag();
+		xmlr.nextTag();
+		xmlr.mark();
+		xmlr.nextTag();
+		xmlr.nextTag();
+		xmlr.nextTag();
+		assertThat(xmlr.getEventType(), is(XMLStreamConstants.END_ELEMENT));
+		assertThat(xmlr.getLocalName(), is("item"));
+
+		xmlr.resync();
+		assertThat(xmlr.getEventType(), is(XMLStreamConstants.CHARACTERS));
+		assertThat(xmlr.getText(), is("text"));
+	}
+
+	@Test
+	public void shouldNotMoveWhenAlreadyPastMarkedElement() throws XMLStreamException {
+		ResyncingStreamReader xmlr = reader("<root><item>value</item><next/></root>");
+		xmlr.nextTag();
+		xmlr.nextTag();
+		xmlr.mark();
+		assertThat(xmlr.getElementText(), is("value"));
+		xmlr.next();
+		assertThat(xmlr.getLocalName(), is("next"));
+
+		xmlr.resync();
+		assertThat(xmlr.getLocalName(), is("next"));
+	}
+
+	private ResyncingStreamReader reader(String xml) throws XMLStreamException {
+		return new ResyncingStreamReader(inputFactory.createXMLStreamReader(new StringReader(xml)));
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.stream.XMLInputFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+
+public class SegmentedParserTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+	private JaxbPool pool = new JaxbPool();
+	private ExecutorService executor = Executors.newFixedThreadPool(4);
+	private JAXBContext context;
+	private Path path;
+
+	@Before
+	public void before() throws Exception {
+		context = JAXBContext.newInstance(XmlPojo.class);
+		path = Files.createTempFile("segmented-parser", ".xml");
+	}
+
+	@After
+	public void after() throws IOException {
+		executor.shutdownNow();
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void shouldHandBackBatchesInDocumentOrder() throws Exception {
+		List<FileSegments.Segment> segments = segments(500, 8);
+		assertThat(segments.size(), is(8));
+
+		SegmentedParser<XmlPojo, Void> parser = parser(executor, 7, 2, true);
+		parser.start(segments);
+		assertThat(ids(parser), is(expectedIds(500)));
+	}
+
+	@Test
+	public void shouldHandBackAllBatchesWhenUnordered() throws Exception {
+		SegmentedParser<XmlPojo, Void> parser = parser(executor, 7, 2, false);
+		parser.start(segments(500, 8));
+		List<String> ids = ids(parser);
+		Collections.sort(ids);
+		List<String> expected = expectedIds(500);
+		Collections.sort(expected);
+		assertThat(ids, is(expected));
+	}
+
+	@Test
+	public void shouldNotDeadlockWhenExecutorHasFewerThreadsThanSegments() throws Exception {
+		ExecutorService single = Executors.newSingleThreadExecutor();
+		try {
+			SegmentedParser<XmlPojo, Void> parser = parser(single, 5, 1, true);
+			parser.start(segments(500, 8));
+			assertThat(ids(parser), is(expectedIds(500)));
+		} finally {
+			single.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldReadSegmentsOnTheCallingThreadWithDirectExecutor() throws Exception {
+		Executor direct = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		};
+		SegmentedParser<XmlPojo, Void> parser = parser(direct, 5, 1, true);
+		parser.start(segments(500, 8));
+		assertThat(ids(parser), is(expectedIds(500)));
+	}
+
+	@Test
+	public void shouldProcessBatchesInSegmentsAndCombineResultsInOrder() throws Exception {
+		for (boolean ordered : new boolean[] { true, false }) {
+			SegmentedParser<XmlPojo, List<XmlPojo>> parser = new SegmentedParser<XmlPojo, List<XmlPojo>>(pool, context, inputFactory, XmlPojo.class, ElementPath.ChildrenOfRoot, executor, 7, 2, ordered);
+			GatherBatch<XmlPojo> gather = new GatherBatch<XmlPojo>();
+			List<XmlPojo> result = parser.process(segments(500, 8), gather, gather);
+			assertThat(result.size(), is(500));
+			if (ordered) {
+				assertThat(result.get(0).getId(), is("0"));
+				assertThat(result.get(499).getId(), is("499"));
+			}
+		}
+	}
+
+	@Test
+	public void shouldCountElementsAcrossSegments() throws Exception {
+		SegmentedParser<XmlPojo, Integer> parser = new SegmentedParser<XmlPojo, Integer>(pool, context, inputFactory, XmlPojo.class, ElementPath.ChildrenOfRoot, executor, 10, 2, false);
+		Integer count = parser.process(segments(500, 8), new Batch<XmlPojo, Integer>() {
+			@Override
+			public Integer process(Integer result, List<XmlPojo> batch) {
+				assertThat(result, is(nullValue()));
+				return batch.size();
+			}
+		}, new Combiner<Integer>() {
+			@Override
+			public Integer combine(Integer left, Integer right) {
+				return left + right;
+			}
+		});
+		assertThat(count, is(500));
+	}
+
+	@Test
+	public void shouldReturnNoBatchesForEmptyDocument() throws Exception {
+		Files.write(path, "<Root></Root>".getBytes("UTF-8"));
+		SegmentedParser<XmlPojo, Void> parser = parser(executor, 5, 2, true);
+		parser.start(new FileSegments(path, inputFactory, ElementPath.ChildrenOfRoot, 16).split(4, executor));
+		assertThat(parser.next(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldThrowFailureOfAnySegment() throws Exception {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to batch process xml");
+
+		StringBuilder xml = new StringBuilder("<Root>");
+		for (int i = 0; i < 500; i++) {
+			xml.append(i == 400 ? "<xmlPojo><id>bad</ID></xmlPojo>" : pojo(i));
+		}
+		Files.write(path, xml.append("</Root>").toString().getBytes("UTF-8"));
+		SegmentedParser<XmlPojo, Void> parser = parser(executor, 5, 2, true);
+		try {
+			parser.start(new FileSegments(path, inputFactory, ElementPath.ChildrenOfRoot, 1024).split(8, executor));
+			ids(parser);
+		} finally {
+			parser.cancel();
+		}
+	}
+
+	private SegmentedParser<XmlPojo, Void> parser(Executor executor, int batchSize, int maxPending, boolean ordered) {
+		return new SegmentedParser<XmlPojo, Void>(pool, context, inputFactory, XmlPojo.class, ElementPath.ChildrenOfRoot, executor, batchSize, maxPending, ordered);
+	}
+
+	private List<FileSegments.Segment> segments(int count, int segments) throws IOException {
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Root>\n");
+		for (int i = 0; i < count; i++) {
+			xml.append(pojo(i)).append('\n');
+		}
+		Files.write(path, xml.append("</Root>\n").toString().getBytes("UTF-8"));
+		return new FileSegments(path, inputFactory, ElementPath.ChildrenOfRoot, 1024).split(segments, executor);
+	}
+
+	private String pojo(int i) {
+		return "<xmlPojo><amount>" + i + ".5</amount><id>" + i + "</id><name>name " + i + "</name></xmlPojo>";
+	}
+
+	private List<String> ids(SegmentedParser<XmlPojo, ?> parser) {
+		List<String> ids = new ArrayList<>();
+		List<XmlPojo> batch;
+		while ((batch = parser.next()) != null) {
+			for (XmlPojo pojo : batch) {
+				ids.add(pojo.getId());
+			}
+		}
+		return ids;
+	}
+
+	private List<String> expectedIds(int count) {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add(String.valueOf(i));
+		}
+		return ids;
+	}
+}
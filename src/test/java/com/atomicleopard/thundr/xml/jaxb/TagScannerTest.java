@@ -0,0 +1,114 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TagScannerTest {
+
+	@Test
+	public void shouldReportStartAndEndTagsWithTheirDepth() {
+		RecordingScanner scanner = scan("<?xml version=\"1.0\"?><root><item id=\"a>b\"><name>n</name></item><item/><other></other></root>", 0, true);
+		assertThat(scanner.events, is(list("start 21 0 false", "start 27 1 true", "start 42 2 false", "end 49 2", "end 56 1", "start 63 1 true",
+				"start 70 1 false", "end 77 1", "end 85 0")));
+		assertThat(scanner.depth(), is(0));
+	}
+
+	@Test
+	public void shouldReportTagsSplitAcrossBuffers() {
+		String xml = "<root><item a='1'>text</item><item/></root>";
+		RecordingScanner whole = scan(xml, 0, true);
+		RecordingScanner split = new RecordingScanner(0, true);
+		byte[] bytes = xml.getBytes();
+		for (int i = 0; i < bytes.length; i++) {
+			split.scan(new byte[] { bytes[i] }, 1, i);
+		}
+		assertThat(split.events, is(whole.events));
+	}
+
+	@Test
+	public void shouldNotMatchNamesSharingAPrefix() {
+		RecordingScanner scanner = scan("<root><items><itemx/></items></root>", 0, true);
+		assertThat(scanner.events.get(1), is("start 6 1 false"));
+		assertThat(scanner.events.get(2), is("start 13 2 false"));
+	}
+
+	@Test
+	public void shouldScanFromTheGivenDepth() {
+		RecordingScanner scanner = scan("<item><a/></item></items></root>", 2, false);
+		assertThat(scanner.events, is(list("start 0 2 true", "start 6 3 false", "end 10 2", "end 17 1", "end 25 0")));
+		assertThat(scanner.depth(), is(0));
+	}
+
+	@Test
+	public void shouldReportUnsupportedConstructs() {
+		RecordingScanner scanner = scan("<root><!-- c --><![CDATA[x]]><?pi?></root>", 0, true);
+		assertThat(scanner.events, is(list("start 0 0 false", "unsupported 6", "unsupported 16", "unsupported 29", "end 35 0")));
+	}
+
+	@Test
+	public void shouldOnlyAllowXmlDeclarationAtStartOfDocument() {
+		RecordingScanner scanner = scan("<?xml version=\"1.0\"?><root/>", 0, false);
+		assertThat(scanner.events.get(0), is("unsupported 0"));
+	}
+
+	private RecordingScanner scan(String xml, int depth, boolean documentStart) {
+		RecordingScanner scanner = new RecordingScanner(depth, documentStart);
+		byte[] bytes = xml.getBytes();
+		scanner.scan(bytes, bytes.length, 0);
+		return scanner;
+	}
+
+	private List<String> list(String... events) {
+		List<String> list = new ArrayList<>();
+		for (String event : events) {
+			list.add(event);
+		}
+		return list;
+	}
+
+	private static class RecordingScanner extends TagScanner {
+		private List<String> events = new ArrayList<>();
+
+		private RecordingScanner(int depth, boolean documentStart) {
+			super("item".getBytes(), depth, documentStart);
+		}
+
+		@Override
+		protected void startTag(long offset, int depth, boolean named) {
+			events.add("start " + offset + " " + depth + " " + named);
+		}
+
+		@Override
+		protected void endTag(long offset, int depth) {
+			events.add("end " + offset + " " + depth);
+		}
+
+		@Override
+		protected void unsupported(long offset) {
+			events.add("unsupported " + offset);
+		}
+	}
+}
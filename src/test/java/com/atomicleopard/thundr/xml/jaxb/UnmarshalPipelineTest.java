@@ -0,0 +1,149 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.jaxb;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.atomicleopard.thundr.xml.XmlException;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+
+import jodd.util.StringPool;
+
+public class UnmarshalPipelineTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private ExecutorService executor = Executors.newFixedThreadPool(4);
+	private JaxbPool pool = new JaxbPool();
+	private JAXBContext context = new JaxbContextRegistry().get(XmlPojo.class);
+	private XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+	@After
+	public void after() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldReturnValuesInSubmissionOrder() throws Exception {
+		UnmarshalPipeline<XmlPojo> pipeline = new UnmarshalPipeline<>(pool, context, inputFactory, XmlPojo.class, executor, 8);
+		List<XmlPojo> values = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			values.addAll(pipeline.submit(fragment(i)));
+		}
+		values.addAll(pipeline.finish());
+
+		assertThat(values.size(), is(100));
+		for (int i = 0; i < 100; i++) {
+			assertThat(values.get(i).getId(), is("id" + i));
+		}
+	}
+
+	@Test
+	public void shouldRejectFragmentsWhichCannotBeUnmarshalledInSubmissionOrder() throws Exception {
+		CollectingDeadLetterSink deadLetters = new CollectingDeadLetterSink();
+		UnmarshalPipeline<XmlPojo> pipeline = new UnmarshalPipeline<>(pool, context, inputFactory, XmlPojo.class, executor, 8, ErrorPolicy.SkipAndCollect, deadLetters);
+		List<XmlPojo> values = new ArrayList<>();
+		int rejected = 0;
+		for (int i = 0; i < 100; i++) {
+			byte[] fragment = i % 10 == 3 ? "<xmlPojo><amount>lots</amount></xmlPojo>".getBytes(StringPool.UTF_8) : fragment(i);
+			values.addAll(pipeline.submit(fragment, new DeadLetter(i, new QName("xmlPojo"), -1, -1, -1, null, null)));
+			rejected += pipeline.takeRejected();
+		}
+		values.addAll(pipeline.finish());
+		rejected += pipeline.takeRejected();
+
+		assertThat(values.size(), is(90));
+		assertThat(values.get(3).getId(), is("id4"));
+		assertThat(rejected, is(10));
+		List<DeadLetter> collected = deadLetters.getDeadLetters();
+		assertThat(collected.size(), is(10));
+		for (int i = 0; i < 10; i++) {
+			assertThat(collected.get(i).getIndex(), is(i * 10 + 3L));
+			assertThat(new String(collected.get(i).getFragment(), StringPool.UTF_8), containsString("lots"));
+		}
+	}
+
+	@Test
+	public void shouldBorrowUnmarshallersFromThePool() throws Exception {
+		UnmarshalPipeline<XmlPojo> pipeline = new UnmarshalPipeline<>(pool, context, inputFactory, XmlPojo.class, executor, 64);
+		for (int i = 0; i < 64; i++) {
+			pipeline.submit(fragment(i));
+		}
+		pipeline.finish();
+		assertThat(pool.getIdle(), is(greaterThan(0)));
+		assertThat(pool.getHits() + pool.getMisses(), is(64L / UnmarshalPipeline.FragmentsPerTask));
+	}
+
+	@Test
+	public void shouldRetainFragmentsUntilATaskIsFull() throws Exception {
+		UnmarshalPipeline<XmlPojo> pipeline = new UnmarshalPipeline<>(pool, context, inputFactory, XmlPojo.class, executor, 256);
+		for (int i = 0; i < UnmarshalPipeline.FragmentsPerTask - 1; i++) {
+			assertThat(pipeline.submit(fragment(i)).isEmpty(), is(true));
+		}
+		assertThat(pool.getMisses(), is(0L));
+		assertThat(pipeline.finish().size(), is(UnmarshalPipeline.FragmentsPerTask - 1));
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenAFragmentCannotBeUnmarshalled() throws Exception {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to batch process xml");
+
+		UnmarshalPipeline<XmlPojo> pipeline = new UnmarshalPipeline<>(pool, context, inputFactory, XmlPojo.class, executor, 1);
+		pipeline.submit(fragment(0));
+		pipeline.submit("<xmlPojo><id>".getBytes(StringPool.UTF_8));
+		pipeline.finish();
+	}
+
+	@Test
+	public void shouldThrowXmlExceptionWhenExecutorRejectsWork() throws Exception {
+		thrown.expect(XmlException.class);
+		thrown.expectMessage("Failed to unmarshal xml, the executor rejected it");
+
+		Executor rejecting = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("full");
+			}
+		};
+		UnmarshalPipeline<XmlPojo> pipeline = new UnmarshalPipeline<>(pool, context, inputFactory, XmlPojo.class, rejecting, 1);
+		pipeline.submit(fragment(0));
+	}
+
+	private byte[] fragment(int i) throws Exception {
+		return ("<xmlPojo><id>id" + i + "</id></xmlPojo>").getBytes(StringPool.UTF_8);
+	}
+}
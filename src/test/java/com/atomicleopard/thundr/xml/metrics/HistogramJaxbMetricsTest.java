@@ -0,0 +1,90 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.metrics;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+import com.atomicleopard.thundr.xml.metrics.HistogramJaxbMetrics.Metric;
+
+public class HistogramJaxbMetricsTest {
+	private HistogramJaxbMetrics metrics = new HistogramJaxbMetrics();
+
+	@Test
+	public void shouldRecordEachMetricPerType() {
+		metrics.contextCreated(String.class, 1000);
+		metrics.unmarshalled(String.class, 200, 64);
+		metrics.marshalled(String.class, 300, 128);
+		metrics.streamRead(Integer.class, 5000, 10, 1024);
+		metrics.streamWritten(Integer.class, 4000, 20, 2048);
+		metrics.batchProcessed(Integer.class, 700, 5);
+
+		assertThat(metrics.getTypes(), Matchers.<Class<?>> containsInAnyOrder(String.class, Integer.class));
+		assertThat(metrics.get(String.class, Metric.ContextCreation).getMax(), is(1000L));
+		assertThat(metrics.get(String.class, Metric.Unmarshal).getMax(), is(200L));
+		assertThat(metrics.get(String.class, Metric.BytesIn).getMax(), is(64L));
+		assertThat(metrics.get(String.class, Metric.Marshal).getMax(), is(300L));
+		assertThat(metrics.get(String.class, Metric.BytesOut).getMax(), is(128L));
+		assertThat(metrics.get(Integer.class, Metric.StreamRead).getMax(), is(5000L));
+		assertThat(metrics.get(Integer.class, Metric.ElementsRead).getMax(), is(10L));
+		assertThat(metrics.get(Integer.class, Metric.BytesIn).getMax(), is(1024L));
+		assertThat(metrics.get(Integer.class, Metric.StreamWrite).getMax(), is(4000L));
+		assertThat(metrics.get(Integer.class, Metric.ElementsWritten).getMax(), is(20L));
+		assertThat(metrics.get(Integer.class, Metric.BytesOut).getMax(), is(2048L));
+		assertThat(metrics.get(Integer.class, Metric.BatchProcessing).getMax(), is(700L));
+		assertThat(metrics.get(Integer.class, Metric.BatchSize).getMax(), is(5L));
+	}
+
+	@Test
+	public void shouldNotRecordBytesWrittenAsCharacters() {
+		metrics.marshalled(String.class, 300, -1);
+
+		assertThat(metrics.get(String.class, Metric.Marshal).getCount(), is(1L));
+		assertThat(metrics.get(String.class, Metric.BytesOut).getCount(), is(0L));
+	}
+
+	@Test
+	public void shouldReturnEmptyHistogramForUnknownType() {
+		assertThat(metrics.get(String.class, Metric.Unmarshal).getCount(), is(0L));
+		assertThat(metrics.getTypes(), is(empty()));
+	}
+
+	@Test
+	public void shouldReturnAllMetricsForType() {
+		metrics.unmarshalled(String.class, 200, 64);
+
+		Map<Metric, Histogram> histograms = metrics.get(String.class);
+		assertThat(histograms.size(), is(Metric.values().length));
+		assertThat(histograms.get(Metric.Unmarshal).getCount(), is(1L));
+		assertThat(histograms.get(Metric.Marshal).getCount(), is(0L));
+	}
+
+	@Test
+	public void shouldClearRecordedMetrics() {
+		metrics.unmarshalled(String.class, 200, 64);
+		metrics.clear();
+
+		assertThat(metrics.getTypes(), is(empty()));
+	}
+}
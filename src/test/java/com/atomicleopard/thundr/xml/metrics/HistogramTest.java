@@ -0,0 +1,141 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.metrics;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class HistogramTest {
+	private Histogram histogram = new Histogram();
+
+	@Test
+	public void shouldBeEmptyInitially() {
+		assertThat(histogram.getCount(), is(0L));
+		assertThat(histogram.getSum(), is(0L));
+		assertThat(histogram.getMax(), is(0L));
+		assertThat(histogram.getMean(), is(0.0));
+		assertThat(histogram.getPercentile(50), is(0L));
+	}
+
+	@Test
+	public void shouldRecordCountSumAndMaxExactly() {
+		histogram.record(3);
+		histogram.record(10);
+		histogram.record(5);
+
+		assertThat(histogram.getCount(), is(3L));
+		assertThat(histogram.getSum(), is(18L));
+		assertThat(histogram.getMax(), is(10L));
+		assertThat(histogram.getMean(), is(6.0));
+	}
+
+	@Test
+	public void shouldIgnoreNegativeValues() {
+		histogram.record(-1);
+
+		assertThat(histogram.getCount(), is(0L));
+	}
+
+	@Test
+	public void shouldReturnUpperBoundOfBucketForPercentile() {
+		for (int i = 0; i < 90; i++) {
+			histogram.record(100);
+		}
+		for (int i = 0; i < 10; i++) {
+			histogram.record(5000);
+		}
+
+		// 100 falls in the bucket 64 to 127, 5000 in the bucket 4096 to 8191
+		assertThat(histogram.getPercentile(50), is(127L));
+		assertThat(histogram.getPercentile(90), is(127L));
+		assertThat(histogram.getPercentile(91), is(5000L));
+		assertThat(histogram.getPercentile(100), is(5000L));
+	}
+
+	@Test
+	public void shouldNeverReturnPercentileGreaterThanMax() {
+		histogram.record(65);
+
+		assertThat(histogram.getPercentile(99), is(65L));
+	}
+
+	@Test
+	public void shouldRecordZeroAndVeryLargeValues() {
+		histogram.record(0);
+		histogram.record(Long.MAX_VALUE);
+
+		assertThat(histogram.getPercentile(50), is(0L));
+		assertThat(histogram.getPercentile(100), is(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void shouldClearRecordedValues() {
+		histogram.record(42);
+		histogram.clear();
+
+		assertThat(histogram.getCount(), is(0L));
+		assertThat(histogram.getMax(), is(0L));
+		assertThat(histogram.getPercentile(50), is(0L));
+	}
+
+	@Test
+	public void shouldRecordConcurrently() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						for (int i = 1; i <= 1000; i++) {
+							histogram.record(i);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(histogram.getCount(), is(4000L));
+		assertThat(histogram.getSum(), is(4 * 500500L));
+		assertThat(histogram.getMax(), is(1000L));
+	}
+
+	@Test
+	public void shouldDescribeDistribution() {
+		histogram.record(2);
+		histogram.record(4);
+
+		assertThat(histogram.toString(), is("Histogram[count=2, mean=3.0, p50=3, p99=4, max=4]"));
+	}
+}
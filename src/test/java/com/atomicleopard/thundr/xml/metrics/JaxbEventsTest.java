@@ -0,0 +1,184 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.metrics;
+
+import static com.atomicleopard.expressive.Expressive.list;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.atomicleopard.thundr.xml.jaxb.GatherBatch;
+import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNamedRootElement;
+
+public class JaxbEventsTest {
+	@Test
+	public void shouldReturnDisabledEventWhenNotRecording() {
+		assumeTrue(!JaxbEvents.isRecording());
+
+		JaxbEvent event = JaxbEvents.begin(JaxbEvents.Kind.Read);
+		assertThat(event, is(sameInstance(JaxbEvent.Disabled)));
+		assertThat(event.isRecording(), is(false));
+		event.type(XmlPojo.class).elements(1).bytes(10).batchSize(5).commit();
+	}
+
+	@Test
+	public void shouldNameEventsByKind() {
+		assertThat(JaxbEvents.Kind.Read.eventName(), is("com.atomicleopard.thundr.xml.Read"));
+		assertThat(JaxbEvents.Kind.Resolve.eventName(), is("com.atomicleopard.thundr.xml.Resolve"));
+	}
+
+	@Test
+	public void shouldRecordReadsAndWritesWhileRecording() throws Exception {
+		assumeTrue(JaxbEvents.isAvailable());
+
+		Jaxb jaxb = new Jaxb();
+		FlightRecording recording = FlightRecording.start(JaxbEvents.Kind.Read, JaxbEvents.Kind.Write);
+		List<Map<String, Object>> events;
+		byte[] data;
+		try {
+			assertThat(JaxbEvents.isRecording(), is(true));
+			data = jaxb.write(list(new XmlPojo("1", null, null), new XmlPojo("2", null, null))).to(new ByteArrayOutputStream()).toByteArray();
+			jaxb.read(XmlPojo.class).from(data).batchSize(1).stream(new GatherBatch<XmlPojo>());
+		} finally {
+			events = recording.stop();
+		}
+		assertThat(JaxbEvents.isRecording(), is(false));
+
+		assertThat(events.size(), is(2));
+		Map<String, Object> write = events.get(0);
+		assertThat(write.get("eventName"), is((Object) "com.atomicleopard.thundr.xml.Write"));
+		assertThat(write.get("type"), is((Object) XmlPojo.class.getName()));
+		assertThat(write.get("elements"), is((Object) 2L));
+		assertThat(write.get("bytes"), is((Object) (long) data.length));
+
+		Map<String, Object> read = events.get(1);
+		assertThat(read.get("eventName"), is((Object) "com.atomicleopard.thundr.xml.Read"));
+		assertThat(read.get("type"), is((Object) XmlPojo.class.getName()));
+		assertThat(read.get("elements"), is((Object) 2L));
+		assertThat(read.get("bytes"), is((Object) (long) data.length));
+		assertThat(read.get("batchSize"), is((Object) 1));
+	}
+
+	@Test
+	public void shouldRecordEachTypeOfDispatchedReadWhileRecording() throws Exception {
+		assumeTrue(JaxbEvents.isAvailable());
+
+		Jaxb jaxb = new Jaxb();
+		String xml = "<Root><xmlPojo><id>1</id></xmlPojo><XmlPojo><id>2</id></XmlPojo><xmlPojo><id>3</id></xmlPojo></Root>";
+		FlightRecording recording = FlightRecording.start(JaxbEvents.Kind.Read);
+		List<Map<String, Object>> events;
+		try {
+			jaxb.dispatch()
+					.on("xmlPojo", XmlPojo.class, new GatherBatch<XmlPojo>())
+					.on("XmlPojo", XmlPojoWithNamedRootElement.class, new GatherBatch<XmlPojoWithNamedRootElement>())
+					.batchSize(5)
+					.from(xml)
+					.stream();
+		} finally {
+			events = recording.stop();
+		}
+
+		Map<Object, Object> elementsByType = new LinkedHashMap<>();
+		for (Map<String, Object> read : events) {
+			assertThat(read.get("eventName"), is((Object) "com.atomicleopard.thundr.xml.Read"));
+			assertThat(read.get("bytes"), is((Object) (long) xml.length()));
+			assertThat(read.get("batchSize"), is((Object) 5));
+			elementsByType.put(read.get("type"), read.get("elements"));
+		}
+		assertThat(events.size(), is(2));
+		assertThat(elementsByType.get(XmlPojo.class.getName()), is((Object) 2L));
+		assertThat(elementsByType.get(XmlPojoWithNamedRootElement.class.getName()), is((Object) 1L));
+	}
+
+	/**
+	 * Drives the flight recorder reflectively, as this library is built for platforms without it
+	 */
+	private static class FlightRecording {
+		private static final String[] Fields = { "type", "elements", "bytes", "batchSize" };
+		private Object recording;
+
+		private static FlightRecording start(JaxbEvents.Kind... kinds) throws Exception {
+			FlightRecording flightRecording = new FlightRecording();
+			flightRecording.recording = Class.forName("jdk.jfr.Recording").newInstance();
+			for (JaxbEvents.Kind kind : kinds) {
+				invoke(flightRecording.recording, "enable", kind.eventName());
+			}
+			invoke(flightRecording.recording, "start");
+			return flightRecording;
+		}
+
+		private List<Map<String, Object>> stop() throws Exception {
+			Path file = Files.createTempFile("jaxb-events", ".jfr");
+			try {
+				invoke(recording, "stop");
+				invoke(recording, "dump", file);
+				invoke(recording, "close");
+				List<Map<String, Object>> events = new ArrayList<>();
+				Method readAllEvents = Class.forName("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents", Path.class);
+				for (Object recorded : (List<?>) readAllEvents.invoke(null, file)) {
+					String eventName = (String) invoke(invoke(recorded, "getEventType"), "getName");
+					if (!eventName.startsWith("com.atomicleopard.thundr.xml.")) {
+						continue;
+					}
+					Map<String, Object> event = new LinkedHashMap<>();
+					event.put("eventName", eventName);
+					for (String field : Fields) {
+						event.put(field, invoke(recorded, "getValue", field));
+					}
+					events.add(event);
+				}
+				return events;
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		}
+
+		private static Object invoke(Object target, String name, Object... args) throws Exception {
+			for (Method method : target.getClass().getMethods()) {
+				if (method.getName().equals(name) && method.getParameterTypes().length == args.length && accepts(method.getParameterTypes(), args)) {
+					method.setAccessible(true);
+					return method.invoke(target, args);
+				}
+			}
+			throw new NoSuchMethodException(name);
+		}
+
+		private static boolean accepts(Class<?>[] types, Object[] args) {
+			for (int i = 0; i < types.length; i++) {
+				if (!types[i].isInstance(args[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
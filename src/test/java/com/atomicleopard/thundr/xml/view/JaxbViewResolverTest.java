@@ -18,12 +18,22 @@
  */
 package com.atomicleopard.thundr.xml.view;
 
+import static com.atomicleopard.expressive.Expressive.list;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletResponse;
@@ -32,8 +42,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.atomicleopard.thundr.xml.http.Compression;
+import com.atomicleopard.thundr.xml.http.EntityTag;
 import com.atomicleopard.thundr.xml.jaxb.Jaxb;
+import com.atomicleopard.thundr.xml.jaxb.JaxbIterator;
 import com.atomicleopard.thundr.xml.jaxb.test.XmlPojo;
+import com.atomicleopard.thundr.xml.jaxb.test.XmlPojoWithNamedRootElement;
 import com.threewks.thundr.http.Cookies;
 import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
 import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
@@ -95,9 +109,432 @@ public class JaxbViewResolverTest {
 		assertThat(resp.getCookies(), hasItem(cookie));
 	}
 
+	@Test
+	public void shouldRetainXmlSettingsOfCopiedView() {
+		Compression compression = new Compression().threshold(16);
+		List<XmlPojo> output = list(new XmlPojo("id1", null, null));
+		XmlView original = new XmlView(output, "Pojos").withFlushEvery(5).withCompression(compression).withETag().withVersion("v1").withCacheKey("key");
+
+		XmlView copy = new CopiedXmlView(original);
+		assertThat(copy.getOutput(), is((Object) output));
+		assertThat(copy.getRootElement(), is("Pojos"));
+		assertThat(copy.getFlushEvery(), is(5));
+		assertThat(copy.getCompression(), is(sameInstance(compression)));
+		assertThat(copy.isETag(), is(true));
+		assertThat(copy.getVersion(), is("v1"));
+		assertThat(copy.getCacheKey(), is("key"));
+		assertThat(copy.isStreamed(), is(true));
+	}
+
+	@Test
+	public void shouldStreamIteratorWithinRootElement() {
+		Iterator<XmlPojo> output = list(new XmlPojo("id1", "name1", null), new XmlPojo("id2", "name2", null)).iterator();
+		resolver.resolve(req, resp, new XmlView(output, "Pojos"));
+		assertThat(resp.status(), is(HttpServletResponse.SC_OK));
+		assertThat(resp.getContentType(), is("application/xml"));
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Pojos><xmlPojo><id>id1</id><name>name1</name></xmlPojo><xmlPojo><id>id2</id><name>name2</name></xmlPojo></Pojos>"));
+	}
+
+	@Test
+	public void shouldStreamIterableWithRootElement() {
+		List<XmlPojo> output = list(new XmlPojo("id1", null, null), new XmlPojo("id2", null, null));
+		resolver.resolve(req, resp, new XmlView(output).withRootElement("Pojos"));
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Pojos><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></Pojos>"));
+	}
+
+	@Test
+	public void shouldStreamIteratorWithDefaultRootElement() {
+		resolver.resolve(req, resp, new XmlView(list(new XmlPojo("id1", null, null)).iterator()));
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Root><xmlPojo><id>id1</id></xmlPojo></Root>"));
+	}
+
+	@Test
+	public void shouldStreamEmptyIterator() {
+		resolver.resolve(req, resp, new XmlView(Collections.<XmlPojo> emptyList(), "Pojos"));
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Pojos></Pojos>"));
+	}
+
+	@Test
+	public void shouldCloseCloseableOutputOnceStreamed() {
+		String xml = "<Root><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></Root>";
+		JaxbIterator<XmlPojo> output = jaxb.read(XmlPojo.class).from(xml).iterator();
+		resolver.resolve(req, resp, new XmlView(output, "Pojos"));
+		assertThat(output.isClosed(), is(true));
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Pojos><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></Pojos>"));
+	}
+
+	@Test
+	public void shouldFlushPeriodicallyWhenStreaming() {
+		final List<String> sentBeforeEach = new ArrayList<>();
+		final Iterator<XmlPojo> delegate = list(new XmlPojo(), new XmlPojo(), new XmlPojo(), new XmlPojo(), new XmlPojo()).iterator();
+		Iterator<XmlPojo> output = new Iterator<XmlPojo>() {
+			@Override
+			public boolean hasNext() {
+				return delegate.hasNext();
+			}
+
+			@Override
+			public XmlPojo next() {
+				sentBeforeEach.add(resp.content());
+				return delegate.next();
+			}
+
+			@Override
+			public void remove() {
+			}
+		};
+		resolver.resolve(req, resp, new XmlView(output, "Pojos").withFlushEvery(2));
+		assertThat(sentBeforeEach.get(2), endsWith("<Pojos><xmlPojo></xmlPojo><xmlPojo></xmlPojo>"));
+		assertThat(sentBeforeEach.get(4), endsWith("<xmlPojo></xmlPojo><xmlPojo></xmlPojo><xmlPojo></xmlPojo><xmlPojo></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldMarshalIterableWithoutRootElementAsSingleObject() {
+		XmlView view = new XmlView(list(new XmlPojo()));
+		assertThat(view.isStreamed(), is(false));
+	}
+
+	@Test
+	public void shouldNotCompressByDefault() {
+		req.header("Accept-Encoding", "gzip");
+		resolver.resolve(req, resp, new XmlView(new XmlPojo(largeString(), null, null)));
+		assertThat(resolver.getCompression().isEnabled(), is(false));
+		assertThat(resp.<String> header("Content-Encoding"), is(nullValue()));
+		assertThat(resp.<String> header("Vary"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldCompressWithNegotiatedEncoding() throws IOException {
+		resolver = new JaxbViewResolver(jaxb, new Compression());
+		req.header("Accept-Encoding", "deflate;q=0.5, gzip");
+		String id = largeString();
+		resolver.resolve(req, resp, new XmlView(new XmlPojo(id, null, null)).withCharacterEncoding("ISO-8859-1"));
+
+		assertThat(resp.<String> header("Content-Encoding"), is("gzip"));
+		assertThat(resp.<String> header("Vary"), is("Accept-Encoding"));
+		assertThat(decompress(new GZIPInputStream(new ByteArrayInputStream(resp.content().getBytes("ISO-8859-1")))),
+				is("<?xml version=\"1.0\" encoding=\"ISO-8859-1\" standalone=\"yes\"?><xmlPojo><id>" + id + "</id></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldCompressStreamedOutput() throws IOException {
+		resolver = new JaxbViewResolver(jaxb, new Compression().threshold(16));
+		req.header("Accept-Encoding", "deflate");
+		Iterator<XmlPojo> output = list(new XmlPojo("id1", null, null), new XmlPojo("id2", null, null)).iterator();
+		resolver.resolve(req, resp, new XmlView(output, "Pojos").withCharacterEncoding("ISO-8859-1"));
+
+		assertThat(resp.<String> header("Content-Encoding"), is("deflate"));
+		assertThat(decompress(new InflaterInputStream(new ByteArrayInputStream(resp.content().getBytes("ISO-8859-1")))),
+				is("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><Pojos><xmlPojo><id>id1</id></xmlPojo><xmlPojo><id>id2</id></xmlPojo></Pojos>"));
+	}
+
+	@Test
+	public void shouldNotCompressResponsesUnderThreshold() {
+		resolver = new JaxbViewResolver(jaxb, new Compression());
+		req.header("Accept-Encoding", "gzip");
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)));
+
+		String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>";
+		assertThat(resp.<String> header("Content-Encoding"), is(nullValue()));
+		assertThat(resp.<String> header("Vary"), is("Accept-Encoding"));
+		assertThat(resp.content(), is(expected));
+		assertThat(resp.getContentLength(), is(expected.length()));
+	}
+
+	@Test
+	public void shouldNotCompressWhenClientDoesNotAcceptEncoding() {
+		resolver = new JaxbViewResolver(jaxb, new Compression().threshold(0));
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)));
+
+		assertThat(resp.<String> header("Content-Encoding"), is(nullValue()));
+		assertThat(resp.<String> header("Vary"), is("Accept-Encoding"));
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldPreferCompressionOfView() {
+		req.header("Accept-Encoding", "gzip");
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withCompression(new Compression().threshold(0)));
+		assertThat(resp.<String> header("Content-Encoding"), is("gzip"));
+
+		resp = new MockHttpServletResponse();
+		resolver = new JaxbViewResolver(jaxb, new Compression().threshold(0));
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withCompression(Compression.None));
+		assertThat(resp.<String> header("Content-Encoding"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldAddETagComputedFromContent() {
+		req.method("GET");
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withETag());
+
+		String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>";
+		assertThat(resp.status(), is(HttpServletResponse.SC_OK));
+		assertThat(resp.<String> header("ETag"), is("\"" + EntityTag.digest(expected.getBytes()) + "\""));
+		assertThat(resp.content(), is(expected));
+		assertThat(resp.getContentLength(), is(expected.length()));
+	}
+
+	@Test
+	public void shouldRespondNotModifiedWhenComputedETagMatches() {
+		String etag = "\"" + EntityTag.digest("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>".getBytes()) + "\"";
+		req.method("GET").header("If-None-Match", etag);
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withETag());
+
+		assertThat(resp.status(), is(HttpServletResponse.SC_NOT_MODIFIED));
+		assertThat(resp.<String> header("ETag"), is(etag));
+		assertThat(resp.content(), is(""));
+	}
+
+	@Test
+	public void shouldComputeETagForStreamedOutput() {
+		req.method("GET");
+		resolver.resolve(req, resp, new XmlView(list(new XmlPojo("id1", null, null)).iterator(), "Pojos").withETag());
+
+		String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Pojos><xmlPojo><id>id1</id></xmlPojo></Pojos>";
+		assertThat(resp.<String> header("ETag"), is("\"" + EntityTag.digest(expected.getBytes()) + "\""));
+		assertThat(resp.content(), is(expected));
+	}
+
+	@Test
+	public void shouldAddETagFromVersion() {
+		req.method("GET").header("If-None-Match", "\"v1\"");
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withVersion("v2"));
+
+		assertThat(resp.status(), is(HttpServletResponse.SC_OK));
+		assertThat(resp.<String> header("ETag"), is("\"v2\""));
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldRespondNotModifiedWithoutMarshallingWhenVersionMatches() {
+		req.method("GET").header("If-None-Match", "\"v1\"");
+		String xml = "<Root><xmlPojo><id>id1</id></xmlPojo></Root>";
+		JaxbIterator<XmlPojo> output = jaxb.read(XmlPojo.class).from(xml).iterator();
+		resolver.resolve(req, resp, new XmlView(output, "Pojos").withVersion("v1"));
+
+		assertThat(resp.status(), is(HttpServletResponse.SC_NOT_MODIFIED));
+		assertThat(resp.<String> header("ETag"), is("\"v1\""));
+		assertThat(resp.content(), is(""));
+		assertThat(output.isClosed(), is(true));
+	}
+
+	@Test
+	public void shouldIncludeContentEncodingInETag() {
+		resolver = new JaxbViewResolver(jaxb, new Compression().threshold(0));
+		req.method("GET").header("Accept-Encoding", "gzip").header("If-None-Match", "\"v1\"");
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withVersion("v1"));
+
+		assertThat(resp.status(), is(HttpServletResponse.SC_OK));
+		assertThat(resp.<String> header("ETag"), is("\"v1-gzip\""));
+		assertThat(resp.<String> header("Content-Encoding"), is("gzip"));
+	}
+
+	@Test
+	public void shouldNotIncludeContentEncodingInComputedETagWhenContentIsBelowThreshold() {
+		String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>";
+		String etag = "\"" + EntityTag.digest(expected.getBytes()) + "\"";
+		resolver = new JaxbViewResolver(jaxb, new Compression().threshold(1024));
+		req.method("GET").header("Accept-Encoding", "gzip").header("If-None-Match", etag);
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withETag());
+
+		assertThat(resp.status(), is(HttpServletResponse.SC_NOT_MODIFIED));
+		assertThat(resp.<String> header("ETag"), is(etag));
+		assertThat(resp.<String> header("Content-Encoding"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldIncludeContentEncodingInComputedETagWhenContentIsCompressed() {
+		String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>";
+		resolver = new JaxbViewResolver(jaxb, new Compression().threshold(0));
+		req.method("GET").header("Accept-Encoding", "gzip");
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withETag());
+
+		assertThat(resp.<String> header("ETag"), is("\"" + EntityTag.digest(expected.getBytes()) + "-gzip\""));
+		assertThat(resp.<String> header("Content-Encoding"), is("gzip"));
+	}
+
+	@Test
+	public void shouldNotRespondNotModifiedForPost() {
+		req.method("POST").header("If-None-Match", "\"v1\"");
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withVersion("v1"));
+
+		assertThat(resp.status(), is(HttpServletResponse.SC_OK));
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldMarshalOnceAndServeFromCache() {
+		XmlCache cache = new XmlCache();
+		resolver = new JaxbViewResolver(jaxb, Compression.None, cache);
+		XmlPojo pojo = new XmlPojo("id", null, null);
+		resolver.resolve(req, resp, new XmlView(pojo).withCacheKey("pojo"));
+
+		pojo.setId("changed");
+		resp = new MockHttpServletResponse();
+		resolver.resolve(req, resp, new XmlView(pojo).withCacheKey("pojo"));
+
+		String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>";
+		assertThat(resp.content(), is(expected));
+		assertThat(resp.getContentLength(), is(expected.length()));
+		assertThat(cache.getHits(), is(1L));
+		assertThat(cache.getMisses(), is(1L));
+	}
+
+	@Test
+	public void shouldCacheContentPerCharacterEncoding() {
+		XmlCache cache = new XmlCache();
+		resolver = new JaxbViewResolver(jaxb, Compression.None, cache);
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withCacheKey("pojo"));
+		resp = new MockHttpServletResponse();
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withCacheKey("pojo").withCharacterEncoding("ISO-8859-1"));
+
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"ISO-8859-1\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+		assertThat(cache.getSize(), is(2));
+	}
+
+	@Test
+	public void shouldUseVersionScopedToViewAsCacheKey() {
+		XmlCache cache = new XmlCache();
+		resolver = new JaxbViewResolver(jaxb, Compression.None, cache);
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withVersion("pojo-v1"));
+		resolver.resolve(new MockHttpServletRequest(), new MockHttpServletResponse(), new XmlView(new XmlPojo("id", null, null)).withVersion("pojo-v1"));
+
+		assertThat(cache.getSize(), is(1));
+		assertThat(cache.getHits(), is(1L));
+		assertThat(cache.get("pojo-v1", "UTF-8"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldNotShareCachedContentBetweenDifferentViewsWithTheSameVersion() {
+		XmlCache cache = new XmlCache();
+		resolver = new JaxbViewResolver(jaxb, Compression.None, cache);
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withVersion("1"));
+		MockHttpServletResponse other = new MockHttpServletResponse();
+		resolver.resolve(new MockHttpServletRequest(), other, new XmlView(new XmlPojoWithNamedRootElement("id", null, null)).withVersion("1"));
+
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+		assertThat(other.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><XmlPojo><id>id</id></XmlPojo>"));
+		assertThat(cache.getSize(), is(2));
+		assertThat(cache.getHits(), is(0L));
+	}
+
+	@Test
+	public void shouldUseGivenCacheKeyInPreferenceToVersion() {
+		XmlCache cache = new XmlCache();
+		resolver = new JaxbViewResolver(jaxb, Compression.None, cache);
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withVersion("1").withCacheKey("pojo-1"));
+
+		assertThat(cache.get("pojo-1", "UTF-8"), is(notNullValue()));
+		assertThat(cache.getSize(), is(1));
+	}
+
+	@Test
+	public void shouldCloseStreamedOutputWhenServedFromCache() {
+		XmlCache cache = new XmlCache();
+		cache.put("pojos", "UTF-8", "<Pojos/>".getBytes());
+		resolver = new JaxbViewResolver(jaxb, Compression.None, cache);
+		JaxbIterator<XmlPojo> output = jaxb.read(XmlPojo.class).from("<Root><xmlPojo><id>id1</id></xmlPojo></Root>").iterator();
+		resolver.resolve(req, resp, new XmlView(output, "Pojos").withCacheKey("pojos"));
+
+		assertThat(output.isClosed(), is(true));
+		assertThat(resp.content(), is("<Pojos/>"));
+	}
+
+	@Test
+	public void shouldCompressCachedContent() throws IOException {
+		XmlCache cache = new XmlCache();
+		resolver = new JaxbViewResolver(jaxb, new Compression().threshold(0), cache);
+		req.header("Accept-Encoding", "gzip");
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withCacheKey("pojo").withCharacterEncoding("ISO-8859-1"));
+
+		assertThat(resp.<String> header("Content-Encoding"), is("gzip"));
+		assertThat(decompress(new GZIPInputStream(new ByteArrayInputStream(resp.content().getBytes("ISO-8859-1")))),
+				is("<?xml version=\"1.0\" encoding=\"ISO-8859-1\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+		assertThat(new String(cache.get("pojo", "ISO-8859-1"), "ISO-8859-1"), is("<?xml version=\"1.0\" encoding=\"ISO-8859-1\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldIgnoreCacheKeyWithoutCache() {
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withCacheKey("pojo"));
+		assertThat(resolver.getCache(), is(nullValue()));
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldBufferResponseAndSetContentLength() {
+		ResponseBuffers buffers = new ResponseBuffers();
+		resolver = new JaxbViewResolver(jaxb, Compression.None, null, buffers);
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)));
+
+		String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>";
+		assertThat(resp.content(), is(expected));
+		assertThat(resp.getContentLength(), is(expected.length()));
+		assertThat(buffers.getBuffered(), is(1L));
+		assertThat(buffers.getTypicalSize(XmlPojo.class), is(expected.length()));
+	}
+
+	@Test
+	public void shouldStreamResponsesWhichOutgrowTheBuffer() {
+		ResponseBuffers buffers = new ResponseBuffers(64, 1);
+		resolver = new JaxbViewResolver(jaxb, Compression.None, null, buffers);
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", "name", null)));
+
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlPojo><id>id</id><name>name</name></xmlPojo>"));
+		assertThat(buffers.getStreamed(), is(1L));
+	}
+
+	@Test
+	public void shouldBufferCompressedResponse() throws IOException {
+		ResponseBuffers buffers = new ResponseBuffers();
+		resolver = new JaxbViewResolver(jaxb, new Compression().threshold(0), null, buffers);
+		req.header("Accept-Encoding", "gzip");
+		resolver.resolve(req, resp, new XmlView(new XmlPojo("id", null, null)).withCharacterEncoding("ISO-8859-1"));
+
+		byte[] compressed = resp.content().getBytes("ISO-8859-1");
+		assertThat(resp.<String> header("Content-Encoding"), is("gzip"));
+		assertThat(resp.getContentLength(), is(compressed.length));
+		assertThat(decompress(new GZIPInputStream(new ByteArrayInputStream(compressed))),
+				is("<?xml version=\"1.0\" encoding=\"ISO-8859-1\" standalone=\"yes\"?><xmlPojo><id>id</id></xmlPojo>"));
+	}
+
+	@Test
+	public void shouldNotBufferStreamedOutputWhichIsFlushedPeriodically() {
+		ResponseBuffers buffers = new ResponseBuffers();
+		resolver = new JaxbViewResolver(jaxb, Compression.None, null, buffers);
+		resolver.resolve(req, resp, new XmlView(list(new XmlPojo("id1", null, null)).iterator(), "Pojos").withFlushEvery(1));
+
+		assertThat(resp.content(), is("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Pojos><xmlPojo><id>id1</id></xmlPojo></Pojos>"));
+		assertThat(buffers.getBuffered(), is(0L));
+		assertThat(buffers.getStreamed(), is(0L));
+	}
+
 	@Test
 	public void shouldAllowAccessToInternalJaxb() {
 		assertThat(resolver.getJaxb(), is(jaxb));
 	}
 
+	private String largeString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			sb.append("value").append(i);
+		}
+		return sb.toString();
+	}
+
+	private String decompress(InputStream is) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			os.write(buffer, 0, read);
+		}
+		return new String(os.toByteArray(), "ISO-8859-1");
+	}
+
+	private static class CopiedXmlView extends XmlView {
+		private CopiedXmlView(XmlView other) {
+			super(other);
+		}
+	}
 }
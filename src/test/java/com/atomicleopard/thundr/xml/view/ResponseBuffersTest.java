@@ -0,0 +1,113 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.view;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.atomicleopard.thundr.xml.http.BufferingOutputStream;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+
+public class ResponseBuffersTest {
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+	private ByteArrayOutputStream target = new ByteArrayOutputStream();
+	private ResponseBuffers buffers = new ResponseBuffers(4096, 2);
+
+	@Test
+	public void shouldDefaultMaxSizeAndIdle() {
+		ResponseBuffers buffers = new ResponseBuffers();
+		assertThat(buffers.getMaxSize(), is(ResponseBuffers.DefaultMaxSize));
+		assertThat(buffers.getMaxIdle(), is(ResponseBuffers.DefaultMaxIdle));
+	}
+
+	@Test
+	public void shouldReuseReleasedBuffers() throws IOException {
+		BufferingOutputStream os = buffers.open(resp, target, String.class);
+		byte[] buffer = os.getBuffer();
+		os.close();
+		buffers.release(String.class, os);
+
+		assertThat(buffers.open(resp, target, String.class).getBuffer(), is(sameInstance(buffer)));
+		assertThat(buffers.open(resp, target, String.class).getBuffer(), is(not(sameInstance(buffer))));
+	}
+
+	@Test
+	public void shouldNotRetainMoreThanMaxIdleBuffers() throws IOException {
+		BufferingOutputStream os1 = buffers.open(resp, target, String.class);
+		BufferingOutputStream os2 = buffers.open(resp, target, String.class);
+		BufferingOutputStream os3 = buffers.open(resp, target, String.class);
+		buffers.release(String.class, os1);
+		buffers.release(String.class, os2);
+		buffers.release(String.class, os3);
+
+		assertThat(buffers.open(resp, target, String.class).getBuffer(), is(sameInstance(os1.getBuffer())));
+		assertThat(buffers.open(resp, target, String.class).getBuffer(), is(sameInstance(os2.getBuffer())));
+		assertThat(buffers.open(resp, target, String.class).getBuffer(), is(not(sameInstance(os3.getBuffer()))));
+	}
+
+	@Test
+	public void shouldLearnTypicalSizePerType() throws IOException {
+		assertThat(buffers.getTypicalSize(String.class), is(0));
+		BufferingOutputStream os = buffers.open(resp, target, String.class);
+		assertThat(os.getBuffer().length, is(512));
+		os.write(new byte[2000]);
+		os.close();
+		buffers.release(String.class, os);
+
+		assertThat(buffers.getTypicalSize(String.class), is(2000));
+		assertThat(buffers.getTypicalSize(Integer.class), is(0));
+		assertThat(buffers.open(resp, target, String.class).getBuffer().length, is(2500));
+		assertThat(buffers.open(resp, target, Integer.class).getBuffer().length, is(512));
+	}
+
+	@Test
+	public void shouldAverageTypicalSize() throws IOException {
+		release(800);
+		release(1600);
+		assertThat(buffers.getTypicalSize(String.class), is(900));
+	}
+
+	@Test
+	public void shouldNotPresizeBeyondMaxSize() throws IOException {
+		release(10000);
+		assertThat(buffers.getTypicalSize(String.class), is(4096));
+		assertThat(buffers.open(resp, target, String.class).getBuffer().length, is(4096));
+	}
+
+	@Test
+	public void shouldCountBufferedAndStreamedResponses() throws IOException {
+		release(100);
+		release(5000);
+		assertThat(buffers.getBuffered(), is(1L));
+		assertThat(buffers.getStreamed(), is(1L));
+		assertThat(buffers.toString(), is("ResponseBuffers[buffered=1, streamed=1, idle=1]"));
+	}
+
+	private void release(int size) throws IOException {
+		BufferingOutputStream os = buffers.open(resp, target, String.class);
+		os.write(new byte[size]);
+		os.close();
+		buffers.release(String.class, os);
+	}
+}
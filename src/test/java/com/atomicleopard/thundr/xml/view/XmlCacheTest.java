@@ -0,0 +1,124 @@
+/*
+ * This file is a community contributed library for use with thundr.
+ * Read more: http://3wks.github.io/thundr/
+ *
+ * Copyright (C) 2014 Atomic Leopard, <nick@atomicleopard.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atomicleopard.thundr.xml.view;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class XmlCacheTest {
+	private XmlCache cache = new XmlCache(10);
+
+	@Test
+	public void shouldDefaultMaxBytes() {
+		assertThat(new XmlCache().getMaxBytes(), is(XmlCache.DefaultMaxBytes));
+		assertThat(new XmlCache(-1).getMaxBytes(), is(0L));
+	}
+
+	@Test
+	public void shouldRetainContentPerEncoding() {
+		byte[] utf8 = new byte[2];
+		byte[] utf16 = new byte[4];
+		cache.put("key", "UTF-8", utf8);
+		cache.put("key", "UTF-16", utf16);
+
+		assertThat(cache.get("key", "UTF-8"), is(sameInstance(utf8)));
+		assertThat(cache.get("key", "utf-8"), is(sameInstance(utf8)));
+		assertThat(cache.get("key", "UTF-16"), is(sameInstance(utf16)));
+		assertThat(cache.get("key", "ISO-8859-1"), is(nullValue()));
+		assertThat(cache.get("other", "UTF-8"), is(nullValue()));
+		assertThat(cache.getSize(), is(2));
+		assertThat(cache.getBytes(), is(6L));
+	}
+
+	@Test
+	public void shouldCountHitsAndMisses() {
+		cache.put("key", "UTF-8", new byte[1]);
+		cache.get("key", "UTF-8");
+		cache.get("key", "UTF-8");
+		cache.get("other", "UTF-8");
+
+		assertThat(cache.getHits(), is(2L));
+		assertThat(cache.getMisses(), is(1L));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedContentWhenOverMaxBytes() {
+		cache.put("a", "UTF-8", new byte[4]);
+		cache.put("b", "UTF-8", new byte[4]);
+		cache.get("a", "UTF-8");
+		cache.put("c", "UTF-8", new byte[4]);
+
+		assertThat(cache.get("a", "UTF-8"), is(notNullValue()));
+		assertThat(cache.get("b", "UTF-8"), is(nullValue()));
+		assertThat(cache.get("c", "UTF-8"), is(notNullValue()));
+		assertThat(cache.getEvictions(), is(1L));
+		assertThat(cache.getBytes(), is(8L));
+	}
+
+	@Test
+	public void shouldReplaceExistingContent() {
+		cache.put("a", "UTF-8", new byte[4]);
+		cache.put("a", "UTF-8", new byte[6]);
+
+		assertThat(cache.get("a", "UTF-8").length, is(6));
+		assertThat(cache.getBytes(), is(6L));
+		assertThat(cache.getEvictions(), is(0L));
+	}
+
+	@Test
+	public void shouldNotRetainContentLargerThanMaxBytes() {
+		cache.put("a", "UTF-8", new byte[4]);
+		cache.put("b", "UTF-8", new byte[11]);
+
+		assertThat(cache.get("a", "UTF-8"), is(notNullValue()));
+		assertThat(cache.get("b", "UTF-8"), is(nullValue()));
+		assertThat(cache.getEvictions(), is(0L));
+	}
+
+	@Test
+	public void shouldInvalidateAllEncodingsOfKey() {
+		cache.put("a", "UTF-8", new byte[2]);
+		cache.put("a", "UTF-16", new byte[4]);
+		cache.put("b", "UTF-8", new byte[1]);
+		cache.invalidate("a");
+
+		assertThat(cache.get("a", "UTF-8"), is(nullValue()));
+		assertThat(cache.get("a", "UTF-16"), is(nullValue()));
+		assertThat(cache.get("b", "UTF-8"), is(notNullValue()));
+		assertThat(cache.getBytes(), is(1L));
+	}
+
+	@Test
+	public void shouldClear() {
+		cache.put("a", "UTF-8", new byte[2]);
+		cache.clear();
+
+		assertThat(cache.getSize(), is(0));
+		assertThat(cache.getBytes(), is(0L));
+	}
+
+	@Test
+	public void shouldDescribeInToString() {
+		cache.put("a", "UTF-8", new byte[2]);
+		cache.get("a", "UTF-8");
+		assertThat(cache.toString(), is("XmlCache[hits=1, misses=0, evictions=0, size=1, bytes=2]"));
+	}
+}